@@ -38,6 +38,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -49,6 +53,7 @@ import org.apache.openmeetings.db.entity.file.BaseFileItem;
 import org.apache.openmeetings.db.entity.record.Recording;
 import org.apache.openmeetings.db.entity.record.RecordingChunk;
 import org.apache.openmeetings.db.entity.record.RecordingChunk.Status;
+import org.apache.openmeetings.util.process.ConversionScheduler.Tool;
 import org.apache.openmeetings.util.process.ProcessHelper;
 import org.apache.openmeetings.util.process.ProcessResult;
 import org.apache.openmeetings.util.process.ProcessResultList;
@@ -63,6 +68,7 @@ public abstract class BaseConverter {
 	public static final String EXEC_EXT = System.getProperty("os.name").toUpperCase().indexOf("WINDOWS") < 0 ? "" : ".exe";
 	private static final int MINUTE_MULTIPLIER = 60 * 1000;
 	public static final int TIME_TO_WAIT_FOR_FRAME = 15 * MINUTE_MULTIPLIER;
+	private static final int STOP_CHECK_INTERVAL = MINUTE_MULTIPLIER;
 
 	@Autowired
 	protected ConfigurationDao cfgDao;
@@ -164,13 +170,13 @@ public abstract class BaseConverter {
 
 			String[] cmd = new String[] { getPathToSoX(), oneSecWav, wav.getCanonicalPath(), "pad", "0", String.valueOf(duration) };
 
-			logs.add(ProcessHelper.executeScript("generateSampleAudio", cmd));
+			logs.add(ProcessHelper.executeScript(Tool.sox, "generateSampleAudio", cmd));
 		} else if (waveFiles.size() == 1) {
 			copyFile(waveFiles.get(0), wav);
 		} else {
 			String[] soxArgs = mergeAudioToWaves(waveFiles, wav);
 
-			logs.add(ProcessHelper.executeScript("mergeAudioToWaves", soxArgs));
+			logs.add(ProcessHelper.executeScript(Tool.sox, "mergeAudioToWaves", soxArgs));
 		}
 	}
 
@@ -182,7 +188,7 @@ public abstract class BaseConverter {
 				, String.valueOf(length < 0 ? 0 : length)
 				, String.valueOf(position < 0 ? 0 : position) };
 
-		logs.add(ProcessHelper.executeScript(job, argv));
+		logs.add(ProcessHelper.executeScript(Tool.sox, job, argv));
 		return argv;
 	}
 
@@ -196,39 +202,67 @@ public abstract class BaseConverter {
 	}
 
 	protected RecordingChunk waitForTheStream(long chunkId) throws InterruptedException {
-		RecordingChunk chunk = chunkDao.get(chunkId);
-		if (chunk.getStreamStatus() != Status.STOPPED) {
-			log.debug("### Chunk Stream not yet written to disk {}", chunkId);
-			long counter = 0;
-			long maxTimestamp = 0;
-			while(true) {
-				log.trace("### Stream not yet written Thread Sleep - {}", chunkId);
+		return waitForTheStream(chunkId, TIME_TO_WAIT_FOR_FRAME);
+	}
 
-				chunk = chunkDao.get(chunkId);
+	RecordingChunk waitForTheStream(long chunkId, long idleTimeout) throws InterruptedException {
+		return waitForTheStream(chunkId, idleTimeout, STOP_CHECK_INTERVAL);
+	}
 
-				if (chunk.getStreamStatus() == Status.STOPPED) {
-					printChunkInfo(chunk, "Stream now written");
-					log.debug("### Thread continue ... " );
-					break;
-				} else {
-					File chunkFlv = getRecordingChunk(chunk.getRecording().getRoomId(), chunk.getStreamName());
-					if (chunkFlv.exists() && maxTimestamp < chunkFlv.lastModified()) {
-						maxTimestamp = chunkFlv.lastModified();
+	/**
+	 * Waits for the chunk to be stopped, the thread is blocked until stop
+	 * notification, chunk file is only checked in case there were no
+	 * notification for {@code idleTimeout} since its last modification.
+	 * Notifications are local to this node, so chunk status is re-read
+	 * every {@code checkInterval} to catch stops made by other cluster members
+	 *
+	 * @param chunkId - id of the chunk
+	 * @param idleTimeout - time in milliseconds without chunk file updates, after which chunk is considered stopped
+	 * @param checkInterval - time in milliseconds between chunk status checks
+	 * @return stopped chunk
+	 * @throws InterruptedException in case thread was interrupted
+	 */
+	RecordingChunk waitForTheStream(long chunkId, long idleTimeout, long checkInterval) throws InterruptedException {
+		Future<Long> stopped = chunkDao.onStop(chunkId);
+		if (!stopped.isDone()) {
+			RecordingChunk chunk = chunkDao.get(chunkId);
+			log.debug("### Chunk Stream not yet written to disk {}", chunkId);
+			File chunkFile = getRecordingChunk(chunk.getRecording().getRoomId(), chunk.getStreamName());
+			long lastModified = chunkFile.exists() ? chunkFile.lastModified() : 0;
+			while (true) {
+				long timeout = lastModified + idleTimeout - System.currentTimeMillis();
+				try {
+					if (timeout > 0) {
+						stopped.get(Math.min(timeout, checkInterval), TimeUnit.MILLISECONDS);
+						log.debug("### Stream now written, thread continue ... ");
+						break;
 					}
-					if (maxTimestamp + TIME_TO_WAIT_FOR_FRAME < System.currentTimeMillis()) {
-						log.debug("### long time without any update, closing ... ");
-						chunk.setStreamStatus(Status.STOPPED);
-						chunkDao.update(chunk);
+				} catch (TimeoutException e) {
+					// chunk might be stopped on other cluster member, registering again re-reads its status
+					if (chunkDao.onStop(chunkId).isDone()) {
+						log.debug("### Stream was stopped elsewhere, thread continue ... ");
 						break;
 					}
+					if (timeout > checkInterval) {
+						continue;
+					}
+				} catch (ExecutionException e) {
+					log.warn("Unexpected exception while waiting for the stream", e);
+					break;
 				}
-				if (++counter % 1000 == 0) {
+				if (chunkFile.exists() && lastModified < chunkFile.lastModified()) {
+					lastModified = chunkFile.lastModified();
 					printChunkInfo(chunk, "Still waiting");
+				} else {
+					log.debug("### long time without any update, closing ... ");
+					chunk.setStreamStatus(Status.STOPPED);
+					chunkDao.update(chunk);
+					break;
 				}
-
-				Thread.sleep(100L);
 			}
 		}
+		RecordingChunk chunk = chunkDao.get(chunkId);
+		printChunkInfo(chunk, "Stream now written");
 		return chunk;
 	}
 
@@ -264,7 +298,7 @@ public abstract class BaseConverter {
 							, "-af", String.format("aresample=%s:min_comp=0.001:min_hard_comp=0.100000", getAudioBitrate())
 							, outputWav.getCanonicalPath()};
 					//there might be no audio in the stream
-					logs.add(ProcessHelper.executeScript("stripAudioFromFLVs", argv, true));
+					logs.add(ProcessHelper.executeScript(Tool.ffmpeg, "stripAudioFromFLVs", argv, true));
 				}
 
 				if (outputWav.exists() && outputWav.length() != 0) {
@@ -332,7 +366,7 @@ public abstract class BaseConverter {
 		String mp4path = r.getFile().getCanonicalPath();
 		List<String> argv = new ArrayList<>(Arrays.asList(getPathToFFMPEG(), "-y"));
 		argv.addAll(_argv);
-		logs.add(ProcessHelper.executeScript("generate MP4", addMp4OutParams(r, argv, mp4path).toArray(new String[]{})));
+		logs.add(ProcessHelper.executeScript(Tool.ffmpeg, "generate MP4", addMp4OutParams(r, argv, mp4path).toArray(new String[]{})));
 		return mp4path;
 	}
 
@@ -346,7 +380,7 @@ public abstract class BaseConverter {
 				, "-vf", "thumbnail,scale=640:-1" //
 				, "-frames:v", "1" //
 				, png.getCanonicalPath() };
-		logs.add(ProcessHelper.executeScript(String.format("generate preview PNG :: %s", f.getHash()), argv));
+		logs.add(ProcessHelper.executeScript(Tool.ffmpeg, String.format("generate preview PNG :: %s", f.getHash()), argv));
 	}
 
 	protected static Dimension getDimension(String txt) {
@@ -24,10 +24,13 @@ import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_PATH_OFF
 
 import java.io.File;
 import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 import org.apache.openmeetings.db.dao.basic.ConfigurationDao;
 import org.apache.openmeetings.db.entity.file.FileItem;
 import org.apache.openmeetings.util.StoredFile;
+import org.apache.openmeetings.util.process.ConversionScheduler;
+import org.apache.openmeetings.util.process.ConversionScheduler.Tool;
 import org.apache.openmeetings.util.process.ProcessResult;
 import org.apache.openmeetings.util.process.ProcessResultList;
 import org.apache.wicket.util.string.Strings;
@@ -54,6 +57,20 @@ public class DocumentConverter {
 	}
 
 	public ProcessResultList convertPDF(FileItem f, StoredFile sf, ProcessResultList logs) throws Exception {
+		return convertPDF(f, sf, logs, null);
+	}
+
+	/**
+	 * Converts document to PDF and then to the series of images
+	 *
+	 * @param f - {@link FileItem} object to write number of pages and size
+	 * @param sf - {@link StoredFile} of the document
+	 * @param logs - logs of the conversion
+	 * @param pagesReady - optional, will be called with number of pages ready
+	 * @return - result of conversion
+	 * @throws Exception in case of any error
+	 */
+	public ProcessResultList convertPDF(FileItem f, StoredFile sf, ProcessResultList logs, IntConsumer pagesReady) throws Exception {
 		boolean fullProcessing = !sf.isPdf();
 		File original = f.getFile(sf.getExt());
 		File pdf = f.getFile(EXTENSION_PDF);
@@ -66,7 +83,7 @@ public class DocumentConverter {
 		}
 
 		log.debug("-- generate page images --");
-		return imageConverter.convertDocument(f, pdf, logs);
+		return imageConverter.convertDocument(f, pdf, logs, pagesReady);
 	}
 
 	public static void createOfficeManager(String officePath, Consumer<OfficeManager> consumer) {
@@ -97,11 +114,18 @@ public class DocumentConverter {
 	 */
 	public ProcessResult doJodConvert(File in, File out) {
 		try {
-			createOfficeManager(cfgDao.getString(CONFIG_PATH_OFFICE, null)
-					, man -> {
-						OfficeDocumentConverter converter = new OfficeDocumentConverter(man);
-						converter.convert(in, out);
-					});
+			ConversionScheduler.execute(Tool.office, () -> {
+				createOfficeManager(cfgDao.getString(CONFIG_PATH_OFFICE, null)
+						, man -> {
+							OfficeDocumentConverter converter = new OfficeDocumentConverter(man);
+							converter.convert(in, out);
+						});
+				return null;
+			});
+		} catch (InterruptedException ex) {
+			log.error(JOD_JOD_NAME, ex);
+			Thread.currentThread().interrupt();
+			return new ProcessResult(JOD_JOD_NAME, ex.getMessage(), ex);
 		} catch (Exception ex) {
 			log.error(JOD_JOD_NAME, ex);
 			return new ProcessResult(JOD_JOD_NAME, ex.getMessage(), ex);
@@ -33,7 +33,17 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntConsumer;
+
+import javax.annotation.PreDestroy;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.openmeetings.db.dao.user.UserDao;
@@ -42,9 +52,14 @@ import org.apache.openmeetings.db.entity.file.FileItem;
 import org.apache.openmeetings.db.entity.user.User;
 import org.apache.openmeetings.util.OmFileHelper;
 import org.apache.openmeetings.util.StoredFile;
+import org.apache.openmeetings.util.process.ConversionScheduler;
+import org.apache.openmeetings.util.process.ConversionScheduler.Priority;
+import org.apache.openmeetings.util.process.ConversionScheduler.Tool;
 import org.apache.openmeetings.util.process.ProcessHelper;
 import org.apache.openmeetings.util.process.ProcessResult;
 import org.apache.openmeetings.util.process.ProcessResultList;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.tika.metadata.Metadata;
 import org.apache.tika.metadata.TIFF;
 import org.apache.tika.parser.ParseContext;
@@ -60,6 +75,10 @@ import org.xml.sax.helpers.DefaultHandler;
 public class ImageConverter extends BaseConverter {
 	private static final Logger log = LoggerFactory.getLogger(ImageConverter.class);
 	private static final String PAGE_TMPLT = DOC_PAGE_PREFIX + "-%04d." + EXTENSION_PNG;
+	private static final int MIN_PAGES_PER_CHUNK = 5;
+	private static final String CONVERT_PDF = "convert PDF to images";
+	// runs page chunks, number of running chunks is limited by ConversionScheduler
+	private final ExecutorService pool = Executors.newCachedThreadPool();
 
 	@Autowired
 	private UserDao userDao;
@@ -152,7 +171,7 @@ public class ImageConverter extends BaseConverter {
 	private ProcessResult convertSinglePng(File in, File out) throws IOException {
 		String[] argv = new String[] { getPathToConvert(), in.getCanonicalPath(), out.getCanonicalPath() };
 
-		return ProcessHelper.executeScript("convertSinglePng", argv);
+		return ProcessHelper.executeScript(Tool.imagemagick, "convertSinglePng", argv);
 	}
 
 	public ProcessResult resize(File in, File out, Integer width, Integer height) throws IOException {
@@ -160,12 +179,16 @@ public class ImageConverter extends BaseConverter {
 				, "-resize", (width == null ? "" : width) + (height == null ? "" : "x" + height)
 				, in.getCanonicalPath(), out.getCanonicalPath()
 				};
-		return ProcessHelper.executeScript("resize", argv);
+		return ProcessHelper.executeScript(Tool.imagemagick, "resize", argv);
 	}
 
 	/**
 	 * Converts PDF document to the series of images
 	 *
+	 * Number of pages is being determined before conversion, pages are
+	 * rendered in chunks by several parallel `convert` invocations,
+	 * first page is being rendered first
+	 *
 	 * @param f - {@link FileItem} object to write number of pages and size
 	 * @param pdf - input PDF document
 	 * @param logs - logs of the conversion
@@ -173,25 +196,130 @@ public class ImageConverter extends BaseConverter {
 	 * @throws IOException in case IO exception occurred
 	 */
 	public ProcessResultList convertDocument(FileItem f, File pdf, ProcessResultList logs) throws IOException {
+		return convertDocument(f, pdf, logs, null);
+	}
+
+	/**
+	 * Converts PDF document to the series of images, reports progress of the conversion
+	 *
+	 * @param f - {@link FileItem} object to write number of pages and size
+	 * @param pdf - input PDF document
+	 * @param logs - logs of the conversion
+	 * @param pagesReady - will be called with number of pages ready, pages are ready in order,
+	 *    number of pages and size are set to {@code f} before first call
+	 * @return - result of conversion
+	 * @throws IOException in case IO exception occurred
+	 */
+	public ProcessResultList convertDocument(FileItem f, File pdf, ProcessResultList logs, IntConsumer pagesReady) throws IOException {
+		return convertDocument(f, pdf, logs, 0, pagesReady);
+	}
+
+	ProcessResultList convertDocument(FileItem f, File pdf, ProcessResultList logs, int pagesPerChunk, IntConsumer pagesReady) throws IOException {
 		log.debug("convertDocument");
-		String[] argv = new String[] {
-			getPathToConvert()
-			, "-density", getDpi()
-			, pdf.getCanonicalPath()
-			, "-quality", getQuality()
-			, new File(pdf.getParentFile(), PAGE_TMPLT).getCanonicalPath()
-			};
-		ProcessResult res = ProcessHelper.executeScript("convert PDF to images", argv);
-		logs.add(res);
-		if (res.isOk()) {
-			File[] pages = pdf.getParentFile().listFiles(fi -> fi.isFile() && fi.getName().startsWith(DOC_PAGE_PREFIX) && fi.getName().endsWith(EXTENSION_PNG));
-			if (pages == null || pages.length == 0) {
-				f.setCount(0);
-			} else {
-				f.setCount(pages.length);
-				logs.add(initSize(f, pages[0], PNG_MIME_TYPE));
+		final int count = getPageCount(pdf);
+		if (count < 1) {
+			// unable to get number of pages, whole document will be converted at once
+			ProcessResult res = ProcessHelper.executeScript(Tool.imagemagick, CONVERT_PDF, getConvertArgs(pdf, -1, -1));
+			logs.add(res);
+			if (res.isOk()) {
+				File[] pages = pdf.getParentFile().listFiles(fi -> fi.isFile() && fi.getName().startsWith(DOC_PAGE_PREFIX) && fi.getName().endsWith(EXTENSION_PNG));
+				if (pages == null || pages.length == 0) {
+					f.setCount(0);
+				} else {
+					f.setCount(pages.length);
+					logs.add(initSize(f, pages[0], PNG_MIME_TYPE));
+				}
+			}
+			if (pagesReady != null) {
+				pagesReady.accept(f.getCount());
+			}
+			return logs;
+		}
+		f.setCount(count);
+		final Priority priority = ConversionScheduler.getPriority();
+		final List<int[]> ranges = getChunks(count, pagesPerChunk > 0 ? pagesPerChunk : getPagesPerChunk(count));
+		List<CompletableFuture<ProcessResult>> chunks = new ArrayList<>();
+		for (int[] range : ranges) {
+			// slot is acquired by the scheduler, so the script is executed without the limit
+			final String[] argv = getConvertArgs(pdf, range[0], range[1]);
+			chunks.add(ConversionScheduler.submit(Tool.imagemagick, priority
+					, () -> ProcessHelper.executeScript(CONVERT_PDF, argv), pool));
+		}
+		boolean failed = false;
+		for (int i = 0; i < chunks.size(); ++i) {
+			try {
+				ProcessResult res = chunks.get(i).get();
+				logs.add(res);
+				if (!res.isOk()) {
+					failed = true;
+				} else if (i == 0) {
+					logs.add(initSize(f, new File(pdf.getParentFile(), String.format(PAGE_TMPLT, 0)), PNG_MIME_TYPE));
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				chunks.forEach(c -> c.cancel(true));
+				throw new IOException("Conversion was interrupted", e);
+			} catch (ExecutionException e) {
+				logs.add(new ProcessResult(CONVERT_PDF, e.getMessage(), e));
+				failed = true;
+			}
+			// pages are ready in order, nothing is reported after the first failed chunk
+			if (pagesReady != null && !failed) {
+				pagesReady.accept(ranges.get(i)[1] + 1);
 			}
 		}
 		return logs;
 	}
+
+	@PreDestroy
+	public void destroy() {
+		pool.shutdownNow();
+	}
+
+	private String[] getConvertArgs(File pdf, int from, int to) throws IOException {
+		String in = pdf.getCanonicalPath();
+		List<String> argv = new ArrayList<>(Arrays.asList(getPathToConvert(), "-density", getDpi()));
+		if (from < 0) {
+			argv.add(in);
+		} else {
+			argv.addAll(Arrays.asList(String.format("%s[%s-%s]", in, from, to), "-scene", String.valueOf(from)));
+		}
+		argv.addAll(Arrays.asList("-quality", getQuality()
+				, new File(pdf.getParentFile(), PAGE_TMPLT).getCanonicalPath()));
+		return argv.toArray(new String[0]);
+	}
+
+	private static int getPageCount(File pdf) {
+		try (PDDocument doc = PDDocument.load(pdf, MemoryUsageSetting.setupTempFileOnly())) {
+			return doc.getNumberOfPages();
+		} catch (Exception e) {
+			log.warn("Unable to get number of pages of {}", pdf, e);
+			return -1;
+		}
+	}
+
+	static int getPagesPerChunk(int count) {
+		// every available converter slot should get couple of chunks for better balance
+		final int slots = 2 * ConversionScheduler.getLimit(Tool.imagemagick);
+		return Math.max(MIN_PAGES_PER_CHUNK, (count + slots - 1) / slots);
+	}
+
+	/**
+	 * Splits pages into ranges, first page is being rendered separately
+	 * to be available as soon as possible
+	 *
+	 * @param count - number of pages
+	 * @param pagesPerChunk - maximum number of pages in range
+	 * @return list of inclusive [from, to] page ranges
+	 */
+	static List<int[]> getChunks(int count, int pagesPerChunk) {
+		List<int[]> chunks = new ArrayList<>();
+		if (count > 0) {
+			chunks.add(new int[] {0, 0});
+		}
+		for (int from = 1; from < count; from += pagesPerChunk) {
+			chunks.add(new int[] {from, Math.min(count, from + pagesPerChunk) - 1});
+		}
+		return chunks;
+	}
 }
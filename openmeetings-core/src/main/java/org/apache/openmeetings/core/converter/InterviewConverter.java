@@ -37,6 +37,7 @@ import java.util.stream.Collectors;
 import org.apache.openmeetings.db.entity.record.Recording;
 import org.apache.openmeetings.db.entity.record.RecordingChunk;
 import org.apache.openmeetings.util.OmFileHelper;
+import org.apache.openmeetings.util.process.ConversionScheduler.Tool;
 import org.apache.openmeetings.util.process.ProcessHelper;
 import org.apache.openmeetings.util.process.ProcessResult;
 import org.apache.openmeetings.util.process.ProcessResultList;
@@ -135,7 +136,7 @@ public class InterviewConverter extends BaseConverter implements IRecordingConve
 					args.add(concat.insert(0, videos).append("concat=n=").append(parts.size()).append(":v=1:a=0").toString());
 					args.add("-an");
 					args.add(podX);
-					ProcessResult res = ProcessHelper.executeScript(String.format("Full video pod_%s", N), args.toArray(new String[0]), true);
+					ProcessResult res = ProcessHelper.executeScript(Tool.ffmpeg, String.format("Full video pod_%s", N), args.toArray(new String[0]), true);
 					logs.add(res);
 					if (res.isWarn()) {
 						throw new ConversionException("Fail to create pod");
@@ -191,7 +192,7 @@ public class InterviewConverter extends BaseConverter implements IRecordingConve
 					, "-v", "error"
 					, "-f", "null"
 					, "file.null"};
-			ProcessResult res = ProcessHelper.executeScript(String.format("Check chunk pod video_%s_%s", N, parts.size()), args, true);
+			ProcessResult res = ProcessHelper.executeScript(Tool.ffmpeg, String.format("Check chunk pod video_%s_%s", N, parts.size()), args, true);
 			logs.add(res);
 			if (!res.isWarn()) {
 				long diff = diff(chunk.isAudioOnly() ? chunk.getEnd() : chunk.getStart(), pStart);
@@ -27,6 +27,7 @@ import java.nio.file.Path;
 
 import org.apache.openmeetings.db.entity.file.BaseFileItem.Type;
 import org.apache.openmeetings.db.entity.file.FileItem;
+import org.apache.openmeetings.util.process.ConversionScheduler.Tool;
 import org.apache.openmeetings.util.process.ProcessHelper;
 import org.apache.openmeetings.util.process.ProcessResult;
 import org.apache.openmeetings.util.process.ProcessResultList;
@@ -57,7 +58,7 @@ public class VideoConverter extends BaseConverter {
 					, "-c:a", "libfdk_aac" //
 					, "-pix_fmt", "yuv420p" //
 					, mp4.getCanonicalPath() };
-			ProcessResult res = ProcessHelper.executeScript("convert to MP4 :: " + f.getHash(), args);
+			ProcessResult res = ProcessHelper.executeScript(Tool.ffmpeg, "convert to MP4 :: " + f.getHash(), args);
 			logs.add(res);
 			if (sameExt && tmp != null) {
 				if (res.isOk()) {
@@ -25,13 +25,27 @@ import static org.apache.openmeetings.util.OmFileHelper.getFileExt;
 
 import java.io.File;
 import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+import javax.annotation.PreDestroy;
 
 import org.apache.openmeetings.core.converter.DocumentConverter;
 import org.apache.openmeetings.core.converter.ImageConverter;
 import org.apache.openmeetings.core.converter.VideoConverter;
 import org.apache.openmeetings.db.dao.file.FileItemDao;
+import org.apache.openmeetings.db.dao.file.FileItemLogDao;
 import org.apache.openmeetings.db.entity.file.BaseFileItem.Type;
 import org.apache.openmeetings.db.entity.file.FileItem;
+import org.apache.openmeetings.util.NamedThreadFactory;
 import org.apache.openmeetings.util.StoredFile;
 import org.apache.openmeetings.util.process.ProcessResult;
 import org.apache.openmeetings.util.process.ProcessResultList;
@@ -44,6 +58,13 @@ import org.springframework.stereotype.Component;
 @Component
 public class FileProcessor {
 	private static final Logger log = LoggerFactory.getLogger(FileProcessor.class);
+	private static final long FIRST_PAGE_TIMEOUT = 5; // minutes
+	private static final int WAITING = -1;
+	private static final int HANDING = -2;
+	private static final int ABANDONED = -3;
+	// dedicated to uploads, so they are not queued behind recording conversions
+	private final ThreadPoolExecutor convertExecutor = new ThreadPoolExecutor(4, 4, 60L, TimeUnit.SECONDS
+			, new LinkedBlockingQueue<>(100), new NamedThreadFactory("doc-convert"));
 
 	//Spring loaded Beans
 	@Autowired
@@ -55,7 +76,37 @@ public class FileProcessor {
 	@Autowired
 	private DocumentConverter docConverter;
 
+	@Autowired
+	private FileItemLogDao fileLogDao;
+
+	public FileProcessor() {
+		convertExecutor.allowCoreThreadTimeOut(true);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		convertExecutor.shutdownNow();
+	}
+
 	public ProcessResultList processFile(FileItem f, InputStream is) throws Exception {
+		return processFile(f, is, null, null);
+	}
+
+	/**
+	 * Processes uploaded file, in case {@code pagesReady} is passed presentation
+	 * is returned as soon as its first page is converted, remaining pages are
+	 * converted in background, results of background conversion are written
+	 * to the file log
+	 *
+	 * @param f - {@link FileItem} to be processed
+	 * @param is - stream with file contents
+	 * @param pagesReady - optional, will be called with number of presentation pages ready,
+	 *    file is saved before first call
+	 * @param failed - optional, will be called with errors of background conversion
+	 * @return - result of processing
+	 * @throws Exception in case of any error
+	 */
+	public ProcessResultList processFile(FileItem f, InputStream is, IntConsumer pagesReady, Consumer<ProcessResultList> failed) throws Exception {
 		ProcessResultList logs = new ProcessResultList();
 		// Generate a random string to prevent any problems with
 		// foreign characters and duplicates
@@ -86,7 +137,7 @@ public class FileProcessor {
 			}
 			f.setHash(hash);
 
-			processFile(f, sf, temp, logs);
+			processFile(f, sf, temp, logs, pagesReady, failed);
 		} catch (Exception e) {
 			log.debug("Error while processing the file", e);
 			throw e;
@@ -98,7 +149,8 @@ public class FileProcessor {
 		return logs;
 	}
 
-	private void processFile(FileItem f, StoredFile sf, File temp, ProcessResultList logs) throws Exception {
+	private void processFile(FileItem f, StoredFile sf, File temp, ProcessResultList logs, IntConsumer pagesReady, Consumer<ProcessResultList> failed) throws Exception {
+		boolean persist = true;
 		try {
 			File file = f.getFile(sf.getExt());
 			log.debug("writing file to: {}", file);
@@ -111,7 +163,12 @@ public class FileProcessor {
 					log.debug("Office document: {}", file);
 					copyFile(temp, file);
 					// convert to pdf, thumbs, swf and xml-description
-					docConverter.convertPDF(f, sf, logs);
+					if (pagesReady == null) {
+						docConverter.convertPDF(f, sf, logs);
+					} else {
+						// file is persisted by background conversion
+						persist = !convertProgressive(f, sf, logs, pagesReady, failed);
+					}
 					break;
 				case PollChart:
 					log.debug("uploaded chart file"); // NOT implemented yet
@@ -130,8 +187,94 @@ public class FileProcessor {
 					break;
 			}
 		} finally {
-			f = fileDao.update(f);
-			log.debug("fileId: {}", f.getId());
+			if (persist) {
+				f = fileDao.update(f);
+				log.debug("fileId: {}", f.getId());
+			}
+		}
+	}
+
+	/**
+	 * @return true if conversion was started in background, false if it was performed synchronously
+	 */
+	private boolean convertProgressive(FileItem f, StoredFile sf, ProcessResultList logs, IntConsumer pagesReady
+			, Consumer<ProcessResultList> failed) throws Exception
+	{
+		final CountDownLatch firstPage = new CountDownLatch(1);
+		final ProcessResultList bgLogs = new ProcessResultList();
+		// number of logs handed to the caller, or one of WAITING, HANDING, ABANDONED
+		final AtomicInteger handed = new AtomicInteger(WAITING);
+		final AtomicInteger reported = new AtomicInteger();
+		try {
+			convertExecutor.execute(() -> {
+				try {
+					docConverter.convertPDF(f, sf, bgLogs, ready -> {
+						if (reported.get() == 0) {
+							fileDao.update(f);
+						}
+						reported.set(ready);
+						// progress should be recorded before request thread is released
+						pagesReady.accept(ready);
+						handOver(handed, bgLogs, logs, firstPage);
+					});
+				} catch (Exception e) {
+					log.error("Unexpected error while converting the document", e);
+					bgLogs.add(new ProcessResult("convertPDF", e.getMessage(), e));
+				} finally {
+					fileDao.update(f);
+					log.debug("fileId: {}", f.getId());
+					if (!handOver(handed, bgLogs, logs, firstPage)) {
+						finish(f, bgLogs, Math.max(0, handed.get()), failed);
+						if (reported.get() < f.getCount()) {
+							// conversion has failed, progress tracking should be finished
+							pagesReady.accept(f.getCount());
+						}
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			log.warn("Too many documents are being converted, converting synchronously");
+			docConverter.convertPDF(f, sf, logs);
+			return false;
+		}
+		if (!firstPage.await(FIRST_PAGE_TIMEOUT, TimeUnit.MINUTES) && !handed.compareAndSet(WAITING, ABANDONED)) {
+			// logs are being handed right now
+			firstPage.await();
+		}
+		if (handed.get() == ABANDONED) {
+			logs.add(new ProcessResult("convertPDF", "First page is not ready in time, conversion continues in background", null));
+		}
+		return true;
+	}
+
+	/**
+	 * Passes logs collected so far to the caller waiting for the first page
+	 *
+	 * @return true if logs were handed by this call
+	 */
+	private static boolean handOver(AtomicInteger handed, ProcessResultList bgLogs, ProcessResultList logs, CountDownLatch firstPage) {
+		if (!handed.compareAndSet(WAITING, HANDING)) {
+			return false;
+		}
+		List<ProcessResult> jobs = bgLogs.getJobs();
+		jobs.forEach(logs::add);
+		handed.set(jobs.size());
+		firstPage.countDown();
+		return true;
+	}
+
+	/**
+	 * Stores logs of background conversion not seen by the caller, reports them in case of errors
+	 */
+	private void finish(FileItem f, ProcessResultList bgLogs, int from, Consumer<ProcessResultList> failed) {
+		ProcessResultList rest = new ProcessResultList();
+		List<ProcessResult> jobs = bgLogs.getJobs();
+		for (ProcessResult res : jobs.subList(from, jobs.size())) {
+			fileLogDao.add(res.getProcess(), f, res);
+			rest.add(res);
+		}
+		if (rest.hasError() && failed != null) {
+			failed.accept(rest);
 		}
 	}
 }
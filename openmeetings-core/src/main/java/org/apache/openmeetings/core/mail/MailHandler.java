@@ -19,7 +19,9 @@
 package org.apache.openmeetings.core.mail;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.openmeetings.core.util.ClusterJobs.run;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_REPLY_TO_ORGANIZER;
+import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_SMTP_CONNECTIONS;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_SMTP_PASS;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_SMTP_PORT;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_SMTP_SERVER;
@@ -34,12 +36,18 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.activation.DataHandler;
+import javax.annotation.PreDestroy;
 import javax.mail.Authenticator;
 import javax.mail.BodyPart;
 import javax.mail.Message;
@@ -79,6 +87,7 @@ public class MailHandler {
 	private static final Logger log = LoggerFactory.getLogger(MailHandler.class);
 	private static final int MAIL_SEND_TIMEOUT = 60 * 60 * 1000; // 1 hour
 	private static final int MAXIMUM_ERROR_COUNT = 5;
+	private static final int BATCH_SIZE = 50; // messages sent using single connection
 
 	@Autowired
 	private ConfigurationDao cfgDao;
@@ -96,6 +105,9 @@ public class MailHandler {
 	private boolean mailAddReplyTo;
 	private int smtpConnectionTimeOut;
 	private int smtpTimeOut;
+	private int smtpConnections;
+	private ExecutorService sendExecutor;
+	private int sendThreads;
 
 	private void init() {
 		smtpServer = cfgDao.getString(CONFIG_SMTP_SERVER, null);
@@ -107,6 +119,7 @@ public class MailHandler {
 		mailAddReplyTo = cfgDao.getBool(CONFIG_REPLY_TO_ORGANIZER, true);
 		smtpConnectionTimeOut = cfgDao.getInt(CONFIG_SMTP_TIMEOUT_CON, 30000);
 		smtpTimeOut = cfgDao.getInt(CONFIG_SMTP_TIMEOUT, 30000);
+		smtpConnections = Math.max(1, cfgDao.getInt(CONFIG_SMTP_CONNECTIONS, 2));
 	}
 
 	public void init(String smtpServer, int smtpPort, String from, String mailAuthUser, String mailAuthPass, boolean mailTls, boolean mailAddReplyTo) {
@@ -172,6 +185,17 @@ public class MailHandler {
 		if (smtpServer == null) {
 			init();
 		}
+		return getBasicMimeMessage(getSession());
+	}
+
+	private MimeMessage getBasicMimeMessage(Session session) throws MessagingException {
+		// Building MimeMessage
+		MimeMessage msg = new MimeMessage(session);
+		msg.setFrom(new InternetAddress(from));
+		return msg;
+	}
+
+	private Session getSession() {
 		Properties props = new Properties(System.getProperties());
 
 		props.put("mail.smtp.host", smtpServer);
@@ -198,17 +222,15 @@ public class MailHandler {
 			// not use SMTP Authentication
 			session = Session.getInstance(props, null);
 		}
-
-		// Building MimeMessage
-		MimeMessage msg = new MimeMessage(session);
-		msg.setFrom(new InternetAddress(from));
-		return msg;
+		return session;
 	}
 
 	private MimeMessage getMimeMessage(MailMessage m) throws Exception {
+		return getMimeMessage(getBasicMimeMessage(), m);
+	}
+
+	private MimeMessage getMimeMessage(MimeMessage msg, MailMessage m) throws Exception {
 		log.debug("getMimeMessage");
-		// Building MimeMessage
-		MimeMessage msg = getBasicMimeMessage();
 		msg.setSubject(m.getSubject(), UTF_8.name());
 		String replyTo = m.getReplyTo();
 		if (replyTo != null && mailAddReplyTo) {
@@ -251,12 +273,7 @@ public class MailHandler {
 					m.setLastError("");
 					m.setStatus(Status.DONE);
 				} catch (Exception e) {
-					log.error("Error while sending message", e);
-					m.setErrorCount(m.getErrorCount() + 1);
-					StringWriter sw = new StringWriter();
-					e.printStackTrace(new PrintWriter(sw));
-					m.setLastError(sw.getBuffer().toString());
-					m.setStatus(m.getErrorCount() < MAXIMUM_ERROR_COUNT ? Status.NONE : Status.ERROR);
+					setError(m, e);
 				}
 				if (m.getId() != null) {
 					mailMessageDao.update(m, null);
@@ -268,7 +285,60 @@ public class MailHandler {
 		}
 	}
 
+	private static void setError(MailMessage m, Exception e) {
+		log.error("Error while sending message", e);
+		m.setErrorCount(m.getErrorCount() + 1);
+		StringWriter sw = new StringWriter();
+		e.printStackTrace(new PrintWriter(sw));
+		m.setLastError(sw.getBuffer().toString());
+		m.setStatus(m.getErrorCount() < MAXIMUM_ERROR_COUNT ? Status.NONE : Status.ERROR);
+	}
+
+	/**
+	 * Sends messages using single SMTP connection
+	 *
+	 * @param session - mail session
+	 * @param list - messages to be sent
+	 * @return number of messages sent
+	 */
+	private int send(Session session, List<MailMessage> list) {
+		int sent = 0;
+		Transport t = null;
+		try {
+			for (MailMessage m : list) {
+				try {
+					if (t == null || !t.isConnected()) {
+						t = session.getTransport("smtp");
+						t.connect();
+					}
+					MimeMessage msg = getMimeMessage(getBasicMimeMessage(session), m);
+					msg.saveChanges();
+					t.sendMessage(msg, msg.getAllRecipients());
+					m.setLastError("");
+					m.setStatus(Status.DONE);
+					sent++;
+				} catch (Exception e) {
+					setError(m, e);
+				}
+				mailMessageDao.update(m, null);
+			}
+		} finally {
+			if (t != null) {
+				try {
+					t.close();
+				} catch (MessagingException e) {
+					log.warn("Error while closing SMTP connection", e);
+				}
+			}
+		}
+		return sent;
+	}
+
 	public void resetSendingStatus() {
+		run("resetSendingStatus", true, this::doResetSendingStatus);
+	}
+
+	private void doResetSendingStatus() {
 		log.trace("resetSendingStatus enter ...");
 		if (!isInitComplete()) {
 			return;
@@ -279,17 +349,77 @@ public class MailHandler {
 		log.trace("... resetSendingStatus done.");
 	}
 
+	/**
+	 * @return pool sending mail batches, one thread per SMTP connection
+	 */
+	private synchronized ExecutorService getSendExecutor() {
+		if (sendExecutor == null || sendThreads != smtpConnections) {
+			if (sendExecutor != null) {
+				sendExecutor.shutdown();
+			}
+			sendThreads = smtpConnections;
+			sendExecutor = Executors.newFixedThreadPool(sendThreads);
+		}
+		return sendExecutor;
+	}
+
+	@PreDestroy
+	public synchronized void destroy() {
+		if (sendExecutor != null) {
+			sendExecutor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Drains the mail queue: messages are claimed in batches and sent
+	 * in parallel, each batch is sent using single SMTP connection.
+	 * Every cluster member drains the queue, claiming splits messages between them
+	 */
 	public void sendMails() {
+		run("sendMails", this::doSendMails);
+	}
+
+	private void doSendMails() {
 		init();
 		log.trace("sendMails enter ...");
-		List<MailMessage> list = mailMessageDao.get(0, 1, MailMessage.Status.NONE);
-		if (!list.isEmpty()) {
-			log.debug("Number of emails in init queue {}", list.size());
-			while (!list.isEmpty()) {
-				send(list.get(0), true);
-				list = mailMessageDao.get(0, 1, MailMessage.Status.NONE);
+		final Session session = getSession();
+		final long start = System.currentTimeMillis();
+		int total = 0, sent = 0;
+		List<MailMessage> list;
+		while (!(list = mailMessageDao.claim(BATCH_SIZE * smtpConnections)).isEmpty()) {
+			log.debug("Number of emails claimed {}", list.size());
+			List<CompletableFuture<Integer>> batches = new ArrayList<>(smtpConnections);
+			final int size = (list.size() + smtpConnections - 1) / smtpConnections;
+			final ExecutorService executor = getSendExecutor();
+			boolean rejected = false;
+			for (int i = 0; i < list.size(); i += size) {
+				final List<MailMessage> batch = list.subList(i, Math.min(i + size, list.size()));
+				if (!rejected) {
+					try {
+						batches.add(CompletableFuture.supplyAsync(() -> send(session, batch), executor));
+						continue;
+					} catch (RejectedExecutionException e) {
+						log.warn("Unable to schedule sending of mails, returning them to the queue", e);
+						rejected = true;
+					}
+				}
+				for (MailMessage m : batch) {
+					mailMessageDao.resetSendingStatus(m.getId());
+				}
+			}
+			for (CompletableFuture<Integer> f : batches) {
+				sent += f.join();
 			}
-			log.debug("... sendMails done.");
+			total += list.size();
+			if (rejected) {
+				break;
+			}
+		}
+		if (total > 0) {
+			long time = Math.max(1, System.currentTimeMillis() - start);
+			log.info("Mail queue processed: {} of {} messages sent in {} ms using {} connections, {} messages/s"
+					, sent, total, time, smtpConnections, String.format("%.1f", sent * 1000. / time));
 		}
+		log.trace("... sendMails done.");
 	}
 }
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openmeetings.core.remote;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency statistics of media server operations
+ */
+public class KLatency {
+	private final LongAdder count = new LongAdder();
+	private final LongAdder time = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * @param start - {@link System#nanoTime()} at the moment operation was requested
+	 * @return time in milliseconds operation took
+	 */
+	long add(long start) {
+		long nanos = System.nanoTime() - start;
+		count.increment();
+		time.add(nanos);
+		max.accumulateAndGet(nanos, Math::max);
+		return nanos / 1_000_000;
+	}
+
+	/**
+	 * @return number of operations measured
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * @return average time in milliseconds
+	 */
+	public double getAverage() {
+		long c = count.sum();
+		return c == 0 ? 0 : time.sum() / (c * 1_000_000.);
+	}
+
+	/**
+	 * @return maximum time in milliseconds
+	 */
+	public double getMax() {
+		return max.get() / 1_000_000.;
+	}
+}
@@ -0,0 +1,370 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openmeetings.core.remote;
+
+import static java.util.UUID.randomUUID;
+import static org.apache.openmeetings.core.remote.KurentoHandler.PARAM_ICE;
+import static org.apache.openmeetings.core.remote.KurentoHandler.newKurentoMsg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.openmeetings.db.entity.basic.Client;
+import org.apache.openmeetings.db.entity.basic.Client.Activity;
+import org.apache.openmeetings.db.entity.basic.Client.StreamType;
+import org.kurento.client.Composite;
+import org.kurento.client.Continuation;
+import org.kurento.client.HubPort;
+import org.kurento.client.IceCandidate;
+import org.kurento.client.MediaObject;
+import org.kurento.client.MediaType;
+import org.kurento.client.TFuture;
+import org.kurento.client.Transaction;
+import org.kurento.client.WebRtcEndpoint;
+import org.kurento.jsonrpc.JsonUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.openjson.JSONArray;
+import com.github.openjson.JSONObject;
+
+/**
+ * Mixes webcam streams of the room using {@link Composite}, every participant
+ * receives single mixed stream instead of one stream per broadcaster
+ */
+public class KMixer implements IKStream {
+	private static final Logger log = LoggerFactory.getLogger(KMixer.class);
+	private static final int WIDTH = 640;
+	private static final int HEIGHT = 480;
+
+	private final String uid = randomUUID().toString();
+	private final KRoom room;
+	private final Composite composite;
+	private final Map<String, HubPort> inputs = new ConcurrentHashMap<>();
+	private final Map<String, Listener> listeners = new ConcurrentHashMap<>();
+	private final Map<String, Listener> pending = new ConcurrentHashMap<>();
+	private final Set<String> notified = ConcurrentHashMap.newKeySet();
+	private volatile boolean released = false;
+
+	public KMixer(KRoom room) {
+		this(room, new Composite.Builder(room.pipeline).build());
+		composite.addTag("outUid", uid);
+	}
+
+	KMixer(KRoom room, Composite composite) {
+		this.room = room;
+		this.composite = composite;
+		log.info("ROOM {}: mixing is started", room.roomId);
+	}
+
+	public String getUid() {
+		return uid;
+	}
+
+	/**
+	 * @return description of the mixed stream in the same format as {@link Client.StreamDesc#toJson()}
+	 */
+	public JSONObject toJson() {
+		return new JSONObject()
+				.put("uid", uid)
+				.put("type", StreamType.WEBCAM.name())
+				.put("width", WIDTH)
+				.put("height", HEIGHT)
+				.put("activities", new JSONArray().put(Activity.AUDIO.name()).put(Activity.VIDEO.name()))
+				.put("cuid", uid)
+				.put("user", new JSONObject()
+						.put("id", 0)
+						.put("firstName", "")
+						.put("lastName", ""));
+	}
+
+	/**
+	 * @param h - handler
+	 * @return message asking participant to replace mixed streams with the mix
+	 */
+	JSONObject newStartedMsg(final KurentoHandler h) {
+		return newKurentoMsg()
+				.put("id", "mixStarted")
+				.put("stream", toJson())
+				.put("uids", new JSONArray(new ArrayList<>(inputs.keySet())))
+				.put(PARAM_ICE, h.getTurnServers());
+	}
+
+	/**
+	 * Participant joined after mixing was started requests separate streams,
+	 * it should be told about the mix, but only once
+	 *
+	 * @param luid - uid of the participant
+	 * @return true if participant was not notified yet
+	 */
+	boolean notify(String luid) {
+		return notified.add(luid);
+	}
+
+	/**
+	 * Connects broadcasting stream to the mixer, port of the stream is also used
+	 * to send the mix to the broadcaster, so own stream is not included
+	 *
+	 * @param s - the stream
+	 */
+	public synchronized void addBroadcaster(KStream s) {
+		if (s.getOutgoingMedia() == null || inputs.containsKey(s.getUid())) {
+			return;
+		}
+		HubPort in = new HubPort.Builder(composite).build();
+		in.addTag("outUid", s.getUid());
+		inputs.put(s.getUid(), in);
+		s.getOutgoingMedia().connect(in);
+		for (Listener l : listeners.values()) {
+			if (l.own && s.getSid().equals(l.sid)) {
+				// broadcaster was receive-only before
+				in.connect(l.endpoint, MediaType.AUDIO);
+				in.connect(l.endpoint, MediaType.VIDEO);
+				release(l.port);
+				l.port = in;
+				l.own = false;
+			}
+		}
+		log.debug("ROOM {}: stream {} is added to the mix", room.roomId, s.getUid());
+	}
+
+	public synchronized void removeBroadcaster(String streamUid) {
+		HubPort in = inputs.remove(streamUid);
+		if (in == null) {
+			return;
+		}
+		boolean used = false;
+		for (Map<String, Listener> m : Arrays.asList(listeners, pending)) {
+			for (Listener l : m.values()) {
+				if (l.port == in) {
+					// port keeps sending the mix to the listener
+					l.own = true;
+					used = true;
+				}
+			}
+		}
+		if (!used) {
+			release(in);
+		}
+	}
+
+	private HubPort getInput(String sid) {
+		for (KStream s : room.getParticipants()) {
+			if (StreamType.WEBCAM == s.getStreamType() && sid.equals(s.getSid())) {
+				HubPort in = inputs.get(s.getUid());
+				if (in != null) {
+					return in;
+				}
+			}
+		}
+		return null;
+	}
+
+	public boolean isMixed(String streamUid) {
+		return inputs.containsKey(streamUid);
+	}
+
+	public void addListener(final KurentoHandler h, String sid, String luid, String sdpOffer) {
+		log.info("USER {}: have started receiving mixed stream in room {}", luid, room.roomId);
+		Listener l = new Listener(sid, luid, sdpOffer);
+		pending.put(luid, l);
+		room.provision(h, l);
+	}
+
+	public void addCandidate(IceCandidate candidate, String luid) {
+		Listener l = listeners.get(luid);
+		if (l == null) {
+			l = pending.get(luid);
+		}
+		log.debug("Add candidate for {}, mixed listener found ? {}", luid, l != null);
+		if (l != null) {
+			l.addCandidate(candidate);
+		}
+	}
+
+	public void remove(final Client c) {
+		notified.remove(c.getUid());
+		pending.remove(c.getUid());
+		release(listeners.remove(c.getUid()));
+	}
+
+	public boolean contains(String luid) {
+		return listeners.containsKey(luid) || pending.containsKey(luid);
+	}
+
+	/**
+	 * @return number of media elements created by the mixer
+	 */
+	public int getEndpointCount() {
+		int count = 1 + inputs.size();
+		for (Listener l : listeners.values()) {
+			count += l.own ? 2 : 1;
+		}
+		return count;
+	}
+
+	private synchronized void release(Listener l) {
+		if (l != null) {
+			release(l.endpoint);
+			if (l.own) {
+				release(l.port);
+			}
+		}
+	}
+
+	private void release(MediaObject o) {
+		if (o == null) {
+			return;
+		}
+		o.release(new Continuation<Void>() {
+			@Override
+			public void onSuccess(Void result) throws Exception {
+				//no-op
+			}
+
+			@Override
+			public void onError(Throwable cause) throws Exception {
+				log.warn("ROOM {}: Could not release mixer element", room.roomId, cause);
+			}
+		});
+	}
+
+	@Override
+	public void release(KurentoHandler h) {
+		released = true;
+		pending.clear();
+		for (Listener l : listeners.values()) {
+			release(l);
+		}
+		listeners.clear();
+		for (HubPort p : inputs.values()) {
+			release(p);
+		}
+		inputs.clear();
+		release(composite);
+		log.info("ROOM {}: mixing is stopped", room.roomId);
+	}
+
+	/**
+	 * Participant receiving the mix, endpoint is created by {@link KRoom} along with
+	 * other endpoints requested at the same time, broadcaster receives the mix
+	 * through its own input port, receive-only participant gets separate port
+	 */
+	private class Listener extends KRoom.Provision {
+		private final String sid;
+		private final String luid;
+		private final String sdpOffer;
+		private HubPort port;
+		private boolean own;
+		private Listener prev;
+		private WebRtcEndpoint endpoint;
+		private TFuture<String> answer;
+		private final List<IceCandidate> candidates = new ArrayList<>();
+		private boolean ready = false;
+
+		Listener(String sid, String luid, String sdpOffer) {
+			this.sid = sid;
+			this.luid = luid;
+			this.sdpOffer = sdpOffer;
+		}
+
+		@Override
+		String getKey() {
+			return uid + luid;
+		}
+
+		@Override
+		boolean prepare(final KurentoHandler h, Transaction t) {
+			if (released || pending.get(luid) != this) {
+				log.debug("PARTICIPANT {}: mixed endpoint is not required anymore", luid);
+				return false;
+			}
+			synchronized (KMixer.this) {
+				if (prev == null) {
+					prev = listeners.remove(luid);
+				}
+				if (prev != null) {
+					prev.endpoint.release(t);
+					if (prev.own) {
+						prev.port.release(t);
+					}
+				}
+				HubPort in = getInput(sid);
+				own = in == null;
+				port = own ? new HubPort.Builder(composite).build(t) : in;
+			}
+			endpoint = new WebRtcEndpoint.Builder(room.pipeline).build(t);
+			endpoint.addTag(t, "outUid", uid);
+			endpoint.addTag(t, "uid", luid);
+			port.connect(t, endpoint, MediaType.AUDIO);
+			port.connect(t, endpoint, MediaType.VIDEO);
+			answer = endpoint.processOffer(t, sdpOffer);
+			return true;
+		}
+
+		@Override
+		void complete(final KurentoHandler h) {
+			if (released || !pending.remove(luid, this)) {
+				log.debug("PARTICIPANT {}: mixed endpoint is not required anymore, dropping", luid);
+				release(this);
+				return;
+			}
+			prev = null;
+			listeners.put(luid, this);
+			h.sendClient(sid, newKurentoMsg()
+					.put("id", "videoResponse")
+					.put("uid", uid)
+					.put("sdpAnswer", answer.get()));
+			synchronized (this) {
+				ready = true;
+				for (IceCandidate c : candidates) {
+					endpoint.addIceCandidate(c);
+				}
+				candidates.clear();
+			}
+			endpoint.addIceCandidateFoundListener(evt -> h.sendCandidate(sid, uid
+					, new JSONObject(JsonUtils.toJsonObject(evt.getCandidate()).toString())));
+			endpoint.gatherCandidates();
+		}
+
+		synchronized void addCandidate(IceCandidate candidate) {
+			if (ready) {
+				endpoint.addIceCandidate(candidate);
+			} else {
+				candidates.add(candidate);
+			}
+		}
+
+		@Override
+		void fail(final KurentoHandler h, Exception e) {
+			pending.remove(luid, this);
+			log.error("PARTICIPANT {}: Failed to create mixed endpoint", luid, e);
+			release(prev);
+			prev = null;
+			Client c = h.getBySid(sid);
+			if (c != null) {
+				KurentoHandler.sendError(c, "Failed to receive the stream");
+			}
+		}
+	}
+}
@@ -25,10 +25,18 @@ import static java.util.UUID.randomUUID;
 import static org.apache.openmeetings.core.remote.KurentoHandler.PARAM_ICE;
 import static org.apache.openmeetings.core.remote.KurentoHandler.newKurentoMsg;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.openmeetings.core.util.WebSocketHelper;
@@ -47,9 +55,11 @@ import org.apache.openmeetings.db.util.ws.RoomMessage;
 import org.apache.openmeetings.util.CalendarPatterns;
 import org.kurento.client.Continuation;
 import org.kurento.client.MediaPipeline;
+import org.kurento.client.Transaction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.openjson.JSONArray;
 import com.github.openjson.JSONObject;
 
 public class KRoom {
@@ -63,11 +73,18 @@ public class KRoom {
 	Long recordingId = null;
 	final RecordingChunkDao chunkDao;
 	private JSONObject recordingUser = new JSONObject();
+	private final Queue<Provision> provisions = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean provisioning = new AtomicBoolean(false);
+	private volatile KMixer mixer;
+	private final Map<StreamType, Set<String>> activeStreams = new EnumMap<>(StreamType.class);
 
 	public KRoom(Long roomId, MediaPipeline pipeline, RecordingChunkDao chunkDao) {
 		this.roomId = roomId;
 		this.pipeline = pipeline;
 		this.chunkDao = chunkDao;
+		for (StreamType type : StreamType.values()) {
+			activeStreams.put(type, ConcurrentHashMap.newKeySet());
+		}
 		log.info("ROOM {} has been created", roomId);
 	}
 
@@ -83,21 +100,161 @@ public class KRoom {
 		log.info("ROOM {}: join client {}, stream: {}", roomId, sd.getClient().getUser().getLogin(), sd.getUid());
 		final KStream stream = new KStream(sd, this);
 		streams.put(stream.getUid(), stream);
+		addStream(sd);
 		return stream;
 	}
 
+	/**
+	 * Registers stream as active in this room
+	 *
+	 * @param sd - stream being added
+	 */
+	void addStream(StreamDesc sd) {
+		activeStreams.get(sd.getType()).add(sd.getUid());
+	}
+
+	/**
+	 * Unregisters stream, no-op if stream is not active in this room
+	 *
+	 * @param uid - uid of the stream being removed
+	 */
+	void removeStream(String uid) {
+		for (Set<String> uids : activeStreams.values()) {
+			uids.remove(uid);
+		}
+	}
+
+	/**
+	 * @return true if there is at least one active stream in this room
+	 */
+	public boolean hasStreams() {
+		for (Set<String> uids : activeStreams.values()) {
+			if (!uids.isEmpty()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param type - type of the stream
+	 * @return true if there is at least one active stream of given type in this room
+	 */
+	public boolean hasStreams(StreamType type) {
+		return !activeStreams.get(type).isEmpty();
+	}
+
 	public Collection<KStream> getParticipants() {
 		return streams.values();
 	}
 
+	/**
+	 * @return number of media endpoints created in this room
+	 */
+	public int getEndpointCount() {
+		int count = 0;
+		for (KStream s : streams.values()) {
+			count += s.getEndpointCount();
+		}
+		KMixer m = mixer;
+		return m == null ? count : count + m.getEndpointCount();
+	}
+
+	/**
+	 * @return mixer of the room, null if room works in SFU mode
+	 */
+	public KMixer getMixer() {
+		return mixer;
+	}
+
+	/**
+	 * Switches the room between SFU and MCU modes based on number of participants,
+	 * mode switches of the room are performed one at a time
+	 *
+	 * @param h - handler
+	 * @param uids - uids of the room participants
+	 * @param threshold - number of participants MCU mode starts at
+	 */
+	synchronized void checkMode(final KurentoHandler h, Collection<String> uids, int threshold) {
+		if (uids.size() > threshold && mixer == null) {
+			log.info("Room {} has {} participants, switching to MCU mode", roomId, uids.size());
+			startMixing(h, uids);
+		} else if (uids.size() < threshold && mixer != null) {
+			log.info("Room {} has {} participants, switching to SFU mode", roomId, uids.size());
+			stopMixing(h);
+		}
+	}
+
+	/**
+	 * Switches the room to MCU mode: webcam streams are mixed, every participant
+	 * receives single mixed stream, per participant endpoints of mixed streams are released
+	 *
+	 * @param h - handler
+	 * @param uids - uids of participants being notified about the mix
+	 */
+	public synchronized void startMixing(final KurentoHandler h, Collection<String> uids) {
+		if (mixer != null) {
+			return;
+		}
+		KMixer m = newMixer();
+		for (KStream s : streams.values()) {
+			if (StreamType.WEBCAM == s.getStreamType() && s.getOutgoingMedia() != null) {
+				m.addBroadcaster(s);
+				s.releaseListeners();
+			}
+		}
+		for (String uid : uids) {
+			m.notify(uid);
+		}
+		mixer = m;
+		send(m.newStartedMsg(h));
+	}
+
+	KMixer newMixer() {
+		return new KMixer(this);
+	}
+
+	void send(JSONObject msg) {
+		WebSocketHelper.sendRoom(roomId, msg);
+	}
+
+	/**
+	 * Switches the room back to SFU mode, participants will request every webcam stream separately
+	 *
+	 * @param h - handler
+	 */
+	public synchronized void stopMixing(final KurentoHandler h) {
+		KMixer m = mixer;
+		if (m == null) {
+			return;
+		}
+		mixer = null;
+		m.release(h);
+		JSONArray arr = new JSONArray();
+		for (KStream s : streams.values()) {
+			Client c = h.getBySid(s.getSid());
+			StreamDesc sd = c == null ? null : c.getStream(s.getUid());
+			if (sd != null && StreamType.WEBCAM == s.getStreamType() && s.getOutgoingMedia() != null) {
+				arr.put(sd.toJson());
+			}
+		}
+		send(newKurentoMsg()
+				.put("id", "mixStopped")
+				.put("uid", m.getUid())
+				.put("streams", arr)
+				.put(PARAM_ICE, h.getTurnServers()));
+	}
+
 	public void leave(final KurentoHandler h, final Client c) {
 		for (Map.Entry<String, KStream> e : streams.entrySet()) {
 			e.getValue().remove(c);
 		}
+		KMixer m = mixer;
+		if (m != null) {
+			m.remove(c);
+		}
 		for (StreamDesc sd : c.getStreams()) {
-			if (StreamType.SCREEN == sd.getType()) {
-
-			}
+			removeStream(sd.getUid());
 			KStream stream = streams.remove(sd.getUid());
 			if (stream != null) {
 				stream.release(h);
@@ -105,6 +262,105 @@ public class KRoom {
 		}
 	}
 
+	/**
+	 * Queues creation of the listener endpoint, endpoints are created asynchronously,
+	 * single batch per room is processed at a time, all endpoints queued meanwhile
+	 * are created using single media server transaction
+	 *
+	 * @param h - handler
+	 * @param p - endpoint to be created
+	 */
+	void provision(final KurentoHandler h, Provision p) {
+		provisions.add(p);
+		drain(h);
+	}
+
+	private void drain(final KurentoHandler h) {
+		if (provisions.isEmpty() || !provisioning.compareAndSet(false, true)) {
+			return;
+		}
+		h.provision(() -> {
+			try {
+				// only the most recent request of each participant is actual
+				Map<String, Provision> batch = new LinkedHashMap<>();
+				Provision p;
+				while (batch.size() < h.getProvisionBatchSize() && (p = provisions.poll()) != null) {
+					batch.remove(p.getKey());
+					batch.put(p.getKey(), p);
+				}
+				provision(h, new ArrayList<>(batch.values()));
+			} catch (Exception e) {
+				log.error("ROOM {}: Unexpected error while creating endpoints", roomId, e);
+			} finally {
+				provisioning.set(false);
+				drain(h);
+			}
+		});
+	}
+
+	private void provision(final KurentoHandler h, List<Provision> batch) {
+		log.debug("ROOM {}: creating {} endpoints", roomId, batch.size());
+		List<Provision> prepared = new ArrayList<>(batch.size());
+		try {
+			Transaction t = pipeline.beginTransaction();
+			for (Provision p : batch) {
+				if (p.prepare(h, t)) {
+					prepared.add(p);
+				}
+			}
+			if (prepared.isEmpty()) {
+				return;
+			}
+			t.commit();
+		} catch (Exception e) {
+			if (batch.size() == 1) {
+				batch.get(0).fail(h, e);
+				return;
+			}
+			log.warn("ROOM {}: Failed to create {} endpoints at once, will create one by one", roomId, batch.size(), e);
+			for (Provision p : batch) {
+				provision(h, Collections.singletonList(p));
+			}
+			return;
+		}
+		for (Provision p : prepared) {
+			try {
+				p.complete(h);
+			} catch (Exception e) {
+				p.fail(h, e);
+			}
+		}
+	}
+
+	/**
+	 * Listener endpoint queued for creation, endpoints requested at the same time
+	 * are created using single {@link Transaction}
+	 */
+	abstract static class Provision {
+		/**
+		 * @return key of the request, only the most recent request with the same key is processed
+		 */
+		abstract String getKey();
+
+		/**
+		 * Adds creation of the endpoint to the transaction
+		 *
+		 * @param h - handler
+		 * @param t - transaction
+		 * @return false if endpoint is not required anymore
+		 */
+		abstract boolean prepare(final KurentoHandler h, Transaction t);
+
+		/**
+		 * Sends the answer and starts ICE gathering, should be called after transaction was committed
+		 *
+		 * @param h - handler
+		 */
+		abstract void complete(final KurentoHandler h);
+
+		abstract void fail(final KurentoHandler h, Exception e);
+	}
+
 	public boolean isRecording() {
 		return recordingStarted.get();
 	}
@@ -188,6 +444,7 @@ public class KRoom {
 			StreamDesc sd = c.addStream(StreamType.SCREEN, activities);
 			sd.setWidth(msg.getInt("width")).setHeight(msg.getInt("height"));
 			cm.update(c);
+			addStream(sd);
 			log.debug("User {}: has started broadcast", sd.getUid());
 			h.sendClient(sd.getSid(), newKurentoMsg()
 					.put("id", "broadcast")
@@ -208,6 +465,11 @@ public class KRoom {
 			stream.release(h);
 		}
 		streams.clear();
+		KMixer m = mixer;
+		mixer = null;
+		if (m != null) {
+			m.release(h);
+		}
 		pipeline.release(new Continuation<Void>() {
 			@Override
 			public void onSuccess(Void result) throws Exception {
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openmeetings.core.remote;
+
+import org.kurento.client.KurentoClient;
+
+/**
+ * Connection to single Kurento Media Server of the pool
+ */
+public class KServer {
+	private final String url;
+	private volatile KurentoClient client;
+	private volatile String kuid;
+
+	public KServer(String url) {
+		this.url = url;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	KurentoClient getClient() {
+		return client;
+	}
+
+	void setClient(KurentoClient client, String kuid) {
+		this.kuid = kuid;
+		this.client = client;
+	}
+
+	/**
+	 * @return unique id of current connection, all media objects created
+	 *         by this connection are tagged with it
+	 */
+	String getKuid() {
+		return kuid;
+	}
+
+	public boolean isConnected() {
+		return client != null;
+	}
+
+	void destroy() {
+		KurentoClient c = client;
+		client = null;
+		if (c != null) {
+			c.destroy();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "KServer [url=" + url + ", connected=" + isConnected() + "]";
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openmeetings.core.remote;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.ToLongFunction;
+
+/**
+ * Pool of Kurento Media Servers, rooms are placed on the least loaded server
+ * and stay there until the server is lost
+ */
+public class KServerPool {
+	private final List<KServer> servers = new CopyOnWriteArrayList<>();
+	private final Map<Long, KServer> placement = new ConcurrentHashMap<>();
+	private final ToLongFunction<Long> roomLoad;
+
+	/**
+	 * @param roomLoad - load single room produces on its server (i.e. number of media elements)
+	 */
+	public KServerPool(ToLongFunction<Long> roomLoad) {
+		this.roomLoad = roomLoad;
+	}
+
+	public void add(KServer s) {
+		servers.add(s);
+	}
+
+	public List<KServer> getServers() {
+		return Collections.unmodifiableList(servers);
+	}
+
+	public boolean isConnected() {
+		for (KServer s : servers) {
+			if (s.isConnected()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param s - server to get load of
+	 * @return total load of rooms placed on the server
+	 */
+	public long getLoad(KServer s) {
+		long load = 0;
+		for (Entry<Long, KServer> e : placement.entrySet()) {
+			if (e.getValue() == s) {
+				load += roomLoad.applyAsLong(e.getKey());
+			}
+		}
+		return load;
+	}
+
+	/**
+	 * @return least loaded connected server, or null if there are no connected servers
+	 */
+	public KServer select() {
+		KServer best = null;
+		long min = Long.MAX_VALUE;
+		for (KServer s : servers) {
+			if (!s.isConnected()) {
+				continue;
+			}
+			long load = getLoad(s);
+			if (load < min) {
+				min = load;
+				best = s;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @param roomId - id of the room
+	 * @return server the room is placed on, room is placed on the least loaded
+	 *         server if it is not placed yet, null if there are no connected servers
+	 */
+	public synchronized KServer place(Long roomId) {
+		KServer s = placement.get(roomId);
+		if (s == null || !s.isConnected()) {
+			s = select();
+			if (s == null) {
+				placement.remove(roomId);
+			} else {
+				placement.put(roomId, s);
+			}
+		}
+		return s;
+	}
+
+	public KServer get(Long roomId) {
+		return placement.get(roomId);
+	}
+
+	public void remove(Long roomId) {
+		placement.remove(roomId);
+	}
+
+	/**
+	 * Removes all rooms placed on the server, so they will be placed again on next access
+	 *
+	 * @param s - the server
+	 * @return ids of rooms were placed on the server
+	 */
+	public synchronized List<Long> release(KServer s) {
+		List<Long> ids = new ArrayList<>();
+		for (Entry<Long, KServer> e : placement.entrySet()) {
+			if (e.getValue() == s) {
+				ids.add(e.getKey());
+			}
+		}
+		for (Long id : ids) {
+			placement.remove(id);
+		}
+		return ids;
+	}
+}
@@ -22,15 +22,17 @@
 package org.apache.openmeetings.core.remote;
 
 import static java.util.UUID.randomUUID;
-import static org.apache.openmeetings.core.remote.KurentoHandler.PARAM_CANDIDATE;
 import static org.apache.openmeetings.core.remote.KurentoHandler.PARAM_ICE;
 import static org.apache.openmeetings.core.remote.KurentoHandler.newKurentoMsg;
 import static org.apache.openmeetings.util.OmFileHelper.getRecUri;
 import static org.apache.openmeetings.util.OmFileHelper.getRecordingChunk;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.openmeetings.core.util.WebSocketHelper;
 import org.apache.openmeetings.db.entity.basic.Client;
@@ -41,11 +43,16 @@ import org.apache.openmeetings.db.entity.record.RecordingChunk.Type;
 import org.apache.openmeetings.db.util.ws.RoomMessage;
 import org.apache.openmeetings.db.util.ws.TextRoomMessage;
 import org.kurento.client.Continuation;
+import org.kurento.client.EventListener;
 import org.kurento.client.IceCandidate;
+import org.kurento.client.IceCandidateFoundEvent;
+import org.kurento.client.ListenerSubscription;
 import org.kurento.client.MediaFlowState;
 import org.kurento.client.MediaProfileSpecType;
 import org.kurento.client.MediaType;
 import org.kurento.client.RecorderEndpoint;
+import org.kurento.client.TFuture;
+import org.kurento.client.Transaction;
 import org.kurento.client.WebRtcEndpoint;
 import org.kurento.jsonrpc.JsonUtils;
 import org.slf4j.Logger;
@@ -64,6 +71,7 @@ public class KStream implements IKStream {
 	private RecorderEndpoint recorder;
 	private WebRtcEndpoint outgoingMedia = null;
 	private final ConcurrentMap<String, WebRtcEndpoint> listeners = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Provision> pending = new ConcurrentHashMap<>();
 	private Long chunkId;
 	private Type type;
 
@@ -137,10 +145,16 @@ public class KStream implements IKStream {
 		}
 		Client c = sd.getClient();
 		WebSocketHelper.sendRoom(new TextRoomMessage(c.getRoomId(), c, RoomMessage.Type.rightUpdated, c.getUid()));
-		WebSocketHelper.sendRoomOthers(room.roomId, c.getUid(), newKurentoMsg()
-				.put("id", "newStream")
-				.put(PARAM_ICE, h.getTurnServers())
-				.put("stream", sd.toJson()));
+		KMixer mixer = room.getMixer();
+		if (mixer != null && StreamType.WEBCAM == streamType) {
+			// others will receive this stream as part of the mix
+			mixer.addBroadcaster(this);
+		} else {
+			WebSocketHelper.sendRoomOthers(room.roomId, c.getUid(), newKurentoMsg()
+					.put("id", "newStream")
+					.put(PARAM_ICE, h.getTurnServers())
+					.put("stream", sd.toJson()));
+		}
 		return this;
 	}
 
@@ -153,65 +167,214 @@ public class KStream implements IKStream {
 			return;
 		}
 
-		final WebRtcEndpoint endpoint = getEndpointForUser(h, sid, uid);
-		final String sdpAnswer = endpoint.processOffer(sdpOffer);
+		if (self) {
+			log.debug("PARTICIPANT {}: configuring loopback", this.uid);
+			sendAnswer(h, sid, outgoingMedia.processOffer(sdpOffer));
+			log.debug("gather candidates");
+			outgoingMedia.gatherCandidates();
+		} else {
+			Provision p = new Provision(sid, uid, sdpOffer);
+			pending.put(uid, p);
+			room.provision(h, p);
+		}
+	}
 
+	private void sendAnswer(final KurentoHandler h, String sid, String sdpAnswer) {
 		log.trace("USER {}: SdpAnswer is {}", this.uid, sdpAnswer);
 		h.sendClient(sid, newKurentoMsg()
 				.put("id", "videoResponse")
 				.put("uid", this.uid)
 				.put("sdpAnswer", sdpAnswer));
-		log.debug("gather candidates");
-		endpoint.gatherCandidates();
 	}
 
-	private WebRtcEndpoint getEndpointForUser(final KurentoHandler h, String sid, String uid) {
-		if (uid.equals(this.uid)) {
-			log.debug("PARTICIPANT {}: configuring loopback", this.uid);
-			return outgoingMedia;
+	private WebRtcEndpoint createEndpoint(final KurentoHandler h, String sid, String uid) {
+		WebRtcEndpoint endpoint = new WebRtcEndpoint.Builder(room.pipeline).build();
+		endpoint.addTag("outUid", this.uid);
+		endpoint.addTag("uid", uid);
+
+		endpoint.addIceCandidateFoundListener(iceListener(h, sid));
+		return endpoint;
+	}
+
+	private EventListener<IceCandidateFoundEvent> iceListener(final KurentoHandler h, String sid) {
+		return evt -> h.sendCandidate(sid, KStream.this.uid, convert(JsonUtils.toJsonObject(evt.getCandidate())));
+	}
+
+	/**
+	 * Endpoint of the participant receiving this stream, endpoints requested at the same time
+	 * are created by {@link KRoom} using single {@link Transaction}
+	 */
+	class Provision extends KRoom.Provision {
+		private final long start = System.nanoTime();
+		private final String sid;
+		private final String uid;
+		private final String sdpOffer;
+		private WebRtcEndpoint prev;
+		private WebRtcEndpoint endpoint;
+		private TFuture<String> answer;
+		private final List<IceCandidate> candidates = new ArrayList<>();
+		private boolean ready = false;
+
+		Provision(String sid, String uid, String sdpOffer) {
+			this.sid = sid;
+			this.uid = uid;
+			this.sdpOffer = sdpOffer;
 		}
 
-		log.debug("PARTICIPANT {}: receiving video from {}", uid, this.uid);
-		WebRtcEndpoint listener = listeners.remove(uid);
-		if (listener != null) {
-			log.debug("PARTICIPANT {}: re-started video receiving, will drop previous endpoint", uid);
-			listener.release();
+		@Override
+		String getKey() {
+			return KStream.this.uid + uid;
 		}
-		log.debug("PARTICIPANT {}: creating new endpoint for {}", uid, this.uid);
-		listener = createEndpoint(h, sid, uid);
-		listeners.put(uid, listener);
-
-		log.debug("PARTICIPANT {}: obtained endpoint for {}", uid, this.uid);
-		Client cur = h.getBySid(this.sid);
-		if (cur == null) {
-			log.warn("Client for endpoint dooesn't exists");
-		} else {
-			StreamDesc sd = cur.getStream(this.uid);
-			if (sd == null) {
-				log.warn("Stream for endpoint dooesn't exists");
+
+		/**
+		 * Adds creation of the endpoint to the transaction
+		 *
+		 * @param h - handler
+		 * @param t - transaction
+		 * @return false if endpoint is not required anymore
+		 */
+		@Override
+		boolean prepare(final KurentoHandler h, Transaction t) {
+			if (pending.get(uid) != this) {
+				log.debug("PARTICIPANT {}: endpoint for {} was re-requested", uid, KStream.this.uid);
+				return false;
+			}
+			if (outgoingMedia == null) {
+				log.debug("PARTICIPANT {}: broadcast of {} was stopped, endpoint will not be created", uid, KStream.this.uid);
+				pending.remove(uid, this);
+				return false;
+			}
+			log.debug("PARTICIPANT {}: receiving video from {}", uid, KStream.this.uid);
+			if (prev == null) {
+				prev = listeners.remove(uid);
+			}
+			if (prev != null) {
+				log.debug("PARTICIPANT {}: re-started video receiving, will drop previous endpoint", uid);
+				prev.release(t);
+			}
+			log.debug("PARTICIPANT {}: creating new endpoint for {}", uid, KStream.this.uid);
+			endpoint = new WebRtcEndpoint.Builder(room.pipeline).build(t);
+			endpoint.addTag(t, "outUid", KStream.this.uid);
+			endpoint.addTag(t, "uid", uid);
+			Client cur = h.getBySid(KStream.this.sid);
+			if (cur == null) {
+				log.warn("Client for endpoint dooesn't exists");
 			} else {
-				if (sd.hasActivity(Activity.AUDIO)) {
-					outgoingMedia.connect(listener, MediaType.AUDIO);
+				StreamDesc sd = cur.getStream(KStream.this.uid);
+				if (sd == null) {
+					log.warn("Stream for endpoint dooesn't exists");
+				} else {
+					if (sd.hasActivity(Activity.AUDIO)) {
+						outgoingMedia.connect(t, endpoint, MediaType.AUDIO);
+					}
+					if (StreamType.SCREEN == streamType || sd.hasActivity(Activity.VIDEO)) {
+						outgoingMedia.connect(t, endpoint, MediaType.VIDEO);
+					}
 				}
-				if (StreamType.SCREEN == streamType || sd.hasActivity(Activity.VIDEO)) {
-					outgoingMedia.connect(listener, MediaType.VIDEO);
+			}
+			answer = endpoint.processOffer(t, sdpOffer);
+			return true;
+		}
+
+		/**
+		 * Sends the answer and starts ICE gathering, should be called after transaction was committed
+		 *
+		 * @param h - handler
+		 */
+		@Override
+		void complete(final KurentoHandler h) {
+			prev = null;
+			synchronized (listeners) {
+				if (!pending.remove(uid, this)) {
+					// participant has left or re-requested the stream while batch was in flight
+					log.debug("PARTICIPANT {}: endpoint for {} is not required anymore, dropping", uid, KStream.this.uid);
+					endpoint.release();
+					return;
 				}
+				if (outgoingMedia == null) {
+					log.debug("PARTICIPANT {}: broadcast of {} was stopped, dropping endpoint", uid, KStream.this.uid);
+					endpoint.release();
+					return;
+				}
+				listeners.put(uid, endpoint);
 			}
+			log.debug("PARTICIPANT {}: obtained endpoint for {}", uid, KStream.this.uid);
+			sendAnswer(h, sid, answer.get());
+			log.debug("PARTICIPANT {}: endpoint for {} is ready in {} ms", uid, KStream.this.uid, h.getProvisionLatency().add(start));
+			synchronized (this) {
+				ready = true;
+				for (IceCandidate c : candidates) {
+					endpoint.addIceCandidate(c);
+				}
+				candidates.clear();
+			}
+			final AtomicBoolean flowing = new AtomicBoolean();
+			endpoint.addMediaFlowOutStateChangeListener(evt -> {
+				if (MediaFlowState.FLOWING == evt.getState() && flowing.compareAndSet(false, true)) {
+					log.debug("PARTICIPANT {}: first frame from {} in {} ms", uid, KStream.this.uid, h.getFirstFrameLatency().add(start));
+				}
+			}, new Continuation<ListenerSubscription>() {
+				@Override
+				public void onSuccess(ListenerSubscription result) throws Exception {
+					//no-op
+				}
+
+				@Override
+				public void onError(Throwable cause) throws Exception {
+					log.warn("PARTICIPANT {}: Could not subscribe to media flow of {}", uid, KStream.this.uid, cause);
+				}
+			});
+			endpoint.addIceCandidateFoundListener(iceListener(h, sid), new Continuation<ListenerSubscription>() {
+				@Override
+				public void onSuccess(ListenerSubscription result) throws Exception {
+					log.debug("gather candidates");
+					endpoint.gatherCandidates(new Continuation<Void>() {
+						@Override
+						public void onSuccess(Void result) throws Exception {
+							//no-op
+						}
+
+						@Override
+						public void onError(Throwable cause) throws Exception {
+							log.warn("PARTICIPANT {}: Could not gather candidates for {}", uid, KStream.this.uid, cause);
+						}
+					});
+				}
+
+				@Override
+				public void onError(Throwable cause) throws Exception {
+					log.warn("PARTICIPANT {}: Could not subscribe to candidates of {}", uid, KStream.this.uid, cause);
+				}
+			});
 		}
-		return listener;
-	}
 
-	private WebRtcEndpoint createEndpoint(final KurentoHandler h, String sid, String uid) {
-		WebRtcEndpoint endpoint = new WebRtcEndpoint.Builder(room.pipeline).build();
-		endpoint.addTag("outUid", this.uid);
-		endpoint.addTag("uid", uid);
+		/**
+		 * Candidates sent by the browser before the endpoint was created are kept
+		 * and passed to the endpoint as soon as it is ready
+		 *
+		 * @param candidate - candidate to add
+		 */
+		synchronized void addCandidate(IceCandidate candidate) {
+			if (ready) {
+				endpoint.addIceCandidate(candidate);
+			} else {
+				candidates.add(candidate);
+			}
+		}
 
-		endpoint.addIceCandidateFoundListener(evt -> h.sendClient(sid, newKurentoMsg()
-						.put("id", "iceCandidate")
-						.put("uid", KStream.this.uid)
-						.put(PARAM_CANDIDATE, convert(JsonUtils.toJsonObject(evt.getCandidate()))))
-				);
-		return endpoint;
+		@Override
+		void fail(final KurentoHandler h, Exception e) {
+			pending.remove(uid, this);
+			log.error("PARTICIPANT {}: Failed to create endpoint for {}", uid, KStream.this.uid, e);
+			if (prev != null) {
+				prev.release();
+				prev = null;
+			}
+			Client c = h.getBySid(sid);
+			if (c != null) {
+				KurentoHandler.sendError(c, "Failed to receive the stream");
+			}
+		}
 	}
 
 	public void startRecord() {
@@ -256,7 +419,11 @@ public class KStream implements IKStream {
 	}
 
 	public void remove(final Client c) {
-		WebRtcEndpoint point = listeners.remove(c.getUid());
+		WebRtcEndpoint point;
+		synchronized (listeners) {
+			pending.remove(c.getUid());
+			point = listeners.remove(c.getUid());
+		}
 		if (point != null) {
 			point.release();
 		}
@@ -277,24 +444,11 @@ public class KStream implements IKStream {
 	public void release(KurentoHandler h) {
 		if (outgoingMedia != null) {
 			log.debug("PARTICIPANT {}: Releasing resources", uid);
-			for (Entry<String, WebRtcEndpoint> entry : listeners.entrySet()) {
-				final String inUid = entry.getKey();
-				log.trace("PARTICIPANT {}: Released incoming EP for {}", uid, inUid);
-
-				final WebRtcEndpoint ep = entry.getValue();
-				ep.release(new Continuation<Void>() {
-					@Override
-					public void onSuccess(Void result) throws Exception {
-						log.trace("PARTICIPANT {}: Released successfully incoming EP for {}", KStream.this.uid, inUid);
-					}
-
-					@Override
-					public void onError(Throwable cause) throws Exception {
-						log.warn("PARTICIPANT {}: Could not release incoming EP for {}", KStream.this.uid, inUid);
-					}
-				});
+			KMixer mixer = room.getMixer();
+			if (mixer != null) {
+				mixer.removeBroadcaster(uid);
 			}
-			listeners.clear();
+			releaseListeners();
 			outgoingMedia.release();
 			outgoingMedia = null;
 		}
@@ -302,6 +456,31 @@ public class KStream implements IKStream {
 		h.streamsByUid.remove(uid);
 	}
 
+	/**
+	 * Releases endpoints of all participants receiving this stream
+	 */
+	void releaseListeners() {
+		pending.clear();
+		for (Entry<String, WebRtcEndpoint> entry : listeners.entrySet()) {
+			final String inUid = entry.getKey();
+			log.trace("PARTICIPANT {}: Released incoming EP for {}", uid, inUid);
+
+			final WebRtcEndpoint ep = entry.getValue();
+			ep.release(new Continuation<Void>() {
+				@Override
+				public void onSuccess(Void result) throws Exception {
+					log.trace("PARTICIPANT {}: Released successfully incoming EP for {}", KStream.this.uid, inUid);
+				}
+
+				@Override
+				public void onError(Throwable cause) throws Exception {
+					log.warn("PARTICIPANT {}: Could not release incoming EP for {}", KStream.this.uid, inUid);
+				}
+			});
+		}
+		listeners.clear();
+	}
+
 	private void releaseRecorder() {
 		if (recorder != null) {
 			recorder.stopAndWait();
@@ -314,6 +493,12 @@ public class KStream implements IKStream {
 		if (this.uid.equals(uid)) {
 			outgoingMedia.addIceCandidate(candidate);
 		} else {
+			Provision p = pending.get(uid);
+			if (p != null) {
+				log.debug("Add candidate for {}, endpoint is being created", uid);
+				p.addCandidate(candidate);
+				return;
+			}
 			WebRtcEndpoint endpoint = listeners.get(uid);
 			log.debug("Add candidate for {}, listener found ? {}", uid, endpoint != null);
 			if (endpoint != null) {
@@ -334,7 +519,22 @@ public class KStream implements IKStream {
 		return uid;
 	}
 
+	WebRtcEndpoint getOutgoingMedia() {
+		return outgoingMedia;
+	}
+
+	StreamType getStreamType() {
+		return streamType;
+	}
+
+	/**
+	 * @return number of media endpoints created for this stream
+	 */
+	public int getEndpointCount() {
+		return (outgoingMedia == null ? 0 : 1) + (recorder == null ? 0 : 1) + listeners.size();
+	}
+
 	public boolean contains(String uid) {
-		return this.uid.equals(uid) || listeners.containsKey(uid);
+		return this.uid.equals(uid) || listeners.containsKey(uid) || pending.containsKey(uid);
 	}
 }
@@ -21,18 +21,20 @@ package org.apache.openmeetings.core.remote;
 
 import static java.util.UUID.randomUUID;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.apache.openmeetings.util.process.ConversionScheduler.runWithPriority;
 
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.stream.Collectors;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
@@ -56,6 +58,7 @@ import org.apache.openmeetings.db.entity.room.Room.RoomElement;
 import org.apache.openmeetings.db.manager.IClientManager;
 import org.apache.openmeetings.db.util.ws.RoomMessage;
 import org.apache.openmeetings.db.util.ws.TextRoomMessage;
+import org.apache.openmeetings.util.process.ConversionScheduler.Priority;
 import org.kurento.client.Endpoint;
 import org.kurento.client.EventListener;
 import org.kurento.client.IceCandidate;
@@ -82,28 +85,37 @@ public class KurentoHandler {
 	public static final String PARAM_ICE = "iceServers";
 	public static final String PARAM_CANDIDATE = "candidate";
 	private static final String WARN_NO_KURENTO = "Media Server is not accessible";
+	private static final String ERR_NO_KURENTO = "Multimedia server is inaccessible";
 	private static final String MODE_TEST = "test";
 	private static final String TAG_KUID = "kuid";
 	private static final String TAG_MODE = "mode";
 	private static final String TAG_ROOM = "roomId";
 	private static final String HMAC_SHA1_ALGORITHM = "HmacSHA1";
 	private final ScheduledExecutorService recheckScheduler = Executors.newScheduledThreadPool(1);
+	// separate from recheckScheduler, which can be blocked by unreachable media server
+	private final ScheduledExecutorService iceScheduler = Executors.newSingleThreadScheduledExecutor();
 	public static final String KURENTO_TYPE = "kurento";
 	private long checkTimeout = 120000; //ms
 	private long objCheckTimeout = 200; //ms
 	private int watchThreadCount = 10;
+	private int provisionThreadCount = 10;
+	private int provisionBatchSize = 20;
+	private int mcuThreshold = 0;
+	private long iceBatchWindow = 20; //ms
+	private ExecutorService provisionExecutor;
+	private final KLatency provisionLatency = new KLatency();
+	private final KLatency firstFrameLatency = new KLatency();
 	private String kurentoWsUrl;
 	private String turnUrl;
 	private String turnUser;
 	private String turnSecret;
 	private String turnMode;
 	private int turnTtl = 60; //minutes
-	private KurentoClient client;
-	private String kuid;
 	private final Map<Long, KRoom> rooms = new ConcurrentHashMap<>();
+	private final KServerPool pool = new KServerPool(this::getRoomLoad);
 	final Map<String, KStream> streamsByUid = new ConcurrentHashMap<>();
 	final Map<String, KTestStream> testsByUid = new ConcurrentHashMap<>();
-	private Runnable check = null;
+	private final Map<String, List<JSONObject>> candidatesBySid = new ConcurrentHashMap<>();
 
 	@Autowired
 	private IClientManager cm;
@@ -119,21 +131,68 @@ public class KurentoHandler {
 	private InterviewConverter interviewConverter;
 
 	public void init() {
-		check = () -> {
-			try {
-				client = KurentoClient.create(kurentoWsUrl, new KConnectionListener());
-				kuid = randomUUID().toString();
-				client.getServerManager().addObjectCreatedListener(new KWatchDog());
-			} catch (Exception e) {
-				log.warn("Fail to create Kurento client, will re-try in {} ms", checkTimeout);
-				recheckScheduler.schedule(check, checkTimeout, MILLISECONDS);
+		provisionExecutor = Executors.newFixedThreadPool(provisionThreadCount);
+		for (String url : kurentoWsUrl.split(",")) {
+			if (!Strings.isEmpty(url.trim())) {
+				KServer s = new KServer(url.trim());
+				pool.add(s);
+				recheckScheduler.schedule(() -> check(s), 50, MILLISECONDS);
+			}
+		}
+	}
+
+	private void check(KServer s) {
+		try {
+			KurentoClient client = KurentoClient.create(s.getUrl(), new KConnectionListener(s));
+			s.setClient(client, randomUUID().toString());
+			client.getServerManager().addObjectCreatedListener(new KWatchDog(s));
+		} catch (Exception e) {
+			log.warn("Fail to create Kurento client for {}, will re-try in {} ms", s.getUrl(), checkTimeout);
+			recheckScheduler.schedule(() -> check(s), checkTimeout, MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Rooms placed on the lost server are closed, they will be placed again on next access
+	 *
+	 * @param s - the server
+	 */
+	private void rebalance(KServer s) {
+		for (Long roomId : pool.release(s)) {
+			KRoom r = rooms.remove(roomId);
+			if (r != null) {
+				log.info("Room {} was placed on {}, closing", roomId, s.getUrl());
+				r.close(this);
 			}
-		};
-		recheckScheduler.schedule(check, 50, MILLISECONDS);
+		}
+	}
+
+	private long getRoomLoad(Long roomId) {
+		KRoom r = rooms.get(roomId);
+		return 1 + (r == null ? 0 : r.getEndpointCount());
+	}
+
+	private boolean isConnected() {
+		return pool.isConnected();
+	}
+
+	/**
+	 * @return media servers of the pool
+	 */
+	public List<KServer> getServers() {
+		return pool.getServers();
+	}
+
+	/**
+	 * @param s - media server
+	 * @return load of the server, number of pipelines and endpoints created by this instance
+	 */
+	public long getLoad(KServer s) {
+		return pool.getLoad(s);
 	}
 
 	public void destroy() {
-		if (client != null) {
+		if (isConnected()) {
 			for (Entry<Long, KRoom> e : rooms.entrySet()) {
 				e.getValue().close(this);
 			}
@@ -143,8 +202,15 @@ public class KurentoHandler {
 			}
 			testsByUid.clear();
 			streamsByUid.clear();
-			client.destroy();
 		}
+		for (KServer s : pool.getServers()) {
+			s.destroy();
+		}
+		if (provisionExecutor != null) {
+			provisionExecutor.shutdownNow();
+		}
+		iceScheduler.shutdownNow();
+		candidatesBySid.clear();
 	}
 
 	private static Map<String, String> tagsAsMap(MediaObject pipe) {
@@ -155,14 +221,40 @@ public class KurentoHandler {
 		return map;
 	}
 
-	Transaction beginTransaction() {
-		return client.beginTransaction();
+	void provision(Runnable task) {
+		provisionExecutor.execute(task);
+	}
+
+	int getProvisionBatchSize() {
+		return provisionBatchSize;
 	}
 
+	/**
+	 * @return time from listener request till SDP answer was sent
+	 */
+	public KLatency getProvisionLatency() {
+		return provisionLatency;
+	}
+
+	/**
+	 * @return time from listener request till media started flowing to the listener
+	 */
+	public KLatency getFirstFrameLatency() {
+		return firstFrameLatency;
+	}
+
+	/**
+	 * @return pipeline for the test, or null if there are no connected servers
+	 */
 	private MediaPipeline createTestPipeline() {
-		Transaction t = beginTransaction();
-		MediaPipeline pipe = client.createMediaPipeline(t);
-		pipe.addTag(t, TAG_KUID, kuid);
+		KServer s = pool.select();
+		if (s == null) {
+			log.warn(WARN_NO_KURENTO);
+			return null;
+		}
+		Transaction t = s.getClient().beginTransaction();
+		MediaPipeline pipe = s.getClient().createMediaPipeline(t);
+		pipe.addTag(t, TAG_KUID, s.getKuid());
 		pipe.addTag(t, TAG_MODE, MODE_TEST);
 		pipe.addTag(t, TAG_ROOM, MODE_TEST);
 		t.commit();
@@ -171,6 +263,7 @@ public class KurentoHandler {
 
 	private void onTestMessage(IWsClient _c, final String cmdId, JSONObject msg) {
 		KTestStream user = getTestByUid(_c.getUid());
+		MediaPipeline pipe;
 		switch (cmdId) {
 			case "wannaRecord":
 				WebSocketHelper.sendClient(_c, newTestKurentoMsg()
@@ -182,7 +275,12 @@ public class KurentoHandler {
 				if (user != null) {
 					user.release(this);
 				}
-				user = new KTestStream(_c, msg, createTestPipeline());
+				pipe = createTestPipeline();
+				if (pipe == null) {
+					sendError(_c, ERR_NO_KURENTO);
+					break;
+				}
+				user = new KTestStream(_c, msg, pipe);
 				testsByUid.put(_c.getUid(), user);
 				break;
 			case "iceCandidate":
@@ -201,7 +299,12 @@ public class KurentoHandler {
 				break;
 			case "play":
 				if (user != null) {
-					user.play(_c, msg, createTestPipeline());
+					pipe = createTestPipeline();
+					if (pipe == null) {
+						sendError(_c, ERR_NO_KURENTO);
+						break;
+					}
+					user.play(_c, msg, pipe);
 				}
 				break;
 		}
@@ -231,29 +334,23 @@ public class KurentoHandler {
 				sender = getByUid(uid);
 				if (sender == null) {
 					KRoom room = getRoom(c.getRoomId());
+					if (room == null) {
+						sendError(c, ERR_NO_KURENTO);
+						break;
+					}
 					sender = room.join(sd);
 				}
 				sender.startBroadcast(this, sd, msg.getString("sdpOffer"));
+				checkMode(c.getRoomId());
 				if (StreamType.SCREEN == sd.getType() && sd.hasActivity(Activity.RECORD) && !isRecording(c.getRoomId())) {
 					startRecording(c);
 				}
 				break;
 			case "onIceCandidate":
-				sender = getByUid(uid);
-				if (sender != null) {
-					JSONObject candidate = msg.getJSONObject(PARAM_CANDIDATE);
-					IceCandidate cand = new IceCandidate(
-							candidate.getString(PARAM_CANDIDATE)
-							, candidate.getString("sdpMid")
-							, candidate.getInt("sdpMLineIndex"));
-					sender.addCandidate(cand, msg.getString("luid"));
-				}
+				addCandidate(c, uid, msg);
 				break;
 			case "addListener":
-				sender = getByUid(msg.getString("sender"));
-				if (sender != null) {
-					sender.addListener(this, c.getSid(), c.getUid(), msg.getString("sdpOffer"));
-				}
+				addListener(c, msg);
 				break;
 			case "wannaShare":
 				if (screenShareAllowed(c)) {
@@ -284,9 +381,46 @@ public class KurentoHandler {
 		}
 	}
 
+	private void addCandidate(Client c, String uid, JSONObject msg) {
+		KStream sender = getByUid(uid);
+		KMixer mixer = sender == null ? getMixer(c.getRoomId(), uid) : null;
+		if (sender == null && mixer == null) {
+			return;
+		}
+		JSONObject candidate = msg.getJSONObject(PARAM_CANDIDATE);
+		IceCandidate cand = new IceCandidate(
+				candidate.getString(PARAM_CANDIDATE)
+				, candidate.getString("sdpMid")
+				, candidate.getInt("sdpMLineIndex"));
+		if (sender != null) {
+			sender.addCandidate(cand, msg.getString("luid"));
+		} else {
+			mixer.addCandidate(cand, msg.getString("luid"));
+		}
+	}
+
+	private void addListener(Client c, JSONObject msg) {
+		checkMode(c.getRoomId());
+		final String senderUid = msg.getString("sender");
+		KMixer mixer = getMixer(c.getRoomId(), null);
+		if (mixer != null && senderUid.equals(mixer.getUid())) {
+			mixer.addListener(this, c.getSid(), c.getUid(), msg.getString("sdpOffer"));
+		} else if (mixer != null && mixer.isMixed(senderUid)) {
+			// participant is not aware of the mix yet
+			if (mixer.notify(c.getUid())) {
+				sendClient(c.getSid(), mixer.newStartedMsg(this));
+			}
+		} else {
+			KStream sender = getByUid(senderUid);
+			if (sender != null) {
+				sender.addListener(this, c.getSid(), c.getUid(), msg.getString("sdpOffer"));
+			}
+		}
+	}
+
 	public void onMessage(IWsClient _c, JSONObject msg) {
-		if (client == null) {
-			sendError(_c, "Multimedia server is inaccessible");
+		if (!isConnected()) {
+			sendError(_c, ERR_NO_KURENTO);
 			return;
 		}
 		final String cmdId = msg.getString("id");
@@ -307,29 +441,53 @@ public class KurentoHandler {
 		return c.hasAnyActivity(Activity.AUDIO, Activity.VIDEO);
 	}
 
+	/**
+	 * Switches the room between SFU and MCU modes based on number of participants
+	 *
+	 * @param roomId - id of the room
+	 */
+	private void checkMode(Long roomId) {
+		if (mcuThreshold < 1) {
+			return;
+		}
+		KRoom room = rooms.get(roomId);
+		if (room == null) {
+			return;
+		}
+		List<String> uids = new ArrayList<>();
+		for (Client c : cm.listByRoom(roomId)) {
+			uids.add(c.getUid());
+		}
+		room.checkMode(this, uids, mcuThreshold);
+	}
+
+	/**
+	 * @param roomId - id of the room
+	 * @param uid - uid of the mixed stream, or null to get mixer regardless of uid
+	 * @return mixer of the room, or null
+	 */
+	private KMixer getMixer(Long roomId, String uid) {
+		KRoom room = roomId == null ? null : rooms.get(roomId);
+		KMixer mixer = room == null ? null : room.getMixer();
+		return mixer == null || (uid != null && !uid.equals(mixer.getUid())) ? null : mixer;
+	}
+
 	private void checkStreams(Long roomId) {
-		if (client == null) {
+		if (!isConnected()) {
 			log.warn(WARN_NO_KURENTO);
 			return;
 		}
 		KRoom room = getRoom(roomId);
-		if (room.isRecording()) {
-			List<StreamDesc> streams = cm.listByRoom(roomId).parallelStream()
-					.flatMap(c -> c.getStreams().stream())
-					.collect(Collectors.toList());
-			if (streams.isEmpty()) {
-				log.info("No more streams in the room, stopping recording");
-				room.stopRecording(this, null, recDao);
-			}
+		if (room == null) {
+			return;
 		}
-		if (room.isSharing()) {
-			List<StreamDesc> streams = cm.listByRoom(roomId).parallelStream()
-					.flatMap(c -> c.getStreams().stream())
-					.filter(sd -> StreamType.SCREEN == sd.getType()).collect(Collectors.toList());
-			if (streams.isEmpty()) {
-				log.info("No more screen streams in the room, stopping sharing");
-				room.stopSharing();
-			}
+		if (room.isRecording() && !room.hasStreams()) {
+			log.info("No more streams in the room, stopping recording");
+			room.stopRecording(this, null, recDao);
+		}
+		if (room.isSharing() && !room.hasStreams(StreamType.SCREEN)) {
+			log.info("No more screen streams in the room, stopping sharing");
+			room.stopSharing();
 		}
 	}
 
@@ -365,7 +523,7 @@ public class KurentoHandler {
 						if (s != null) {
 							s.stopBroadcast(this);
 						}
-						c.removeStream(sd.getUid());
+						removeStream(c, sd.getUid());
 						changed = true;
 					}
 				}
@@ -379,6 +537,10 @@ public class KurentoHandler {
 				//join
 				StreamDesc sd = c.addStream(StreamType.WEBCAM);
 				cm.update(c);
+				KRoom room = rooms.get(c.getRoomId());
+				if (room != null) {
+					room.addStream(sd);
+				}
 				log.debug("User {}: has started broadcast", sd.getUid());
 				sendClient(sd.getSid(), newKurentoMsg()
 						.put("id", "broadcast")
@@ -400,7 +562,7 @@ public class KurentoHandler {
 	}
 
 	public boolean recordingAllowed(Client c) {
-		if (client == null) {
+		if (!isConnected()) {
 			log.warn(WARN_NO_KURENTO);
 			return false;
 		}
@@ -410,44 +572,52 @@ public class KurentoHandler {
 	}
 
 	public void startRecording(Client c) {
-		if (client == null) {
+		if (!isConnected()) {
 			log.warn(WARN_NO_KURENTO);
 			return;
 		}
-		getRoom(c.getRoomId()).startRecording(c, recDao);
+		KRoom room = getRoom(c.getRoomId());
+		if (room != null) {
+			room.startRecording(c, recDao);
+		}
 	}
 
 	public void stopRecording(Client c) {
-		if (client == null) {
+		if (!isConnected()) {
 			log.warn(WARN_NO_KURENTO);
 			return;
 		}
-		getRoom(c.getRoomId()).stopRecording(this, c, recDao);
+		KRoom room = getRoom(c.getRoomId());
+		if (room != null) {
+			room.stopRecording(this, c, recDao);
+		}
 	}
 
 	void startConvertion(Recording rec) {
 		IRecordingConverter conv = rec.isInterview() ? interviewConverter : recordingConverter;
-		taskExecutor.execute(() -> conv.startConversion(rec));
+		taskExecutor.execute(() -> runWithPriority(Priority.background, () -> conv.startConversion(rec)));
 	}
 
 	public boolean isRecording(Long roomId) {
-		if (client == null) {
+		if (!isConnected()) {
 			log.warn(WARN_NO_KURENTO);
 			return false;
 		}
-		return getRoom(roomId).isRecording();
+		KRoom room = getRoom(roomId);
+		return room != null && room.isRecording();
 	}
 
 	public JSONObject getRecordingUser(Long roomId) {
-		if (client == null) {
+		if (!isConnected()) {
 			log.warn(WARN_NO_KURENTO);
 			return new JSONObject();
 		}
-		return getRoom(roomId).getRecordingUser();
+		KRoom room = getRoom(roomId);
+		return room == null ? new JSONObject() : room.getRecordingUser();
 	}
 
 	public boolean screenShareAllowed(Client c) {
-		if (client == null) {
+		if (!isConnected()) {
 			log.warn(WARN_NO_KURENTO);
 			return false;
 		}
@@ -459,8 +629,13 @@ public class KurentoHandler {
 	}
 
 	private void startSharing(Client c, JSONObject msg, Activity...activities) {
-		if (client != null && c.getRoomId() != null) {
-			getRoom(c.getRoomId()).startSharing(this, cm, c, msg, activities);
+		if (isConnected() && c.getRoomId() != null) {
+			KRoom room = getRoom(c.getRoomId());
+			if (room == null) {
+				sendError(c, ERR_NO_KURENTO);
+				return;
+			}
+			room.startSharing(this, cm, c, msg, activities);
 		}
 	}
 
@@ -470,7 +645,7 @@ public class KurentoHandler {
 		if (c.getRoomId() != null) {
 			sd = c.getStream(uid);
 			if (sd != null && StreamType.SCREEN == sd.getType()) {
-				c.removeStream(uid);
+				removeStream(c, uid);
 				cm.update(c);
 				checkStreams(c.getRoomId());
 				WebSocketHelper.sendRoom(new TextRoomMessage(c.getRoomId(), c, RoomMessage.Type.rightUpdated, c.getUid()));
@@ -479,12 +654,21 @@ public class KurentoHandler {
 		return sd;
 	}
 
+	private void removeStream(Client c, String uid) {
+		c.removeStream(uid);
+		KRoom room = rooms.get(c.getRoomId());
+		if (room != null) {
+			room.removeStream(uid);
+		}
+	}
+
 	public boolean isSharing(Long roomId) {
-		if (client == null) {
+		if (!isConnected()) {
 			log.warn(WARN_NO_KURENTO);
 			return false;
 		}
-		return getRoom(roomId).isSharing();
+		KRoom room = getRoom(roomId);
+		return room != null && room.isSharing();
 	}
 
 	public void leaveRoom(Client c) {
@@ -504,6 +688,50 @@ public class KurentoHandler {
 		WebSocketHelper.sendClient(cm.getBySid(sid), msg);
 	}
 
+	/**
+	 * Sends ICE candidate gathered by media server to the client, candidates
+	 * found within iceBatchWindow are delivered as single `iceCandidates` message
+	 *
+	 * @param sid - sid of the client
+	 * @param uid - uid of the stream candidate belongs to
+	 * @param candidate - candidate to be sent
+	 */
+	void sendCandidate(String sid, String uid, JSONObject candidate) {
+		if (iceBatchWindow < 1) {
+			sendClient(sid, newKurentoMsg()
+					.put("id", "iceCandidate")
+					.put("uid", uid)
+					.put(PARAM_CANDIDATE, candidate));
+			return;
+		}
+		final JSONObject c = new JSONObject()
+				.put("uid", uid)
+				.put(PARAM_CANDIDATE, candidate);
+		final boolean[] first = {false};
+		candidatesBySid.compute(sid, (k, list) -> {
+			if (list == null) {
+				first[0] = true;
+				list = new ArrayList<>();
+			}
+			list.add(c);
+			return list;
+		});
+		if (first[0]) {
+			iceScheduler.schedule(() -> flushCandidates(sid), iceBatchWindow, MILLISECONDS);
+		}
+	}
+
+	private void flushCandidates(String sid) {
+		List<JSONObject> list = candidatesBySid.remove(sid);
+		if (list == null) {
+			return;
+		}
+		log.trace("Sending {} candidates to {}", list.size(), sid);
+		sendClient(sid, newKurentoMsg()
+				.put("id", "iceCandidates")
+				.put("candidates", new JSONArray(list)));
+	}
+
 	public static void sendError(IWsClient c, String msg) {
 		WebSocketHelper.sendClient(c, newKurentoMsg()
 				.put("id", "error")
@@ -511,7 +739,7 @@ public class KurentoHandler {
 	}
 
 	public void remove(IWsClient _c) {
-		if (client == null ||_c == null) {
+		if (!isConnected() || _c == null) {
 			return;
 		}
 		final String uid = _c.getUid();
@@ -532,24 +760,37 @@ public class KurentoHandler {
 		}
 		if (c.getRoomId() != null) {
 			KRoom room = getRoom(c.getRoomId());
-			room.leave(this, c);
+			if (room != null) {
+				room.leave(this, c);
+			}
 			checkStreams(c.getRoomId());
+			checkMode(c.getRoomId());
 		}
 	}
 
+	/**
+	 * @param roomId - id of the room
+	 * @return room, created on the least loaded server if necessary, or null if there are no connected servers
+	 */
 	private KRoom getRoom(Long roomId) {
 		log.debug("Searching for room {}", roomId);
 		KRoom room = rooms.get(roomId);
 
 		if (room == null) {
 			log.debug("Room {} does not exist. Will create now!", roomId);
-			Transaction t = beginTransaction();
-			MediaPipeline pipe = client.createMediaPipeline(t);
-			pipe.addTag(t, TAG_KUID, kuid);
+			KServer s = pool.place(roomId);
+			if (s == null) {
+				log.warn(WARN_NO_KURENTO);
+				return null;
+			}
+			Transaction t = s.getClient().beginTransaction();
+			MediaPipeline pipe = s.getClient().createMediaPipeline(t);
+			pipe.addTag(t, TAG_KUID, s.getKuid());
 			pipe.addTag(t, TAG_ROOM, String.valueOf(roomId));
 			t.commit();
 			room = new KRoom(roomId, pipe, chunkDao);
 			rooms.put(roomId, room);
+			log.info("Room {} is placed on {}", roomId, s.getUrl());
 		}
 		log.debug("Room {} found!", roomId);
 		return room;
@@ -633,6 +874,22 @@ public class KurentoHandler {
 		this.watchThreadCount = watchThreadCount;
 	}
 
+	public void setProvisionThreadCount(int provisionThreadCount) {
+		this.provisionThreadCount = provisionThreadCount;
+	}
+
+	public void setProvisionBatchSize(int provisionBatchSize) {
+		this.provisionBatchSize = Math.max(1, provisionBatchSize);
+	}
+
+	public void setMcuThreshold(int mcuThreshold) {
+		this.mcuThreshold = mcuThreshold;
+	}
+
+	public void setIceBatchWindow(long iceBatchWindow) {
+		this.iceBatchWindow = iceBatchWindow;
+	}
+
 	public void setKurentoWsUrl(String kurentoWsUrl) {
 		this.kurentoWsUrl = kurentoWsUrl;
 	}
@@ -658,32 +915,46 @@ public class KurentoHandler {
 	}
 
 	private class KConnectionListener implements KurentoConnectionListener {
+		private final KServer s;
+
+		KConnectionListener(KServer s) {
+			this.s = s;
+		}
+
 		@Override
 		public void reconnected(boolean sameServer) {
-			log.info("Kurento reconnected ? {}", sameServer);
+			log.info("Kurento {} reconnected ? {}", s.getUrl(), sameServer);
+			if (!sameServer) {
+				// media server was restarted, all its pipelines are lost
+				rebalance(s);
+			}
 		}
 
 		@Override
 		public void disconnected() {
-			log.warn("Disconnected, will re-try in {} ms", checkTimeout);
-			recheckScheduler.schedule(check, checkTimeout, MILLISECONDS);
+			log.warn("Disconnected from {}, will re-try in {} ms", s.getUrl(), checkTimeout);
+			s.destroy();
+			rebalance(s);
+			recheckScheduler.schedule(() -> check(s), checkTimeout, MILLISECONDS);
 		}
 
 		@Override
 		public void connectionFailed() {
-			log.info("Kurento connectionFailed");
+			log.info("Kurento {} connectionFailed", s.getUrl());
 		}
 
 		@Override
 		public void connected() {
-			log.info("Kurento connected");
+			log.info("Kurento {} connected", s.getUrl());
 		}
 	}
 
 	private class KWatchDog implements EventListener<ObjectCreatedEvent> {
+		private final KServer s;
 		private ScheduledExecutorService scheduler;
 
-		public KWatchDog() {
+		public KWatchDog(KServer s) {
+			this.s = s;
 			scheduler = Executors.newScheduledThreadPool(watchThreadCount);
 		}
 
@@ -694,6 +965,7 @@ public class KurentoHandler {
 				// room created
 				final String roid = evt.getObject().getId();
 				scheduler.schedule(() -> {
+					KurentoClient client = s.getClient();
 					if (client == null) {
 						return;
 					}
@@ -703,12 +975,13 @@ public class KurentoHandler {
 					if (validTestPipeline(tags)) {
 						return;
 					}
-					if (kuid.equals(tags.get(TAG_KUID))) {
+					if (s.getKuid().equals(tags.get(TAG_KUID))) {
 						KRoom r = rooms.get(Long.valueOf(tags.get(TAG_ROOM)));
 						if (r.getPipelineId().equals(pipe.getId())) {
 							return;
 						} else if (r != null) {
 							rooms.remove(r.getRoomId());
+							pool.remove(r.getRoomId());
 							r.close(KurentoHandler.this);
 						}
 					}
@@ -729,6 +1002,7 @@ public class KurentoHandler {
 				}
 				final Class<? extends Endpoint> clazz = _clazz;
 				scheduler.schedule(() -> {
+					KurentoClient client = s.getClient();
 					if (client == null || clazz == null) {
 						return;
 					}
@@ -742,18 +1016,31 @@ public class KurentoHandler {
 					if (stream != null && stream.contains(tags.get("uid"))) {
 						return;
 					}
+					if (isMixerEndpoint(tags.get("outUid"), tags.get("uid"))) {
+						return;
+					}
 					log.warn("Invalid Endpoint {} detected, will be dropped, tags: {}", point.getId(), tags);
 					point.release();
 				}, objCheckTimeout, MILLISECONDS);
 			}
 		}
 
+		private boolean isMixerEndpoint(String outUid, String uid) {
+			for (KRoom r : rooms.values()) {
+				KMixer mixer = r.getMixer();
+				if (mixer != null && mixer.getUid().equals(outUid) && mixer.contains(uid)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
 		private boolean validTestPipeline(MediaPipeline pipeline) {
 			return validTestPipeline(tagsAsMap(pipeline));
 		}
 
 		private boolean validTestPipeline(Map<String, String> tags) {
-			return kuid.equals(tags.get(TAG_KUID)) && MODE_TEST.equals(tags.get(TAG_MODE)) && MODE_TEST.equals(tags.get(TAG_ROOM));
+			return s.getKuid().equals(tags.get(TAG_KUID)) && MODE_TEST.equals(tags.get(TAG_MODE)) && MODE_TEST.equals(tags.get(TAG_ROOM));
 		}
 	}
 }
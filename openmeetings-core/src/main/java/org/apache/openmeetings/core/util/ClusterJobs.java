@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openmeetings.core.util;
+
+import static org.apache.openmeetings.core.util.WebSocketHelper.getApp;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.openmeetings.IApplication;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs periodic jobs, every cluster member has the same set of quartz triggers,
+ * jobs working on shared data are executed only by the member owning the job
+ */
+public class ClusterJobs {
+	private static final Logger log = LoggerFactory.getLogger(ClusterJobs.class);
+	private static final long REPORT_INTERVAL = 60 * 60 * 1000L; // 1 hour
+	private static final Map<String, Stats> stats = new ConcurrentHashMap<>();
+	private static final AtomicLong lastReport = new AtomicLong(System.currentTimeMillis());
+
+	private ClusterJobs() {}
+
+	/**
+	 * Executes the job on this member
+	 *
+	 * @param job - name of the job
+	 * @param task - job to be executed
+	 */
+	public static void run(String job, Runnable task) {
+		run(job, false, task);
+	}
+
+	/**
+	 * Executes the job, exclusive job is executed only if this member owns it
+	 *
+	 * @param job - name of the job
+	 * @param exclusive - if true job will be executed by single cluster member
+	 * @param task - job to be executed
+	 */
+	public static void run(String job, boolean exclusive, Runnable task) {
+		Stats s = stats.computeIfAbsent(job, k -> new Stats());
+		if (exclusive && !isOwner(job)) {
+			log.trace("Job {} is owned by other cluster member, skipping", job);
+			s.skipped.increment();
+			return;
+		}
+		final long start = System.nanoTime();
+		try {
+			task.run();
+		} finally {
+			long nanos = System.nanoTime() - start;
+			s.count.increment();
+			s.time.add(nanos);
+			s.maxTime.accumulateAndGet(nanos, Math::max);
+			s.last.set(nanos);
+			log.debug("Job {} done in {} ms", job, nanos / 1_000_000);
+			report();
+		}
+	}
+
+	private static boolean isOwner(String job) {
+		IApplication app = getApp();
+		return app == null || app.isJobOwner(job);
+	}
+
+	/**
+	 * Periodically writes statistics of all jobs to the log
+	 */
+	private static void report() {
+		final long now = System.currentTimeMillis();
+		final long prev = lastReport.get();
+		if (now - prev < REPORT_INTERVAL || !lastReport.compareAndSet(prev, now)) {
+			return;
+		}
+		stats.forEach((job, s) -> log.info("Job {}: executed {}, skipped {}, avg {} ms, max {} ms, last {} ms"
+				, job, s.getCount(), s.getSkipped(), String.format("%.1f", s.getAverageTime())
+				, String.format("%.1f", s.getMaxTime()), String.format("%.1f", s.getLastTime())));
+	}
+
+	/**
+	 * Selects member owning the job, all members should pass the same list in the same order
+	 *
+	 * @param job - name of the job
+	 * @param members - current cluster members
+	 * @return owner of the job, or null if there are no members
+	 */
+	public static <T> T getOwner(String job, List<T> members) {
+		return members.isEmpty() ? null : members.get(Math.floorMod(job.hashCode(), members.size()));
+	}
+
+	/**
+	 * @return run time statistics of all jobs executed or skipped by this member
+	 */
+	public static Map<String, Stats> getStats() {
+		return Collections.unmodifiableMap(stats);
+	}
+
+	public static class Stats {
+		private final LongAdder count = new LongAdder();
+		private final LongAdder skipped = new LongAdder();
+		private final LongAdder time = new LongAdder();
+		private final AtomicLong maxTime = new AtomicLong();
+		private final AtomicLong last = new AtomicLong();
+
+		/**
+		 * @return number of times the job was executed by this member
+		 */
+		public long getCount() {
+			return count.sum();
+		}
+
+		/**
+		 * @return number of times the job was skipped due to it is owned by other member
+		 */
+		public long getSkipped() {
+			return skipped.sum();
+		}
+
+		/**
+		 * @return average run time in milliseconds
+		 */
+		public double getAverageTime() {
+			long c = count.sum();
+			return c == 0 ? 0 : time.sum() / (c * 1_000_000.);
+		}
+
+		/**
+		 * @return maximum run time in milliseconds
+		 */
+		public double getMaxTime() {
+			return maxTime.get() / 1_000_000.;
+		}
+
+		/**
+		 * @return run time of last execution in milliseconds
+		 */
+		public double getLastTime() {
+			return last.get() / 1_000_000.;
+		}
+	}
+}
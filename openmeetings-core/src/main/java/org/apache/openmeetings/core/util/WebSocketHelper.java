@@ -22,6 +22,7 @@ import static org.apache.openmeetings.db.util.FormatHelper.getDisplayName;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.getWicketApplicationName;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.function.BiConsumer;
@@ -32,6 +33,7 @@ import java.util.function.Predicate;
 
 import org.apache.commons.lang3.time.FastDateFormat;
 import org.apache.openmeetings.IApplication;
+import org.apache.openmeetings.core.util.ws.WsBroadcaster;
 import org.apache.openmeetings.core.util.ws.WsMessageAll;
 import org.apache.openmeetings.core.util.ws.WsMessageChat;
 import org.apache.openmeetings.core.util.ws.WsMessageRoom;
@@ -66,6 +68,14 @@ public class WebSocketHelper {
 	public static final String ID_ALL = ID_TAB_PREFIX + "all";
 	public static final String ID_ROOM_PREFIX = ID_TAB_PREFIX + "r";
 	public static final String ID_USER_PREFIX = ID_TAB_PREFIX + "u";
+	private static final WsBroadcaster broadcaster = new WsBroadcaster("ws-broadcast"
+			, Runtime.getRuntime().availableProcessors(), 10_000);
+	private static final WsBroadcaster.Channel<Long, Recipient> roomChannel = broadcaster.channel(
+			roomId -> getRecipients(cm -> cm.listByRoom(roomId)));
+	private static final WsBroadcaster.Channel<Long, Recipient> userChannel = broadcaster.channel(
+			userId -> getRecipients(cm -> cm.listByUser(userId)));
+	private static final WsBroadcaster.Channel<String, Recipient> allChannel = broadcaster.channel(
+			key -> getAllRecipients());
 
 	private static JSONObject setScope(JSONObject o, ChatMessage m, long curUserId) {
 		String scope, scopeName = null;
@@ -184,38 +194,37 @@ public class WebSocketHelper {
 	}
 
 	public static void sendRoom(final Long roomId, final JSONObject m) {
-		sendRoom(roomId, m, true);
+		sendRoom(roomId, m.toString(), true);
 	}
 
-	private static void sendRoom(final Long roomId, final JSONObject m, boolean publish) {
+	private static void sendRoom(final Long roomId, final String m, boolean publish) {
 		if (publish) {
 			publish(new WsMessageRoom(roomId, m));
 		}
-		sendRoom(roomId, m, null, null);
+		sendRoom(roomId, m, null);
 	}
 
 	public static void sendRoomOthers(final Long roomId, final String uid, final JSONObject m) {
-		sendRoomOthers(roomId, uid, m, true);
+		sendRoomOthers(roomId, uid, m.toString(), true);
 	}
 
-	private static void sendRoomOthers(final Long roomId, final String uid, final JSONObject m, boolean publish) {
+	private static void sendRoomOthers(final Long roomId, final String uid, final String m, boolean publish) {
 		if (publish) {
 			publish(new WsMessageRoomOthers(roomId, uid, m));
 		}
-		sendRoom(roomId, m, c -> !uid.equals(c.getUid()), null);
+		sendRoom(roomId, m, c -> !uid.equals(c.getUid()));
 	}
 
 	public static void sendRoom(ChatMessage m, JSONObject msg) {
-		sendRoom(m, msg, true);
+		sendRoom(m, msg.toString(), true);
 	}
 
-	private static void sendRoom(ChatMessage m, JSONObject msg, boolean publish) {
+	private static void sendRoom(ChatMessage m, String msg, boolean publish) {
 		if (publish) {
 			publish(new WsMessageChat(m, msg));
 		}
 		sendRoom(m.getToRoom().getId(), msg
-				, c -> !m.isNeedModeration() || (m.isNeedModeration() && c.hasRight(Right.moderator))
-				, null);
+				, c -> !m.isNeedModeration() || (m.isNeedModeration() && c.hasRight(Right.moderator)));
 	}
 
 	public static void sendUser(final Long userId, final String m) {
@@ -226,7 +235,7 @@ public class WebSocketHelper {
 		if (publish) {
 			publish(new WsMessageUser(userId, m));
 		}
-		send(a -> ((IApplication)a).getBean(IClientManager.class).listByUser(userId), (t, c) -> {
+		send(userChannel, userId, (t, c) -> {
 			try {
 				t.sendMessage(m);
 			} catch (Exception e) {
@@ -243,33 +252,55 @@ public class WebSocketHelper {
 		if (publish) {
 			publish(new WsMessageAll(m));
 		}
-		new Thread(() -> {
-			Application app = (Application)getApp();
-			WebSocketSettings settings = WebSocketSettings.Holder.get(app);
-			IWebSocketConnectionRegistry reg = settings.getConnectionRegistry();
-			Executor executor = settings.getWebSocketPushMessageExecutor();
-			for (IWebSocketConnection c : reg.getConnections(app)) {
-				executor.run(() -> {
-					try {
-						c.sendMessage(m);
-					} catch (Exception e) {
-						log.error("Error while sending message to ALL", e);
-					}
-				});
+		send(allChannel, ID_ALL, (t, c) -> {
+			try {
+				t.sendMessage(m);
+			} catch (Exception e) {
+				log.error("Error while sending message to ALL", e);
 			}
-		}).start();
+		}, null);
 	}
 
 	protected static void publish(IClusterWsMessage m) {
 		IApplication app = getApp();
-		new Thread(() -> app.publishWsTopic(m)).start();
+		broadcaster.execute(() -> app.publishWsTopic(m));
 	}
 
+	/**
+	 * Sends the same, already encoded message to all clients of the room
+	 *
+	 * @param roomId - id of the room
+	 * @param msg - encoded message, will be sent as is to every recipient
+	 * @param check - optional recipient filter, can be null
+	 */
+	protected static void sendRoom(final Long roomId, final String msg, Predicate<Client> check) {
+		log.debug("Sending WebSocket message: {}", msg);
+		sendRoom(roomId, (t, c) -> {
+			try {
+				t.sendMessage(msg);
+			} catch (Exception e) {
+				log.error("Error while broadcasting message to room", e);
+			}
+		}, check);
+	}
+
+	/**
+	 * Sends message personalized for each client of the room
+	 *
+	 * @param roomId - id of the room
+	 * @param m - base message
+	 * @param check - optional recipient filter, can be null
+	 * @param func - function to create the message for the client, if null the same message will be sent to all clients
+	 */
 	protected static void sendRoom(final Long roomId, final JSONObject m, Predicate<Client> check, BiFunction<JSONObject, Client, String> func) {
+		if (func == null) {
+			sendRoom(roomId, m.toString(), check);
+			return;
+		}
 		log.debug("Sending WebSocket message: {}", m);
 		sendRoom(roomId, (t, c) -> {
 			try {
-				t.sendMessage(func == null ? m.toString() : func.apply(m, c));
+				t.sendMessage(func.apply(m, c));
 			} catch (Exception e) {
 				log.error("Error while broadcasting message to room", e);
 			}
@@ -277,27 +308,64 @@ public class WebSocketHelper {
 	}
 
 	private static void sendRoom(final Long roomId, BiConsumer<IWebSocketConnection, Client> consumer, Predicate<Client> check) {
-		send(a -> ((IApplication)a).getBean(IClientManager.class).listByRoom(roomId), consumer, check);
+		send(roomChannel, roomId, consumer, check);
 	}
 
-	private static void send(
-			final Function<Application, Collection<Client>> func
+	private static <K> void send(
+			final WsBroadcaster.Channel<K, Recipient> channel
+			, final K key
 			, BiConsumer<IWebSocketConnection, Client> consumer
 			, Predicate<Client> check)
 	{
-		new Thread(() -> {
-			Application app = (Application)getApp();
-			WebSocketSettings settings = WebSocketSettings.Holder.get(app);
-			IWebSocketConnectionRegistry reg = settings.getConnectionRegistry();
-			Executor executor = settings.getWebSocketPushMessageExecutor();
-			for (Client c : func.apply(app)) {
-				if (check == null || check.test(c)) {
-					final IWebSocketConnection wc = reg.getConnection(app, c.getSessionId(), new PageIdKey(c.getPageId()));
-					if (wc != null && wc.isOpen()) {
-						executor.run(() -> consumer.accept(wc, c));
-					}
-				}
+		channel.submit(key, check == null ? null : r -> check.test(r.client), r -> {
+			if (r.conn.isOpen()) {
+				r.executor.run(() -> consumer.accept(r.conn, r.client));
+			}
+		});
+	}
+
+	private static Collection<Recipient> getRecipients(Function<IClientManager, Collection<Client>> func) {
+		Application app = (Application)getApp();
+		WebSocketSettings settings = WebSocketSettings.Holder.get(app);
+		IWebSocketConnectionRegistry reg = settings.getConnectionRegistry();
+		Executor executor = settings.getWebSocketPushMessageExecutor();
+		List<Recipient> result = new ArrayList<>();
+		for (Client c : func.apply(((IApplication)app).getBean(IClientManager.class))) {
+			final IWebSocketConnection wc = reg.getConnection(app, c.getSessionId(), new PageIdKey(c.getPageId()));
+			if (wc != null) {
+				result.add(new Recipient(c, wc, executor));
 			}
-		}).start();
+		}
+		return result;
+	}
+
+	private static Collection<Recipient> getAllRecipients() {
+		Application app = (Application)getApp();
+		WebSocketSettings settings = WebSocketSettings.Holder.get(app);
+		Executor executor = settings.getWebSocketPushMessageExecutor();
+		List<Recipient> result = new ArrayList<>();
+		for (IWebSocketConnection wc : settings.getConnectionRegistry().getConnections(app)) {
+			result.add(new Recipient(null, wc, executor));
+		}
+		return result;
+	}
+
+	/**
+	 * @return engine used to deliver WebSocket messages, can be used to get queue depth and latency
+	 */
+	public static WsBroadcaster getBroadcaster() {
+		return broadcaster;
+	}
+
+	private static class Recipient {
+		private final Client client;
+		private final IWebSocketConnection conn;
+		private final Executor executor;
+
+		Recipient(Client client, IWebSocketConnection conn, Executor executor) {
+			this.client = client;
+			this.conn = conn;
+			this.executor = executor;
+		}
 	}
 }
@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openmeetings.core.util.ws;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded fan-out engine for WebSocket broadcasts
+ *
+ * Messages are queued into per-key lanes (room, user etc.), each lane is drained
+ * by at most one pool thread at a time, so messages for the same key are delivered
+ * in order, and all messages pending for the key are sent in one pass with
+ * recipients being resolved only once per pass
+ */
+public class WsBroadcaster {
+	private static final Logger log = LoggerFactory.getLogger(WsBroadcaster.class);
+	private final ThreadPoolExecutor executor;
+	private final AtomicInteger queued = new AtomicInteger();
+	private final LongAdder broadcasts = new LongAdder();
+	private final LongAdder deliveries = new LongAdder();
+	private final LongAdder latency = new LongAdder();
+	private final AtomicLong maxLatency = new AtomicLong();
+	private final LongAdder tasks = new LongAdder();
+
+	public WsBroadcaster(final String name, int threads, int capacity) {
+		executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS
+				, new LinkedBlockingQueue<>(capacity)
+				, new ThreadFactory() {
+					private final AtomicInteger count = new AtomicInteger();
+
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, String.format("%s-%s", name, count.incrementAndGet()));
+						t.setDaemon(true);
+						return t;
+					}
+				}
+				, new ThreadPoolExecutor.CallerRunsPolicy());
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Runs single task in the pool, tasks are counted separately from broadcasts
+	 *
+	 * @param task - task to be executed
+	 */
+	public void execute(Runnable task) {
+		queued.incrementAndGet();
+		executor.execute(() -> {
+			queued.decrementAndGet();
+			try {
+				task.run();
+			} catch (Exception e) {
+				log.error("Unexpected error while executing broadcast task", e);
+			} finally {
+				tasks.increment();
+			}
+		});
+	}
+
+	/**
+	 * Creates channel to broadcast messages to recipients grouped by key
+	 *
+	 * @param resolver - function to get current recipients of the key
+	 * @return created channel
+	 */
+	public <K, R> Channel<K, R> channel(Function<K, Collection<R>> resolver) {
+		return new Channel<>(resolver);
+	}
+
+	private void track(long start, int sent) {
+		long nanos = System.nanoTime() - start;
+		broadcasts.increment();
+		deliveries.add(sent);
+		latency.add(nanos);
+		maxLatency.accumulateAndGet(nanos, Math::max);
+	}
+
+	/**
+	 * @return number of messages waiting to be sent
+	 */
+	public int getQueueDepth() {
+		return queued.get();
+	}
+
+	/**
+	 * @return number of pool threads currently sending messages
+	 */
+	public int getActiveCount() {
+		return executor.getActiveCount();
+	}
+
+	/**
+	 * @return number of messages sent since start
+	 */
+	public long getBroadcastCount() {
+		return broadcasts.sum();
+	}
+
+	/**
+	 * @return number of single tasks (e.g. cluster publishing) executed since start
+	 */
+	public long getTaskCount() {
+		return tasks.sum();
+	}
+
+	/**
+	 * @return number of messages delivered to recipients since start
+	 */
+	public long getDeliveryCount() {
+		return deliveries.sum();
+	}
+
+	/**
+	 * @return average time in milliseconds between message being queued and sent to all its recipients
+	 */
+	public double getAverageLatency() {
+		long count = broadcasts.sum();
+		return count == 0 ? 0 : latency.sum() / (count * 1_000_000.);
+	}
+
+	/**
+	 * @return maximum time in milliseconds between message being queued and sent to all its recipients
+	 */
+	public double getMaxLatency() {
+		return maxLatency.get() / 1_000_000.;
+	}
+
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	public class Channel<K, R> {
+		private final Function<K, Collection<R>> resolver;
+		// lane is removed as soon as it is drained, so idle keys are not retained
+		private final ConcurrentMap<K, Lane> lanes = new ConcurrentHashMap<>();
+
+		private Channel(Function<K, Collection<R>> resolver) {
+			this.resolver = resolver;
+		}
+
+		/**
+		 * Queues message to be sent to the recipients of the key
+		 *
+		 * @param key - key to get recipients (room id, user id etc.)
+		 * @param check - optional recipient filter, can be null
+		 * @param sender - actual message sender
+		 */
+		public void submit(K key, Predicate<R> check, Consumer<R> sender) {
+			queued.incrementAndGet();
+			final Message<R> m = new Message<>(check, sender);
+			while (!lanes.computeIfAbsent(key, Lane::new).offer(m)) {
+				// lane was drained and removed concurrently, next attempt will create new one
+			}
+		}
+
+		/**
+		 * @return number of keys having messages being sent
+		 */
+		public int getLaneCount() {
+			return lanes.size();
+		}
+
+		private class Lane implements Runnable {
+			private final K key;
+			private final Queue<Message<R>> pending = new ConcurrentLinkedQueue<>();
+			private final AtomicBoolean scheduled = new AtomicBoolean();
+			private boolean closed = false; // guarded by this
+
+			Lane(K key) {
+				this.key = key;
+			}
+
+			boolean offer(Message<R> m) {
+				synchronized (this) {
+					if (closed) {
+						return false;
+					}
+					pending.add(m);
+				}
+				schedule();
+				return true;
+			}
+
+			/**
+			 * Removes lane having nothing to send, messages offered after this
+			 * will go to new lane, the order is kept since this one is empty
+			 */
+			private synchronized void close() {
+				if (pending.isEmpty() && !scheduled.get()) {
+					closed = true;
+					lanes.remove(key, this);
+				}
+			}
+
+			private void schedule() {
+				if (scheduled.compareAndSet(false, true)) {
+					executor.execute(this);
+				}
+			}
+
+			@Override
+			public void run() {
+				try {
+					List<Message<R>> batch = new ArrayList<>();
+					Message<R> m;
+					while ((m = pending.poll()) != null) {
+						batch.add(m);
+					}
+					queued.addAndGet(-batch.size());
+					if (!batch.isEmpty()) {
+						send(batch);
+					}
+				} finally {
+					scheduled.set(false);
+					if (pending.isEmpty()) {
+						close();
+					} else {
+						schedule();
+					}
+				}
+			}
+
+			private void send(List<Message<R>> batch) {
+				Collection<R> recipients;
+				try {
+					recipients = resolver.apply(key);
+				} catch (Exception e) {
+					log.error("Unexpected error while getting recipients of {}", key, e);
+					return;
+				}
+				log.trace("Sending {} messages to {} recipients of {}", batch.size(), recipients.size(), key);
+				for (Message<R> msg : batch) {
+					int sent = 0;
+					for (R r : recipients) {
+						try {
+							if (msg.check == null || msg.check.test(r)) {
+								msg.sender.accept(r);
+								sent++;
+							}
+						} catch (Exception e) {
+							log.error("Unexpected error while broadcasting message to {}", key, e);
+						}
+					}
+					track(msg.created, sent);
+				}
+			}
+		}
+	}
+
+	private static class Message<R> {
+		private final long created = System.nanoTime();
+		private final Predicate<R> check;
+		private final Consumer<R> sender;
+
+		Message(Predicate<R> check, Consumer<R> sender) {
+			this.check = check;
+			this.sender = sender;
+		}
+	}
+}
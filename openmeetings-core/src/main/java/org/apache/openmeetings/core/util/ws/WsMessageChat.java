@@ -19,26 +19,23 @@
 package org.apache.openmeetings.core.util.ws;
 
 import org.apache.openmeetings.db.entity.basic.ChatMessage;
-import org.apache.openmeetings.util.NullStringer;
 import org.apache.openmeetings.util.ws.IClusterWsMessage;
 
-import com.github.openjson.JSONObject;
-
 public class WsMessageChat implements IClusterWsMessage {
 	private static final long serialVersionUID = 1L;
 	private final ChatMessage m;
 	private final String msg;
 
-	public WsMessageChat(ChatMessage m, JSONObject msg) {
+	public WsMessageChat(ChatMessage m, String msg) {
 		this.m = m;
-		this.msg = msg.toString(new NullStringer());
+		this.msg = msg;
 	}
 
 	public ChatMessage getChatMessage() {
 		return m;
 	}
 
-	public JSONObject getMsg() {
-		return new JSONObject(msg);
+	public String getMsg() {
+		return msg;
 	}
 }
@@ -18,26 +18,23 @@
  */
 package org.apache.openmeetings.core.util.ws;
 
-import org.apache.openmeetings.util.NullStringer;
 import org.apache.openmeetings.util.ws.IClusterWsMessage;
 
-import com.github.openjson.JSONObject;
-
 public class WsMessageRoom implements IClusterWsMessage {
 	private static final long serialVersionUID = 1L;
 	private final Long roomId;
 	private final String msg;
 
-	public WsMessageRoom(Long roomId, JSONObject msg) {
+	public WsMessageRoom(Long roomId, String msg) {
 		this.roomId = roomId;
-		this.msg = msg.toString(new NullStringer());
+		this.msg = msg;
 	}
 
 	public Long getRoomId() {
 		return roomId;
 	}
 
-	public JSONObject getMsg() {
-		return new JSONObject(msg);
+	public String getMsg() {
+		return msg;
 	}
 }
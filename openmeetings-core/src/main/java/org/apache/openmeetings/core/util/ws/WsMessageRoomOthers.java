@@ -18,13 +18,11 @@
  */
 package org.apache.openmeetings.core.util.ws;
 
-import com.github.openjson.JSONObject;
-
 public class WsMessageRoomOthers extends WsMessageRoom {
 	private static final long serialVersionUID = 1L;
 	private final String uid;
 
-	public WsMessageRoomOthers(Long roomId, String uid, JSONObject msg) {
+	public WsMessageRoomOthers(Long roomId, String uid, String msg) {
 		super(roomId, msg);
 		this.uid = uid;
 	}
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openmeetings.core.converter;
+
+import static org.apache.openmeetings.util.OmFileHelper.getRecordingChunk;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManager;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.openmeetings.db.dao.record.RecordingChunkDao;
+import org.apache.openmeetings.db.entity.record.Recording;
+import org.apache.openmeetings.db.entity.record.RecordingChunk;
+import org.apache.openmeetings.db.entity.record.RecordingChunk.Status;
+import org.apache.openmeetings.util.OmFileHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TestBaseConverter {
+	private static final Logger log = LoggerFactory.getLogger(TestBaseConverter.class);
+	private static final int RECORDING_COUNT = 50;
+	private static final int CHUNKS_PER_RECORDING = 10;
+	private static final int CHUNK_COUNT = RECORDING_COUNT * CHUNKS_PER_RECORDING;
+	private final Map<Long, RecordingChunk> chunks = new ConcurrentHashMap<>();
+	private final AtomicInteger reads = new AtomicInteger();
+	private final BaseConverter converter = new BaseConverter() {};
+	private File home;
+
+	@Before
+	public void setUp() throws Exception {
+		home = File.createTempFile("omhome", "");
+		home.delete();
+		home.mkdirs();
+		OmFileHelper.setOmHome(home);
+		RecordingChunkDao dao = new RecordingChunkDao() {
+			@Override
+			public RecordingChunk get(Long id) {
+				reads.incrementAndGet();
+				return chunks.get(id);
+			}
+		};
+		// stored chunks are modified in place
+		Field em = RecordingChunkDao.class.getDeclaredField("em");
+		em.setAccessible(true);
+		em.set(dao, Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {EntityManager.class}
+				, (proxy, method, args) -> "merge".equals(method.getName()) ? args[0] : null));
+		converter.chunkDao = dao;
+	}
+
+	@After
+	public void tearDown() {
+		FileUtils.deleteQuietly(home);
+	}
+
+	private RecordingChunk createChunk(long id) throws Exception {
+		Recording r = new Recording();
+		r.setId(id / CHUNKS_PER_RECORDING);
+		r.setRoomId(id / CHUNKS_PER_RECORDING);
+		RecordingChunk chunk = new RecordingChunk();
+		chunk.setId(id);
+		chunk.setRecording(r);
+		chunk.setStreamName("chunk" + id);
+		chunk.setStreamStatus(Status.STARTED);
+		chunks.put(id, chunk);
+		File f = getRecordingChunk(r.getRoomId(), chunk.getStreamName());
+		FileUtils.touch(f);
+		return chunk;
+	}
+
+	@Test
+	public void testConcurrentRecordings() throws Exception {
+		for (long id = 0; id < CHUNK_COUNT; ++id) {
+			createChunk(id);
+		}
+		ExecutorService waiters = Executors.newFixedThreadPool(CHUNK_COUNT);
+		List<Future<RecordingChunk>> results = new ArrayList<>();
+		for (long id = 0; id < CHUNK_COUNT; ++id) {
+			final long chunkId = id;
+			results.add(waiters.submit(() -> converter.waitForTheStream(chunkId, TimeUnit.MINUTES.toMillis(1))));
+		}
+		Thread.sleep(500); // converters are waiting
+		long start = System.currentTimeMillis();
+		for (long id = 0; id < CHUNK_COUNT; ++id) {
+			converter.chunkDao.stop(id);
+		}
+		for (Future<RecordingChunk> f : results) {
+			assertEquals(Status.STOPPED, f.get(1, TimeUnit.MINUTES).getStreamStatus());
+		}
+		long time = System.currentTimeMillis() - start;
+		waiters.shutdown();
+		log.info("{} chunks of {} recordings stopped, all converters notified in {} ms, {} chunk reads"
+				, CHUNK_COUNT, RECORDING_COUNT, time, reads.get());
+		assertTrue("Chunks should not be polled", reads.get() <= 4 * CHUNK_COUNT);
+	}
+
+	@Test
+	public void testStoppedElsewhere() throws Exception {
+		RecordingChunk chunk = createChunk(CHUNK_COUNT + 1);
+		ExecutorService waiter = Executors.newSingleThreadExecutor();
+		Future<RecordingChunk> result = waiter.submit(() -> converter.waitForTheStream(chunk.getId(), TimeUnit.MINUTES.toMillis(1), 100));
+		Thread.sleep(500); // converter is waiting
+		// status is changed without local notification, as other cluster member would do
+		chunk.setStreamStatus(Status.STOPPED);
+		assertEquals("Stop should be noticed by status check", Status.STOPPED, result.get(5, TimeUnit.SECONDS).getStreamStatus());
+		waiter.shutdown();
+	}
+
+	@Test
+	public void testIdleStream() throws Exception {
+		RecordingChunk chunk = createChunk(CHUNK_COUNT);
+		File f = getRecordingChunk(chunk.getRecording().getRoomId(), chunk.getStreamName());
+		f.setLastModified(System.currentTimeMillis() - 2000);
+		assertEquals("Idle chunk should be stopped", Status.STOPPED, converter.waitForTheStream(chunk.getId(), 1000).getStreamStatus());
+		assertEquals("Stopped chunk should be returned immediately", Status.STOPPED, converter.waitForTheStream(chunk.getId(), 1000).getStreamStatus());
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openmeetings.core.converter;
+
+import static org.apache.openmeetings.util.OmFileHelper.DOC_PAGE_PREFIX;
+import static org.apache.openmeetings.util.OmFileHelper.EXTENSION_PNG;
+import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_PATH_IMAGEMAGIC;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.openmeetings.db.dao.basic.ConfigurationDao;
+import org.apache.openmeetings.db.entity.file.FileItem;
+import org.apache.openmeetings.util.process.ProcessResultList;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TestImageConverter {
+	private static final Logger log = LoggerFactory.getLogger(TestImageConverter.class);
+	private static final int PAGE_COUNT = 200;
+	private final ImageConverter converter = new ImageConverter();
+	private File dir;
+	private String convertPath = null;
+
+	@Before
+	public void setUp() throws Exception {
+		converter.cfgDao = new ConfigurationDao() {
+			@Override
+			public String getString(String key, String def) {
+				return CONFIG_PATH_IMAGEMAGIC.equals(key) && convertPath != null ? convertPath : def;
+			}
+		};
+		dir = File.createTempFile("omdoc", "");
+		dir.delete();
+		dir.mkdirs();
+	}
+
+	@After
+	public void tearDown() {
+		converter.destroy();
+		FileUtils.deleteQuietly(dir);
+	}
+
+	@Test
+	public void testChunks() {
+		List<int[]> chunks = ImageConverter.getChunks(12, 5);
+		assertEquals(4, chunks.size());
+		assertArrayEquals("First page should be rendered separately", new int[] {0, 0}, chunks.get(0));
+		assertArrayEquals(new int[] {1, 5}, chunks.get(1));
+		assertArrayEquals(new int[] {11, 11}, chunks.get(3));
+		assertEquals(1, ImageConverter.getChunks(1, 5).size());
+		assertTrue(ImageConverter.getChunks(0, 5).isEmpty());
+	}
+
+	private static boolean isConvertAvailable() {
+		try {
+			return new ProcessBuilder("convert", "-version").start().waitFor() == 0;
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	private File createPdf(String name) throws Exception {
+		File pdf = new File(new File(dir, name), "test.pdf");
+		pdf.getParentFile().mkdirs();
+		try (PDDocument doc = new PDDocument()) {
+			for (int i = 0; i < PAGE_COUNT; ++i) {
+				PDPage page = new PDPage();
+				doc.addPage(page);
+				try (PDPageContentStream cs = new PDPageContentStream(doc, page)) {
+					cs.beginText();
+					cs.setFont(PDType1Font.HELVETICA, 24);
+					cs.newLineAtOffset(100, 700);
+					cs.showText("Page " + i);
+					cs.endText();
+					cs.addRect(100, 100, 400, 500);
+					cs.stroke();
+				}
+			}
+			doc.save(pdf);
+		}
+		return pdf;
+	}
+
+	private long convert(String name, int pagesPerChunk) throws Exception {
+		File pdf = createPdf(name);
+		FileItem f = new FileItem();
+		long start = System.currentTimeMillis();
+		List<Integer> ready = new ArrayList<>();
+		ProcessResultList logs = converter.convertDocument(f, pdf, new ProcessResultList(), pagesPerChunk, n -> {
+			assertEquals("Page count should be known before first page is ready", PAGE_COUNT, f.getCount());
+			ready.add(n);
+		});
+		long time = System.currentTimeMillis() - start;
+		assertTrue("Conversion should be successful", !logs.hasError());
+		assertEquals("Page count should be set", PAGE_COUNT, f.getCount());
+		assertTrue("Size should be set", f.getWidth() != null && f.getWidth() > 0);
+		File[] pages = pdf.getParentFile().listFiles(fi -> fi.getName().startsWith(DOC_PAGE_PREFIX) && fi.getName().endsWith(EXTENSION_PNG));
+		assertEquals("All pages should be rendered", PAGE_COUNT, pages.length);
+		assertEquals("First page should be reported separately", Integer.valueOf(1), ready.get(0));
+		assertEquals(Integer.valueOf(PAGE_COUNT), ready.get(ready.size() - 1));
+		for (int i = 1; i < ready.size(); ++i) {
+			assertTrue("Pages should be reported in order", ready.get(i) > ready.get(i - 1));
+		}
+		assertEquals("Every chunk should be reported", ImageConverter.getChunks(PAGE_COUNT
+				, pagesPerChunk > 0 ? pagesPerChunk : ImageConverter.getPagesPerChunk(PAGE_COUNT)).size(), ready.size());
+		return time;
+	}
+
+	@Test
+	public void testParallelConversion() throws Exception {
+		assumeTrue("ImageMagick should be installed", isConvertAvailable());
+		long sequential = convert("sequential", PAGE_COUNT);
+		long parallel = convert("parallel", 0);
+		log.info("{} pages converted: sequential {} ms, parallel {} ms", PAGE_COUNT, sequential, parallel);
+		if (Runtime.getRuntime().availableProcessors() > 1) {
+			assertTrue("Parallel conversion should not be slower", parallel < sequential);
+		}
+	}
+
+	@Test
+	public void testFailedChunkNotReported() throws Exception {
+		convertPath = new File(dir, "missing").getCanonicalPath();
+		File pdf = createPdf("failed");
+		FileItem f = new FileItem();
+		List<Integer> ready = new ArrayList<>();
+		ProcessResultList logs = converter.convertDocument(f, pdf, new ProcessResultList(), 0, ready::add);
+		assertTrue("Conversion should fail", logs.hasError());
+		assertEquals("Page count should be set", PAGE_COUNT, f.getCount());
+		assertTrue("Pages should not be reported after failed chunk", ready.isEmpty());
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openmeetings.core.remote;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openmeetings.db.dao.user.UserDao;
+import org.apache.openmeetings.db.entity.basic.Client;
+import org.apache.openmeetings.db.entity.basic.Client.StreamDesc;
+import org.apache.openmeetings.db.entity.basic.Client.StreamType;
+import org.apache.openmeetings.db.entity.user.User;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.openjson.JSONObject;
+
+public class TestKRoom {
+	private final UserDao userDao = new UserDao() {
+		@Override
+		public User get(Long id) {
+			return new User();
+		}
+	};
+	private KRoom room;
+
+	@Before
+	public void setUp() {
+		room = new KRoom(1L, null, null);
+	}
+
+	@Test
+	public void testEmpty() {
+		assertFalse(room.hasStreams());
+		assertFalse(room.hasStreams(StreamType.WEBCAM));
+		assertFalse(room.hasStreams(StreamType.SCREEN));
+	}
+
+	@Test
+	public void testStreamsByType() {
+		Client c = new Client("session", 0, 1L, userDao);
+		StreamDesc cam = c.addStream(StreamType.WEBCAM);
+		StreamDesc screen = c.addStream(StreamType.SCREEN);
+		room.addStream(cam);
+		room.addStream(screen);
+		assertTrue(room.hasStreams());
+		assertTrue(room.hasStreams(StreamType.SCREEN));
+
+		room.removeStream(screen.getUid());
+		assertTrue(room.hasStreams());
+		assertFalse(room.hasStreams(StreamType.SCREEN));
+
+		room.removeStream(screen.getUid());
+		room.removeStream(cam.getUid());
+		assertFalse(room.hasStreams());
+	}
+
+	@Test
+	public void testLeave() {
+		Client c1 = new Client("session1", 0, 1L, userDao);
+		Client c2 = new Client("session2", 0, 2L, userDao);
+		room.addStream(c1.addStream(StreamType.WEBCAM));
+		room.addStream(c1.addStream(StreamType.SCREEN));
+		room.addStream(c2.addStream(StreamType.WEBCAM));
+
+		room.leave(null, c1);
+		assertTrue(room.hasStreams(StreamType.WEBCAM));
+		assertFalse(room.hasStreams(StreamType.SCREEN));
+
+		room.leave(null, c2);
+		assertFalse(room.hasStreams());
+	}
+
+	private static KRoom mixingRoom(List<String> sent) {
+		return new KRoom(1L, null, null) {
+			@Override
+			KMixer newMixer() {
+				return new KMixer(this, null);
+			}
+
+			@Override
+			void send(JSONObject msg) {
+				sent.add(msg.getString("id"));
+			}
+		};
+	}
+
+	@Test
+	public void testModeSwitch() {
+		List<String> sent = new CopyOnWriteArrayList<>();
+		KRoom r = mixingRoom(sent);
+		KurentoHandler h = new KurentoHandler();
+		r.checkMode(h, asList("c1", "c2"), 2);
+		assertNull(r.getMixer());
+
+		r.checkMode(h, asList("c1", "c2", "c3"), 2);
+		KMixer m = r.getMixer();
+		assertNotNull(m);
+		assertFalse("Participants present at switch should be notified", m.notify("c1"));
+		assertTrue(m.notify("c4"));
+
+		r.checkMode(h, asList("c1", "c2"), 2);
+		assertSame("Mode should not change at threshold", m, r.getMixer());
+
+		r.checkMode(h, asList("c1"), 2);
+		assertNull(r.getMixer());
+		assertEquals(asList("mixStarted", "mixStopped"), sent);
+	}
+
+	@Test
+	public void testConcurrentModeSwitch() throws Exception {
+		List<String> sent = new CopyOnWriteArrayList<>();
+		KRoom r = mixingRoom(sent);
+		KurentoHandler h = new KurentoHandler();
+		ExecutorService exec = Executors.newFixedThreadPool(8);
+		try {
+			for (int i = 0; i < 100; ++i) {
+				final boolean large = i % 2 == 0;
+				exec.execute(() -> r.checkMode(h, large ? asList("c1", "c2", "c3") : asList("c1"), 2));
+			}
+		} finally {
+			exec.shutdown();
+			assertTrue(exec.awaitTermination(10, TimeUnit.SECONDS));
+		}
+		// starts and stops should alternate
+		for (int i = 0; i < sent.size(); ++i) {
+			assertEquals(i % 2 == 0 ? "mixStarted" : "mixStopped", sent.get(i));
+		}
+		assertEquals(sent.size() % 2 == 1, r.getMixer() != null);
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openmeetings.core.remote;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestKServerPool {
+	private final Map<Long, Long> endpoints = new ConcurrentHashMap<>();
+	private KServerPool pool;
+	private FakeServer kms1;
+	private FakeServer kms2;
+
+	/**
+	 * Media server stand-in, connection state is controlled by the test
+	 */
+	private static class FakeServer extends KServer {
+		private boolean connected = true;
+
+		FakeServer(String url) {
+			super(url);
+		}
+
+		@Override
+		public boolean isConnected() {
+			return connected;
+		}
+	}
+
+	@Before
+	public void setUp() {
+		endpoints.clear();
+		pool = new KServerPool(roomId -> 1 + endpoints.getOrDefault(roomId, 0L));
+		kms1 = new FakeServer("ws://kms1:8888/kurento");
+		kms2 = new FakeServer("ws://kms2:8888/kurento");
+		pool.add(kms1);
+		pool.add(kms2);
+	}
+
+	@Test
+	public void testEmptyRoomsAreSpread() {
+		KServer s1 = pool.place(1L);
+		KServer s2 = pool.place(2L);
+		assertNotEquals("Rooms should be placed on different servers", s1, s2);
+		assertEquals(1, pool.getLoad(kms1));
+		assertEquals(1, pool.getLoad(kms2));
+	}
+
+	@Test
+	public void testLoadAware() {
+		assertSame(kms1, pool.place(1L));
+		endpoints.put(1L, 60L);
+		assertSame(kms2, pool.place(2L));
+		assertSame(kms2, pool.place(3L));
+		assertSame(kms2, pool.place(4L));
+		assertEquals(61, pool.getLoad(kms1));
+		assertEquals(3, pool.getLoad(kms2));
+	}
+
+	@Test
+	public void testSticky() {
+		KServer s = pool.place(1L);
+		endpoints.put(1L, 100L);
+		for (int i = 0; i < 5; ++i) {
+			assertSame("Room should stay on its server", s, pool.place(1L));
+		}
+		assertSame(s, pool.get(1L));
+	}
+
+	@Test
+	public void testRebalanceOnlyLostServer() {
+		pool.place(1L);
+		pool.place(2L);
+		pool.place(3L);
+		pool.place(4L);
+		List<Long> onKms1 = pool.release(kms1);
+		assertEquals(2, onKms1.size());
+		for (Long id : onKms1) {
+			assertNull("Room should be unplaced", pool.get(id));
+		}
+		for (long id = 1; id < 5; ++id) {
+			if (!onKms1.contains(id)) {
+				assertSame("Rooms of other server should stay", kms2, pool.get(id));
+			}
+		}
+	}
+
+	@Test
+	public void testDisconnected() {
+		KServer s = pool.place(1L);
+		((FakeServer)s).connected = false;
+		KServer other = pool.place(1L);
+		assertNotEquals("Room should be moved from disconnected server", s, other);
+		kms1.connected = false;
+		kms2.connected = false;
+		assertFalse(pool.isConnected());
+		assertNull(pool.select());
+		assertNull(pool.place(2L));
+		kms2.connected = true;
+		assertTrue(pool.isConnected());
+		assertSame(kms2, pool.place(2L));
+	}
+}
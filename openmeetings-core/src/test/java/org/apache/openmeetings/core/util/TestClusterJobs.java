@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openmeetings.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class TestClusterJobs {
+	private static final List<String> JOBS = Arrays.asList("cleanSessions", "cleanExpiredRecordings"
+			, "cleanExpiredResetHash", "cleanPersonalData", "remindMeetings", "remindExpiringRecordings"
+			, "resetSendingStatus");
+
+	@Test
+	public void testNoMembers() {
+		assertNull(ClusterJobs.getOwner("cleanSessions", Collections.emptyList()));
+	}
+
+	@Test
+	public void testOwnerIsStable() {
+		List<String> members = Arrays.asList("m1", "m2", "m3");
+		for (String job : JOBS) {
+			assertEquals("All members should select the same owner", ClusterJobs.getOwner(job, members)
+					, ClusterJobs.getOwner(job, new ArrayList<>(members)));
+		}
+	}
+
+	@Test
+	public void testJobsAreSpread() {
+		List<String> members = Arrays.asList("m1", "m2", "m3");
+		Set<String> owners = new HashSet<>();
+		for (String job : JOBS) {
+			owners.add(ClusterJobs.getOwner(job, members));
+		}
+		assertTrue("Jobs should be owned by more than one member", owners.size() > 1);
+	}
+
+	@Test
+	public void testFailover() {
+		List<String> members = new ArrayList<>(Arrays.asList("m1", "m2", "m3"));
+		for (String job : JOBS) {
+			List<String> alive = new ArrayList<>(members);
+			String owner = ClusterJobs.getOwner(job, alive);
+			alive.remove(owner);
+			String next = ClusterJobs.getOwner(job, alive);
+			assertNotEquals("Ownership should move when owner leaves", owner, next);
+			assertTrue("New owner should be alive member", alive.contains(next));
+			alive.remove(next);
+			assertEquals("Last member should own all jobs", alive.get(0), ClusterJobs.getOwner(job, alive));
+		}
+	}
+
+	@Test
+	public void testStats() {
+		final int[] runs = {0};
+		ClusterJobs.run("testStatsJob", () -> runs[0]++);
+		ClusterJobs.run("testStatsJob", true, () -> runs[0]++);
+		ClusterJobs.Stats s = ClusterJobs.getStats().get("testStatsJob");
+		assertEquals("Job should be executed by the only member", 2, runs[0]);
+		assertEquals(2, s.getCount());
+		assertEquals(0, s.getSkipped());
+	}
+}
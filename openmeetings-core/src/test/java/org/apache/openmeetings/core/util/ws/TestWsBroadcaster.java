@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openmeetings.core.util.ws;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.protocol.ws.api.IWebSocketConnection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.openjson.JSONObject;
+
+public class TestWsBroadcaster {
+	private static final Logger log = LoggerFactory.getLogger(TestWsBroadcaster.class);
+	private static final int ROOM_COUNT = 3;
+	private static final int CONN_PER_ROOM = 200;
+	private static final int MSG_PER_ROOM = 300;
+	private final Map<Long, List<IWebSocketConnection>> rooms = new HashMap<>();
+	private final Map<IWebSocketConnection, List<String>> received = new HashMap<>();
+	private WsBroadcaster broadcaster;
+	private CountDownLatch done;
+
+	@Before
+	public void setUp() {
+		broadcaster = new WsBroadcaster("test-broadcast", 4, 1000);
+		done = new CountDownLatch(ROOM_COUNT * CONN_PER_ROOM * MSG_PER_ROOM);
+		for (long roomId = 0; roomId < ROOM_COUNT; ++roomId) {
+			List<IWebSocketConnection> conns = new ArrayList<>();
+			for (int i = 0; i < CONN_PER_ROOM; ++i) {
+				conns.add(mockConnection());
+			}
+			rooms.put(roomId, conns);
+		}
+	}
+
+	@After
+	public void tearDown() {
+		broadcaster.shutdown();
+	}
+
+	private IWebSocketConnection mockConnection() {
+		final List<String> msgs = new ArrayList<>();
+		IWebSocketConnection c = (IWebSocketConnection)Proxy.newProxyInstance(getClass().getClassLoader()
+				, new Class<?>[] {IWebSocketConnection.class}
+				, (proxy, method, args) -> {
+					switch (method.getName()) {
+						case "isOpen":
+							return true;
+						case "sendMessage":
+							msgs.add((String)args[0]);
+							done.countDown();
+							return proxy;
+						case "hashCode":
+							return System.identityHashCode(proxy);
+						case "equals":
+							return proxy == args[0];
+						default:
+							return null;
+					}
+				});
+		received.put(c, msgs);
+		return c;
+	}
+
+	private static void send(IWebSocketConnection c, String msg) {
+		try {
+			c.sendMessage(msg);
+		} catch (IOException e) {
+			log.error("Unexpected error", e);
+		}
+	}
+
+	@Test
+	public void testSendRoom() throws Exception {
+		final WsBroadcaster.Channel<Long, IWebSocketConnection> channel = broadcaster.channel(rooms::get);
+		List<Thread> producers = new ArrayList<>();
+		for (long roomId = 0; roomId < ROOM_COUNT; ++roomId) {
+			final Long rId = roomId;
+			producers.add(new Thread(() -> {
+				for (int i = 0; i < MSG_PER_ROOM; ++i) {
+					final String msg = new JSONObject().put("type", "wb").put("idx", i).toString();
+					channel.submit(rId, null, c -> send(c, msg));
+				}
+			}));
+		}
+		long start = System.currentTimeMillis();
+		producers.forEach(Thread::start);
+		assertTrue("All messages should be delivered", done.await(1, TimeUnit.MINUTES));
+		for (int i = 0; i < 50 && broadcaster.getBroadcastCount() < ROOM_COUNT * MSG_PER_ROOM; ++i) {
+			Thread.sleep(100); // stats are updated right after last delivery
+		}
+		log.info("{} messages were delivered to {} connections in {} ms, avg latency {} ms, max latency {} ms"
+				, ROOM_COUNT * MSG_PER_ROOM, ROOM_COUNT * CONN_PER_ROOM, System.currentTimeMillis() - start
+				, broadcaster.getAverageLatency(), broadcaster.getMaxLatency());
+		assertEquals("Queue should be empty", 0, broadcaster.getQueueDepth());
+		for (int i = 0; i < 50 && channel.getLaneCount() > 0; ++i) {
+			Thread.sleep(100); // lane is removed right after being drained
+		}
+		assertEquals("Drained lanes should be removed", 0, channel.getLaneCount());
+		assertEquals(ROOM_COUNT * MSG_PER_ROOM, broadcaster.getBroadcastCount());
+		assertEquals(ROOM_COUNT * CONN_PER_ROOM * MSG_PER_ROOM, broadcaster.getDeliveryCount());
+		for (List<String> msgs : received.values()) {
+			assertEquals(MSG_PER_ROOM, msgs.size());
+			for (int i = 0; i < MSG_PER_ROOM; ++i) {
+				assertEquals("Messages should be delivered in order", i, new JSONObject(msgs.get(i)).getInt("idx"));
+			}
+		}
+	}
+
+	@Test
+	public void testFilter() throws Exception {
+		final List<IWebSocketConnection> conns = rooms.get(0L);
+		final IWebSocketConnection excluded = conns.get(0);
+		final WsBroadcaster.Channel<Long, IWebSocketConnection> channel = broadcaster.channel(roomId -> conns);
+		done = new CountDownLatch(CONN_PER_ROOM - 1);
+		channel.submit(0L, c -> c != excluded, c -> send(c, "msg"));
+		assertTrue("All messages should be delivered", done.await(1, TimeUnit.MINUTES));
+		assertTrue("Filtered connection should not receive message", received.get(excluded).isEmpty());
+	}
+
+	@Test
+	public void testTasksCountedSeparately() throws Exception {
+		final CountDownLatch executed = new CountDownLatch(1);
+		broadcaster.execute(executed::countDown);
+		assertTrue("Task should be executed", executed.await(1, TimeUnit.MINUTES));
+		for (int i = 0; i < 50 && broadcaster.getTaskCount() < 1; ++i) {
+			Thread.sleep(100);
+		}
+		assertEquals(1, broadcaster.getTaskCount());
+		assertEquals("Tasks should not be counted as broadcasts", 0, broadcaster.getBroadcastCount());
+	}
+}
@@ -23,6 +23,7 @@ import java.util.function.Supplier;
 
 import javax.servlet.ServletContext;
 
+import org.apache.openmeetings.db.entity.basic.Configuration;
 import org.apache.openmeetings.db.entity.room.Invitation;
 import org.apache.openmeetings.util.ws.IClusterWsMessage;
 import org.apache.wicket.request.IExceptionMapper;
@@ -48,4 +49,10 @@ public interface IApplication {
 
 	//WS
 	void publishWsTopic(IClusterWsMessage msg);
+
+	//Configuration
+	void publishConfigChange(Configuration c);
+
+	//Jobs
+	boolean isJobOwner(String job);
 }
@@ -21,6 +21,7 @@ package org.apache.openmeetings.db.dao.basic;
 import static org.apache.openmeetings.db.util.DaoHelper.setLimits;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.PARAM_USER_ID;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -49,6 +50,20 @@ public class ChatDao {
 				, start, count).getResultList();
 	}
 
+	/**
+	 * Page of messages ordered by id, allows to iterate over all messages
+	 * without offset scans, for export
+	 *
+	 * @param afterId - id of the last message of the previous page
+	 * @param count - maximum number of messages
+	 * @return list of messages with id greater than {@code afterId}
+	 */
+	public List<ChatMessage> getAfter(long afterId, long count) {
+		return setLimits(em.createNamedQuery("getChatMessagesAfter", ChatMessage.class)
+					.setParameter("id", afterId)
+				, null, count).getResultList();
+	}
+
 	public List<ChatMessage> getGlobal(long start, long count) {
 		return setLimits(em.createNamedQuery("getGlobalChatMessages", ChatMessage.class)
 				, start, count).getResultList();
@@ -67,6 +82,40 @@ public class ChatDao {
 				, start, count).getResultList();
 	}
 
+	/*
+	 * Keyset paging: each page is read starting from the oldest message of the previous page
+	 * using the index, so no OFFSET scans are necessary, newest messages are returned first
+	 * Long.MAX_VALUE should be passed as `beforeId` to get the first page
+	 */
+	public List<ChatMessage> getGlobalBefore(long beforeId, long count) {
+		return setLimits(em.createNamedQuery("getGlobalChatMessagesBefore", ChatMessage.class)
+					.setParameter("id", beforeId)
+				, null, count).getResultList();
+	}
+
+	public List<ChatMessage> getRoomBefore(long roomId, long beforeId, long count, boolean all) {
+		return setLimits(em.createNamedQuery("getChatMessagesByRoomBefore", ChatMessage.class)
+					.setParameter("roomId", roomId)
+					.setParameter("all", all)
+					.setParameter("id", beforeId)
+				, null, count).getResultList();
+	}
+
+	public List<ChatMessage> getUserBefore(long userId, long beforeId, long count) {
+		return setLimits(em.createNamedQuery("getChatMessagesByUserBefore", ChatMessage.class)
+					.setParameter(PARAM_USER_ID, userId)
+					.setParameter("id", beforeId)
+				, null, count).getResultList();
+	}
+
+	public List<ChatMessage> getUserBefore(long userId, long withUserId, long beforeId, long count) {
+		return setLimits(em.createNamedQuery("getChatMessagesWithUserBefore", ChatMessage.class)
+					.setParameter(PARAM_USER_ID, userId)
+					.setParameter("withId", withUserId)
+					.setParameter("id", beforeId)
+				, null, count).getResultList();
+	}
+
 	public List<ChatMessage> getUserRecent(long userId, Date date, long start, long count) {
 		return setLimits(em.createNamedQuery("getChatMessagesByUserTime", ChatMessage.class)
 					.setParameter(PARAM_USER_ID, userId)
@@ -86,6 +135,17 @@ public class ChatDao {
 		return entity;
 	}
 
+	/**
+	 * Stores all messages in single transaction, used by backup import
+	 *
+	 * @param list - messages to be stored, sent date should be set
+	 */
+	public void persist(Collection<ChatMessage> list) {
+		for (ChatMessage m : list) {
+			update(m, m.getSent());
+		}
+	}
+
 	/**
 	 * @param entity - unused
 	 * @param userId - unused
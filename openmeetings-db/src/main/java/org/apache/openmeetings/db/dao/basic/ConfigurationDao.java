@@ -32,6 +32,10 @@ import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_DEFAULT_
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_DEFAULT_TIMEZONE;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_EMAIL_AT_REGISTER;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_EMAIL_VERIFICATION;
+import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_EXT_PROCESS_LIMIT_FFMPEG;
+import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_EXT_PROCESS_LIMIT_IMAGEMAGICK;
+import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_EXT_PROCESS_LIMIT_OFFICE;
+import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_EXT_PROCESS_LIMIT_SOX;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_EXT_PROCESS_TTL;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_FNAME_MIN_LENGTH;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_GOOGLE_ANALYTICS_CODE;
@@ -65,6 +69,7 @@ import static org.apache.openmeetings.util.OpenmeetingsVariables.HEADER_XFRAME_S
 import static org.apache.openmeetings.util.OpenmeetingsVariables.USER_LOGIN_MINIMUM_LENGTH;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.USER_PASSWORD_MINIMUM_LENGTH;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.getRoomSettings;
+import static org.apache.openmeetings.util.OpenmeetingsVariables.getWicketApplicationName;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.setAllowRegisterFrontend;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.setAllowRegisterOauth;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.setAllowRegisterSoap;
@@ -98,8 +103,13 @@ import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -110,17 +120,23 @@ import org.apache.openjpa.event.RemoteCommitProvider;
 import org.apache.openjpa.event.TCPRemoteCommitProvider;
 import org.apache.openjpa.persistence.OpenJPAEntityManagerSPI;
 import org.apache.openjpa.persistence.OpenJPAPersistence;
+import org.apache.openmeetings.IApplication;
 import org.apache.openmeetings.db.dao.IDataProviderDao;
 import org.apache.openmeetings.db.dao.user.UserDao;
 import org.apache.openmeetings.db.entity.basic.Configuration;
 import org.apache.openmeetings.db.util.DaoHelper;
 import org.apache.openmeetings.util.OpenmeetingsVariables;
 import org.apache.openmeetings.util.crypt.CryptProvider;
+import org.apache.openmeetings.util.process.ConversionScheduler;
+import org.apache.openmeetings.util.process.ConversionScheduler.Tool;
+import org.apache.wicket.Application;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import com.github.openjson.JSONObject;
 
@@ -133,6 +149,10 @@ import com.github.openjson.JSONObject;
  * {@link #getInt(String, int)}
  * {@link #getString(String, String)}
  *
+ * Values returned by these methods are cached in memory, the cache is
+ * populated by {@link #reinit()} and invalidated on every update
+ * on all cluster members
+ *
  * <b> {@link #get(String)} is deprecated!</b>
  *
  * @author swagner
@@ -149,6 +169,10 @@ public class ConfigurationDao implements IDataProviderDao<Configuration> {
 
 	@Autowired
 	private UserDao userDao;
+	// detached copies, never returned to the callers, empty means key is missing
+	private final Map<String, Optional<Configuration>> cache = new ConcurrentHashMap<>();
+	// incremented on every eviction, value read from DB is cached only if no eviction happened meanwhile
+	private final AtomicLong generation = new AtomicLong();
 
 	public void updateClusterAddresses(String addresses) throws UnknownHostException {
 		OpenJPAConfiguration cfg = ((OpenJPAEntityManagerSPI)OpenJPAPersistence.cast(em)).getConfiguration();
@@ -180,12 +204,16 @@ public class ConfigurationDao implements IDataProviderDao<Configuration> {
 	}
 
 	public List<Configuration> get(String... keys) {
+		Map<String, Configuration> byKey = new HashMap<>();
+		for (Configuration c : em.createNamedQuery("getConfigurationsByKeys", Configuration.class)
+				.setParameter("keys", Arrays.asList(keys))
+				.getResultList())
+		{
+			byKey.put(c.getKey(), c);
+		}
 		List<Configuration> result = new ArrayList<>();
 		for (String key : keys) { //iteration is necessary to fill list with all values
-			List<Configuration> r = em.createNamedQuery("getConfigurationsByKeys", Configuration.class)
-					.setParameter("keys", Arrays.asList(key))
-					.getResultList();
-			result.add(r.isEmpty() ? null : r.get(0));
+			result.add(byKey.get(key));
 		}
 		return result;
 	}
@@ -200,8 +228,35 @@ public class ConfigurationDao implements IDataProviderDao<Configuration> {
 		return list.get(0);
 	}
 
+	private static Configuration copy(Configuration c) {
+		Configuration copy = new Configuration();
+		copy.setKey(c.getKey());
+		copy.setValue(c.getValue());
+		copy.setType(c.getType());
+		copy.setDeleted(c.isDeleted());
+		return copy;
+	}
+
+	private Configuration getCached(String key) {
+		Optional<Configuration> c = cache.get(key);
+		if (c == null) {
+			final long gen = generation.get();
+			Configuration dbc = get(key);
+			final Optional<Configuration> loaded = Optional.ofNullable(dbc == null ? null : copy(dbc));
+			// checked under the lock of the key, so concurrent eviction either prevents the put or removes the value
+			cache.compute(key, (k, v) -> v != null || gen != generation.get() ? v : loaded);
+			c = loaded;
+		}
+		return c.orElse(null);
+	}
+
+	private void evict(String key) {
+		generation.incrementAndGet();
+		cache.remove(key);
+	}
+
 	public boolean getBool(String key, boolean def) {
-		Configuration c = get(key);
+		Configuration c = getCached(key);
 
 		if (c != null) {
 			try {
@@ -214,7 +269,7 @@ public class ConfigurationDao implements IDataProviderDao<Configuration> {
 	}
 
 	public Long getLong(String key, Long def) {
-		Configuration c = get(key);
+		Configuration c = getCached(key);
 
 		if (c != null) {
 			try {
@@ -227,7 +282,7 @@ public class ConfigurationDao implements IDataProviderDao<Configuration> {
 	}
 
 	public int getInt(String key, int def) {
-		Configuration c = get(key);
+		Configuration c = getCached(key);
 
 		if (c != null) {
 			try {
@@ -241,7 +296,7 @@ public class ConfigurationDao implements IDataProviderDao<Configuration> {
 	}
 
 	public String getString(String key, String def) {
-		Configuration c = get(key);
+		Configuration c = getCached(key);
 		return c != null && c.getValue() != null ? c.getValue() : def;
 	}
 
@@ -295,6 +350,48 @@ public class ConfigurationDao implements IDataProviderDao<Configuration> {
 			entity.setUpdated(new Date());
 			entity = em.merge(entity);
 		}
+		evict(key);
+		reload(key, value);
+		onComplete(copy(entity));
+		return entity;
+	}
+
+	private void onComplete(final Configuration c) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCompletion(int status) {
+					// value might be cached by reload before commit
+					evict(c.getKey());
+					if (STATUS_COMMITTED == status) {
+						publish(c);
+					}
+				}
+			});
+		} else {
+			publish(c);
+		}
+	}
+
+	private static void publish(Configuration c) {
+		IApplication app = (IApplication)Application.get(getWicketApplicationName());
+		if (app != null) {
+			app.publishConfigChange(c);
+		}
+	}
+
+	/**
+	 * Applies the change made on other cluster member
+	 *
+	 * @param c - detached copy of changed {@link Configuration}
+	 */
+	public void onClusterChange(Configuration c) {
+		String key = c.getKey();
+		cache.put(key, Optional.ofNullable(c.isDeleted() ? null : c));
+		reload(key, c.getValue());
+	}
+
+	private void reload(String key, String value) {
 		switch (key) {
 			case CONFIG_CAM_FPS:
 			case CONFIG_MIC_ECHO:
@@ -332,6 +429,12 @@ public class ConfigurationDao implements IDataProviderDao<Configuration> {
 			case CONFIG_EXT_PROCESS_TTL:
 				setExtProcessTtl(toInt(value));
 				break;
+			case CONFIG_EXT_PROCESS_LIMIT_IMAGEMAGICK:
+			case CONFIG_EXT_PROCESS_LIMIT_OFFICE:
+			case CONFIG_EXT_PROCESS_LIMIT_FFMPEG:
+			case CONFIG_EXT_PROCESS_LIMIT_SOX:
+				reloadProcessLimits();
+				break;
 			case CONFIG_DEFAULT_LANG:
 				reloadDefaultLang();
 				break;
@@ -390,7 +493,6 @@ public class ConfigurationDao implements IDataProviderDao<Configuration> {
 				reloadChromeExtensionUrl();
 				break;
 		}
-		return entity;
 	}
 
 	@Override
@@ -524,7 +626,24 @@ public class ConfigurationDao implements IDataProviderDao<Configuration> {
 		setContentSecurityPolicy(getString(CONFIG_HEADER_CSP, HEADER_CSP_SELF));
 	}
 
+	private void reloadProcessLimits() {
+		reloadProcessLimit(Tool.imagemagick, CONFIG_EXT_PROCESS_LIMIT_IMAGEMAGICK);
+		reloadProcessLimit(Tool.office, CONFIG_EXT_PROCESS_LIMIT_OFFICE);
+		reloadProcessLimit(Tool.ffmpeg, CONFIG_EXT_PROCESS_LIMIT_FFMPEG);
+		reloadProcessLimit(Tool.sox, CONFIG_EXT_PROCESS_LIMIT_SOX);
+	}
+
+	private void reloadProcessLimit(Tool tool, String key) {
+		// 0 means auto, limit is resolved from number of processors of this node
+		ConversionScheduler.setLimit(tool, getInt(key, 0));
+	}
+
 	public void reinit() {
+		generation.incrementAndGet();
+		cache.clear();
+		for (Configuration c : get(0, Integer.MAX_VALUE)) {
+			cache.put(c.getKey(), Optional.of(copy(c)));
+		}
 		reloadMaxUpload();
 		reloadCrypt();
 		setApplicationName(getString(CONFIG_APPLICATION_NAME, DEFAULT_APP_NAME));
@@ -553,6 +672,7 @@ public class ConfigurationDao implements IDataProviderDao<Configuration> {
 		reloadXFrameOptions();
 		reloadContentSecurityPolicy();
 		reloadChromeExtensionUrl();
+		reloadProcessLimits();
 	}
 
 	private JSONObject reloadRoomSettings() {
@@ -18,10 +18,12 @@
  */
 package org.apache.openmeetings.db.dao.basic;
 
+import static java.util.UUID.randomUUID;
 import static org.apache.openmeetings.db.util.DaoHelper.setLimits;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.PARAM_STATUS;
 
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -58,6 +60,37 @@ public class MailMessageDao implements IDataProviderDao<MailMessage> {
 				, start, count).getResultList();
 	}
 
+	/**
+	 * Marks up to {@code count} waiting messages as being sent, messages are claimed
+	 * by single conditional update stamping unique claim marker, so concurrent callers
+	 * (i.e. other cluster nodes) never get the same message
+	 *
+	 * @param count - maximum number of messages to claim
+	 * @return messages claimed by this call
+	 */
+	public List<MailMessage> claim(int count) {
+		List<Long> ids = setLimits(em.createNamedQuery("getMailMessageIdsByStatus", Long.class)
+					.setParameter(PARAM_STATUS, Status.NONE)
+				, null, (long)count).getResultList();
+		if (ids.isEmpty()) {
+			return Collections.emptyList();
+		}
+		final String claim = randomUUID().toString();
+		int updated = em.createNamedQuery("claimMailMessages")
+				.setParameter("sendingStatus", Status.SENDING)
+				.setParameter("noneStatus", Status.NONE)
+				.setParameter("date", new Date())
+				.setParameter("claim", claim)
+				.setParameter("ids", ids)
+				.executeUpdate();
+		if (updated == 0) {
+			return Collections.emptyList();
+		}
+		return em.createNamedQuery("getMailMessagesByClaim", MailMessage.class)
+				.setParameter("claim", claim)
+				.getResultList();
+	}
+
 	private <T> TypedQuery<T> getQuery(boolean isCount, String search, String order, Class<T> clazz) {
 		StringBuilder sb = new StringBuilder("SELECT ");
 		sb.append(isCount ? "COUNT(m)" : "m")
@@ -25,11 +25,8 @@ import static org.apache.openmeetings.util.OpenmeetingsVariables.getAppClass;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.Serializable;
 import java.net.URL;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -40,13 +37,11 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
-import org.apache.commons.collections4.CollectionUtils;
 import org.apache.openmeetings.db.dao.IDataProviderDao;
 import org.apache.openmeetings.db.entity.label.StringLabel;
 import org.apache.openmeetings.util.OmFileHelper;
 import org.apache.openmeetings.util.XmlExport;
 import org.apache.wicket.extensions.markup.html.repeater.util.SortParam;
-import org.apache.wicket.util.string.Strings;
 import org.dom4j.Document;
 import org.dom4j.Element;
 import org.dom4j.io.SAXReader;
@@ -63,11 +58,11 @@ import org.slf4j.LoggerFactory;
 public class LabelDao implements IDataProviderDao<StringLabel>{
 	private static final Logger log = LoggerFactory.getLogger(LabelDao.class);
 	private static final String ENTRY_ELEMENT = "entry";
-	private static final String KEY_ATTR = "key";
+	static final String KEY_ATTR = "key";
 	public static final String APP_RESOURCES_EN = "Application.properties.xml";
 	public static final String APP_RESOURCES = "Application_%s.properties.xml";
 	private static final LinkedHashMap<Long, Locale> languages = new LinkedHashMap<>();
-	private static final ConcurrentHashMap<Locale, List<StringLabel>> labelCache = new ConcurrentHashMap<>();
+	private static final ConcurrentHashMap<Locale, LabelIndex> labelCache = new ConcurrentHashMap<>();
 	private static final Set<String> keys = new HashSet<>();
 	private static Class<?> appClass = null;
 
@@ -87,7 +82,7 @@ public class LabelDao implements IDataProviderDao<StringLabel>{
 		}
 		languages.put(id + 1, l);
 		storeLanguages();
-		labelCache.put(l, new ArrayList<StringLabel>());
+		labelCache.put(l, new LabelIndex(new ArrayList<StringLabel>()));
 	}
 
 	public static String getString(String key, long langId) {
@@ -130,16 +125,14 @@ public class LabelDao implements IDataProviderDao<StringLabel>{
 	private static void storeLabels(Locale l) throws Exception {
 		Document d = XmlExport.createDocument();
 		Element r = XmlExport.createRoot(d);
-		List<StringLabel> labels = new ArrayList<>(labelCache.get(l));
-		Collections.sort(labels, new LabelComparator());
-		for (StringLabel sl : labels) {
+		for (StringLabel sl : getIndex(l).list()) {
 			r.addElement(ENTRY_ELEMENT).addAttribute(KEY_ATTR, sl.getKey()).addCDATA(sl.getValue());
 		}
 		URL u = appClass.getResource(getLabelFileName(l));
 		XmlExport.toXml(new File(u.toURI()), d);
 	}
 
-	public static void upload(Locale l, InputStream is) throws Exception {
+	public static synchronized void upload(Locale l, InputStream is) throws Exception {
 		List<StringLabel> labels = getLabels(is);
 		URL u = appClass.getResource(getLabelFileName(Locale.ENGLISH)); //get the URL of existing resource
 		File el = new File(u.toURI());
@@ -147,7 +140,7 @@ public class LabelDao implements IDataProviderDao<StringLabel>{
 		if (!f.exists()) {
 			f.createNewFile();
 		}
-		labelCache.put(l, labels);
+		labelCache.put(l, new LabelIndex(labels));
 		storeLabels(l);
 	}
 
@@ -169,16 +162,8 @@ public class LabelDao implements IDataProviderDao<StringLabel>{
 		return labels;
 	}
 
-	private static List<StringLabel> getLabels(Locale l, final String search) {
-		if (!labelCache.containsKey(l)) {
-			List<StringLabel> ll = getLabels(l);
-			labelCache.putIfAbsent(l, ll);
-		}
-		List<StringLabel> result = new ArrayList<>(labelCache.containsKey(l) ? labelCache.get(l) : new ArrayList<StringLabel>());
-		if (!Strings.isEmpty(search)) {
-			CollectionUtils.filter(result, o -> o != null && (o.getKey().contains(search) || o.getValue().contains(search)));
-		}
-		return result;
+	private static LabelIndex getIndex(Locale l) {
+		return labelCache.computeIfAbsent(l, k -> new LabelIndex(getLabels(k)));
 	}
 
 	@Override
@@ -221,11 +206,7 @@ public class LabelDao implements IDataProviderDao<StringLabel>{
 	}
 
 	public static List<StringLabel> get(Locale l, final String search, long start, long count, final SortParam<String> sort) {
-		List<StringLabel> result = getLabels(l, search);
-		if (sort != null) {
-			Collections.sort(result, new LabelComparator(sort));
-		}
-		return result.subList((int)start, (int)(start + count > result.size() ? result.size() : start + count));
+		return getIndex(l).get(search, start, count, sort);
 	}
 
 	@Override
@@ -239,7 +220,7 @@ public class LabelDao implements IDataProviderDao<StringLabel>{
 	}
 
 	public static long count(Locale l, final String search) {
-		return getLabels(l, search).size();
+		return getIndex(l).count(search);
 	}
 
 	@Override
@@ -247,12 +228,16 @@ public class LabelDao implements IDataProviderDao<StringLabel>{
 		throw UNSUPPORTED;
 	}
 
-	public static StringLabel update(Locale l, StringLabel entity) throws Exception {
-		List<StringLabel> labels = labelCache.get(l);
-		if (!labels.contains(entity)) {
-			labels.add(entity);
+	public static synchronized StringLabel update(Locale l, StringLabel entity) throws Exception {
+		List<StringLabel> labels = new ArrayList<>(getIndex(l).list());
+		int idx = labels.indexOf(entity);
+		if (idx < 0) {
+			labels.add(new StringLabel(entity));
 			keys.add(entity.getKey());
+		} else {
+			labels.set(idx, new StringLabel(entity));
 		}
+		labelCache.put(l, new LabelIndex(labels));
 		storeLabels(l);
 		return entity;
 	}
@@ -262,11 +247,11 @@ public class LabelDao implements IDataProviderDao<StringLabel>{
 		throw UNSUPPORTED;
 	}
 
-	public static void delete(Locale l, StringLabel entity) throws Exception {
-		List<StringLabel> labels = labelCache.get(l);
-		if (labels.contains(entity)) {
-			labels.remove(entity);
+	public static synchronized void delete(Locale l, StringLabel entity) throws Exception {
+		List<StringLabel> labels = new ArrayList<>(getIndex(l).list());
+		if (labels.remove(entity)) {
 			keys.remove(entity.getKey());
+			labelCache.put(l, new LabelIndex(labels));
 			storeLabels(l);
 		}
 	}
@@ -291,33 +276,4 @@ public class LabelDao implements IDataProviderDao<StringLabel>{
 			log.error("Unexpected error while deleting language", e);
 		}
 	}
-
-	private static class LabelComparator implements Comparator<StringLabel>, Serializable {
-		private static final long serialVersionUID = 1L;
-		final SortParam<String> sort;
-
-		LabelComparator() {
-			this.sort = new SortParam<>(KEY_ATTR, true);
-		}
-
-		LabelComparator(SortParam<String> sort) {
-			this.sort = sort;
-		}
-
-		@Override
-		public int compare(StringLabel o1, StringLabel o2) {
-			int val;
-			if (KEY_ATTR.equals(sort.getProperty())) {
-				try {
-					int i1 = Integer.parseInt(o1.getKey()), i2 = Integer.parseInt(o2.getKey());
-					val = i1 - i2;
-				} catch (Exception e) {
-					val = o1.getKey().compareTo(o2.getKey());
-				}
-			} else {
-				val = o1.getValue().compareTo(o2.getValue());
-			}
-			return (sort.isAscending() ? 1 : -1) * val;
-		}
-	}
 }
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openmeetings.db.dao.label;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.openmeetings.db.entity.label.StringLabel;
+import org.apache.wicket.extensions.markup.html.repeater.util.SortParam;
+import org.apache.wicket.util.string.Strings;
+
+/**
+ * Immutable snapshot of the labels of single locale
+ *
+ * Labels are pre-sorted by key and by value, search is performed
+ * using trigram index, so paging and counting doesn't require
+ * copying and sorting of the whole label list
+ */
+final class LabelIndex {
+	private static final int GRAM = 3;
+	private static final int[] EMPTY = new int[0];
+	private final StringLabel[] labels; // ordered by key
+	private final int[] byValue; // label positions ordered by value
+	private final Map<String, int[]> grams;
+	private volatile Match last;
+
+	LabelIndex(Collection<StringLabel> list) {
+		Map<String, StringLabel> unique = new LinkedHashMap<>();
+		for (StringLabel l : list) {
+			if (l != null && l.getKey() != null) {
+				unique.put(l.getKey(), l);
+			}
+		}
+		final StringLabel[] all = unique.values().toArray(new StringLabel[unique.size()]);
+		final Integer[] numKeys = new Integer[all.length];
+		Integer[] order = new Integer[all.length];
+		for (int i = 0; i < all.length; ++i) {
+			order[i] = i;
+			numKeys[i] = toInt(all[i].getKey());
+		}
+		// keys are parsed once, not on every comparison; numeric keys go first
+		Arrays.sort(order, (i1, i2) -> {
+			if (numKeys[i1] != null && numKeys[i2] != null) {
+				return Integer.compare(numKeys[i1], numKeys[i2]);
+			}
+			if (numKeys[i1] != null || numKeys[i2] != null) {
+				return numKeys[i1] == null ? 1 : -1;
+			}
+			return all[i1].getKey().compareTo(all[i2].getKey());
+		});
+		labels = new StringLabel[all.length];
+		for (int i = 0; i < order.length; ++i) {
+			labels[i] = all[order[i]];
+			order[i] = i;
+		}
+		Arrays.sort(order, Comparator.comparing(i -> value(labels[i])));
+		byValue = new int[order.length];
+		for (int i = 0; i < order.length; ++i) {
+			byValue[i] = order[i];
+		}
+		grams = buildGrams(labels);
+	}
+
+	private static Integer toInt(String key) {
+		try {
+			return Integer.valueOf(key);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private static String value(StringLabel l) {
+		return l.getValue() == null ? "" : l.getValue();
+	}
+
+	private static Map<String, int[]> buildGrams(StringLabel[] labels) {
+		Map<String, List<Integer>> postings = new HashMap<>();
+		Set<String> labelGrams = new HashSet<>();
+		for (int i = 0; i < labels.length; ++i) {
+			labelGrams.clear();
+			addGrams(labelGrams, labels[i].getKey());
+			addGrams(labelGrams, value(labels[i]));
+			for (String g : labelGrams) {
+				postings.computeIfAbsent(g, k -> new ArrayList<>()).add(i);
+			}
+		}
+		Map<String, int[]> result = new HashMap<>(postings.size() * 4 / 3 + 1);
+		for (Map.Entry<String, List<Integer>> e : postings.entrySet()) {
+			result.put(e.getKey(), e.getValue().stream().mapToInt(Integer::intValue).toArray());
+		}
+		return result;
+	}
+
+	private static void addGrams(Set<String> grams, String str) {
+		for (int i = 0; i + GRAM <= str.length(); ++i) {
+			grams.add(str.substring(i, i + GRAM));
+		}
+	}
+
+	private static boolean matches(StringLabel l, String search) {
+		return l.getKey().contains(search) || value(l).contains(search);
+	}
+
+	private BitSet find(String search) {
+		BitSet result = new BitSet(labels.length);
+		if (search.length() < GRAM) {
+			for (int i = 0; i < labels.length; ++i) {
+				if (matches(labels[i], search)) {
+					result.set(i);
+				}
+			}
+			return result;
+		}
+		// only labels containing the rarest trigram of the search string need to be checked
+		int[] candidates = null;
+		for (int i = 0; i + GRAM <= search.length(); ++i) {
+			int[] p = grams.getOrDefault(search.substring(i, i + GRAM), EMPTY);
+			if (candidates == null || p.length < candidates.length) {
+				candidates = p;
+			}
+		}
+		for (int i : candidates) {
+			if (matches(labels[i], search)) {
+				result.set(i);
+			}
+		}
+		return result;
+	}
+
+	private BitSet match(String search) {
+		if (Strings.isEmpty(search)) {
+			return null;
+		}
+		// data provider requests count and page with the same search string
+		Match m = last;
+		if (m == null || !m.search.equals(search)) {
+			m = new Match(search, find(search));
+			last = m;
+		}
+		return m.found;
+	}
+
+	int count(String search) {
+		BitSet found = match(search);
+		return found == null ? labels.length : found.cardinality();
+	}
+
+	List<StringLabel> get(String search, long start, long count, SortParam<String> sort) {
+		BitSet found = match(search);
+		boolean byKey = sort == null || LabelDao.KEY_ATTR.equals(sort.getProperty());
+		boolean asc = sort == null || sort.isAscending();
+		List<StringLabel> result = new ArrayList<>();
+		// without search page start is known, otherwise matches need to be skipped
+		long skip = found == null ? 0 : start;
+		for (int i = found == null ? (int)Math.min(start, labels.length) : 0; i < labels.length && result.size() < count; ++i) {
+			int pos = asc ? i : labels.length - 1 - i;
+			int idx = byKey ? pos : byValue[pos];
+			if (found != null && !found.get(idx)) {
+				continue;
+			}
+			if (skip > 0) {
+				skip--;
+				continue;
+			}
+			// copy is returned, so the index can't be modified by the caller
+			result.add(new StringLabel(labels[idx]));
+		}
+		return result;
+	}
+
+	/**
+	 * @return all labels ordered by key
+	 */
+	List<StringLabel> list() {
+		return Collections.unmodifiableList(Arrays.asList(labels));
+	}
+
+	private static class Match {
+		private final String search;
+		private final BitSet found;
+
+		Match(String search, BitSet found) {
+			this.search = search;
+			this.found = found;
+		}
+	}
+}
@@ -20,6 +20,9 @@ package org.apache.openmeetings.db.dao.record;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -32,6 +35,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Repository
 @Transactional
@@ -42,6 +47,7 @@ public class RecordingChunkDao {
 	private EntityManager em;
 	@Autowired
 	private RecordingDao recordingDao;
+	private final Map<Long, CompletableFuture<Long>> stopListeners = new ConcurrentHashMap<>();
 
 	public RecordingChunk get(Long id) {
 		List<RecordingChunk> list = em.createNamedQuery("getChunkById", RecordingChunk.class)
@@ -101,6 +107,47 @@ public class RecordingChunkDao {
 			chunk.setUpdated(new Date());
 			chunk = em.merge(chunk);
 		}
+		if (Status.STOPPED == chunk.getStreamStatus()) {
+			notifyStopped(chunk.getId());
+		}
 		return chunk;
 	}
+
+	/**
+	 * Allows to wait for the chunk to be stopped without polling the database
+	 *
+	 * @param chunkId - id of the chunk
+	 * @return future which will be completed as soon as the chunk is stopped,
+	 *     already completed future is returned for stopped and missing chunks
+	 */
+	public CompletableFuture<Long> onStop(Long chunkId) {
+		CompletableFuture<Long> f = stopListeners.computeIfAbsent(chunkId, id -> new CompletableFuture<>());
+		// status is checked after registration, so stop can't be missed
+		RecordingChunk chunk = get(chunkId);
+		if (chunk == null || Status.STOPPED == chunk.getStreamStatus()) {
+			complete(chunkId);
+		}
+		return f;
+	}
+
+	private void notifyStopped(final Long chunkId) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			// waiting threads will re-read the chunk, so changes need to be committed first
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					complete(chunkId);
+				}
+			});
+		} else {
+			complete(chunkId);
+		}
+	}
+
+	private void complete(Long chunkId) {
+		CompletableFuture<Long> f = stopListeners.remove(chunkId);
+		if (f != null) {
+			f.complete(chunkId);
+		}
+	}
 }
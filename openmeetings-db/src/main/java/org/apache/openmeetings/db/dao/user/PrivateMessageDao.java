@@ -79,6 +79,13 @@ public class PrivateMessageDao implements IDataProviderDao<PrivateMessage> {
 				, first, count).getResultList();
 	}
 
+	//for export
+	public List<PrivateMessage> getAfter(long afterId, long count) {
+		return setLimits(em.createNamedQuery("getPrivateMessagesAfter", PrivateMessage.class)
+					.setParameter("id", afterId)
+				, null, count).getResultList();
+	}
+
 	@Override
 	public PrivateMessage get(Long id) {
 		List<PrivateMessage> list = em.createNamedQuery("getPrivateMessageById", PrivateMessage.class)
@@ -97,6 +104,17 @@ public class PrivateMessageDao implements IDataProviderDao<PrivateMessage> {
 		return entity;
 	}
 
+	/**
+	 * Stores all messages in single transaction, used by backup import
+	 *
+	 * @param list - messages to be stored
+	 */
+	public void persist(Collection<PrivateMessage> list) {
+		for (PrivateMessage m : list) {
+			update(m, null);
+		}
+	}
+
 	private static String getQuery(boolean isCount, String search, String orderBy, boolean asc) {
 		StringBuilder hql = new StringBuilder("SELECT ");
 		hql.append(isCount ? "COUNT(" : "").append("m").append(isCount ? ")" : "")
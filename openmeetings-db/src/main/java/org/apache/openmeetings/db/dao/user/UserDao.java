@@ -38,6 +38,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -369,11 +370,29 @@ public class UserDao implements IGroupAdminDataProviderDao<User> {
 	}
 
 	public List<User> getAllBackupUsers() {
+		return getBackupUsers(oem -> oem.createNamedQuery("getAllUsers", User.class));
+	}
+
+	/**
+	 * Page of users ordered by id, allows to export all users without
+	 * loading them all at once
+	 *
+	 * @param afterId - id of the last user of the previous page
+	 * @param count - maximum number of users
+	 * @return list of users with id greater than {@code afterId}
+	 */
+	public List<User> getBackupUsers(long afterId, long count) {
+		return getBackupUsers(oem -> setLimits(oem.createNamedQuery("getUsersAfter", User.class)
+					.setParameter("id", afterId)
+				, null, count));
+	}
+
+	private List<User> getBackupUsers(Function<OpenJPAEntityManager, TypedQuery<User>> query) {
 		OpenJPAEntityManager oem = OpenJPAPersistence.cast(em);
 		boolean qrce = oem.getFetchPlan().getQueryResultCacheEnabled();
 		try {
 			oem.getFetchPlan().setQueryResultCacheEnabled(false); //update in cache during update
-			TypedQuery<User> q = oem.createNamedQuery("getAllUsers", User.class);
+			TypedQuery<User> q = query.apply(oem);
 			@SuppressWarnings("unchecked")
 			OpenJPAQuery<User> kq = OpenJPAPersistence.cast(q);
 			kq.getFetchPlan().addFetchGroups("backupexport", "groupUsers");
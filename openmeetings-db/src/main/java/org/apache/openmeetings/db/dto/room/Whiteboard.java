@@ -23,16 +23,22 @@ import static org.apache.openmeetings.util.OpenmeetingsVariables.PARAM__SRC;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.function.Predicate;
 
 import org.apache.openmeetings.db.entity.file.FileItem;
 import org.apache.openmeetings.util.NullStringer;
@@ -62,7 +68,8 @@ public class Whiteboard implements Serializable {
 	private ZoomMode zoomMode = ZoomMode.pageWidth;
 	private int width = DEFAULT_WIDTH;
 	private int height = DEFAULT_HEIGHT;
-	private Map<String, String> roomItems = Collections.synchronizedMap(new LinkedHashMap<>());
+	private Map<String, Item> roomItems = Collections.synchronizedMap(new LinkedHashMap<>());
+	private transient Map<Integer, Set<String>> slides = new HashMap<>();
 	private Date created = new Date();
 	private int slide = 0;
 	private String name;
@@ -109,19 +116,33 @@ public class Whiteboard implements Serializable {
 	}
 
 	public void clear() {
-		roomItems.clear();
+		synchronized (roomItems) {
+			roomItems.clear();
+			slides.clear();
+		}
 		width = DEFAULT_WIDTH;
 		height = DEFAULT_HEIGHT;
 	}
 
 	public Whiteboard put(String uid, JSONObject obj) {
-		roomItems.put(uid, obj.toString(new NullStringer()));
+		return put(uid, new Item(obj));
+	}
+
+	public Whiteboard put(String uid, Item item) {
+		synchronized (roomItems) {
+			unindex(uid, roomItems.put(uid, item));
+			slides.computeIfAbsent(item.getSlide(), k -> new LinkedHashSet<>()).add(uid);
+		}
 		return this;
 	}
 
+	public Item getItem(String uid) {
+		return roomItems.get(uid);
+	}
+
 	public JSONObject get(String uid) {
-		String obj = roomItems.get(uid);
-		return obj == null ? null : new JSONObject(obj);
+		Item item = roomItems.get(uid);
+		return item == null ? null : item.toJson();
 	}
 
 	public boolean contains(String uid) {
@@ -130,27 +151,105 @@ public class Whiteboard implements Serializable {
 
 	public JSONArray clearSlide(int slide) {
 		JSONArray arr = new JSONArray();
-		roomItems.entrySet().removeIf(e -> {
-				JSONObject o = new JSONObject(e.getValue());
-				boolean match = !FileItem.Type.Presentation.name().equals(o.optString(ATTR_FILE_TYPE)) && o.optInt(ATTR_SLIDE, -1) == slide;
+		synchronized (roomItems) {
+			Set<String> uids = slides.get(slide);
+			if (uids == null) {
+				return arr;
+			}
+			uids.removeIf(uid -> {
+				Item item = roomItems.get(uid);
+				boolean match = !FileItem.Type.Presentation.name().equals(item.getFileType());
 				if (match) {
-					arr.put(e);
+					roomItems.remove(uid);
+					arr.put(item.toJson());
 				}
 				return match;
 			});
+			if (uids.isEmpty()) {
+				slides.remove(slide);
+			}
+		}
 		return arr;
 	}
 
 	public List<JSONObject> list() {
+		return list(null);
+	}
+
+	/**
+	 * @param slide - slide to get objects of
+	 * @return objects of the slide, only objects of this slide are decoded
+	 */
+	public List<JSONObject> list(int slide) {
+		return list(slide, null);
+	}
+
+	/**
+	 * @param slide - slide to get objects of
+	 * @param filter - optional filter, only matching objects are decoded
+	 * @return objects of the slide
+	 */
+	public List<JSONObject> list(int slide, Predicate<Item> filter) {
 		List<JSONObject> items = new LinkedList<>();
-		for (Entry<String, String> e : roomItems.entrySet()) {
-			items.add(new JSONObject(e.getValue()));
+		synchronized (roomItems) {
+			for (String uid : slides.getOrDefault(slide, Collections.emptySet())) {
+				Item item = roomItems.get(uid);
+				if (filter == null || filter.test(item)) {
+					items.add(item.toJson());
+				}
+			}
 		}
 		return items;
 	}
 
-	public JSONObject remove(Object oid) {
-		return new JSONObject(roomItems.remove(oid));
+	/**
+	 * @return sorted numbers of slides having objects
+	 */
+	public List<Integer> listSlides() {
+		List<Integer> result;
+		synchronized (roomItems) {
+			result = new ArrayList<>(slides.keySet());
+		}
+		Collections.sort(result);
+		return result;
+	}
+
+	/**
+	 * @param filter - optional filter, only matching objects are decoded
+	 * @return objects of this whiteboard
+	 */
+	public List<JSONObject> list(Predicate<Item> filter) {
+		List<JSONObject> items = new LinkedList<>();
+		synchronized (roomItems) {
+			for (Item item : roomItems.values()) {
+				if (filter == null || filter.test(item)) {
+					items.add(item.toJson());
+				}
+			}
+		}
+		return items;
+	}
+
+	public JSONObject remove(String uid) {
+		Item item;
+		synchronized (roomItems) {
+			item = roomItems.remove(uid);
+			unindex(uid, item);
+		}
+		return item == null ? null : item.toJson();
+	}
+
+	private void unindex(String uid, Item item) {
+		if (item == null) {
+			return;
+		}
+		Set<String> uids = slides.get(item.getSlide());
+		if (uids != null) {
+			uids.remove(uid);
+			if (uids.isEmpty()) {
+				slides.remove(item.getSlide());
+			}
+		}
 	}
 
 	public boolean isEmpty() {
@@ -196,8 +295,8 @@ public class Whiteboard implements Serializable {
 		json.remove("id"); //filtering
 		json.remove("empty"); //filtering
 		JSONObject items = new JSONObject();
-		for (Entry<String, String> e : roomItems.entrySet()) {
-			JSONObject o = new JSONObject(e.getValue());
+		for (Entry<String, Item> e : roomItems.entrySet()) {
+			JSONObject o = e.getValue().toJson();
 			//filtering
 			if ("Clipart".equals(o.opt("omType"))) {
 				if (o.has(PARAM__SRC)) {
@@ -222,4 +321,42 @@ public class Whiteboard implements Serializable {
 		}
 		return null;
 	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		slides = new HashMap<>();
+		for (Entry<String, Item> e : roomItems.entrySet()) {
+			slides.computeIfAbsent(e.getValue().getSlide(), k -> new LinkedHashSet<>()).add(e.getKey());
+		}
+	}
+
+	/**
+	 * Whiteboard object stored as encoded JSON, attributes required
+	 * for filtering are extracted once, so the object is only decoded
+	 * when it is requested
+	 */
+	public static class Item implements Serializable {
+		private static final long serialVersionUID = 1L;
+		private final String json;
+		private final int slide;
+		private final String fileType;
+
+		public Item(JSONObject o) {
+			json = o.toString(new NullStringer());
+			slide = o.optInt(ATTR_SLIDE, -1);
+			fileType = o.optString(ATTR_FILE_TYPE, null);
+		}
+
+		public int getSlide() {
+			return slide;
+		}
+
+		public String getFileType() {
+			return fileType;
+		}
+
+		public JSONObject toJson() {
+			return new JSONObject(json);
+		}
+	}
 }
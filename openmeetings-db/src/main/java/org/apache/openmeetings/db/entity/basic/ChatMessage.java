@@ -33,6 +33,7 @@ import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 
 import org.apache.openjpa.persistence.jdbc.ForeignKey;
+import org.apache.openjpa.persistence.jdbc.Index;
 import org.apache.openmeetings.db.entity.IDataProviderEntity;
 import org.apache.openmeetings.db.entity.room.Room;
 import org.apache.openmeetings.db.entity.user.User;
@@ -43,6 +44,7 @@ import org.simpleframework.xml.Root;
 @NamedQueries({
 	@NamedQuery(name = "getChatMessageById", query = "SELECT c FROM ChatMessage c WHERE c.id = :id")
 	, @NamedQuery(name = "getChatMessages", query = "SELECT c FROM ChatMessage c ORDER BY c.id")
+	, @NamedQuery(name = "getChatMessagesAfter", query = "SELECT c FROM ChatMessage c WHERE c.id > :id ORDER BY c.id")
 	, @NamedQuery(name = "getGlobalChatMessages", query = "SELECT c FROM ChatMessage c WHERE c.toUser IS NULL AND c.toRoom IS NULL ORDER BY c.sent DESC")
 	, @NamedQuery(name = "getChatMessagesByRoom", query = "SELECT c FROM ChatMessage c WHERE c.toUser IS NULL AND c.toRoom.id = :roomId"
 			+ " AND (true = :all OR (false = :all AND c.needModeration = false)) ORDER BY c.sent DESC")
@@ -50,6 +52,15 @@ import org.simpleframework.xml.Root;
 			+ "(c.fromUser.id = :userId OR c.toUser.id = :userId) ORDER BY c.sent DESC")
 	, @NamedQuery(name = "getChatMessagesByUserTime", query = "SELECT c FROM ChatMessage c WHERE c.toUser IS NOT NULL AND c.toRoom IS NULL AND "
 			+ "(c.fromUser.id = :userId OR c.toUser.id = :userId) AND c.sent > :date ORDER BY c.sent DESC")
+	, @NamedQuery(name = "getGlobalChatMessagesBefore", query = "SELECT c FROM ChatMessage c WHERE c.toUser IS NULL AND c.toRoom IS NULL"
+			+ " AND c.id < :id ORDER BY c.id DESC")
+	, @NamedQuery(name = "getChatMessagesByRoomBefore", query = "SELECT c FROM ChatMessage c WHERE c.toUser IS NULL AND c.toRoom.id = :roomId"
+			+ " AND (true = :all OR (false = :all AND c.needModeration = false)) AND c.id < :id ORDER BY c.id DESC")
+	, @NamedQuery(name = "getChatMessagesByUserBefore", query = "SELECT c FROM ChatMessage c WHERE c.toUser IS NOT NULL AND c.toRoom IS NULL AND "
+			+ "(c.fromUser.id = :userId OR c.toUser.id = :userId) AND c.id < :id ORDER BY c.id DESC")
+	, @NamedQuery(name = "getChatMessagesWithUserBefore", query = "SELECT c FROM ChatMessage c WHERE c.toRoom IS NULL AND "
+			+ "((c.fromUser.id = :userId AND c.toUser.id = :withId) OR (c.fromUser.id = :withId AND c.toUser.id = :userId))"
+			+ " AND c.id < :id ORDER BY c.id DESC")
 	, @NamedQuery(name = "deleteChatGlobal", query = "DELETE FROM ChatMessage c WHERE c.toUser IS NULL AND c.toRoom IS NULL")
 	, @NamedQuery(name = "deleteChatRoom", query = "DELETE FROM ChatMessage c WHERE c.toUser IS NULL AND c.toRoom.id = :roomId")
 	, @NamedQuery(name = "deleteChatUser", query = "DELETE FROM ChatMessage c WHERE c.toRoom IS NULL AND c.toUser.id = :userId")
@@ -70,18 +81,21 @@ public class ChatMessage implements IDataProviderEntity {
 	@JoinColumn(name = "from_user_id")
 	@Element(name = "fromUserId", data = true, required = false)
 	@ForeignKey(enabled = true)
+	@Index(name = "chat_from_user_idx")
 	private User fromUser;
 
 	@ManyToOne
 	@JoinColumn(name = "to_room_id")
 	@Element(name = "toRoomId", data = true, required = false)
 	@ForeignKey(enabled = true)
+	@Index(name = "chat_to_room_idx")
 	private Room toRoom;
 
 	@ManyToOne
 	@JoinColumn(name = "to_user_id")
 	@Element(name = "toUserId", data = true, required = false)
 	@ForeignKey(enabled = true)
+	@Index(name = "chat_to_user_idx")
 	private User toUser;
 
 	@Column(name = "message")
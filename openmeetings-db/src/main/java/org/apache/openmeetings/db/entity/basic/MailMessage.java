@@ -37,6 +37,9 @@ import org.apache.openmeetings.db.entity.HistoricalEntity;
 	@NamedQuery(name = "getMailMessageById", query = "SELECT m FROM MailMessage m WHERE m.id = :id")
 	, @NamedQuery(name = "getMailMessages", query = "SELECT m FROM MailMessage m ORDER BY m.updated, m.inserted")
 	, @NamedQuery(name = "getMailMessagesByStatus", query = "SELECT m FROM MailMessage m WHERE m.status = :status ORDER BY m.updated, m.inserted")
+	, @NamedQuery(name = "getMailMessageIdsByStatus", query = "SELECT m.id FROM MailMessage m WHERE m.status = :status ORDER BY m.updated, m.inserted")
+	, @NamedQuery(name = "getMailMessagesByClaim", query = "SELECT m FROM MailMessage m WHERE m.claim = :claim")
+	, @NamedQuery(name = "claimMailMessages", query = "UPDATE MailMessage m SET m.status = :sendingStatus, m.updated = :date, m.claim = :claim WHERE m.id IN :ids AND m.status = :noneStatus")
 	, @NamedQuery(name = "countMailMessages", query = "SELECT COUNT(m) FROM MailMessage m")
 	, @NamedQuery(name = "resetMailStatusByDate", query = "UPDATE MailMessage m SET m.status = :noneStatus WHERE m.status = :sendingStatus AND m.updated < :date")
 	, @NamedQuery(name = "resetMailStatusById", query = "UPDATE MailMessage m SET m.errorCount = 0, m.status = :noneStatus WHERE m.id = :id")
@@ -84,6 +87,9 @@ public class MailMessage extends HistoricalEntity {
 	@Column(name = "last_error")
 	private String lastError;
 
+	@Column(name = "claim")
+	private String claim;
+
 	public MailMessage() {
 		this(null, null, null, null, null);
 	}
@@ -173,4 +179,12 @@ public class MailMessage extends HistoricalEntity {
 	public void setLastError(String lastError) {
 		this.lastError = lastError;
 	}
+
+	public String getClaim() {
+		return claim;
+	}
+
+	public void setClaim(String claim) {
+		this.claim = claim;
+	}
 }
@@ -53,6 +53,7 @@ public class RoomMessage implements IWebSocketPushMessage {
 		, mute
 		, exclusive
 		, quickPollUpdated
+		, fileConversionFailed
 	}
 	private final Date timestamp;
 	private final String uid;
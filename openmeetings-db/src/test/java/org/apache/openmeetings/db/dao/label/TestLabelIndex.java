@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openmeetings.db.dao.label;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.openmeetings.db.entity.label.StringLabel;
+import org.apache.wicket.extensions.markup.html.repeater.util.SortParam;
+import org.junit.Test;
+
+public class TestLabelIndex {
+	private static final int COUNT = 3000;
+
+	private static LabelIndex getIndex() {
+		List<StringLabel> labels = new ArrayList<>();
+		for (int i = COUNT; i > 0; --i) {
+			labels.add(new StringLabel("" + i, String.format("value %04d %s", COUNT - i, i % 2 == 0 ? "even" : "odd")));
+		}
+		labels.add(new StringLabel("lbl.key", "text"));
+		return new LabelIndex(labels);
+	}
+
+	@Test
+	public void testOrder() {
+		LabelIndex idx = getIndex();
+		assertEquals(COUNT + 1, idx.count(null));
+		List<StringLabel> page = idx.get(null, 8, 3, new SortParam<>(LabelDao.KEY_ATTR, true));
+		assertEquals("Keys should be sorted as numbers", "9", page.get(0).getKey());
+		assertEquals("11", page.get(2).getKey());
+		assertEquals("Non-numeric keys should be last", "lbl.key", idx.get(null, COUNT, 10, null).get(0).getKey());
+		page = idx.get(null, 0, 2, new SortParam<>("value", true));
+		assertEquals("text", page.get(0).getValue());
+		assertEquals("3000", page.get(1).getKey());
+	}
+
+	@Test
+	public void testSearch() {
+		LabelIndex idx = getIndex();
+		assertEquals(COUNT / 2, idx.count("even"));
+		assertEquals(10, idx.count("value 000"));
+		assertEquals(1, idx.count("lbl"));
+		assertEquals(0, idx.count("missing"));
+		List<StringLabel> page = idx.get("odd", 5, 10, new SortParam<>(LabelDao.KEY_ATTR, true));
+		assertEquals(10, page.size());
+		assertEquals("11", page.get(0).getKey());
+		assertEquals("Short search should be supported", "lbl.key", idx.get("l.", 0, 10, null).get(0).getKey());
+	}
+
+	@Test
+	public void testCopies() {
+		LabelIndex idx = getIndex();
+		StringLabel l = idx.get("lbl", 0, 1, null).get(0);
+		l.setValue("changed");
+		assertEquals("Index should not be modified", 0, idx.count("changed"));
+		assertTrue(idx.list().contains(l));
+	}
+}
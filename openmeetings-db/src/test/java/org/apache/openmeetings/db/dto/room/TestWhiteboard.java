@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openmeetings.db.dto.room;
+
+import static org.apache.openmeetings.db.dto.room.Whiteboard.ATTR_FILE_TYPE;
+import static org.apache.openmeetings.db.dto.room.Whiteboard.ATTR_SLIDE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.apache.openmeetings.db.entity.file.FileItem;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.openjson.JSONArray;
+import com.github.openjson.JSONObject;
+
+public class TestWhiteboard {
+	private static final Logger log = LoggerFactory.getLogger(TestWhiteboard.class);
+	private static final int SLIDE_COUNT = 100;
+	private static final int OBJ_PER_SLIDE = 100;
+	private static final int ITERATIONS = 20;
+
+	private static JSONObject getObject(int slide, int idx) {
+		JSONArray path = new JSONArray();
+		for (int i = 0; i < 20; ++i) {
+			path.put(new JSONArray().put("L").put(i * 1.5).put(i * 2.5));
+		}
+		return new JSONObject().put("type", "path").put("uid", String.format("%s-%s", slide, idx))
+				.put(ATTR_SLIDE, slide).put("stroke", "#ff0000").put("path", path);
+	}
+
+	private static Whiteboard getBoard() {
+		Whiteboard wb = new Whiteboard("test");
+		for (int slide = 0; slide < SLIDE_COUNT; ++slide) {
+			wb.put(slide + "-pres", new JSONObject().put("uid", slide + "-pres").put(ATTR_SLIDE, slide)
+					.put(ATTR_FILE_TYPE, FileItem.Type.Presentation.name()));
+			for (int i = 0; i < OBJ_PER_SLIDE; ++i) {
+				JSONObject o = getObject(slide, i);
+				wb.put(o.getString("uid"), o);
+			}
+		}
+		return wb;
+	}
+
+	@Test
+	public void testSlideIndex() {
+		Whiteboard wb = getBoard();
+		assertEquals(OBJ_PER_SLIDE + 1, wb.list(5).size());
+		JSONArray removed = wb.clearSlide(5);
+		assertEquals("Only non-presentation objects should be removed", OBJ_PER_SLIDE, removed.length());
+		assertEquals("Removed objects should be returned", 5, removed.getJSONObject(0).getInt(ATTR_SLIDE));
+		assertEquals(1, wb.list(5).size());
+		assertEquals(OBJ_PER_SLIDE + 1, wb.list(6).size());
+
+		JSONObject o = getObject(6, 0).put(ATTR_SLIDE, 7);
+		wb.put(o.getString("uid"), o);
+		assertEquals("Object should be moved to another slide", OBJ_PER_SLIDE, wb.list(6).size());
+		assertEquals(OBJ_PER_SLIDE + 2, wb.list(7).size());
+		assertEquals(o.getString("uid"), wb.remove(o.getString("uid")).getString("uid"));
+		assertNull("Missing object should not be removed", wb.remove(o.getString("uid")));
+		assertEquals(OBJ_PER_SLIDE + 1, wb.list(7).size());
+	}
+
+	@Test
+	public void testSlidePaging() {
+		Whiteboard wb = getBoard();
+		assertEquals(SLIDE_COUNT, wb.listSlides().size());
+		assertEquals("Files should be filtered out", OBJ_PER_SLIDE, wb.list(3, item -> item.getFileType() == null).size());
+		assertEquals("Files and objects of current slide should be listed", SLIDE_COUNT + OBJ_PER_SLIDE
+				, wb.list(item -> item.getFileType() != null || item.getSlide() == 3).size());
+		wb.clearSlide(1);
+		wb.remove("1-pres");
+		assertEquals("Empty slides should not be listed", Integer.valueOf(2), wb.listSlides().get(1));
+	}
+
+	@Test
+	public void testSerialization() throws Exception {
+		Whiteboard wb = getBoard();
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+			oos.writeObject(wb);
+		}
+		try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+			Whiteboard copy = (Whiteboard)ois.readObject();
+			assertEquals("Slide index should be restored", OBJ_PER_SLIDE + 1, copy.list(3).size());
+			assertEquals(OBJ_PER_SLIDE, copy.clearSlide(3).length());
+		}
+	}
+
+	private static long scan(Whiteboard wb, int slide) {
+		// slide lookup without index, every object need to be decoded
+		long count = 0;
+		for (JSONObject o : wb.list()) {
+			if (o.optInt(ATTR_SLIDE, -1) == slide) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Test
+	public void testPerformance() {
+		Whiteboard wb = getBoard();
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; ++i) {
+			assertEquals(OBJ_PER_SLIDE + 1, scan(wb, i));
+		}
+		long full = (System.nanoTime() - start) / ITERATIONS;
+		start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; ++i) {
+			assertEquals(OBJ_PER_SLIDE + 1, wb.list(i).size());
+		}
+		long indexed = (System.nanoTime() - start) / ITERATIONS;
+		start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; ++i) {
+			assertEquals(OBJ_PER_SLIDE, wb.clearSlide(i).length());
+		}
+		long clear = (System.nanoTime() - start) / ITERATIONS;
+		log.info("{} objects on board: full scan {} us, slide load {} us, slide clear {} us"
+				, SLIDE_COUNT * (OBJ_PER_SLIDE + 1), full / 1000, indexed / 1000, clear / 1000);
+		assertTrue("Slide load should not decode whole board", indexed < full);
+	}
+}
@@ -23,6 +23,10 @@ import static org.apache.openmeetings.util.OmFileHelper.BACKUP_DIR;
 import static org.apache.openmeetings.util.OmFileHelper.BCKP_RECORD_FILES;
 import static org.apache.openmeetings.util.OmFileHelper.BCKP_ROOM_FILES;
 import static org.apache.openmeetings.util.OmFileHelper.CSS_DIR;
+import static org.apache.openmeetings.util.OmFileHelper.EXTENSION_JPG;
+import static org.apache.openmeetings.util.OmFileHelper.EXTENSION_MP4;
+import static org.apache.openmeetings.util.OmFileHelper.EXTENSION_PNG;
+import static org.apache.openmeetings.util.OmFileHelper.EXTENSION_WEBM;
 import static org.apache.openmeetings.util.OmFileHelper.IMPORT_DIR;
 import static org.apache.openmeetings.util.OmFileHelper.getCustomCss;
 import static org.apache.openmeetings.util.OmFileHelper.getStreamsHibernateDir;
@@ -30,21 +34,43 @@ import static org.apache.openmeetings.util.OmFileHelper.getUploadDir;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.net.URI;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.compress.archivers.zip.ParallelScatterZipCreator;
+import org.apache.commons.compress.archivers.zip.ScatterGatherBackingStoreSupplier;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.parallel.FileBasedScatterGatherBackingStore;
+import org.apache.commons.compress.parallel.ScatterGatherBackingStore;
+import org.apache.commons.io.FilenameUtils;
 import org.apache.openmeetings.backup.converter.AppointmentConverter;
 import org.apache.openmeetings.backup.converter.AppointmentReminderTypeConverter;
 import org.apache.openmeetings.backup.converter.BaseFileItemConverter;
@@ -81,7 +107,6 @@ import org.apache.openmeetings.db.entity.record.Recording;
 import org.apache.openmeetings.db.entity.room.Room;
 import org.apache.openmeetings.db.entity.room.RoomPoll;
 import org.apache.openmeetings.db.entity.server.LdapConfig;
-import org.apache.openmeetings.db.entity.server.OAuthServer;
 import org.apache.openmeetings.db.entity.user.Group;
 import org.apache.openmeetings.db.entity.user.PrivateMessage;
 import org.apache.openmeetings.db.entity.user.User;
@@ -109,6 +134,11 @@ import org.springframework.stereotype.Component;
 @Component
 public class BackupExport {
 	private static final Logger log = LoggerFactory.getLogger(BackupExport.class);
+	private static final long PAGE_SIZE = 1000;
+	public static final String FILES_MANIFEST = "files.manifest";
+	// already compressed media, deflating them again only wastes CPU
+	private static final Set<String> STORED_EXTENSIONS = new HashSet<>(Arrays.asList(
+			EXTENSION_MP4, EXTENSION_WEBM, EXTENSION_PNG, EXTENSION_JPG, "jpeg", "gif", "zip"));
 	private static final String BACKUP_COMMENT =
 			"###############################################\n"
 			+ "This File is auto-generated by the Backup Tool \n"
@@ -150,64 +180,209 @@ public class BackupExport {
 	private RoomDao roomDao;
 
 	public void performExport(File zip, boolean includeFiles, ProgressHolder progressHolder) throws Exception {
+		performExport(zip, includeFiles, null, progressHolder);
+	}
+
+	/**
+	 * Performs export
+	 *
+	 * @param zip - resulting backup file
+	 * @param includeFiles - should room and recording files be included
+	 * @param base - previous backup, if specified only files changed since this backup
+	 *   will be included, database is not exported (differential backup), such backup
+	 *   can only be restored along with the full backup, see {@link BackupImport#performImport(File, List)}
+	 * @param progressHolder - progress holder
+	 * @throws Exception - in case of any error
+	 */
+	public void performExport(File zip, boolean includeFiles, File base, ProgressHolder progressHolder) throws Exception {
+		if (base != null && !includeFiles) {
+			throw new IllegalArgumentException("Differential backup contains files only, files can't be excluded");
+		}
 		if (zip.getParentFile() != null && !zip.getParentFile().exists()) {
 			zip.getParentFile().mkdirs();
 		}
-		try (FileOutputStream fos = new FileOutputStream(zip); ZipOutputStream zos = new ZipOutputStream(fos)) {
+		try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(zip)) {
 			Serializer ser = new Persister();
 
 			progressHolder.setProgress(0);
-			/*
-			 * ##################### Backup Groups
-			 */
 			writeList(ser, zos, "version.xml", "version", Arrays.asList(BackupVersion.get()));
-			progressHolder.setProgress(2);
-			exportGroups(zos, progressHolder);
-			exportUsers(zos, progressHolder);
-			exportRoom(zos, progressHolder);
-			exportRoomGroup(zos, progressHolder);
-			exportRoomFile(zos, progressHolder);
-			exportCalendar(zos, progressHolder);
-			exportAppointment(zos, progressHolder);
-			exportMeetingMember(zos, progressHolder);
-			exportLdap(zos, progressHolder, ser);
-			exportOauth(zos, progressHolder);
-			exportPrivateMsg(zos, progressHolder);
-			exportPrivateMsgFolder(zos, progressHolder, ser);
-			exportContacts(zos, progressHolder);
-			exportFile(zos, progressHolder);
-			exportRecording(zos, progressHolder);
-			exportPoll(zos, progressHolder);
-			exportConfig(zos, progressHolder);
-			exportChat(zos, progressHolder);
-
-			if (includeFiles) {
-				exportFiles(progressHolder, zos);
+			if (base != null) {
+				exportFiles(progressHolder, zos, zip, readManifest(base));
+			} else {
+				exportTables(zos, ser, progressHolder);
+				if (includeFiles) {
+					exportFiles(progressHolder, zos, zip, new Properties());
+				}
 			}
 		}
 		progressHolder.setProgress(100);
 		log.debug("---Done");
 	}
 
-	private void exportFiles(ProgressHolder progressHolder, ZipOutputStream zos) throws IOException {
+	private void exportTables(ZipArchiveOutputStream zos, Serializer ser, ProgressHolder progressHolder) throws Exception {
+		/*
+		 * ##################### Backup Groups
+		 */
+		progressHolder.setProgress(2);
+		exportGroups(zos, progressHolder);
+		exportUsers(zos, progressHolder);
+		exportRoom(zos, progressHolder);
+		exportRoomGroup(zos, progressHolder);
+		exportRoomFile(zos, progressHolder);
+		exportCalendar(zos, progressHolder);
+		exportAppointment(zos, progressHolder);
+		exportMeetingMember(zos, progressHolder);
+		exportLdap(zos, progressHolder, ser);
+		exportOauth(zos, progressHolder);
+		exportPrivateMsg(zos, progressHolder);
+		exportPrivateMsgFolder(zos, progressHolder, ser);
+		exportContacts(zos, progressHolder);
+		exportFile(zos, progressHolder);
+		exportRecording(zos, progressHolder);
+		exportPoll(zos, progressHolder);
+		exportConfig(zos, progressHolder);
+		exportChat(zos, progressHolder);
+	}
+
+	/*
+	 * Files are being compressed in parallel into temporary scatter streams,
+	 * which are being appended to the resulting zip afterwards, scatter streams
+	 * are stored next to the resulting zip
+	 */
+	private static void exportFiles(ProgressHolder progressHolder, ZipArchiveOutputStream zos, File zip, Properties prev) throws Exception {
+		final File tmpDir = zip.getAbsoluteFile().getParentFile();
+		final List<ScatterGatherBackingStore> stores = new ArrayList<>();
+		ScatterGatherBackingStoreSupplier supplier = () -> {
+			ScatterGatherBackingStore store = new FileBasedScatterGatherBackingStore(File.createTempFile("scatter", ".tmp", tmpDir));
+			synchronized (stores) {
+				stores.add(store);
+			}
+			return store;
+		};
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		try {
+			exportFiles(progressHolder, zos, new ParallelScatterZipCreator(executor, supplier), prev);
+		} finally {
+			executor.shutdownNow();
+			synchronized (stores) {
+				for (ScatterGatherBackingStore store : stores) {
+					try {
+						// temporary file is deleted on close
+						store.close();
+					} catch (IOException e) {
+						log.warn("Unable to delete temporary scatter file", e);
+					}
+				}
+			}
+		}
+	}
+
+	private static void exportFiles(ProgressHolder progressHolder, ZipArchiveOutputStream zos, ParallelScatterZipCreator scatter, Properties prev) throws Exception {
+		Properties manifest = new Properties();
 		//##################### Backup Room Files
-		for (File file : getUploadDir().listFiles()) {
-			String fName = file.getName();
-			if (file.isDirectory() && !IMPORT_DIR.equals(fName) && !BACKUP_DIR.equals(fName)) {
-				log.debug("### " + file.getName());
-				writeZipDir(BCKP_ROOM_FILES, file.getParentFile().toURI(), file, zos);
+		final Path uploadDir = getUploadDir().toPath();
+		int count = 0;
+		try (DirectoryStream<Path> dirs = Files.newDirectoryStream(uploadDir, Files::isDirectory)) {
+			for (Path dir : dirs) {
+				String fName = dir.getFileName().toString();
+				if (!IMPORT_DIR.equals(fName) && !BACKUP_DIR.equals(fName)) {
+					log.debug("### {}", fName);
+					count += addDir(scatter, BCKP_ROOM_FILES, uploadDir, dir, manifest, prev);
+				}
 			}
 		}
 
 		//##################### Backup Recording Files
-		final File recDir = getStreamsHibernateDir();
-		writeZipDir(BCKP_RECORD_FILES, recDir.toURI(), recDir, zos);
-		progressHolder.setProgress(90);
+		final Path recDir = getStreamsHibernateDir().toPath();
+		count += addDir(scatter, BCKP_RECORD_FILES, recDir, recDir, manifest, prev);
 
 		final File customCss = getCustomCss();
 		if (customCss != null && customCss.exists() && customCss.isFile()) {
-			writeZip(CSS_DIR, customCss.getParentFile().toURI(), customCss, zos);
+			addFile(scatter, CSS_DIR, customCss.getParentFile().toPath(), customCss.toPath(), new Properties(), new Properties());
+		}
+		log.debug("{} files will be added, {} are unchanged", count, manifest.size() - count);
+		scatter.writeTo(zos);
+		writeManifest(zos, manifest);
+		progressHolder.setProgress(90);
+	}
+
+	static Properties readManifest(File backup) throws IOException {
+		Properties manifest = new Properties();
+		if (backup == null) {
+			return manifest;
+		}
+		try (ZipFile zip = new ZipFile(backup)) {
+			ZipArchiveEntry e = zip.getEntry(FILES_MANIFEST);
+			if (e == null) {
+				log.warn("Backup '{}' has no file manifest, all files will be exported", backup);
+			} else {
+				try (InputStream is = zip.getInputStream(e)) {
+					manifest.load(is);
+				}
+			}
 		}
+		return manifest;
+	}
+
+	static void writeManifest(ZipArchiveOutputStream zos, Properties manifest) throws IOException {
+		zos.putArchiveEntry(new ZipArchiveEntry(FILES_MANIFEST));
+		manifest.store(zos, null);
+		zos.closeArchiveEntry();
+	}
+
+	/**
+	 * Adds all files of the directory to the scatter, files having same size and
+	 * modification time as in previous manifest are skipped
+	 *
+	 * @return number of files added
+	 */
+	static int addDir(ParallelScatterZipCreator scatter, String prefix, Path base, Path dir, Properties manifest, Properties prev) throws IOException {
+		int count = 0;
+		try (Stream<Path> files = Files.walk(dir)) {
+			Iterator<Path> iter = files.filter(Files::isRegularFile).iterator();
+			while (iter.hasNext()) {
+				if (addFile(scatter, prefix, base, iter.next(), manifest, prev)) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	private static boolean addFile(ParallelScatterZipCreator scatter, String prefix, Path base, Path file, Properties manifest, Properties prev) throws IOException {
+		String path = prefix + "/" + base.relativize(file).toString().replace(File.separatorChar, '/');
+		BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+		String stamp = attrs.size() + ":" + attrs.lastModifiedTime().toMillis();
+		manifest.setProperty(path, stamp);
+		if (stamp.equals(prev.getProperty(path))) {
+			return false;
+		}
+		log.debug("Writing '{}' to zip file", path);
+		ZipArchiveEntry e = new ZipArchiveEntry(path);
+		e.setMethod(isCompressed(path) ? ZipEntry.STORED : ZipEntry.DEFLATED);
+		e.setSize(attrs.size());
+		e.setTime(attrs.lastModifiedTime().toMillis());
+		scatter.addArchiveEntry(e, () -> {
+			try {
+				return Files.newInputStream(file);
+			} catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+		});
+		return true;
+	}
+
+	private static boolean isCompressed(String path) {
+		return STORED_EXTENSIONS.contains(FilenameUtils.getExtension(path).toLowerCase(Locale.ROOT));
+	}
+
+	/**
+	 * Binds date types to {@link DateConverter}, used for paged lists, since
+	 * dates of the first page might be missing
+	 */
+	private static void bindDate(Registry registry) throws Exception {
+		registry.bind(Date.class, DateConverter.class);
+		registry.bind(Timestamp.class, DateConverter.class);
 	}
 
 	private static <T extends HistoricalEntity> void bindDate(Registry registry, List<T> list) throws Exception {
@@ -229,37 +404,34 @@ public class BackupExport {
 	/*
 	 * ##################### Backup  Groups
 	 */
-	private void exportGroups(ZipOutputStream zos, ProgressHolder progressHolder) throws Exception {
+	private void exportGroups(ZipArchiveOutputStream zos, ProgressHolder progressHolder) throws Exception {
 		Registry registry = new Registry();
 		Strategy strategy = new RegistryStrategy(registry);
 		Serializer ser = new Persister(strategy);
-		List<Group> list = groupDao.get(0, Integer.MAX_VALUE);
-		bindDate(registry, list);
-		writeList(ser, zos, "organizations.xml", "organisations", list);
+		bindDate(registry);
+		writeList(ser, zos, "organizations.xml", "organisations", byOffset(groupDao::get));
 		progressHolder.setProgress(5);
 	}
 
 	/*
 	 * ##################### Backup Users
 	 */
-	private void exportUsers(ZipOutputStream zos, ProgressHolder progressHolder) throws Exception {
+	private void exportUsers(ZipArchiveOutputStream zos, ProgressHolder progressHolder) throws Exception {
 		Registry registry = new Registry();
 		Strategy strategy = new RegistryStrategy(registry);
 		Serializer ser = new Persister(strategy);
 
 		registry.bind(Group.class, GroupConverter.class);
 		registry.bind(Salutation.class, SalutationConverter.class);
-		List<User> list = userDao.getAllBackupUsers();
-		bindDate(registry, list);
-
-		writeList(ser, zos, "users.xml", "users", list);
+		bindDate(registry);
+		writeList(ser, zos, "users.xml", "users", byId(userDao::getBackupUsers, User::getId));
 		progressHolder.setProgress(10);
 	}
 
 	/*
 	 * ##################### Backup Room
 	 */
-	private void exportRoom(ZipOutputStream zos, ProgressHolder progressHolder) throws Exception {
+	private void exportRoom(ZipArchiveOutputStream zos, ProgressHolder progressHolder) throws Exception {
 		Registry registry = new Registry();
 		Strategy strategy = new RegistryStrategy(registry);
 		Serializer serializer = new Persister(strategy);
@@ -275,7 +447,7 @@ public class BackupExport {
 	/*
 	 * ##################### Backup Room Groups
 	 */
-	private void exportRoomGroup(ZipOutputStream zos, ProgressHolder progressHolder) throws Exception {
+	private void exportRoomGroup(ZipArchiveOutputStream zos, ProgressHolder progressHolder) throws Exception {
 		Registry registry = new Registry();
 		Strategy strategy = new RegistryStrategy(registry);
 		Serializer serializer = new Persister(strategy);
@@ -290,7 +462,7 @@ public class BackupExport {
 	/*
 	 * ##################### Backup Room Files
 	 */
-	private void exportRoomFile(ZipOutputStream zos, ProgressHolder progressHolder) throws Exception {
+	private void exportRoomFile(ZipArchiveOutputStream zos, ProgressHolder progressHolder) throws Exception {
 		Registry registry = new Registry();
 		Strategy strategy = new RegistryStrategy(registry);
 		Serializer serializer = new Persister(strategy);
@@ -305,7 +477,7 @@ public class BackupExport {
 	/*
 	 * ##################### Backup Calendars
 	 */
-	private void exportCalendar(ZipOutputStream zos, ProgressHolder progressHolder) throws Exception {
+	private void exportCalendar(ZipArchiveOutputStream zos, ProgressHolder progressHolder) throws Exception {
 		List<OmCalendar> list = calendarDao.get();
 		Registry registry = new Registry();
 		Strategy strategy = new RegistryStrategy(registry);
@@ -319,7 +491,7 @@ public class BackupExport {
 	/*
 	 * ##################### Backup Appointments
 	 */
-	private void exportAppointment(ZipOutputStream zos, ProgressHolder progressHolder) throws Exception {
+	private void exportAppointment(ZipArchiveOutputStream zos, ProgressHolder progressHolder) throws Exception {
 		List<Appointment> list = appointmentDao.get();
 		Registry registry = new Registry();
 		Strategy strategy = new RegistryStrategy(registry);
@@ -337,7 +509,7 @@ public class BackupExport {
 	/*
 	 * ##################### Backup Meeting Members
 	 */
-	private void exportMeetingMember(ZipOutputStream zos, ProgressHolder progressHolder) throws Exception {
+	private void exportMeetingMember(ZipArchiveOutputStream zos, ProgressHolder progressHolder) throws Exception {
 		Registry registry = new Registry();
 		Strategy strategy = new RegistryStrategy(registry);
 		Serializer serializer = new Persister(strategy);
@@ -353,7 +525,7 @@ public class BackupExport {
 	/*
 	 * ##################### LDAP Configs
 	 */
-	private void exportLdap(ZipOutputStream zos, ProgressHolder progressHolder, Serializer ser) throws Exception {
+	private void exportLdap(ZipArchiveOutputStream zos, ProgressHolder progressHolder, Serializer ser) throws Exception {
 		List<LdapConfig> ldapList = ldapConfigDao.get();
 		if (!ldapList.isEmpty()) {
 			ldapList.remove(0);
@@ -365,45 +537,44 @@ public class BackupExport {
 	/*
 	 * ##################### OAuth2 servers
 	 */
-	private void exportOauth(ZipOutputStream zos, ProgressHolder progressHolder) throws Exception {
+	private void exportOauth(ZipArchiveOutputStream zos, ProgressHolder progressHolder) throws Exception {
 		Registry registry = new Registry();
 		Strategy strategy = new RegistryStrategy(registry);
 		Serializer serializer = new Persister(strategy);
-		List<OAuthServer> list = auth2Dao.get(0, Integer.MAX_VALUE);
-		bindDate(registry, list);
-		writeList(serializer, zos, "oauth2servers.xml", "oauth2servers", list);
+		bindDate(registry);
+		writeList(serializer, zos, "oauth2servers.xml", "oauth2servers", byOffset(auth2Dao::get));
 		progressHolder.setProgress(45);
 	}
 
 	/*
 	 * ##################### Private Messages
 	 */
-	private void exportPrivateMsg(ZipOutputStream zos, ProgressHolder progressHolder) throws Exception {
-		List<PrivateMessage> list = privateMessageDao.get(0, Integer.MAX_VALUE);
+	private void exportPrivateMsg(ZipArchiveOutputStream zos, ProgressHolder progressHolder) throws Exception {
 		Registry registry = new Registry();
 		Strategy strategy = new RegistryStrategy(registry);
 		Serializer serializer = new Persister(strategy);
 
 		registry.bind(User.class, UserConverter.class);
 		registry.bind(Room.class, RoomConverter.class);
-		bindDate(registry, list, PrivateMessage::getInserted);
-		writeList(serializer, zos, "privateMessages.xml", "privatemessages", list);
+		bindDate(registry);
+		writeList(serializer, zos, "privateMessages.xml", "privatemessages"
+				, byId(privateMessageDao::getAfter, PrivateMessage::getId));
 		progressHolder.setProgress(50);
 	}
 
 	/*
 	 * ##################### Private Message Folders
 	 */
-	private void exportPrivateMsgFolder(ZipOutputStream zos, ProgressHolder progressHolder, Serializer ser) throws Exception {
+	private void exportPrivateMsgFolder(ZipArchiveOutputStream zos, ProgressHolder progressHolder, Serializer ser) throws Exception {
 		writeList(ser, zos, "privateMessageFolder.xml",
-				"privatemessagefolders", privateMessageFolderDao.get(0, Integer.MAX_VALUE));
+				"privatemessagefolders", byOffset(privateMessageFolderDao::get));
 		progressHolder.setProgress(55);
 	}
 
 	/*
 	 * ##################### User Contacts
 	 */
-	private void exportContacts(ZipOutputStream zos, ProgressHolder progressHolder) throws Exception {
+	private void exportContacts(ZipArchiveOutputStream zos, ProgressHolder progressHolder) throws Exception {
 		Registry registry = new Registry();
 		Strategy strategy = new RegistryStrategy(registry);
 		Serializer serializer = new Persister(strategy);
@@ -417,7 +588,7 @@ public class BackupExport {
 	/*
 	 * ##################### File-Explorer
 	 */
-	private void exportFile(ZipOutputStream zos, ProgressHolder progressHolder) throws Exception {
+	private void exportFile(ZipArchiveOutputStream zos, ProgressHolder progressHolder) throws Exception {
 		List<FileItem> list = fileItemDao.get();
 		Registry registry = new Registry();
 		Strategy strategy = new RegistryStrategy(registry);
@@ -431,7 +602,7 @@ public class BackupExport {
 	/*
 	 * ##################### Recordings
 	 */
-	private void exportRecording(ZipOutputStream zos, ProgressHolder progressHolder) throws Exception {
+	private void exportRecording(ZipArchiveOutputStream zos, ProgressHolder progressHolder) throws Exception {
 		List<Recording> list = recordingDao.get();
 		Registry registry = new Registry();
 		Strategy strategy = new RegistryStrategy(registry);
@@ -445,7 +616,7 @@ public class BackupExport {
 	/*
 	 * ##################### Polls
 	 */
-	private void exportPoll(ZipOutputStream zos, ProgressHolder progressHolder) throws Exception {
+	private void exportPoll(ZipArchiveOutputStream zos, ProgressHolder progressHolder) throws Exception {
 		List<RoomPoll> list = pollManager.get();
 		Registry registry = new Registry();
 		Strategy strategy = new RegistryStrategy(registry);
@@ -462,7 +633,7 @@ public class BackupExport {
 	/*
 	 * ##################### Config
 	 */
-	private void exportConfig(ZipOutputStream zos, ProgressHolder progressHolder) throws Exception {
+	private void exportConfig(ZipArchiveOutputStream zos, ProgressHolder progressHolder) throws Exception {
 		List<Configuration> list = configurationDao.get(0, Integer.MAX_VALUE);
 		Serializer serializer = getConfigSerializer(list);
 
@@ -473,16 +644,16 @@ public class BackupExport {
 	/*
 	 * ##################### Chat
 	 */
-	private void exportChat(ZipOutputStream zos, ProgressHolder progressHolder) throws Exception {
-		List<ChatMessage> list = chatDao.get(0, Integer.MAX_VALUE);
+	private void exportChat(ZipArchiveOutputStream zos, ProgressHolder progressHolder) throws Exception {
 		Registry registry = new Registry();
 		registry.bind(User.class, UserConverter.class);
 		registry.bind(Room.class, RoomConverter.class);
+		bindDate(registry);
 		Strategy strategy = new RegistryStrategy(registry);
 		Serializer serializer = new Persister(strategy);
 
-		bindDate(registry, list, ChatMessage::getSent);
-		writeList(serializer, zos, "chat_messages.xml", "chat_messages", list);
+		writeList(serializer, zos, "chat_messages.xml", "chat_messages"
+				, byId(chatDao::getAfter, ChatMessage::getId));
 		progressHolder.setProgress(85);
 	}
 
@@ -502,51 +673,83 @@ public class BackupExport {
 		return baos;
 	}
 
-	private static <T> void writeList(Serializer ser, ZipOutputStream zos, String fileName, String listElement, List<T> list) throws Exception {
-		ZipEntry e = new ZipEntry(fileName);
-		zos.putNextEntry(e);
-		ByteArrayOutputStream baos = stream(ser, listElement, list);
-		zos.write(baos.toByteArray());
-		zos.closeEntry();
+	private static <T> void writeList(Serializer ser, ZipArchiveOutputStream zos, String fileName, String listElement, List<T> list) throws Exception {
+		writeList(ser, zos, fileName, listElement, single(list));
+	}
+
+	/**
+	 * Writes list page by page directly to the zip entry, only one page is kept in memory
+	 */
+	private static <T> void writeList(Serializer ser, ZipArchiveOutputStream zos, String fileName, String listElement, Pager<T> pager) throws Exception {
+		zos.putArchiveEntry(new ZipArchiveEntry(fileName));
+		writeList(ser, zos, listElement, pager);
+		zos.closeArchiveEntry();
 	}
 
 	private static <T> void writeList(Serializer ser, OutputStream os, String listElement, List<T> list) throws Exception {
+		writeList(ser, os, listElement, single(list));
+	}
+
+	private static <T> void writeList(Serializer ser, OutputStream os, String listElement, Pager<T> pager) throws Exception {
 		Format format = new Format("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
-		OutputNode doc = NodeBuilder.write(new OutputStreamWriter(os, UTF_8), format);
+		Writer w = new OutputStreamWriter(os, UTF_8);
+		OutputNode doc = NodeBuilder.write(w, format);
 		OutputNode root = doc.getChild("root");
 		root.setComment(BACKUP_COMMENT);
 		OutputNode listNode = root.getChild(listElement);
 
-		if (list != null) {
-			for (T t : list) {
+		long count = 0;
+		List<T> page = pager.next(null);
+		while (page != null) {
+			for (T t : page) {
 				try {
 					ser.write(t, listNode);
 				} catch (Exception e) {
 					log.debug("Exception While writing node of type: " + t.getClass(), e);
 				}
 			}
+			count += page.size();
+			if (page.size() < PAGE_SIZE) {
+				break;
+			}
+			page = pager.next(page.get(page.size() - 1));
 		}
 		root.commit();
+		w.flush();
+		log.debug("{} objects written to '{}'", count, listElement);
 	}
 
-	private static void writeZip(String prefix, URI base, File file, ZipOutputStream zos) throws IOException {
-		String path = prefix + "/" + base.relativize(file.toURI()).toString();
-		log.debug("Writing '" + path + "' to zip file");
-		ZipEntry zipEntry = new ZipEntry(path);
-		zos.putNextEntry(zipEntry);
+	/**
+	 * Returns next page of objects to be exported
+	 */
+	@FunctionalInterface
+	private interface Pager<T> {
+		/**
+		 * @param last - last object of the previous page, {@code null} for the first page
+		 * @return next page, {@code null} if there are no more objects, page shorter than {@link #PAGE_SIZE} is the last one
+		 */
+		List<T> next(T last) throws Exception;
+	}
 
-		FileUtils.copyFile(file, zos);
-		zos.closeEntry();
+	private static <T> Pager<T> single(List<T> list) {
+		return last -> last == null ? list : null;
 	}
 
-	private void writeZipDir(String prefix, URI base, File dir, ZipOutputStream zos) throws IOException {
-		for (File file : dir.listFiles()) {
-			if (file.isDirectory()) {
-				writeZipDir(prefix, base, file, zos);
-			} else {
-				writeZip(prefix, base, file, zos);
-			}
-		}
+	/**
+	 * Pages through DAO returning objects ordered by id, each page is loaded by
+	 * separate DAO call, so persistence context doesn't grow
+	 */
+	private static <T> Pager<T> byId(BiFunction<Long, Long, List<T>> dao, Function<T, Long> id) {
+		return last -> dao.apply(last == null ? 0L : id.apply(last), PAGE_SIZE);
+	}
+
+	private static <T> Pager<T> byOffset(BiFunction<Long, Long, List<T>> dao) {
+		final long[] start = {0};
+		return last -> {
+			List<T> page = dao.apply(start[0], PAGE_SIZE);
+			start[0] += page.size();
+			return page;
+		};
 	}
 
 	/**
@@ -58,6 +58,10 @@ import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_DOCUMENT
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_DOCUMENT_QUALITY;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_EMAIL_AT_REGISTER;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_EMAIL_VERIFICATION;
+import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_EXT_PROCESS_LIMIT_FFMPEG;
+import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_EXT_PROCESS_LIMIT_IMAGEMAGICK;
+import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_EXT_PROCESS_LIMIT_OFFICE;
+import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_EXT_PROCESS_LIMIT_SOX;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_EXT_PROCESS_TTL;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_IGNORE_BAD_SSL;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_KEYCODE_ARRANGE;
@@ -86,6 +90,7 @@ import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_SCREENSH
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_SIP_ENABLED;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_SIP_EXTEN_CONTEXT;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_SIP_ROOM_PREFIX;
+import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_SMTP_CONNECTIONS;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_SMTP_PASS;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_SMTP_PORT;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_SMTP_SERVER;
@@ -98,21 +103,20 @@ import static org.apache.openmeetings.util.OpenmeetingsVariables.getDefaultTimez
 import static org.apache.openmeetings.util.OpenmeetingsVariables.getMinLoginLength;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.function.Consumer;
 
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.openmeetings.backup.converter.AppointmentConverter;
 import org.apache.openmeetings.backup.converter.AppointmentReminderTypeConverter;
 import org.apache.openmeetings.backup.converter.BaseFileItemConverter;
@@ -191,6 +195,8 @@ import org.springframework.stereotype.Component;
 public class BackupImport {
 	private static final Logger log = LoggerFactory.getLogger(BackupImport.class);
 	private static final String LDAP_EXT_TYPE = "LDAP";
+	private static final int DEFAULT_BATCH_SIZE = 100;
+	private static final long PROGRESS_STEP = 10_000;
 	private static final Map<String, String> outdatedConfigKeys = new HashMap<>();
 	private static final Map<String, Configuration.Type> configTypes = new HashMap<>();
 	static {
@@ -241,6 +247,7 @@ public class BackupImport {
 		configTypes.put(CONFIG_SMTP_PORT, Configuration.Type.number);
 		configTypes.put(CONFIG_SMTP_TIMEOUT_CON, Configuration.Type.number);
 		configTypes.put(CONFIG_SMTP_TIMEOUT, Configuration.Type.number);
+		configTypes.put(CONFIG_SMTP_CONNECTIONS, Configuration.Type.number);
 		configTypes.put(CONFIG_DEFAULT_LANG, Configuration.Type.number);
 		configTypes.put(CONFIG_DOCUMENT_DPI, Configuration.Type.number);
 		configTypes.put(CONFIG_DOCUMENT_QUALITY, Configuration.Type.number);
@@ -260,6 +267,10 @@ public class BackupImport {
 		configTypes.put(CONFIG_MIC_ECHO, Configuration.Type.bool);
 		configTypes.put(CONFIG_MIC_NOISE, Configuration.Type.bool);
 		configTypes.put(CONFIG_EXT_PROCESS_TTL, Configuration.Type.number);
+		configTypes.put(CONFIG_EXT_PROCESS_LIMIT_IMAGEMAGICK, Configuration.Type.number);
+		configTypes.put(CONFIG_EXT_PROCESS_LIMIT_OFFICE, Configuration.Type.number);
+		configTypes.put(CONFIG_EXT_PROCESS_LIMIT_FFMPEG, Configuration.Type.number);
+		configTypes.put(CONFIG_EXT_PROCESS_LIMIT_SOX, Configuration.Type.number);
 	}
 
 	@Autowired
@@ -306,6 +317,51 @@ public class BackupImport {
 	private final Map<Long, Long> messageFolderMap = new HashMap<>();
 	private final Map<Long, Long> userContactMap = new HashMap<>();
 	private final Map<String, String> fileMap = new HashMap<>();
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	/**
+	 * Handles single entity read from the backup
+	 */
+	@FunctionalInterface
+	private interface Handler<T> {
+		void handle(T item) throws Exception;
+	}
+
+	/**
+	 * Collects entities and stores them in batches, each batch is stored in single transaction
+	 */
+	private class Batch<T> implements Handler<T>, AutoCloseable {
+		private final List<T> items = new ArrayList<>();
+		private final Consumer<List<T>> store;
+
+		Batch(Consumer<List<T>> store) {
+			this.store = store;
+		}
+
+		@Override
+		public void handle(T item) {
+			items.add(item);
+			if (items.size() >= batchSize) {
+				close();
+			}
+		}
+
+		@Override
+		public void close() {
+			if (!items.isEmpty()) {
+				store.accept(items);
+				items.clear();
+			}
+		}
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = Math.max(1, batchSize);
+	}
 
 	private static File validate(String ename, File intended) throws IOException {
 		final String intendedPath = intended.getCanonicalPath();
@@ -320,31 +376,24 @@ public class BackupImport {
 		}
 	}
 
-	private static File unzip(InputStream is) throws IOException  {
-		File f = OmFileHelper.getNewDir(OmFileHelper.getUploadImportDir(), "import_" + CalendarPatterns.getTimeForStreamId(new Date()));
-		log.debug("##### EXTRACTING BACKUP TO: " + f);
-
-		try (ZipInputStream zis = new ZipInputStream(is)) {
-			ZipEntry zipentry = null;
-			while ((zipentry = zis.getNextEntry()) != null) {
-				// for each entry to be extracted
-				File fentry = validate(zipentry.getName(), f);
-				File dir = zipentry.isDirectory() ? fentry : fentry.getParentFile();
-				if (!dir.exists() && !dir.mkdirs()) {
-					log.warn("Failed to create folders: {}", dir);
-				}
-				if (!fentry.isDirectory()) {
-					try (FileOutputStream fos = FileUtils.openOutputStream(fentry)) {
-						IOUtils.copy(zis, fos);
-					}
-					zis.closeEntry();
-				}
-			}
+	public void performImport(InputStream is) throws Exception {
+		File f = new File(OmFileHelper.getUploadImportDir(), "import_" + CalendarPatterns.getTimeForStreamId(new Date()) + ".zip");
+		log.debug("##### STORING BACKUP TO: {}", f);
+		try {
+			FileUtils.copyInputStreamToFile(is, f);
+			performImport(f);
+		} finally {
+			FileUtils.deleteQuietly(f);
 		}
-		return f;
 	}
 
-	public void performImport(InputStream is) throws Exception {
+	/**
+	 * Imports backup, XML files and room/recording files are read directly from the zip
+	 *
+	 * @param backup - backup zip file
+	 * @throws Exception - in case of any error
+	 */
+	public void performImport(File backup) throws Exception {
 		userMap.clear();
 		groupMap.clear();
 		calendarMap.clear();
@@ -357,7 +406,34 @@ public class BackupImport {
 		messageFolderMap.put(SENT_FOLDER_ID, SENT_FOLDER_ID);
 		messageFolderMap.put(TRASH_FOLDER_ID, TRASH_FOLDER_ID);
 
-		File f = unzip(is);
+		try (ZipFile f = new ZipFile(backup)) {
+			performImport(f);
+		}
+	}
+
+	/**
+	 * Imports full backup and differential backups made on top of it, only files
+	 * are imported from differential backups, files are placed using the ids
+	 * assigned during import of the full backup
+	 *
+	 * @param backup - full backup zip file
+	 * @param diffs - differential backups in order they were made
+	 * @throws Exception - in case of any error
+	 */
+	public void performImport(File backup, List<File> diffs) throws Exception {
+		performImport(backup);
+		for (File diff : diffs) {
+			try (ZipFile f = new ZipFile(diff)) {
+				if (f.getEntry(BackupExport.FILES_MANIFEST) == null) {
+					throw new IllegalArgumentException("Backup '" + diff + "' is not a differential backup");
+				}
+				log.info("Importing files of differential backup {}", diff);
+				importFolders(f);
+			}
+		}
+	}
+
+	private void performImport(ZipFile f) throws Exception {
 		Registry registry = new Registry();
 		Strategy strategy = new RegistryStrategy(registry);
 		RegistryMatcher matcher = new RegistryMatcher();
@@ -394,9 +470,6 @@ public class BackupImport {
 
 		if (ver.compareTo(BackupVersion.get("4.0.0")) < 0) {
 			for (BaseFileItem bfi : files) {
-				if (bfi.isDeleted()) {
-					continue;
-				}
 				if (BaseFileItem.Type.Presentation == bfi.getType()) {
 					convertOldPresentation((FileItem)bfi);
 					fileItemDao._update(bfi);
@@ -411,20 +484,19 @@ public class BackupImport {
 				}
 			}
 		}
-		log.info("File explorer item import complete, clearing temp files");
-
-		FileUtils.deleteDirectory(f);
+		log.info("File explorer item import complete");
 	}
 
-	private static BackupVersion getVersion(Serializer ser, File f) throws Exception {
-		List<BackupVersion> list = readList(ser, f, "version.xml", "version", BackupVersion.class, true);
+	private static BackupVersion getVersion(Serializer ser, ZipFile f) throws Exception {
+		List<BackupVersion> list = new ArrayList<>();
+		readList(ser, f, "version.xml", "version", BackupVersion.class, true, list::add);
 		return list.isEmpty() ? new BackupVersion() : list.get(0);
 	}
 
 	/*
 	 * ##################### Import Configs
 	 */
-	private void importConfigs(File f) throws Exception {
+	private void importConfigs(ZipFile f) throws Exception {
 		Registry registry = new Registry();
 		Strategy strategy = new RegistryStrategy(registry);
 		RegistryMatcher matcher = new RegistryMatcher();
@@ -434,10 +506,9 @@ public class BackupImport {
 		registry.bind(Date.class, DateConverter.class);
 		registry.bind(User.class, new UserConverter(userDao, userMap));
 
-		List<Configuration> list = readList(serializer, f, "configs.xml", "configs", Configuration.class);
-		for (Configuration c : list) {
+		readList(serializer, f, "configs.xml", "configs", Configuration.class, c -> {
 			if (c.getKey() == null || c.isDeleted()) {
-				continue;
+				return;
 			}
 			String newKey = outdatedConfigKeys.get(c.getKey());
 			if (newKey != null) {
@@ -468,62 +539,59 @@ public class BackupImport {
 				}
 			}
 			cfgDao.update(c, null);
-		}
+		});
 	}
 
 	/*
 	 * ##################### Import Groups
 	 */
-	private void importGroups(File f, Serializer simpleSerializer) throws Exception {
+	private void importGroups(ZipFile f, Serializer simpleSerializer) throws Exception {
 		log.info("Configs import complete, starting group import");
-		List<Group> list = readList(simpleSerializer, f, "organizations.xml", "organisations", Group.class);
-		for (Group o : list) {
+		readList(simpleSerializer, f, "organizations.xml", "organisations", Group.class, o -> {
 			Long oldId = o.getId();
 			o.setId(null);
 			o = groupDao.update(o, null);
 			groupMap.put(oldId, o.getId());
-		}
+		});
 	}
 
 	/*
 	 * ##################### Import LDAP Configs
 	 */
-	private Long importLdap(File f, Serializer simpleSerializer) throws Exception {
+	private Long importLdap(ZipFile f, Serializer simpleSerializer) throws Exception {
 		log.info("Groups import complete, starting LDAP config import");
-		Long defaultLdapId = cfgDao.getLong(CONFIG_DEFAULT_LDAP_ID, null);
-		List<LdapConfig> list = readList(simpleSerializer, f, "ldapconfigs.xml", "ldapconfigs", LdapConfig.class);
-		for (LdapConfig c : list) {
+		final Long[] defaultLdapId = {cfgDao.getLong(CONFIG_DEFAULT_LDAP_ID, null)};
+		readList(simpleSerializer, f, "ldapconfigs.xml", "ldapconfigs", LdapConfig.class, c -> {
 			if (Strings.isEmpty(c.getName())) {
-				continue;
+				return;
 			}
 			if ("local DB [internal]".equals(c.getName())) {
-				continue;
+				return;
 			}
 			c.setId(null);
 			c = ldapConfigDao.update(c, null);
-			if (defaultLdapId == null) {
-				defaultLdapId = c.getId();
+			if (defaultLdapId[0] == null) {
+				defaultLdapId[0] = c.getId();
 			}
-		}
-		return defaultLdapId;
+		});
+		return defaultLdapId[0];
 	}
 
 	/*
 	 * ##################### OAuth2 servers
 	 */
-	private void importOauth(File f, Serializer simpleSerializer) throws Exception {
+	private void importOauth(ZipFile f, Serializer simpleSerializer) throws Exception {
 		log.info("Ldap config import complete, starting OAuth2 server import");
-		List<OAuthServer> list = readList(simpleSerializer, f, "oauth2servers.xml", "oauth2servers", OAuthServer.class);
-		for (OAuthServer s : list) {
+		readList(simpleSerializer, f, "oauth2servers.xml", "oauth2servers", OAuthServer.class, s -> {
 			s.setId(null);
 			auth2Dao.update(s, null);
-		}
+		});
 	}
 
 	/*
 	 * ##################### Import Users
 	 */
-	private void importUsers(File f, Long defaultLdapId) throws Exception {
+	private void importUsers(ZipFile f, Long defaultLdapId) throws Exception {
 		log.info("OAuth2 servers import complete, starting user import");
 		String jNameTimeZone = getDefaultTimezone();
 		//add existence email from database
@@ -544,11 +612,10 @@ public class BackupImport {
 		registry.bind(Group.class, new GroupConverter(groupDao, groupMap));
 		registry.bind(Salutation.class, SalutationConverter.class);
 		registry.bind(Date.class, DateConverter.class);
-		List<User> list = readList(ser, f, "users.xml", "users", User.class);
-		int minLoginLength = getMinLoginLength();
-		for (User u : list) {
+		final int minLoginLength = getMinLoginLength();
+		readList(ser, f, "users.xml", "users", User.class, u -> {
 			if (u.getLogin() == null || u.isDeleted()) {
-				continue;
+				return;
 			}
 			// check that email is unique
 			if (u.getAddress() != null && u.getAddress().getEmail() != null && User.Type.user == u.getType()) {
@@ -603,13 +670,13 @@ public class BackupImport {
 			}
 			userDao.update(u, Long.valueOf(-1));
 			userMap.put(userId, u.getId());
-		}
+		});
 	}
 
 	/*
 	 * ##################### Import Rooms
 	 */
-	private void importRooms(File f) throws Exception {
+	private void importRooms(ZipFile f) throws Exception {
 		log.info("Users import complete, starting room import");
 		Registry registry = new Registry();
 		Strategy strategy = new RegistryStrategy(registry);
@@ -621,8 +688,7 @@ public class BackupImport {
 		registry.bind(User.class, new UserConverter(userDao, userMap));
 		registry.bind(Room.Type.class, RoomTypeConverter.class);
 		registry.bind(Date.class, DateConverter.class);
-		List<Room> list = readList(ser, f, "rooms.xml", "rooms", Room.class);
-		for (Room r : list) {
+		readList(ser, f, "rooms.xml", "rooms", Room.class, r -> {
 			Long roomId = r.getId();
 
 			// We need to reset ids as openJPA reject to store them otherwise
@@ -637,13 +703,13 @@ public class BackupImport {
 			}
 			r = roomDao.update(r, null);
 			roomMap.put(roomId, r.getId());
-		}
+		});
 	}
 
 	/*
 	 * ##################### Import Room Groups
 	 */
-	private void importRoomGroups(File f) throws Exception {
+	private void importRoomGroups(ZipFile f) throws Exception {
 		log.info("Room import complete, starting room groups import");
 		Registry registry = new Registry();
 		Strategy strategy = new RegistryStrategy(registry);
@@ -652,11 +718,10 @@ public class BackupImport {
 		registry.bind(Group.class, new GroupConverter(groupDao, groupMap));
 		registry.bind(Room.class, new RoomConverter(roomDao, roomMap));
 
-		List<RoomGroup> list = readList(serializer, f, "rooms_organisation.xml", "room_organisations", RoomGroup.class);
-		for (RoomGroup ro : list) {
+		readList(serializer, f, "rooms_organisation.xml", "room_organisations", RoomGroup.class, ro -> {
 			Room r = roomDao.get(ro.getRoom().getId());
 			if (r == null || ro.getGroup() == null || ro.getGroup().getId() == null) {
-				continue;
+				return;
 			}
 			if (r.getGroups() == null) {
 				r.setGroups(new ArrayList<>());
@@ -665,13 +730,13 @@ public class BackupImport {
 			ro.setRoom(r);
 			r.getGroups().add(ro);
 			roomDao.update(r, null);
-		}
+		});
 	}
 
 	/*
 	 * ##################### Import Chat messages
 	 */
-	private void importChat(File f) throws Exception {
+	private void importChat(ZipFile f) throws Exception {
 		log.info("Room groups import complete, starting chat messages import");
 		Registry registry = new Registry();
 		Strategy strategy = new RegistryStrategy(registry);
@@ -681,38 +746,38 @@ public class BackupImport {
 		registry.bind(Room.class, new RoomConverter(roomDao, roomMap));
 		registry.bind(Date.class, DateConverter.class);
 
-		List<ChatMessage> list = readList(serializer, f, "chat_messages.xml", "chat_messages", ChatMessage.class);
-		for (ChatMessage m : list) {
-			m.setId(null);
-			if (m.getFromUser() == null || m.getFromUser().getId() == null) {
-				continue;
-			}
-			chatDao.update(m, m.getSent());
+		try (Batch<ChatMessage> batch = new Batch<>(chatDao::persist)) {
+			readList(serializer, f, "chat_messages.xml", "chat_messages", ChatMessage.class, m -> {
+				m.setId(null);
+				if (m.getFromUser() == null || m.getFromUser().getId() == null) {
+					return;
+				}
+				batch.handle(m);
+			});
 		}
 	}
 
 	/*
 	 * ##################### Import Calendars
 	 */
-	private void importCalendars(File f) throws Exception {
+	private void importCalendars(ZipFile f) throws Exception {
 		log.info("Chat messages import complete, starting calendar import");
 		Registry registry = new Registry();
 		Strategy strategy = new RegistryStrategy(registry);
 		Serializer serializer = new Persister(strategy);
 		registry.bind(User.class, new UserConverter(userDao, userMap));
-		List<OmCalendar> list = readList(serializer, f, "calendars.xml", "calendars", OmCalendar.class, true);
-		for (OmCalendar c : list) {
+		readList(serializer, f, "calendars.xml", "calendars", OmCalendar.class, true, c -> {
 			Long id = c.getId();
 			c.setId(null);
 			c = calendarDao.update(c);
 			calendarMap.put(id, c.getId());
-		}
+		});
 	}
 
 	/*
 	 * ##################### Import Appointements
 	 */
-	private void importAppointments(File f) throws Exception {
+	private void importAppointments(ZipFile f) throws Exception {
 		log.info("Calendar import complete, starting appointement import");
 		Registry registry = new Registry();
 		Strategy strategy = new RegistryStrategy(registry);
@@ -724,8 +789,7 @@ public class BackupImport {
 		registry.bind(Date.class, DateConverter.class);
 		registry.bind(OmCalendar.class, new OmCalendarConverter(calendarDao, calendarMap));
 
-		List<Appointment> list = readList(serializer, f, "appointements.xml", "appointments", Appointment.class);
-		for (Appointment a : list) {
+		readList(serializer, f, "appointements.xml", "appointments", Appointment.class, a -> {
 			Long appId = a.getId();
 
 			// We need to reset this as openJPA reject to store them otherwise
@@ -735,15 +799,15 @@ public class BackupImport {
 			}
 			if (a.getRoom() == null || a.getRoom().getId() == null) {
 				log.warn("Appointment without room was found, skipping: {}", a);
-				continue;
+				return;
 			}
 			if (a.getStart() == null || a.getEnd() == null) {
 				log.warn("Appointment without start/end time was found, skipping: {}", a);
-				continue;
+				return;
 			}
 			a = appointmentDao.update(a, null, false);
 			appointmentMap.put(appId, a.getId());
-		}
+		});
 	}
 
 	/*
@@ -751,7 +815,7 @@ public class BackupImport {
 	 *
 	 * Reminder Invitations will be NOT send!
 	 */
-	private void importMeetingMembers(File f) throws Exception {
+	private void importMeetingMembers(ZipFile f) throws Exception {
 		log.info("Appointement import complete, starting meeting members import");
 		Registry registry = new Registry();
 		Strategy strategy = new RegistryStrategy(registry);
@@ -759,17 +823,16 @@ public class BackupImport {
 
 		registry.bind(User.class, new UserConverter(userDao, userMap));
 		registry.bind(Appointment.class, new AppointmentConverter(appointmentDao, appointmentMap));
-		List<MeetingMember> list = readList(ser, f, "meetingmembers.xml", "meetingmembers", MeetingMember.class);
-		for (MeetingMember ma : list) {
+		readList(ser, f, "meetingmembers.xml", "meetingmembers", MeetingMember.class, ma -> {
 			ma.setId(null);
 			meetingMemberDao.update(ma);
-		}
+		});
 	}
 
 	/*
 	 * ##################### Import Recordings
 	 */
-	private void importRecordings(File f) throws Exception {
+	private void importRecordings(ZipFile f) throws Exception {
 		log.info("Meeting members import complete, starting recordings server import");
 		Registry registry = new Registry();
 		Strategy strategy = new RegistryStrategy(registry);
@@ -780,8 +843,7 @@ public class BackupImport {
 		matcher.bind(Integer.class, IntegerTransform.class);
 		registry.bind(Date.class, DateConverter.class);
 		registry.bind(Recording.Status.class, RecordingStatusConverter.class);
-		List<Recording> list = readList(ser, f, "flvRecordings.xml", "flvrecordings", Recording.class);
-		for (Recording r : list) {
+		readList(ser, f, "flvRecordings.xml", "flvrecordings", Recording.class, r -> {
 			Long recId = r.getId();
 			r.setId(null);
 			if (r.getRoomId() != null) {
@@ -807,17 +869,16 @@ public class BackupImport {
 			}
 			r = recordingDao.update(r);
 			fileItemMap.put(recId, r.getId());
-		}
+		});
 	}
 
 	/*
 	 * ##################### Import Private Message Folders
 	 */
-	private void importPrivateMsgFolders(File f, Serializer simpleSerializer) throws Exception {
+	private void importPrivateMsgFolders(ZipFile f, Serializer simpleSerializer) throws Exception {
 		log.info("Recording import complete, starting private message folder import");
-		List<PrivateMessageFolder> list = readList(simpleSerializer, f, "privateMessageFolder.xml"
-			, "privatemessagefolders", PrivateMessageFolder.class);
-		for (PrivateMessageFolder p : list) {
+		readList(simpleSerializer, f, "privateMessageFolder.xml"
+			, "privatemessagefolders", PrivateMessageFolder.class, p -> {
 			Long folderId = p.getId();
 			PrivateMessageFolder storedFolder = privateMessageFolderDao.get(folderId);
 			if (storedFolder == null) {
@@ -825,13 +886,13 @@ public class BackupImport {
 				Long newFolderId = privateMessageFolderDao.addPrivateMessageFolderObj(p);
 				messageFolderMap.put(folderId, newFolderId);
 			}
-		}
+		});
 	}
 
 	/*
 	 * ##################### Import User Contacts
 	 */
-	private void importContacts(File f) throws Exception {
+	private void importContacts(ZipFile f) throws Exception {
 		log.info("Private message folder import complete, starting user contacts import");
 		Registry registry = new Registry();
 		Strategy strategy = new RegistryStrategy(registry);
@@ -839,8 +900,7 @@ public class BackupImport {
 
 		registry.bind(User.class, new UserConverter(userDao, userMap));
 
-		List<UserContact> list = readList(serializer, f, "userContacts.xml", "usercontacts", UserContact.class);
-		for (UserContact uc : list) {
+		readList(serializer, f, "userContacts.xml", "usercontacts", UserContact.class, uc -> {
 			Long ucId = uc.getId();
 			UserContact storedUC = userContactDao.get(ucId);
 
@@ -852,13 +912,13 @@ public class BackupImport {
 				uc = userContactDao.update(uc);
 				userContactMap.put(ucId, uc.getId());
 			}
-		}
+		});
 	}
 
 	/*
 	 * ##################### Import Private Messages
 	 */
-	private void importPrivateMsgs(File f) throws Exception {
+	private void importPrivateMsgs(ZipFile f) throws Exception {
 		log.info("Usercontact import complete, starting private messages item import");
 		Registry registry = new Registry();
 		Strategy strategy = new RegistryStrategy(registry);
@@ -868,44 +928,69 @@ public class BackupImport {
 		registry.bind(Room.class, new RoomConverter(roomDao, roomMap));
 		registry.bind(Date.class, DateConverter.class);
 
-		List<PrivateMessage> list = readList(serializer, f, "privateMessages.xml", "privatemessages", PrivateMessage.class);
-		boolean oldBackup = true;
-		for (PrivateMessage p : list) {
-			if (p.getFolderId() == null || p.getFolderId().longValue() < 0) {
-				oldBackup = false;
-				break;
-			}
+		final boolean oldBackup = isOldPrivateMessages(f);
+		try (Batch<PrivateMessage> batch = new Batch<>(privateMessageDao::persist)) {
+			readList(serializer, f, "privateMessages.xml", "privatemessages", PrivateMessage.class, p -> {
+				p.setId(null);
+				p.setFolderId(messageFolderMap.get(p.getFolderId()));
+				p.setUserContactId(userContactMap.get(p.getUserContactId()));
+				if (p.getRoom() != null && p.getRoom().getId() == null) {
+					p.setRoom(null);
+				}
+				if (p.getTo() != null && p.getTo().getId() == null) {
+					p.setTo(null);
+				}
+				if (p.getFrom() != null && p.getFrom().getId() == null) {
+					p.setFrom(null);
+				}
+				if (p.getOwner() != null && p.getOwner().getId() == null) {
+					p.setOwner(null);
+				}
+				if (oldBackup && p.getOwner() != null && p.getOwner().getId() != null
+						&& p.getFrom() != null && p.getFrom().getId() != null
+						&& p.getOwner().getId() == p.getFrom().getId())
+				{
+					p.setFolderId(SENT_FOLDER_ID);
+				}
+				batch.handle(p);
+			});
 		}
-		for (PrivateMessage p : list) {
-			p.setId(null);
-			p.setFolderId(messageFolderMap.get(p.getFolderId()));
-			p.setUserContactId(userContactMap.get(p.getUserContactId()));
-			if (p.getRoom() != null && p.getRoom().getId() == null) {
-				p.setRoom(null);
-			}
-			if (p.getTo() != null && p.getTo().getId() == null) {
-				p.setTo(null);
-			}
-			if (p.getFrom() != null && p.getFrom().getId() == null) {
-				p.setFrom(null);
-			}
-			if (p.getOwner() != null && p.getOwner().getId() == null) {
-				p.setOwner(null);
-			}
-			if (oldBackup && p.getOwner() != null && p.getOwner().getId() != null
-					&& p.getFrom() != null && p.getFrom().getId() != null
-					&& p.getOwner().getId() == p.getFrom().getId())
-			{
-				p.setFolderId(SENT_FOLDER_ID);
+	}
+
+	/*
+	 * Messages from old backups have positive folder ids only,
+	 * only folder id is being read to avoid full deserialization
+	 */
+	private static boolean isOldPrivateMessages(ZipFile f) throws Exception {
+		ZipArchiveEntry e = f.getEntry("privateMessages.xml");
+		if (e == null) {
+			return false;
+		}
+		try (InputStream is = f.getInputStream(e)) {
+			InputNode listNode = NodeBuilder.read(is).getNext();
+			InputNode item = listNode.getNext();
+			while (item != null) {
+				Long folderId = null;
+				InputNode prop = item.getNext();
+				while (prop != null) {
+					if ("privateMessageFolderId".equals(prop.getName())) {
+						folderId = importLongType(prop.getValue());
+					}
+					prop = item.getNext();
+				}
+				if (folderId == null || folderId.longValue() < 0) {
+					return false;
+				}
+				item = listNode.getNext();
 			}
-			privateMessageDao.update(p, null);
 		}
+		return true;
 	}
 
 	/*
 	 * ##################### Import File-Explorer Items
 	 */
-	private List<FileItem> importFiles(File f) throws Exception {
+	private List<FileItem> importFiles(ZipFile f) throws Exception {
 		log.info("Private message import complete, starting file explorer item import");
 		List<FileItem> result = new ArrayList<>();
 		Registry registry = new Registry();
@@ -916,8 +1001,7 @@ public class BackupImport {
 		matcher.bind(Long.class, LongTransform.class);
 		matcher.bind(Integer.class, IntegerTransform.class);
 		registry.bind(Date.class, DateConverter.class);
-		List<FileItem> list = readList(ser, f, "fileExplorerItems.xml", "fileExplorerItems", FileItem.class);
-		for (FileItem file : list) {
+		readList(ser, f, "fileExplorerItems.xml", "fileExplorerItems", FileItem.class, file -> {
 			Long fId = file.getId();
 			// We need to reset this as openJPA reject to store them otherwise
 			file.setId(null);
@@ -933,16 +1017,19 @@ public class BackupImport {
 				file.setHash(randomUUID().toString());
 			}
 			file = fileItemDao.update(file);
-			result.add(file);
+			// only documents and whiteboards might require conversion
+			if (!file.isDeleted() && (BaseFileItem.Type.Presentation == file.getType() || BaseFileItem.Type.WmlFile == file.getType())) {
+				result.add(file);
+			}
 			fileItemMap.put(fId, file.getId());
-		}
+		});
 		return result;
 	}
 
 	/*
 	 * ##################### Import Room Polls
 	 */
-	private void importPolls(File f) throws Exception {
+	private void importPolls(ZipFile f) throws Exception {
 		log.info("File explorer item import complete, starting room poll import");
 		Registry registry = new Registry();
 		Strategy strategy = new RegistryStrategy(registry);
@@ -955,12 +1042,11 @@ public class BackupImport {
 		registry.bind(RoomPoll.Type.class, PollTypeConverter.class);
 		registry.bind(Date.class, DateConverter.class);
 
-		List<RoomPoll> list = readList(serializer, f, "roompolls.xml", "roompolls", RoomPoll.class);
-		for (RoomPoll rp : list) {
+		readList(serializer, f, "roompolls.xml", "roompolls", RoomPoll.class, rp -> {
 			rp.setId(null);
 			if (rp.getRoom() == null || rp.getRoom().getId() == null) {
 				//room was deleted
-				continue;
+				return;
 			}
 			if (rp.getCreator() == null || rp.getCreator().getId() == null) {
 				rp.setCreator(null);
@@ -971,13 +1057,13 @@ public class BackupImport {
 				}
 			}
 			pollDao.update(rp);
-		}
+		});
 	}
 
 	/*
 	 * ##################### Import Room Files
 	 */
-	private void importRoomFiles(File f) throws Exception {
+	private void importRoomFiles(ZipFile f) throws Exception {
 		log.info("Poll import complete, starting room files import");
 		Registry registry = new Registry();
 		Strategy strategy = new RegistryStrategy(registry);
@@ -985,11 +1071,10 @@ public class BackupImport {
 
 		registry.bind(BaseFileItem.class, new BaseFileItemConverter(fileItemDao, fileItemMap));
 
-		List<RoomFile> list = readList(serializer, f, "roomFiles.xml", "RoomFiles", RoomFile.class, true);
-		for (RoomFile rf : list) {
+		readList(serializer, f, "roomFiles.xml", "RoomFiles", RoomFile.class, true, rf -> {
 			Room r = roomDao.get(roomMap.get(rf.getRoomId()));
 			if (r == null || rf.getFile() == null || rf.getFile().getId() == null) {
-				continue;
+				return;
 			}
 			if (r.getFiles() == null) {
 				r.setFiles(new ArrayList<>());
@@ -998,114 +1083,128 @@ public class BackupImport {
 			rf.setRoomId(r.getId());
 			r.getFiles().add(rf);
 			roomDao.update(r, null);
-		}
+		});
 	}
 
-	private static <T> List<T> readList(Serializer ser, File baseDir, String fileName, String listNodeName, Class<T> clazz) throws Exception {
-		return readList(ser, baseDir, fileName, listNodeName, clazz, false);
+	private static <T> void readList(Serializer ser, ZipFile f, String fileName, String listNodeName, Class<T> clazz, Handler<T> handler) throws Exception {
+		readList(ser, f, fileName, listNodeName, clazz, false, handler);
 	}
 
-	private static <T> List<T> readList(Serializer ser, File baseDir, String fileName, String listNodeName, Class<T> clazz, boolean notThow) throws Exception {
-		List<T> list = new ArrayList<>();
-		File xml = new File(baseDir, fileName);
-		if (!xml.exists()) {
+	/**
+	 * Reads the list from the backup item by item, each item is passed to the handler
+	 * right after it was read, so only single item is kept in memory
+	 */
+	private static <T> void readList(Serializer ser, ZipFile f, String fileName, String listNodeName, Class<T> clazz, boolean notThow, Handler<T> handler) throws Exception {
+		ZipArchiveEntry e = f.getEntry(fileName);
+		if (e == null) {
 			final String msg = fileName + " missing";
 			if (notThow) {
 				log.debug(msg);
-				return list;
+				return;
 			} else {
 				throw new BackupException(msg);
 			}
 		}
-		try (InputStream rootIs = new FileInputStream(xml)) {
+		final long start = System.currentTimeMillis();
+		long count = 0;
+		try (InputStream rootIs = f.getInputStream(e)) {
 			InputNode root = NodeBuilder.read(rootIs);
 			InputNode listNode = root.getNext();
 			if (listNodeName.equals(listNode.getName())) {
 				InputNode item = listNode.getNext();
 				while (item != null) {
-					T o = ser.read(clazz, item, false);
-					list.add(o);
+					handler.handle(ser.read(clazz, item, false));
+					if (++count % PROGRESS_STEP == 0) {
+						log.info("{}: {} items processed", fileName, count);
+					}
 					item = listNode.getNext();
 				}
 			}
 		}
-		return list;
+		long time = Math.max(1, System.currentTimeMillis() - start);
+		log.info("{}: {} items processed in {} ms, {} items/s", fileName, count, time, count * 1000 / time);
 	}
 
-	private static Long getProfileId(File f) {
-		String n = f.getName();
+	private static Long getProfileId(String n) {
 		if (n.indexOf(PROFILES_PREFIX) > -1) {
 			return importLongType(n.substring(PROFILES_PREFIX.length()));
 		}
 		return null;
 	}
 
-	private void importFolders(File importBaseDir) throws IOException {
-		// Now check the room files and import them
-		final File roomFilesFolder = new File(importBaseDir, BCKP_ROOM_FILES);
-
-		File uploadDir = getUploadDir();
-
-		log.debug("roomFilesFolder PATH " + roomFilesFolder.getCanonicalPath());
-
-		if (roomFilesFolder.exists()) {
-			for (File file : roomFilesFolder.listFiles()) {
-				if (file.isDirectory()) {
-					String fName = file.getName();
-					if (PROFILES_DIR.equals(fName)) {
-						// profile should correspond to the new user id
-						for (File profile : file.listFiles()) {
-							Long oldId = getProfileId(profile);
-							Long id = oldId != null ? userMap.get(oldId) : null;
-							if (id != null) {
-								FileUtils.copyDirectory(profile, getUploadProfilesUserDir(id));
-							}
-						}
-					} else if (FILES_DIR.equals(fName)) {
-						log.debug("Entered FILES folder ");
-						for (File rf : file.listFiles()) {
-							// going to fix images
-							if (rf.isFile() && rf.getName().endsWith(EXTENSION_JPG)) {
-								FileUtils.copyFileToDirectory(rf, getImgDir(rf.getName()));
-							} else {
-								FileUtils.copyDirectory(rf, new File(getUploadFilesDir(), rf.getName()));
-							}
-						}
-					} else {
-						// check if folder is room folder, store it under new id if necessary
-						Long oldId = importLongType(fName);
-						Long id = oldId != null ? roomMap.get(oldId) : null;
-						if (id != null) {
-							FileUtils.copyDirectory(file, getUploadRoomDir(id.toString()));
-						} else {
-							FileUtils.copyDirectory(file, new File(uploadDir, fName));
-						}
-					}
+	/*
+	 * Files are being copied directly from the zip to their target location
+	 */
+	private void importFolders(ZipFile f) throws IOException {
+		final String roomFilesPrefix = BCKP_ROOM_FILES + "/";
+		final String recPrefix = BCKP_RECORD_FILES + "/";
+		final String cssPrefix = CSS_DIR + "/";
+		long count = 0;
+		for (Enumeration<ZipArchiveEntry> entries = f.getEntries(); entries.hasMoreElements();) {
+			ZipArchiveEntry e = entries.nextElement();
+			if (e.isDirectory()) {
+				continue;
+			}
+			String name = e.getName();
+			File target = null;
+			if (name.startsWith(roomFilesPrefix)) {
+				target = getRoomFileTarget(name.substring(roomFilesPrefix.length()));
+			} else if (name.startsWith(recPrefix)) {
+				// Now check the recordings and import them
+				String rec = name.substring(recPrefix.length());
+				if (rec.indexOf('/') < 0) {
+					String n = fileMap.get(rec);
+					target = validate(n == null ? rec : n, getStreamsHibernateDir());
 				}
+			} else if (name.startsWith(cssPrefix)) {
+				target = validate(name.substring(cssPrefix.length()), getCssDir());
+			}
+			if (target == null) {
+				continue;
+			}
+			try (InputStream is = f.getInputStream(e)) {
+				FileUtils.copyInputStreamToFile(is, target);
+			}
+			target.setLastModified(e.getTime());
+			if (++count % PROGRESS_STEP == 0) {
+				log.info("{} files imported", count);
 			}
 		}
+		log.info("{} files imported", count);
+	}
 
-		// Now check the recordings and import them
-		final File recDir = new File(importBaseDir, BCKP_RECORD_FILES);
-		log.debug("sourceDirRec PATH " + recDir.getCanonicalPath());
-		if (recDir.exists()) {
-			final File hiberDir = getStreamsHibernateDir();
-			for (File r : recDir.listFiles()) {
-				String n = fileMap.get(r.getName());
-				if (n != null) {
-					FileUtils.copyFile(r, new File(hiberDir, n));
-				} else {
-					FileUtils.copyFileToDirectory(r, hiberDir);
-				}
-			}
+	/**
+	 * @param path - path of the file relative to room files folder
+	 * @return target file or {@code null} if file should be skipped
+	 */
+	private File getRoomFileTarget(String path) throws IOException {
+		int idx = path.indexOf('/');
+		if (idx < 0) {
+			// only folders are being imported
+			return null;
 		}
-		final File cssDir = new File(importBaseDir, CSS_DIR);
-		if (cssDir.exists()) {
-			final File wCssDir = getCssDir();
-			for (File css : cssDir.listFiles()) {
-				FileUtils.copyFileToDirectory(css, wCssDir);
+		String fName = path.substring(0, idx);
+		String rest = path.substring(idx + 1);
+		if (PROFILES_DIR.equals(fName)) {
+			// profile should correspond to the new user id
+			idx = rest.indexOf('/');
+			Long oldId = idx < 0 ? null : getProfileId(rest.substring(0, idx));
+			Long id = oldId != null ? userMap.get(oldId) : null;
+			return id == null ? null : validate(rest.substring(idx + 1), getUploadProfilesUserDir(id));
+		} else if (FILES_DIR.equals(fName)) {
+			// going to fix images
+			if (rest.indexOf('/') < 0 && rest.endsWith(EXTENSION_JPG)) {
+				return validate(rest, getImgDir(rest));
 			}
+			return validate(rest, getUploadFilesDir());
+		}
+		// check if folder is room folder, store it under new id if necessary
+		Long oldId = importLongType(fName);
+		Long id = oldId != null ? roomMap.get(oldId) : null;
+		if (id != null) {
+			return validate(rest, getUploadRoomDir(id.toString()));
 		}
+		return validate(path, getUploadDir());
 	}
 
 	private static File getImgDir(String name) {
@@ -27,11 +27,11 @@ import static org.apache.openmeetings.util.OpenmeetingsVariables.setWicketApplic
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
 
@@ -140,6 +140,9 @@ public class Admin {
 		options.addOption(new OmOption(null, "v", "verbose", false, "verbose error messages"));
 		//backup/restore
 		options.addOption(new OmOption("b", null, "exclude-files", false, "should backup exclude files [default: include]", true));
+		options.addOption(new OmOption("b", null, "base-file", true, "previous backup file, differential backup will contain only files changed since it, database is not included, it should be restored along with full backup using 'diff-file' [default: full backup]", true));
+		options.addOption(new OmOption("r", null, "diff-file", true, "comma separated differential backup files made with 'base-file', files are restored from them after the full backup specified by 'file'", true));
+		options.addOption(new OmOption("r", null, "batch-size", true, "number of messages stored in single transaction during restore [default: 100]", true));
 		options.addOption(new OmOption("b,r,i", "file", null, true, "file used for backup/restore/install", "b"));
 		//install
 		options.addOption(new OmOption("i", "user", null, true, "Login name of the default user, minimum " + USER_LOGIN_MINIMUM_LENGTH + " characters (mutually exclusive with 'file')"));
@@ -362,7 +365,8 @@ public class Admin {
 		backupDir.mkdirs();
 
 		BackupExport export = getApplicationContext().getBean(BackupExport.class);
-		export.performExport(f, includeFiles, new ProgressHolder());
+		File base = cmdl.hasOption("base-file") ? new File(cmdl.getOptionValue("base-file")) : null;
+		export.performExport(f, includeFiles, base, new ProgressHolder());
 		FileUtils.deleteDirectory(backupDir);
 		backupDir.delete();
 	}
@@ -551,10 +555,17 @@ public class Admin {
 	}
 
 	private void processRestore(File backup) throws Exception {
-		try (InputStream is = new FileInputStream(backup)) {
-			BackupImport importCtrl = getApplicationContext().getBean(BackupImport.class);
-			importCtrl.performImport(is);
+		BackupImport importCtrl = getApplicationContext().getBean(BackupImport.class);
+		if (cmdl.hasOption("batch-size")) {
+			importCtrl.setBatchSize(Integer.parseInt(cmdl.getOptionValue("batch-size")));
+		}
+		List<File> diffs = new ArrayList<>();
+		if (cmdl.hasOption("diff-file")) {
+			for (String diff : cmdl.getOptionValue("diff-file").split(",")) {
+				diffs.add(checkRestoreFile(diff.trim()));
+			}
 		}
+		importCtrl.performImport(backup, diffs);
 	}
 
 	public static void main(String[] args) {
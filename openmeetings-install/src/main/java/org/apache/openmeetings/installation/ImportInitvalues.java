@@ -42,6 +42,10 @@ import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_DOCUMENT
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_DOCUMENT_QUALITY;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_EMAIL_AT_REGISTER;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_EMAIL_VERIFICATION;
+import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_EXT_PROCESS_LIMIT_FFMPEG;
+import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_EXT_PROCESS_LIMIT_IMAGEMAGICK;
+import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_EXT_PROCESS_LIMIT_OFFICE;
+import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_EXT_PROCESS_LIMIT_SOX;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_EXT_PROCESS_TTL;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_FNAME_MIN_LENGTH;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_GOOGLE_ANALYTICS_CODE;
@@ -79,6 +83,7 @@ import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_SCREENSH
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_SIP_ENABLED;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_SIP_EXTEN_CONTEXT;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_SIP_ROOM_PREFIX;
+import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_SMTP_CONNECTIONS;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_SMTP_PASS;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_SMTP_PORT;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_SMTP_SERVER;
@@ -122,6 +127,7 @@ import org.apache.openmeetings.db.entity.user.Group;
 import org.apache.openmeetings.db.entity.user.GroupUser;
 import org.apache.openmeetings.db.entity.user.User;
 import org.apache.openmeetings.db.entity.user.User.Right;
+import org.apache.openmeetings.util.process.ConversionScheduler.Tool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -178,6 +184,11 @@ public class ImportInitvalues {
 		list.add(c);
 	}
 
+	private static void addProcessLimitCfg(List<Configuration> list, String key, Tool tool) {
+		addCfg(list, key, "0", Configuration.Type.number
+				, String.format("Maximum number of concurrently running %s processes, 0 means auto (computed from number of processors)", tool), VER_5_0_0);
+	}
+
 	/*
 	 * This method is created to be used to generate GeneralConfiguration.xml
 	 */
@@ -215,6 +226,9 @@ public class ImportInitvalues {
 		addCfg(list, CONFIG_SMTP_TIMEOUT, "30000", Configuration.Type.number,
 				"Socket I/O timeout value in milliseconds. Default is 30 seconds (30000).", VER_1_9);
 
+		addCfg(list, CONFIG_SMTP_CONNECTIONS, "2", Configuration.Type.number,
+				"Number of SMTP connections used in parallel to send queued e-mails. Default is 2.", VER_5_0_0);
+
 		addCfg(list, CONFIG_APPLICATION_NAME, DEFAULT_APP_NAME, Configuration.Type.string, "Name of the Browser Title window", VER_3_0);
 
 		// "1" == "EN"
@@ -327,6 +341,10 @@ public class ImportInitvalues {
 		addCfg(list, CONFIG_GOOGLE_ANALYTICS_CODE, null, Configuration.Type.string, "Code for Google Analytics", "3.1.0");
 		addCfg(list, CONFIG_HEADER_CSP, HEADER_CSP_SELF, Configuration.Type.string, String.format("Value for 'Content-Security-Policy' header (default: %s), have to be modified to enable Google analytics site: https://content-security-policy.com/", HEADER_CSP_SELF), VER_3_3_0);
 		addCfg(list, CONFIG_EXT_PROCESS_TTL, String.valueOf(getExtProcessTtl()), Configuration.Type.number, String.format("Time to live in minutes for external processes such as conversion via ffmpeg (default %s minutes)", getExtProcessTtl()), VER_3_3_0);
+		addProcessLimitCfg(list, CONFIG_EXT_PROCESS_LIMIT_IMAGEMAGICK, Tool.imagemagick);
+		addProcessLimitCfg(list, CONFIG_EXT_PROCESS_LIMIT_OFFICE, Tool.office);
+		addProcessLimitCfg(list, CONFIG_EXT_PROCESS_LIMIT_FFMPEG, Tool.ffmpeg);
+		addProcessLimitCfg(list, CONFIG_EXT_PROCESS_LIMIT_SOX, Tool.sox);
 		addCfg(list, CONFIG_MYROOMS_ENABLED, String.valueOf(true), Configuration.Type.bool, "Users are allowed to create personal rooms", "3.3.2");
 		addCfg(list, CONFIG_REMINDER_MESSAGE, null, Configuration.Type.string, "Reminder message to notify about upcoming appointment, generated message will be used if not set", VER_2_0);
 		addCfg(list, CONFIG_MP4_AUDIO_RATE, String.valueOf(getAudioRate()), Configuration.Type.number, "Audio sampling rate (in Hz) for MP4 video", "4.0.1");
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openmeetings.backup;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.compress.archivers.zip.ParallelScatterZipCreator;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestBackupFiles {
+	private static final String PREFIX = "roomFiles";
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static File backup(File zip, Path dir, Properties prev, int expected) throws Exception {
+		try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(zip)) {
+			ParallelScatterZipCreator scatter = new ParallelScatterZipCreator();
+			Properties manifest = new Properties();
+			assertEquals(expected, BackupExport.addDir(scatter, PREFIX, dir, dir, manifest, prev));
+			scatter.writeTo(zos);
+			BackupExport.writeManifest(zos, manifest);
+		}
+		return zip;
+	}
+
+	@Test
+	public void testDifferential() throws Exception {
+		Path dir = folder.newFolder("upload").toPath();
+		Path txt = Files.write(Files.createDirectories(dir.resolve("files/1")).resolve("doc.txt"), "some text".getBytes(UTF_8));
+		byte[] image = new byte[64 * 1024];
+		Files.write(dir.resolve("files/1/page.png"), image);
+
+		File full = backup(folder.newFile("full.zip"), dir, new Properties(), 2);
+		try (ZipFile zip = new ZipFile(full)) {
+			ZipEntry e = zip.getEntry(PREFIX + "/files/1/page.png");
+			assertEquals("Images should be stored", ZipEntry.STORED, e.getMethod());
+			try (InputStream is = zip.getInputStream(e)) {
+				assertArrayEquals(image, IOUtils.toByteArray(is));
+			}
+			assertEquals(ZipEntry.DEFLATED, zip.getEntry(PREFIX + "/files/1/doc.txt").getMethod());
+		}
+		Properties manifest = BackupExport.readManifest(full);
+		assertEquals(2, manifest.size());
+
+		backup(folder.newFile("none.zip"), dir, manifest, 0);
+		Files.write(txt, "changed text".getBytes(UTF_8));
+		File diff = backup(folder.newFile("diff.zip"), dir, manifest, 1);
+		try (ZipFile zip = new ZipFile(diff)) {
+			assertNull("Unchanged file should be skipped", zip.getEntry(PREFIX + "/files/1/page.png"));
+			try (InputStream is = zip.getInputStream(zip.getEntry(PREFIX + "/files/1/doc.txt"))) {
+				assertEquals("changed text", IOUtils.toString(is, UTF_8));
+			}
+		}
+		assertEquals("Manifest should list all files", 2, BackupExport.readManifest(diff).size());
+	}
+}
@@ -18,6 +18,7 @@
  */
 package org.apache.openmeetings.service.quartz.scheduler;
 
+import static org.apache.openmeetings.core.util.ClusterJobs.run;
 import static org.apache.openmeetings.util.OmFileHelper.EXTENSION_MP4;
 import static org.apache.openmeetings.util.OmFileHelper.TEST_SETUP_PREFIX;
 import static org.apache.openmeetings.util.OmFileHelper.getStreamsDir;
@@ -65,6 +66,11 @@ public class CleanupJob extends AbstractJob {
 	}
 
 	public void cleanTestSetup() {
+		// test setup recordings are stored locally, every member should clean its own
+		run("cleanTestSetup", this::doCleanTestSetup);
+	}
+
+	private void doCleanTestSetup() {
 		log.trace("CleanupJob.cleanTestSetup");
 		final long now = System.currentTimeMillis();
 		if (!isInitComplete()) {
@@ -93,6 +99,10 @@ public class CleanupJob extends AbstractJob {
 	}
 
 	public void cleanSessions() {
+		run("cleanSessions", true, this::doCleanSessions);
+	}
+
+	private void doCleanSessions() {
 		log.trace("CleanupJob.cleanSessions");
 		if (!isInitComplete()) {
 			return;
@@ -105,6 +115,10 @@ public class CleanupJob extends AbstractJob {
 	}
 
 	public void cleanExpiredRecordings() {
+		run("cleanExpiredRecordings", true, this::doCleanExpiredRecordings);
+	}
+
+	private void doCleanExpiredRecordings() {
 		log.trace("CleanupJob.cleanExpiredRecordings");
 		processExpiringRecordings(true, (rec, days) -> {
 			if (days < 0) {
@@ -119,6 +133,10 @@ public class CleanupJob extends AbstractJob {
 	}
 
 	public void cleanExpiredResetHash() {
+		run("cleanExpiredResetHash", true, this::doCleanExpiredResetHash);
+	}
+
+	private void doCleanExpiredResetHash() {
 		log.trace("CleanupJob.cleanExpiredResetHash");
 		if (!isInitComplete()) {
 			return;
@@ -136,6 +154,10 @@ public class CleanupJob extends AbstractJob {
 	}
 
 	public void cleanPersonalData() {
+		run("cleanPersonalData", true, this::doCleanPersonalData);
+	}
+
+	private void doCleanPersonalData() {
 		log.trace("CleanupJob.cleanPersonalData");
 		if (!isInitComplete()) {
 			return;
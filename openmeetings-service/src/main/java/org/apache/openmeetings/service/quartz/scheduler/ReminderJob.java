@@ -19,6 +19,7 @@
 package org.apache.openmeetings.service.quartz.scheduler;
 
 import static org.apache.openmeetings.core.rss.LoadAtomRssFeed.setRss;
+import static org.apache.openmeetings.core.util.ClusterJobs.run;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_DASHBOARD_RSS_FEED1;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_DASHBOARD_RSS_FEED2;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_DASHBOARD_SHOW_RSS;
@@ -52,6 +53,10 @@ public class ReminderJob extends AbstractJob {
 	private ConfigurationDao cfgDao;
 
 	public void remindMeetings() {
+		run("remindMeetings", true, this::doRemindMeetings);
+	}
+
+	private void doRemindMeetings() {
 		log.trace("ReminderJob.remindMeetings");
 		if (!isInitComplete()) {
 			return;
@@ -64,6 +69,10 @@ public class ReminderJob extends AbstractJob {
 	}
 
 	public void remindExpiringRecordings() {
+		run("remindExpiringRecordings", true, this::doRemindExpiringRecordings);
+	}
+
+	private void doRemindExpiringRecordings() {
 		log.trace("ReminderJob.remindExpiringRecordings");
 		processExpiringRecordings(false, (rec, days) -> {
 			if (days > 0) {
@@ -83,6 +92,11 @@ public class ReminderJob extends AbstractJob {
 	}
 
 	public void loadRss() {
+		// RSS feed is cached in memory, every member should load its own copy
+		run("loadRss", this::doLoadRss);
+	}
+
+	private void doLoadRss() {
 		log.trace("ReminderJob.loadRss");
 		if (!isInitComplete()) {
 			return;
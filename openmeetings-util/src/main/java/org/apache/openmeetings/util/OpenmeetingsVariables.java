@@ -65,6 +65,7 @@ public class OpenmeetingsVariables {
 	public static final String CONFIG_SMTP_TLS = "mail.smtp.starttls.enable";
 	public static final String CONFIG_SMTP_TIMEOUT_CON = "mail.smtp.connection.timeout";
 	public static final String CONFIG_SMTP_TIMEOUT = "mail.smtp.timeout";
+	public static final String CONFIG_SMTP_CONNECTIONS = "mail.smtp.connections";
 	public static final String CONFIG_PATH_IMAGEMAGIC = "path.imagemagick";
 	public static final String CONFIG_PATH_SOX = "path.sox";
 	public static final String CONFIG_PATH_FFMPEG = "path.ffmpeg";
@@ -78,6 +79,10 @@ public class OpenmeetingsVariables {
 	public static final String CONFIG_CHROME_EXT_URL = "chrome.sharing.ext.url";
 	public static final String CONFIG_CSP_XFRAME = "header.csp.frame.options";
 	public static final String CONFIG_EXT_PROCESS_TTL = "external.process.ttl";
+	public static final String CONFIG_EXT_PROCESS_LIMIT_IMAGEMAGICK = "external.process.limit.imagemagick";
+	public static final String CONFIG_EXT_PROCESS_LIMIT_OFFICE = "external.process.limit.office";
+	public static final String CONFIG_EXT_PROCESS_LIMIT_FFMPEG = "external.process.limit.ffmpeg";
+	public static final String CONFIG_EXT_PROCESS_LIMIT_SOX = "external.process.limit.sox";
 	public static final String CONFIG_HEADER_CSP = "header.content.security.policy";
 	public static final String CONFIG_EMAIL_AT_REGISTER = "send.email.at.register";
 	public static final String CONFIG_EMAIL_VERIFICATION = "send.email.with.verfication";
@@ -0,0 +1,308 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openmeetings.util.process;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Limits number of concurrently running external conversions per tool,
+ * conversions exceeding the limit are waiting in priority queue:
+ * interactive ones (uploads) are started before background ones (recordings)
+ *
+ * Conversion is being executed in the calling thread, so the callers
+ * still get conversion result synchronously, conversions submitted
+ * asynchronously are queued along with the synchronous ones and are passed
+ * to the executor only after the slot is acquired
+ */
+public class ConversionScheduler {
+	private static final Logger log = LoggerFactory.getLogger(ConversionScheduler.class);
+	public enum Tool {
+		imagemagick
+		, office
+		, ffmpeg
+		, sox
+	}
+	public enum Priority {
+		interactive
+		, background
+	}
+	private static final Map<Tool, Gate> gates = new EnumMap<>(Tool.class);
+	private static final ThreadLocal<Priority> priority = ThreadLocal.withInitial(() -> Priority.interactive);
+
+	static {
+		for (Tool t : Tool.values()) {
+			gates.put(t, new Gate(getDefaultLimit(t)));
+		}
+	}
+
+	private ConversionScheduler() {}
+
+	public static int getDefaultLimit(Tool tool) {
+		final int cores = Runtime.getRuntime().availableProcessors();
+		switch (tool) {
+			case office:
+				return 1; // office instance is listening on fixed port
+			case ffmpeg:
+				return Math.max(1, cores / 2);
+			default:
+				return cores;
+		}
+	}
+
+	/**
+	 * @param tool - tool to be limited
+	 * @param limit - maximum number of concurrently running processes,
+	 *     {@code 0} or less means the limit is computed from number of available processors
+	 */
+	public static void setLimit(Tool tool, int limit) {
+		gates.get(tool).setLimit(limit > 0 ? limit : getDefaultLimit(tool));
+	}
+
+	public static int getLimit(Tool tool) {
+		return gates.get(tool).limit;
+	}
+
+	/**
+	 * Executes conversion after the slot for the tool is available
+	 *
+	 * @param tool - tool to be used for conversion
+	 * @param task - conversion to be performed
+	 * @return result of the conversion
+	 * @throws InterruptedException in case thread was interrupted while waiting
+	 */
+	public static <T> T execute(Tool tool, Supplier<T> task) throws InterruptedException {
+		Gate g = gates.get(tool);
+		g.acquire(priority.get());
+		try {
+			return task.get();
+		} finally {
+			g.release();
+		}
+	}
+
+	/**
+	 * Queues conversion, it will be started using given executor as soon as the slot
+	 * for the tool is available, no thread is blocked while waiting for the slot
+	 *
+	 * @param tool - tool to be used for conversion
+	 * @param p - priority of the conversion
+	 * @param task - conversion to be performed
+	 * @param executor - executor to run the conversion
+	 * @return future result of the conversion
+	 */
+	public static <T> CompletableFuture<T> submit(Tool tool, Priority p, Supplier<T> task, Executor executor) {
+		final Gate g = gates.get(tool);
+		final CompletableFuture<T> future = new CompletableFuture<>();
+		g.submit(p, future, () -> {
+			try {
+				future.complete(task.get());
+			} catch (Throwable e) {
+				future.completeExceptionally(e);
+			} finally {
+				g.release();
+			}
+		}, executor);
+		return future;
+	}
+
+	/**
+	 * Performs all conversions started by given code with the given priority
+	 *
+	 * @param p - priority of the conversions
+	 * @param r - code to be executed
+	 */
+	public static void runWithPriority(Priority p, Runnable r) {
+		Priority prev = priority.get();
+		priority.set(p);
+		try {
+			r.run();
+		} finally {
+			priority.set(prev);
+		}
+	}
+
+	/**
+	 * @return priority of the conversions started by current thread
+	 */
+	public static Priority getPriority() {
+		return priority.get();
+	}
+
+	/**
+	 * @param tool - tool to get info for
+	 * @return number of conversions waiting for the slot
+	 */
+	public static int getQueueSize(Tool tool) {
+		return gates.get(tool).getQueueSize();
+	}
+
+	/**
+	 * @param tool - tool to get info for
+	 * @return number of conversions currently running
+	 */
+	public static int getRunning(Tool tool) {
+		return gates.get(tool).getRunning();
+	}
+
+	/**
+	 * @param tool - tool to get info for
+	 * @return number of conversions started since start
+	 */
+	public static long getCount(Tool tool) {
+		return gates.get(tool).count.sum();
+	}
+
+	/**
+	 * @param tool - tool to get info for
+	 * @return average time in milliseconds conversion was waiting for the slot
+	 */
+	public static double getAverageWait(Tool tool) {
+		Gate g = gates.get(tool);
+		long count = g.count.sum();
+		return count == 0 ? 0 : g.wait.sum() / (count * 1_000_000.);
+	}
+
+	/**
+	 * @param tool - tool to get info for
+	 * @return maximum time in milliseconds conversion was waiting for the slot
+	 */
+	public static double getMaxWait(Tool tool) {
+		return gates.get(tool).maxWait.get() / 1_000_000.;
+	}
+
+	private static class Gate {
+		private final PriorityQueue<Waiter> queue = new PriorityQueue<>();
+		private final LongAdder count = new LongAdder();
+		private final LongAdder wait = new LongAdder();
+		private final AtomicLong maxWait = new AtomicLong();
+		private long seq = 0;
+		private int running = 0;
+		private volatile int limit;
+
+		Gate(int limit) {
+			this.limit = limit;
+		}
+
+		synchronized void setLimit(int limit) {
+			this.limit = Math.max(1, limit);
+			dispatch();
+			notifyAll();
+		}
+
+		synchronized int getQueueSize() {
+			return queue.size();
+		}
+
+		synchronized int getRunning() {
+			return running;
+		}
+
+		synchronized void acquire(Priority p) throws InterruptedException {
+			Waiter w = new Waiter(p, seq++, null, null, null);
+			queue.add(w);
+			try {
+				while (running >= limit || queue.peek() != w) {
+					wait();
+				}
+			} catch (InterruptedException e) {
+				queue.remove(w);
+				dispatch();
+				notifyAll();
+				throw e;
+			}
+			queue.poll();
+			running++;
+			acquired(w);
+			dispatch();
+			notifyAll(); // next waiter might be able to start as well
+		}
+
+		synchronized void submit(Priority p, CompletableFuture<?> future, Runnable task, Executor executor) {
+			queue.add(new Waiter(p, seq++, future, task, executor));
+			dispatch();
+		}
+
+		synchronized void release() {
+			running--;
+			dispatch();
+			notifyAll();
+		}
+
+		/**
+		 * Passes queued asynchronous conversions to their executors while slots are available,
+		 * synchronous waiter at the head of the queue is woken up by the caller
+		 */
+		private void dispatch() {
+			Waiter w;
+			while (running < limit && (w = queue.peek()) != null && w.task != null) {
+				queue.poll();
+				running++;
+				acquired(w);
+				try {
+					w.executor.execute(w.task);
+				} catch (RejectedExecutionException e) {
+					running--;
+					w.future.completeExceptionally(e);
+				}
+			}
+		}
+
+		private void acquired(Waiter w) {
+			long nanos = System.nanoTime() - w.created;
+			count.increment();
+			wait.add(nanos);
+			maxWait.accumulateAndGet(nanos, Math::max);
+			log.debug("Conversion slot acquired, priority {}, waited {} ms, running {} of {}", w.priority, nanos / 1_000_000, running, limit);
+		}
+	}
+
+	private static class Waiter implements Comparable<Waiter> {
+		private final long created = System.nanoTime();
+		private final Priority priority;
+		private final long seq;
+		private final CompletableFuture<?> future;
+		private final Runnable task;
+		private final Executor executor;
+
+		Waiter(Priority priority, long seq, CompletableFuture<?> future, Runnable task, Executor executor) {
+			this.priority = priority;
+			this.seq = seq;
+			this.future = future;
+			this.task = task;
+			this.executor = executor;
+		}
+
+		@Override
+		public int compareTo(Waiter o) {
+			int res = priority.compareTo(o.priority);
+			return res == 0 ? Long.compare(seq, o.seq) : res;
+		}
+	}
+}
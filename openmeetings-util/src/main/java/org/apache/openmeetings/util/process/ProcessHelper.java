@@ -30,6 +30,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+import org.apache.openmeetings.util.process.ConversionScheduler.Tool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -102,6 +103,30 @@ public class ProcessHelper {
 		return executeScript(process, argv, env, optional);
 	}
 
+	/**
+	 * Executes external process using concurrency limit of the tool, see {@link ConversionScheduler}
+	 *
+	 * @param tool - tool being executed
+	 * @param process - name of the process
+	 * @param argv - command line
+	 * @return result of execution
+	 */
+	public static ProcessResult executeScript(Tool tool, String process, String[] argv) {
+		return executeScript(tool, process, argv, false);
+	}
+
+	public static ProcessResult executeScript(Tool tool, String process, String[] argv, boolean optional) {
+		try {
+			return ConversionScheduler.execute(tool, () -> executeScript(process, argv, optional));
+		} catch (InterruptedException e) {
+			log.error("Interrupted while waiting for {}", tool, e);
+			Thread.currentThread().interrupt();
+			return new ProcessResult(process, "Interrupted while waiting for conversion slot", e)
+					.setCommand(getCommand(argv))
+					.setOptional(optional);
+		}
+	}
+
 	private static ProcessResult executeScript(String process, String[] argv, Map<? extends String, ? extends String> env, boolean optional) {
 		ProcessResult res = new ProcessResult()
 				.setProcess(process)
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openmeetings.util.process;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.openmeetings.util.process.ConversionScheduler.Priority;
+import org.apache.openmeetings.util.process.ConversionScheduler.Tool;
+import org.junit.After;
+import org.junit.Test;
+
+public class TestConversionScheduler {
+	private static final Tool TOOL = Tool.sox;
+	private static final int LIMIT = 2;
+	private final AtomicInteger running = new AtomicInteger();
+	private final AtomicInteger maxRunning = new AtomicInteger();
+	private final List<String> started = Collections.synchronizedList(new ArrayList<>());
+
+	@After
+	public void tearDown() {
+		ConversionScheduler.setLimit(TOOL, ConversionScheduler.getDefaultLimit(TOOL));
+	}
+
+	private Thread start(String name, Priority p, CountDownLatch release) {
+		Thread t = new Thread(() -> ConversionScheduler.runWithPriority(p, () -> {
+			try {
+				ConversionScheduler.execute(TOOL, () -> {
+					started.add(name);
+					maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+					try {
+						release.await(1, TimeUnit.MINUTES);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					running.decrementAndGet();
+					return null;
+				});
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}));
+		t.start();
+		return t;
+	}
+
+	private static void waitFor(int runningCount, int queue) throws InterruptedException {
+		for (int i = 0; i < 100 && (ConversionScheduler.getRunning(TOOL) != runningCount || ConversionScheduler.getQueueSize(TOOL) != queue); ++i) {
+			Thread.sleep(50);
+		}
+		assertEquals(runningCount, ConversionScheduler.getRunning(TOOL));
+		assertEquals(queue, ConversionScheduler.getQueueSize(TOOL));
+	}
+
+	@Test
+	public void testLimitAndPriority() throws Exception {
+		ConversionScheduler.setLimit(TOOL, LIMIT);
+		final long count = ConversionScheduler.getCount(TOOL);
+		CountDownLatch first = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < LIMIT; ++i) {
+			threads.add(start("running" + i, Priority.background, i == 0 ? first : release));
+		}
+		waitFor(LIMIT, 0);
+		threads.add(start("background", Priority.background, release));
+		waitFor(LIMIT, 1);
+		threads.add(start("interactive", Priority.interactive, release));
+		waitFor(LIMIT, 2);
+
+		// single slot is freed, so only one of the waiting conversions can be started
+		first.countDown();
+		for (int i = 0; i < 100 && started.size() < LIMIT + 1; ++i) {
+			Thread.sleep(50);
+		}
+		assertEquals("Interactive conversion should be started first", "interactive", started.get(LIMIT));
+		assertEquals(1, ConversionScheduler.getQueueSize(TOOL));
+
+		release.countDown();
+		for (Thread t : threads) {
+			t.join(TimeUnit.MINUTES.toMillis(1));
+		}
+		assertEquals("Limit should not be exceeded", LIMIT, maxRunning.get());
+		assertEquals(LIMIT + 2, started.size());
+		assertEquals(0, ConversionScheduler.getRunning(TOOL));
+		assertEquals(LIMIT + 2, ConversionScheduler.getCount(TOOL) - count);
+		assertTrue("Wait time should be tracked", ConversionScheduler.getMaxWait(TOOL) > 0);
+	}
+
+	@Test
+	public void testAutoLimit() {
+		ConversionScheduler.setLimit(TOOL, LIMIT);
+		ConversionScheduler.setLimit(TOOL, 0);
+		assertEquals("Zero limit should be resolved from processors", ConversionScheduler.getDefaultLimit(TOOL), ConversionScheduler.getLimit(TOOL));
+	}
+
+	@Test
+	public void testSubmit() throws Exception {
+		ConversionScheduler.setLimit(TOOL, LIMIT);
+		final ExecutorService executor = Executors.newCachedThreadPool();
+		try {
+			CountDownLatch release = new CountDownLatch(1);
+			List<Thread> threads = new ArrayList<>();
+			for (int i = 0; i < LIMIT; ++i) {
+				threads.add(start("running" + i, Priority.background, release));
+			}
+			waitFor(LIMIT, 0);
+			List<CompletableFuture<String>> submitted = new ArrayList<>();
+			for (int i = 0; i < 2 * LIMIT; ++i) {
+				final String name = "submitted" + i;
+				submitted.add(ConversionScheduler.submit(TOOL, Priority.interactive, () -> {
+					started.add(name);
+					maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+					running.decrementAndGet();
+					return name;
+				}, executor));
+			}
+			assertEquals("Submitted conversions should wait for the slot", 2 * LIMIT, ConversionScheduler.getQueueSize(TOOL));
+
+			release.countDown();
+			for (int i = 0; i < submitted.size(); ++i) {
+				assertEquals("submitted" + i, submitted.get(i).get(1, TimeUnit.MINUTES));
+			}
+			for (Thread t : threads) {
+				t.join(TimeUnit.MINUTES.toMillis(1));
+			}
+			assertEquals("Limit should not be exceeded", LIMIT, maxRunning.get());
+			waitFor(0, 0);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
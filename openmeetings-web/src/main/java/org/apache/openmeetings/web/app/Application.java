@@ -47,6 +47,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.openmeetings.IApplication;
+import org.apache.openmeetings.core.util.ClusterJobs;
 import org.apache.openmeetings.core.util.WebSocketHelper;
 import org.apache.openmeetings.db.dao.basic.ConfigurationDao;
 import org.apache.openmeetings.db.dao.calendar.AppointmentDao;
@@ -54,6 +55,7 @@ import org.apache.openmeetings.db.dao.label.LabelDao;
 import org.apache.openmeetings.db.dao.record.RecordingDao;
 import org.apache.openmeetings.db.dao.user.UserDao;
 import org.apache.openmeetings.db.entity.basic.Client;
+import org.apache.openmeetings.db.entity.basic.Configuration;
 import org.apache.openmeetings.db.entity.calendar.Appointment;
 import org.apache.openmeetings.db.entity.calendar.MeetingMember;
 import org.apache.openmeetings.db.entity.record.Recording;
@@ -158,6 +160,7 @@ public class Application extends AuthenticatedWebApplication implements IApplica
 	public static final String NOTINIT_MAPPING = "/notinited";
 	final HazelcastInstance hazelcast = Hazelcast.getOrCreateHazelcastInstance(new XmlConfigBuilder().build());
 	private ITopic<IClusterWsMessage> hazelWsTopic;
+	private ITopic<Configuration> hazelCfgTopic;
 
 	@Autowired
 	private ApplicationContext ctx;
@@ -188,6 +191,14 @@ public class Application extends AuthenticatedWebApplication implements IApplica
 				}
 				WbWebSocketHelper.send(msg.getMessageObject());
 			});
+		hazelCfgTopic = hazelcast.getTopic("config");
+		hazelCfgTopic.addMessageListener(msg -> {
+				String serverId = msg.getPublishingMember().getStringAttribute(NAME_ATTR_KEY);
+				if (serverId.equals(hazelcast.getName())) {
+					return;
+				}
+				cfgDao.onClusterChange(msg.getMessageObject());
+			});
 		hazelcast.getCluster().addMembershipListener(new MembershipListener() {
 			@Override
 			public void memberRemoved(MembershipEvent evt) {
@@ -586,6 +597,24 @@ public class Application extends AuthenticatedWebApplication implements IApplica
 		hazelWsTopic.publish(msg);
 	}
 
+	@Override
+	public void publishConfigChange(Configuration c) {
+		hazelCfgTopic.publish(c);
+	}
+
+	/**
+	 * Periodic jobs are spread across cluster members: members are ordered by join time,
+	 * this order is the same on every member, so each job is owned by exactly one of them
+	 *
+	 * @param job - name of the job
+	 * @return true if job should be executed by this cluster member
+	 */
+	@Override
+	public boolean isJobOwner(String job) {
+		Member owner = ClusterJobs.getOwner(job, getServers());
+		return owner == null || owner.localMember();
+	}
+
 	private static String getWsUrl(Url reqUrl) {
 		final boolean insecure = "http".equalsIgnoreCase(reqUrl.getProtocol());
 		String delim = ":";
@@ -25,7 +25,6 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
@@ -49,7 +48,6 @@ import com.hazelcast.core.IMap;
 import com.hazelcast.map.listener.EntryAddedListener;
 import com.hazelcast.map.listener.EntryRemovedListener;
 import com.hazelcast.map.listener.EntryUpdatedListener;
-import com.hazelcast.query.Predicates;
 
 @Component
 public class ClientManager implements IClientManager {
@@ -59,6 +57,9 @@ public class ClientManager implements IClientManager {
 	private static final String UID_BY_SID_KEY = "UID_BY_SID_KEY";
 	private final Map<String, Client> onlineClients = new ConcurrentHashMap<>();
 	private final Map<Long, Set<String>> onlineRooms = new ConcurrentHashMap<>();
+	//additional indexes for faster searching, both are maintained by ClientListener
+	private final Map<Long, Set<String>> uidsByUser = new ConcurrentHashMap<>();
+	private final Map<String, Set<String>> uidsBySession = new ConcurrentHashMap<>();
 
 	@Autowired
 	private ConferenceLogDao confLogDao;
@@ -83,6 +84,54 @@ public class ClientManager implements IClientManager {
 	void init() {
 		map().addEntryListener(new ClientListener(), true);
 		rooms().addEntryListener(new RoomListener(), true);
+		//clients and rooms created by other cluster members before this one was started
+		for (Client c : map().values()) {
+			onlineClients.putIfAbsent(c.getUid(), c);
+			addIndex(c);
+		}
+		for (Map.Entry<Long, Set<String>> e : rooms().entrySet()) {
+			onlineRooms.putIfAbsent(e.getKey(), e.getValue());
+		}
+	}
+
+	private static <K> void addIndex(Map<K, Set<String>> index, K key, String uid) {
+		index.compute(key, (k, uids) -> {
+			Set<String> result = uids == null ? new ConcurrentHashSet<>() : uids;
+			result.add(uid);
+			return result;
+		});
+	}
+
+	private static <K> void removeIndex(Map<K, Set<String>> index, K key, String uid) {
+		index.computeIfPresent(key, (k, uids) -> {
+			uids.remove(uid);
+			return uids.isEmpty() ? null : uids;
+		});
+	}
+
+	private void addIndex(Client c) {
+		addIndex(uidsByUser, c.getUserId(), c.getUid());
+		addIndex(uidsBySession, c.getSessionId(), c.getUid());
+	}
+
+	private void removeIndex(Client c) {
+		if (c != null) {
+			removeIndex(uidsByUser, c.getUserId(), c.getUid());
+			removeIndex(uidsBySession, c.getSessionId(), c.getUid());
+		}
+	}
+
+	private List<Client> getClients(Set<String> uids, Predicate<Client> filter) {
+		List<Client> clients = new ArrayList<>();
+		if (uids != null) {
+			for (String uid : uids) {
+				Client c = get(uid);
+				if (c != null && (filter == null || filter.test(c))) {
+					clients.add(c);
+				}
+			}
+		}
+		return clients;
 	}
 
 	public void add(Client c) {
@@ -90,6 +139,7 @@ public class ClientManager implements IClientManager {
 		c.setServerId(Application.get().getServerId());
 		map().put(c.getUid(), c);
 		onlineClients.put(c.getUid(), c);
+		addIndex(c);
 		mapBySid().put(c.getSid(), c.getUid());
 	}
 
@@ -145,6 +195,7 @@ public class ClientManager implements IClientManager {
 			log.debug("Removing online client: {}, roomId: {}", c.getUid(), c.getRoomId());
 			map().remove(c.getUid());
 			onlineClients.remove(c.getUid());
+			removeIndex(c);
 			mapBySid().remove(c.getSid());
 		}
 	}
@@ -207,14 +258,7 @@ public class ClientManager implements IClientManager {
 	}
 
 	public boolean isOnline(Long userId) {
-		boolean isUserOnline = false;
-		for (Map.Entry<String, Client> e : map().entrySet()) {
-			if (e.getValue().getUserId().equals(userId)) {
-				isUserOnline = true;
-				break;
-			}
-		}
-		return isUserOnline;
+		return userId != null && uidsByUser.containsKey(userId);
 	}
 
 	public List<Client> list() {
@@ -223,7 +267,7 @@ public class ClientManager implements IClientManager {
 
 	@Override
 	public Collection<Client> listByUser(Long userId) {
-		return map().values(Predicates.equal("userId", userId));
+		return userId == null ? new ArrayList<>() : getClients(uidsByUser.get(userId), null);
 	}
 
 	@Override
@@ -232,28 +276,19 @@ public class ClientManager implements IClientManager {
 	}
 
 	public List<Client> listByRoom(Long roomId, Predicate<Client> filter) {
-		List<Client> clients = new ArrayList<>();
-		if (roomId != null) {
-			Set<String> uids = onlineRooms.get(roomId);
-			if (uids != null) {
-				for (String uid : uids) {
-					Client c = get(uid);
-					if (c != null && (filter == null || filter.test(c))) {
-						clients.add(c);
-					}
-				}
-			}
-		}
-		return clients;
+		return roomId == null ? new ArrayList<>() : getClients(onlineRooms.get(roomId), filter);
 	}
 
 	public Set<Long> listRoomIds(Long userId) {
 		Set<Long> result = new HashSet<>();
-		for (Entry<Long, Set<String>> me : onlineRooms.entrySet()) {
-			for (String uid : me.getValue()) {
+		Set<String> uids = userId == null ? null : uidsByUser.get(userId);
+		if (uids != null) {
+			for (String uid : uids) {
 				Client c = get(uid);
-				if (c != null && c.getUserId().equals(userId)) {
-					result.add(me.getKey());
+				Long roomId = c == null ? null : c.getRoomId();
+				Set<String> clients = roomId == null ? null : onlineRooms.get(roomId);
+				if (clients != null && clients.contains(uid)) {
+					result.add(roomId);
 				}
 			}
 		}
@@ -262,10 +297,10 @@ public class ClientManager implements IClientManager {
 
 	public boolean isInRoom(long roomId, long userId) {
 		Set<String> clients = onlineRooms.get(roomId);
-		if (clients != null) {
-			for (String uid : clients) {
-				Client c = get(uid);
-				if (c != null && c.getUserId().equals(userId)) {
+		Set<String> uids = uidsByUser.get(userId);
+		if (clients != null && uids != null) {
+			for (String uid : uids) {
+				if (clients.contains(uid)) {
 					return true;
 				}
 			}
@@ -274,15 +309,9 @@ public class ClientManager implements IClientManager {
 	}
 
 	private Client getByKeys(Long userId, String sessionId) {
-		Client client = null;
-		for (Map.Entry<String, Client> e : map().entrySet()) {
-			Client c = e.getValue();
-			if (c.getUserId().equals(userId) && c.getSessionId().equals(sessionId)) {
-				client = c;
-				break;
-			}
-		}
-		return client;
+		List<Client> clients = sessionId == null ? new ArrayList<>()
+				: getClients(uidsBySession.get(sessionId), c -> c.getUserId().equals(userId));
+		return clients.isEmpty() ? null : clients.get(0);
 	}
 
 	public void invalidate(Long userId, String sessionId) {
@@ -311,6 +340,7 @@ public class ClientManager implements IClientManager {
 					onlineClients.put(uid, event.getValue());
 				}
 			}
+			addIndex(event.getValue());
 		}
 
 		@Override
@@ -323,7 +353,8 @@ public class ClientManager implements IClientManager {
 		@Override
 		public void entryRemoved(EntryEvent<String, Client> event) {
 			log.trace("ClientListener::Remove");
-			onlineClients.remove(event.getKey());
+			Client c = onlineClients.remove(event.getKey());
+			removeIndex(c == null ? event.getOldValue() : c);
 		}
 	}
 
@@ -21,28 +21,51 @@ package org.apache.openmeetings.web.app;
 import static org.apache.openmeetings.web.app.Application.getHazelcast;
 import static org.apache.openmeetings.web.app.WebSession.getUserId;
 
+import java.io.Serializable;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
 
 import org.apache.openmeetings.core.util.WebSocketHelper;
 import org.apache.openmeetings.db.entity.basic.Client;
 import org.apache.openmeetings.db.entity.room.Room;
 import org.apache.openmeetings.db.util.ws.RoomMessage.Type;
 import org.apache.openmeetings.db.util.ws.TextRoomMessage;
+import org.apache.openmeetings.util.NamedThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import com.github.openjson.JSONObject;
 import com.hazelcast.core.IMap;
+import com.hazelcast.core.ReadOnly;
+import com.hazelcast.map.AbstractEntryProcessor;
+import com.hazelcast.map.EntryBackupProcessor;
+import com.hazelcast.map.EntryProcessor;
 
+/**
+ * Quick poll results are stored as counters, votes are applied by entry processors
+ * on the member owning the poll, so the voter list is never transferred.
+ *
+ * Result updates are coalesced: at most one update per room is sent
+ * every {@link #UPDATE_DELAY} ms regardless of number of votes
+ */
 @Component
 public class QuickPollManager {
 	private static final Logger log = LoggerFactory.getLogger(QuickPollManager.class);
 	private static final String QPOLLS_KEY = "QPOLLS_KEY";
+	static final long UPDATE_DELAY = 250;
+	private final Map<Long, Client> pending = new ConcurrentHashMap<>();
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("qpoll-update"));
 
-	private static IMap<Long, Map<Long, Boolean>> map() {
+	private static IMap<Long, QuickPoll> map() {
 		return getHazelcast().getMap(QPOLLS_KEY);
 	}
 
@@ -56,26 +79,27 @@ public class QuickPollManager {
 			return;
 		}
 		log.debug("Starting quick poll, room: {}", roomId);
-		IMap<Long, Map<Long, Boolean>> polls = map();
-		polls.lock(roomId);
-		polls.putIfAbsent(roomId, new ConcurrentHashMap<Long, Boolean>());
-		polls.unlock(roomId);
+		map().putIfAbsent(roomId, new QuickPoll());
 		WebSocketHelper.sendRoom(new TextRoomMessage(roomId, c, Type.quickPollUpdated, c.getUid()));
 	}
 
 	public void vote(Client c, boolean vote) {
 		Long roomId = c.getRoomId();
-		IMap<Long, Map<Long, Boolean>> polls = map();
-		polls.lock(roomId);
-		if (polls.containsKey(roomId)) {
-			Map<Long, Boolean> votes = map().get(roomId);
-			if (!votes.containsKey(c.getUserId())) {
-				votes.put(c.getUserId(), vote);
-				polls.put(roomId,  votes);
-				WebSocketHelper.sendRoom(new TextRoomMessage(roomId, c, Type.quickPollUpdated, c.getUid()));
-			}
+		if (Boolean.TRUE.equals(map().executeOnKey(roomId, new Vote(c.getUserId(), vote)))) {
+			scheduleUpdate(c);
+		}
+	}
+
+	private void scheduleUpdate(Client c) {
+		final Long roomId = c.getRoomId();
+		if (pending.putIfAbsent(roomId, c) == null) {
+			scheduler.schedule(() -> {
+				Client sender = pending.remove(roomId);
+				if (sender != null) {
+					WebSocketHelper.sendRoom(new TextRoomMessage(roomId, sender, Type.quickPollUpdated, sender.getUid()));
+				}
+			}, UPDATE_DELAY, TimeUnit.MILLISECONDS);
 		}
-		polls.unlock(roomId);
 	}
 
 	public void close(Client c) {
@@ -84,18 +108,88 @@ public class QuickPollManager {
 			return;
 		}
 		map().remove(roomId);
+		pending.remove(roomId);
 		WebSocketHelper.sendRoom(new TextRoomMessage(roomId, c, Type.quickPollUpdated, c.getUid()));
 	}
 
 	public JSONObject toJson(Long roomId) {
-		boolean started = isStarted(roomId);
+		return toJson(roomId, getUserId());
+	}
+
+	JSONObject toJson(Long roomId, Long userId) {
+		long[] res = (long[])map().executeOnKey(roomId, new Results(userId));
+		boolean started = res != null;
 		JSONObject o = new JSONObject().put("started", started);
 		if (started) {
-			Map<Long, Boolean> votes = map().get(roomId);
-			o.put("voted", votes.containsKey(getUserId()));
-			o.put("pros", votes.entrySet().stream().filter(Entry::getValue).count())
-				.put("cons", votes.entrySet().stream().filter(e -> !e.getValue()).count());
+			o.put("voted", res[2] == 1);
+			o.put("pros", res[0])
+				.put("cons", res[1]);
 		}
 		return o;
 	}
+
+	@PreDestroy
+	public void destroy() {
+		scheduler.shutdownNow();
+	}
+
+	static class QuickPoll implements Serializable {
+		private static final long serialVersionUID = 1L;
+		private final Set<Long> voters = new HashSet<>();
+		private long pros;
+		private long cons;
+
+		boolean vote(Long userId, boolean vote) {
+			if (!voters.add(userId)) {
+				return false;
+			}
+			if (vote) {
+				pros++;
+			} else {
+				cons++;
+			}
+			return true;
+		}
+	}
+
+	static class Vote extends AbstractEntryProcessor<Long, QuickPoll> {
+		private static final long serialVersionUID = 1L;
+		private final Long userId;
+		private final boolean vote;
+
+		Vote(Long userId, boolean vote) {
+			this.userId = userId;
+			this.vote = vote;
+		}
+
+		@Override
+		public Object process(Entry<Long, QuickPoll> entry) {
+			QuickPoll poll = entry.getValue();
+			if (poll == null || !poll.vote(userId, vote)) {
+				return false;
+			}
+			entry.setValue(poll);
+			return true;
+		}
+	}
+
+	static class Results implements EntryProcessor<Long, QuickPoll>, ReadOnly {
+		private static final long serialVersionUID = 1L;
+		private final Long userId;
+
+		Results(Long userId) {
+			this.userId = userId;
+		}
+
+		@Override
+		public Object process(Entry<Long, QuickPoll> entry) {
+			QuickPoll poll = entry.getValue();
+			return poll == null ? null : new long[] {poll.pros, poll.cons, poll.voters.contains(userId) ? 1 : 0};
+		}
+
+		@Override
+		public EntryBackupProcessor<Long, QuickPoll> getBackupProcessor() {
+			return null; // read only
+		}
+	}
 }
@@ -18,34 +18,50 @@
  */
 package org.apache.openmeetings.web.app;
 
+import static org.apache.openmeetings.db.dto.room.Whiteboard.ATTR_FILE_ID;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.getDefaultLang;
 
+import java.io.Serializable;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.annotation.PostConstruct;
 
 import org.apache.openmeetings.db.dao.label.LabelDao;
 import org.apache.openmeetings.db.dto.room.Whiteboard;
+import org.apache.openmeetings.db.dto.room.Whiteboard.ZoomMode;
 import org.apache.openmeetings.db.dto.room.Whiteboards;
 import org.apache.openmeetings.db.manager.IWhiteboardManager;
+import org.apache.openmeetings.web.room.wb.WbAction;
+import org.apache.openmeetings.web.room.wb.WbWebSocketHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import com.hazelcast.core.EntryEvent;
+import com.github.openjson.JSONArray;
+import com.github.openjson.JSONObject;
 import com.hazelcast.core.IMap;
-import com.hazelcast.map.listener.EntryAddedListener;
-import com.hazelcast.map.listener.EntryRemovedListener;
-import com.hazelcast.map.listener.EntryUpdatedListener;
+import com.hazelcast.core.ITopic;
+import com.hazelcast.map.AbstractEntryProcessor;
 
 /**
  * Hazelcast based Whiteboard manager
  *
+ * Whiteboard structure (list of whiteboards, active whiteboard etc.) is replicated
+ * as whole {@link Whiteboards} object, whiteboard objects and properties are
+ * replicated as deltas, so single stroke doesn't cause whole room to be
+ * serialized and sent to every node. All changes are sent via single topic,
+ * so changes made on one node are applied in order, deltas are also applied
+ * to the copy stored in the map. The map keeps its values in OBJECT format
+ * (see hazelcast.xml), so deltas modify the stored copy in place instead of
+ * deserializing and serializing whole {@link Whiteboards} per stroke
+ *
  * @author sebawagner
  *
  */
@@ -54,6 +70,11 @@ public class WhiteboardManager implements IWhiteboardManager {
 	private static final Logger log = LoggerFactory.getLogger(WhiteboardManager.class);
 	private final Map<Long, Whiteboards> onlineWbs = new ConcurrentHashMap<>();
 	private static final String WBS_KEY = "WBS_KEY";
+	private static final String WBS_TOPIC = "WBS_TOPIC";
+	private static final String DOC_PAGES_KEY = "DOC_PAGES_KEY";
+	public static final String PARAM_READY = "ready";
+	private final LongAdder firstSlideCount = new LongAdder();
+	private final LongAdder firstSlideTime = new LongAdder();
 
 	@Autowired
 	private Application app;
@@ -62,9 +83,22 @@ public class WhiteboardManager implements IWhiteboardManager {
 		return app.hazelcast.getMap(WBS_KEY);
 	}
 
+	private ITopic<WbChange> topic() {
+		return app.hazelcast.getTopic(WBS_TOPIC);
+	}
+
+	private IMap<Long, DocPages> pages() {
+		return app.hazelcast.getMap(DOC_PAGES_KEY);
+	}
+
 	@PostConstruct
 	void init() {
-		map().addEntryListener(new WbListener(), true);
+		topic().addMessageListener(msg -> {
+			if (msg.getPublishingMember().localMember()) {
+				return;
+			}
+			msg.getMessageObject().apply(onlineWbs);
+		});
 	}
 
 	public boolean tryLock(Long roomId) {
@@ -97,6 +131,7 @@ public class WhiteboardManager implements IWhiteboardManager {
 				try {
 					onlineWbs.remove(roomId);
 					map().delete(roomId);
+					topic().publish(new Drop(roomId));
 				} finally {
 					map().unlock(roomId);
 				}
@@ -117,6 +152,12 @@ public class WhiteboardManager implements IWhiteboardManager {
 		}
 		Whiteboards wbs = onlineWbs.get(roomId);
 		if (wbs == null) {
+			// room might be started before this node has joined
+			wbs = map().get(roomId);
+			if (wbs != null) {
+				onlineWbs.put(roomId, wbs);
+				return wbs;
+			}
 			wbs = new Whiteboards(roomId);
 			Whiteboard wb = add(wbs, langId);
 			wbs.setActiveWb(wb.getId());
@@ -166,38 +207,321 @@ public class WhiteboardManager implements IWhiteboardManager {
 		update(wbs);
 	}
 
+	/**
+	 * Sends properties of the whiteboard (name, slide, zoom and size) to other nodes,
+	 * objects should be modified using {@link #put(long, Whiteboard, String, JSONObject)}
+	 * and {@link #remove(long, Whiteboard, String)}
+	 *
+	 * @param roomId - id of the room
+	 * @param wb - modified whiteboard
+	 */
 	public void update(long roomId, Whiteboard wb) {
-		Whiteboards wbs = get(roomId);
-		wbs.update(wb);
-		update(wbs);
+		publish(new Props(roomId, wb));
+	}
+
+	/**
+	 * Adds/replaces single object of the whiteboard, only this object is sent to other nodes
+	 *
+	 * @param roomId - id of the room
+	 * @param wb - whiteboard to be modified
+	 * @param uid - uid of the object
+	 * @param obj - object to be stored
+	 * @return whiteboard
+	 */
+	public Whiteboard put(long roomId, Whiteboard wb, String uid, JSONObject obj) {
+		wb.put(uid, obj);
+		publish(new ItemChange(roomId, wb.getId(), uid, wb.getItem(uid)));
+		return wb;
+	}
+
+	/**
+	 * Removes single object of the whiteboard, only removal of this object is sent to other nodes
+	 *
+	 * @param roomId - id of the room
+	 * @param wb - whiteboard to be modified
+	 * @param uid - uid of the object
+	 * @return removed object or {@code null} if object doesn't exist
+	 */
+	public JSONObject remove(long roomId, Whiteboard wb, String uid) {
+		JSONObject o = wb.remove(uid);
+		if (o != null) {
+			publish(new ItemChange(roomId, wb.getId(), uid, null));
+		}
+		return o;
+	}
+
+	/**
+	 * Removes all objects of the slide except presentation itself, only slide number is sent to other nodes
+	 *
+	 * @param roomId - id of the room
+	 * @param wb - whiteboard to be modified
+	 * @param slide - slide to be cleared
+	 * @return removed objects
+	 */
+	public JSONArray clearSlide(long roomId, Whiteboard wb, int slide) {
+		JSONArray arr = wb.clearSlide(slide);
+		if (arr.length() != 0) {
+			publish(new ClearSlide(roomId, wb.getId(), slide));
+		}
+		return arr;
+	}
+
+	/**
+	 * Records time between whiteboard load started and first slide being displayed by client
+	 *
+	 * @param nanos - time in nanoseconds
+	 */
+	public void trackFirstSlide(long nanos) {
+		firstSlideCount.increment();
+		firstSlideTime.add(nanos);
+	}
+
+	/**
+	 * @return number of whiteboard loads since start
+	 */
+	public long getFirstSlideCount() {
+		return firstSlideCount.sum();
+	}
+
+	/**
+	 * @return average time-to-first-slide in milliseconds
+	 */
+	public double getAverageFirstSlideTime() {
+		long count = firstSlideCount.sum();
+		return count == 0 ? 0 : firstSlideTime.sum() / (count * 1_000_000.);
+	}
+
+	/**
+	 * Records progress of the document conversion, all rooms displaying the
+	 * document are notified, so clients can fetch ready pages
+	 *
+	 * @param fileId - id of the document
+	 * @param ready - number of pages ready
+	 * @param count - total number of pages
+	 */
+	public void pagesReady(long fileId, int ready, int count) {
+		IMap<Long, DocPages> m = pages();
+		DocPages p;
+		m.lock(fileId);
+		try {
+			p = m.get(fileId);
+			if (p == null) {
+				p = new DocPages();
+			}
+			p.ready = ready;
+			if (ready < count) {
+				m.set(fileId, p);
+			} else {
+				m.delete(fileId);
+			}
+		} finally {
+			m.unlock(fileId);
+		}
+		JSONObject msg = new JSONObject().put(ATTR_FILE_ID, fileId).put(PARAM_READY, ready);
+		for (Long roomId : p.rooms) {
+			WbWebSocketHelper.sendWbAll(roomId, WbAction.pagesReady, msg);
+		}
+	}
+
+	/**
+	 * Registers the room as displaying the document being converted
+	 *
+	 * @param fileId - id of the document
+	 * @param roomId - id of the room
+	 * @return number of pages ready or {@code null} if document conversion is complete
+	 */
+	public Integer registerPages(long fileId, long roomId) {
+		IMap<Long, DocPages> m = pages();
+		if (!m.containsKey(fileId)) {
+			return null;
+		}
+		m.lock(fileId);
+		try {
+			DocPages p = m.get(fileId);
+			if (p == null) {
+				return null;
+			}
+			if (p.rooms.add(roomId)) {
+				m.set(fileId, p);
+			}
+			return p.ready;
+		} finally {
+			m.unlock(fileId);
+		}
 	}
 
 	private void update(Whiteboards wbs) {
 		onlineWbs.put(wbs.getRoomId(), wbs);
-		new Thread(() -> map().put(wbs.getRoomId(), wbs)).start();
+		map().setAsync(wbs.getRoomId(), wbs);
+		topic().publish(new Replace(wbs));
+	}
+
+	private void publish(WbChange c) {
+		map().submitToKey(c.roomId, c);
+		topic().publish(c);
 	}
 
-	public class WbListener implements
-			EntryAddedListener<Long, Whiteboards>
-			, EntryUpdatedListener<Long, Whiteboards>
-			, EntryRemovedListener<Long, Whiteboards>
-	{
+	/**
+	 * Change of room whiteboards, applied to the local copy of other nodes,
+	 * deltas are also applied to the copy stored in the map
+	 */
+	abstract static class WbChange extends AbstractEntryProcessor<Long, Whiteboards> {
+		private static final long serialVersionUID = 1L;
+		final long roomId;
+
+		WbChange(long roomId) {
+			this.roomId = roomId;
+		}
+
 		@Override
-		public void entryAdded(EntryEvent<Long, Whiteboards> event) {
-			log.trace("WbListener::Add");
-			onlineWbs.put(event.getKey(), event.getValue());
+		public Object process(Entry<Long, Whiteboards> entry) {
+			Whiteboards wbs = entry.getValue();
+			if (wbs != null) {
+				apply(wbs);
+				entry.setValue(wbs);
+			}
+			return null;
+		}
+
+		void apply(Map<Long, Whiteboards> wbsMap) {
+			Whiteboards wbs = wbsMap.get(roomId);
+			if (wbs != null) {
+				apply(wbs);
+			}
+		}
+
+		abstract void apply(Whiteboards wbs);
+	}
+
+	static class Replace extends WbChange {
+		private static final long serialVersionUID = 1L;
+		private final Whiteboards wbs;
+
+		Replace(Whiteboards wbs) {
+			super(wbs.getRoomId());
+			this.wbs = wbs;
 		}
 
 		@Override
-		public void entryUpdated(EntryEvent<Long, Whiteboards> event) {
-			log.trace("WbListener::Update");
-			onlineWbs.put(event.getKey(), event.getValue());
+		void apply(Map<Long, Whiteboards> wbsMap) {
+			wbsMap.put(roomId, wbs);
 		}
 
 		@Override
-		public void entryRemoved(EntryEvent<Long, Whiteboards> event) {
-			log.trace("WbListener::Remove");
-			onlineWbs.remove(event.getKey());
+		void apply(Whiteboards wbs) {
+			//no-op whole object is replaced
+		}
+	}
+
+	static class Drop extends WbChange {
+		private static final long serialVersionUID = 1L;
+
+		Drop(long roomId) {
+			super(roomId);
 		}
+
+		@Override
+		void apply(Map<Long, Whiteboards> wbsMap) {
+			wbsMap.remove(roomId);
+		}
+
+		@Override
+		void apply(Whiteboards wbs) {
+			//no-op whole object is removed
+		}
+	}
+
+	static class ItemChange extends WbChange {
+		private static final long serialVersionUID = 1L;
+		private final long wbId;
+		private final String uid;
+		private final Whiteboard.Item item;
+
+		/**
+		 * @param roomId - id of the room
+		 * @param wbId - id of the whiteboard
+		 * @param uid - uid of the object
+		 * @param item - object to be stored, {@code null} means object is removed
+		 */
+		ItemChange(long roomId, long wbId, String uid, Whiteboard.Item item) {
+			super(roomId);
+			this.wbId = wbId;
+			this.uid = uid;
+			this.item = item;
+		}
+
+		@Override
+		void apply(Whiteboards wbs) {
+			Whiteboard wb = wbs.get(wbId);
+			if (wb == null) {
+				return;
+			}
+			if (item == null) {
+				wb.remove(uid);
+			} else {
+				wb.put(uid, item);
+			}
+		}
+	}
+
+	static class ClearSlide extends WbChange {
+		private static final long serialVersionUID = 1L;
+		private final long wbId;
+		private final int slide;
+
+		ClearSlide(long roomId, long wbId, int slide) {
+			super(roomId);
+			this.wbId = wbId;
+			this.slide = slide;
+		}
+
+		@Override
+		void apply(Whiteboards wbs) {
+			Whiteboard wb = wbs.get(wbId);
+			if (wb != null) {
+				wb.clearSlide(slide);
+			}
+		}
+	}
+
+	static class Props extends WbChange {
+		private static final long serialVersionUID = 1L;
+		private final long wbId;
+		private final String name;
+		private final int slide;
+		private final double zoom;
+		private final ZoomMode zoomMode;
+		private final int width;
+		private final int height;
+
+		Props(long roomId, Whiteboard wb) {
+			super(roomId);
+			wbId = wb.getId();
+			name = wb.getName();
+			slide = wb.getSlide();
+			zoom = wb.getZoom();
+			zoomMode = wb.getZoomMode();
+			width = wb.getWidth();
+			height = wb.getHeight();
+		}
+
+		@Override
+		void apply(Whiteboards wbs) {
+			Whiteboard wb = wbs.get(wbId);
+			if (wb != null) {
+				wb.setName(name);
+				wb.setSlide(slide);
+				wb.setZoom(zoom);
+				wb.setZoomMode(zoomMode);
+				wb.setWidth(width);
+				wb.setHeight(height);
+			}
+		}
+	}
+
+	private static class DocPages implements Serializable {
+		private static final long serialVersionUID = 1L;
+		private int ready;
+		private final Set<Long> rooms = new HashSet<>();
 	}
 }
@@ -533,6 +533,12 @@ public class RoomPanel extends BasePanel {
 						handler.appendJavaScript(getQuickPollJs());
 					}
 						break;
+					case fileConversionFailed:
+						if (_c.getUid().equals(((TextRoomMessage)m).getText())) {
+							sidebar.updateFiles(handler);
+							handler.appendJavaScript(String.format("OmUtil.error(%s);", JSONObject.quote(getString("convert.errors.file"))));
+						}
+						break;
 				}
 			}
 		}
@@ -13,6 +13,18 @@ var VideoManager = (function() {
 			}
 		});
 	}
+	function _onIceCandidate(uid, candidate) {
+		const w = $('#' + VideoUtil.getVid(uid));
+		if (w.length === 0) {
+			return; // window was closed while candidates were in flight
+		}
+		w.data().getPeer().addIceCandidate(candidate, function (error) {
+			if (error) {
+				OmUtil.error('Error adding candidate: ' + error);
+				return;
+			}
+		});
+	}
 	function _onBroadcast(msg) {
 		const sd = msg.stream
 			, uid = sd.uid;
@@ -26,6 +38,23 @@ var VideoManager = (function() {
 		Video().init(msg);
 		OmUtil.log(uid + ' receiving video');
 	}
+	function _onMixStarted(m) {
+		const own = Room.getOptions().uid;
+		m.uids.forEach(function(uid) {
+			const v = $('#' + VideoUtil.getVid(uid));
+			if (v.length === 1 && v.attr('data-client-uid') !== own) {
+				_closeV(v);
+			}
+		});
+		_onReceive(m);
+	}
+	function _onMixStopped(m) {
+		const own = Room.getOptions().uid;
+		_close(m.uid, true);
+		_play(m.streams.filter(function(sd) {
+			return sd.cuid !== own;
+		}), m.iceServers);
+	}
 	function _onKMessage(m) {
 		switch (m.id) {
 			case 'clientLeave':
@@ -46,21 +75,22 @@ var VideoManager = (function() {
 				_onVideoResponse(m);
 				break;
 			case 'iceCandidate':
-				{
-					const w = $('#' + VideoUtil.getVid(m.uid))
-						, v = w.data()
-
-					v.getPeer().addIceCandidate(m.candidate, function (error) {
-						if (error) {
-							OmUtil.error('Error adding candidate: ' + error);
-							return;
-						}
-					});
-				}
+				_onIceCandidate(m.uid, m.candidate);
+				break;
+			case 'iceCandidates':
+				m.candidates.forEach(function(c) {
+					_onIceCandidate(c.uid, c.candidate);
+				});
 				break;
 			case 'newStream':
 				_play([m.stream], m.iceServers);
 				break;
+			case 'mixStarted':
+				_onMixStarted(m);
+				break;
+			case 'mixStopped':
+				_onMixStopped(m);
+				break;
 			case 'error':
 				OmUtil.error(m.message);
 				break;
@@ -26,11 +26,16 @@ import java.util.Arrays;
 import java.util.List;
 
 import org.apache.openmeetings.core.data.file.FileProcessor;
+import org.apache.openmeetings.core.util.WebSocketHelper;
 import org.apache.openmeetings.db.dao.file.FileItemLogDao;
+import org.apache.openmeetings.db.entity.basic.Client;
 import org.apache.openmeetings.db.entity.file.BaseFileItem;
 import org.apache.openmeetings.db.entity.file.FileItem;
+import org.apache.openmeetings.db.util.ws.RoomMessage;
+import org.apache.openmeetings.db.util.ws.TextRoomMessage;
 import org.apache.openmeetings.util.process.ProcessResult;
 import org.apache.openmeetings.util.process.ProcessResultList;
+import org.apache.openmeetings.web.app.WhiteboardManager;
 import org.apache.openmeetings.web.room.RoomPanel;
 import org.apache.openmeetings.web.util.upload.BootstrapFileUploadBehavior;
 import org.apache.wicket.ajax.AjaxRequestTarget;
@@ -78,6 +83,8 @@ public class UploadDialog extends AbstractFormDialog<String> {
 	@SpringBean
 	private FileProcessor processor;
 	@SpringBean
+	private WhiteboardManager wbm;
+	@SpringBean
 	private FileItemLogDao fileLogDao;
 
 	public UploadDialog(String id, RoomPanel room, RoomFilePanel roomFiles) {
@@ -205,7 +212,12 @@ public class UploadDialog extends AbstractFormDialog<String> {
 				f.setInsertedBy(getUserId());
 
 				try {
-					ProcessResultList logs = processor.processFile(f, fu.getInputStream());
+					// presentation is placed as soon as its first page is ready, rest of pages will be fetched on the fly
+					// errors of background conversion are reported to the uploader, dialog is closed at that time
+					final Client c = room.getClient();
+					ProcessResultList logs = processor.processFile(f, fu.getInputStream()
+							, ready -> wbm.pagesReady(f.getId(), ready, f.getCount())
+							, errs -> WebSocketHelper.sendRoom(new TextRoomMessage(c.getRoomId(), c, RoomMessage.Type.fileConversionFailed, c.getUid())));
 					for (ProcessResult res : logs.getJobs()) {
 						fileLogDao.add(res.getProcess(), f, res);
 					}
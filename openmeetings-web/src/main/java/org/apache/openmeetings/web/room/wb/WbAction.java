@@ -39,4 +39,6 @@ public enum WbAction {
 	, stopRecording
 	, videoStatus
 	, loadVideos
+	, loadSlides
+	, pagesReady
 }
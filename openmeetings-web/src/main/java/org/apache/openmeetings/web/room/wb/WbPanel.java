@@ -26,6 +26,7 @@ import static org.apache.openmeetings.db.dto.room.Whiteboard.ATTR_TYPE;
 import static org.apache.openmeetings.db.dto.room.Whiteboard.ITEMS_KEY;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.ATTR_CLASS;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.PARAM_STATUS;
+import static org.apache.openmeetings.web.app.WhiteboardManager.PARAM_READY;
 import static org.apache.openmeetings.web.room.wb.WbWebSocketHelper.getObjWbJson;
 import static org.apache.openmeetings.web.room.wb.WbWebSocketHelper.getWbJson;
 import static org.apache.wicket.AttributeModifier.append;
@@ -41,6 +42,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -102,10 +104,14 @@ public class WbPanel extends AbstractWbPanel {
 	private static final int DEFAULT_WIDTH = 640;
 	private static final int DEFAULT_HEIGHT = 480;
 	private static final int UNDO_SIZE = 20;
+	private static final int SLIDE_PAGE = 10;
+	private static final String PARAM_FROM = "from";
 	public static final ResourceReference WB_JS_REFERENCE = new JavaScriptResourceReference(WbPanel.class, "wb.js");
 	private final Long roomId;
 	private long wb2save = -1;
 	private final Map<Long, Deque<UndoObject>> undoList = new HashMap<>();
+	private final Map<Long, Integer> initialSlides = new LinkedHashMap<>();
+	private long loadStart = 0;
 	private final NameDialog fileName = new NameDialog("filename") {
 		private static final long serialVersionUID = 1L;
 
@@ -186,6 +192,7 @@ public class WbPanel extends AbstractWbPanel {
 			}
 		}
 		Whiteboards wbs = wbm.get(roomId, langId);
+		loadStart = System.nanoTime();
 		loadWhiteboards(sb, rp.getClient(), wbs, wbm.list(roomId));
 		JSONObject wbj = getWbJson(wbs.getActiveWb());
 		sb.append("WbArea.activateWb(").append(wbj).append(");");
@@ -194,6 +201,7 @@ public class WbPanel extends AbstractWbPanel {
 			sb.append("WbArea.setSlide(").append(wbj.put(ATTR_SLIDE, wb.getSlide())).append(");");
 		}
 		sb.append("WbArea.loadVideos();");
+		loadNextWb(sb);
 	}
 
 	@Override
@@ -251,27 +259,34 @@ public class WbPanel extends AbstractWbPanel {
 				JSONArray arr = new JSONArray();
 				for (Entry<Long, Whiteboard> entry : wbm.list(roomId)) {
 					Whiteboard wb = entry.getValue();
-					for (JSONObject o : wb.list()) {
-						String ft = o.optString(ATTR_FILE_TYPE);
-						if (BaseFileItem.Type.Recording.name().equals(ft) || BaseFileItem.Type.Video.name().equals(ft)) {
-							JSONObject _sts = o.optJSONObject(PARAM_STATUS);
-							if (_sts == null) {
-								continue;
-							}
-							JSONObject sts = new JSONObject(_sts.toString()); //copy
-							sts.put("pos", sts.getDouble("pos") + (System.currentTimeMillis() - sts.getLong(PARAM_UPDATED)) * 1. / 1000);
-							arr.put(new JSONObject()
-									.put("wbId", wb.getId())
-									.put("uid", o.getString("uid"))
-									.put(ATTR_SLIDE, o.getString(ATTR_SLIDE))
-									.put(PARAM_STATUS, sts));
+					for (JSONObject o : wb.list(item -> BaseFileItem.Type.Recording.name().equals(item.getFileType())
+							|| BaseFileItem.Type.Video.name().equals(item.getFileType())))
+					{
+						JSONObject sts = o.optJSONObject(PARAM_STATUS);
+						if (sts == null) {
+							continue;
 						}
+						sts.put("pos", sts.getDouble("pos") + (System.currentTimeMillis() - sts.getLong(PARAM_UPDATED)) * 1. / 1000);
+						arr.put(new JSONObject()
+								.put("wbId", wb.getId())
+								.put("uid", o.getString("uid"))
+								.put(ATTR_SLIDE, o.getString(ATTR_SLIDE))
+								.put(PARAM_STATUS, sts));
 					}
 				}
 				sb.append(arr.toString()).append(");");
 				target.appendJavaScript(sb);
 				return;
 			}
+			case loadSlides:
+			{
+				if (loadStart > 0) {
+					wbm.trackFirstSlide(System.nanoTime() - loadStart);
+					loadStart = 0;
+				}
+				target.appendJavaScript(loadSlides(c, obj.getLong("wbId"), obj.optInt(PARAM_FROM, Integer.MIN_VALUE)));
+				return;
+			}
 			default:
 				break;
 		}
@@ -347,8 +362,7 @@ public class WbPanel extends AbstractWbPanel {
 				{
 					Whiteboard wb = wbm.get(roomId).get(obj.getLong("wbId"));
 					JSONObject o = obj.getJSONObject("obj");
-					wb.put(o.getString("uid"), o);
-					wbm.update(roomId, wb);
+					wbm.put(roomId, wb, o.getString("uid"), o);
 					addUndo(wb.getId(), new UndoObject(UndoObject.Type.add, o));
 					sendWbOthers(WbAction.createObj, obj);
 				}
@@ -364,11 +378,10 @@ public class WbPanel extends AbstractWbPanel {
 						JSONObject po = wb.get(uid);
 						if (po != null) {
 							undo.put(po);
-							wb.put(uid, _o);
+							wbm.put(roomId, wb, uid, _o);
 						}
 					}
 					if (arr.length() != 0) {
-						wbm.update(roomId, wb);
 						addUndo(wb.getId(), new UndoObject(UndoObject.Type.modify, undo));
 					}
 					sendWbOthers(WbAction.modifyObj, obj);
@@ -381,13 +394,12 @@ public class WbPanel extends AbstractWbPanel {
 					JSONArray undo = new JSONArray();
 					for (int i = 0; i < arr.length(); ++i) {
 						JSONObject _o = arr.getJSONObject(i);
-						JSONObject u = wb.remove(_o.getString("uid"));
+						JSONObject u = wbm.remove(roomId, wb, _o.getString("uid"));
 						if (u != null) {
 							undo.put(u);
 						}
 					}
 					if (undo.length() != 0) {
-						wbm.update(roomId, wb);
 						addUndo(wb.getId(), new UndoObject(UndoObject.Type.remove, undo));
 					}
 					sendWbAll(WbAction.deleteObj, obj);
@@ -396,9 +408,8 @@ public class WbPanel extends AbstractWbPanel {
 				case clearSlide:
 				{
 					Whiteboard wb = wbm.get(roomId).get(obj.getLong("wbId"));
-					JSONArray arr = wb.clearSlide(obj.getInt(ATTR_SLIDE));
+					JSONArray arr = wbm.clearSlide(roomId, wb, obj.getInt(ATTR_SLIDE));
 					if (arr.length() != 0) {
-						wbm.update(roomId, wb);
 						addUndo(wb.getId(), new UndoObject(UndoObject.Type.remove, arr));
 					}
 					sendWbAll(WbAction.clearSlide, obj);
@@ -418,8 +429,7 @@ public class WbPanel extends AbstractWbPanel {
 							case add:
 							{
 								JSONObject o = new JSONObject(uo.getObject());
-								wb.remove(o.getString("uid"));
-								wbm.update(roomId, wb);
+								wbm.remove(roomId, wb, o.getString("uid"));
 								sendWbAll(WbAction.deleteObj, obj.put("obj", new JSONArray().put(o)));
 							}
 								break;
@@ -428,9 +438,8 @@ public class WbPanel extends AbstractWbPanel {
 								JSONArray arr = new JSONArray(uo.getObject());
 								for (int i  = 0; i < arr.length(); ++i) {
 									JSONObject o = arr.getJSONObject(i);
-									wb.put(o.getString("uid"), o);
+									wbm.put(roomId, wb, o.getString("uid"), o);
 								}
-								wbm.update(roomId, wb);
 								sendWbAll(WbAction.createObj, obj.put("obj", new JSONArray(uo.getObject())));
 							}
 								break;
@@ -439,9 +448,8 @@ public class WbPanel extends AbstractWbPanel {
 								JSONArray arr = new JSONArray(uo.getObject());
 								for (int i  = 0; i < arr.length(); ++i) {
 									JSONObject o = arr.getJSONObject(i);
-									wb.put(o.getString("uid"), o);
+									wbm.put(roomId, wb, o.getString("uid"), o);
 								}
-								wbm.update(roomId, wb);
 								sendWbAll(WbAction.modifyObj, obj.put("obj", arr));
 							}
 								break;
@@ -457,7 +465,7 @@ public class WbPanel extends AbstractWbPanel {
 					if (po != null && "video".equals(po.getString(ATTR_TYPE))) {
 						JSONObject ns = obj.getJSONObject(PARAM_STATUS);
 						po.put(PARAM_STATUS, ns.put(PARAM_UPDATED, System.currentTimeMillis()));
-						wbm.update(roomId, wb.put(uid, po));
+						wbm.put(roomId, wb, uid, po);
 						obj.put(ATTR_SLIDE, po.getInt(ATTR_SLIDE));
 						sendWbAll(WbAction.videoStatus, obj);
 					}
@@ -502,7 +510,7 @@ public class WbPanel extends AbstractWbPanel {
 					if (consumer != null) {
 						consumer.accept(fi);
 					}
-					return WbWebSocketHelper.addFileUrl(ruid, _file, fi, cl);
+					return addPagesReady(WbWebSocketHelper.addFileUrl(ruid, _file, fi, cl), fi);
 				}
 			}
 		} catch (Exception e) {
@@ -511,6 +519,20 @@ public class WbPanel extends AbstractWbPanel {
 		return _file;
 	}
 
+	/**
+	 * Presentation might be displayed while its pages are still being converted,
+	 * clients should only fetch pages which are ready
+	 */
+	private JSONObject addPagesReady(JSONObject file, BaseFileItem fi) {
+		if (BaseFileItem.Type.Presentation == fi.getType()) {
+			Integer ready = wbm.registerPages(fi.getId(), roomId);
+			if (ready != null) {
+				file.put(PARAM_READY, ready);
+			}
+		}
+		return file;
+	}
+
 	private static JSONArray getArray(JSONObject wb, Function<JSONObject, JSONObject> postprocess) {
 		JSONObject items = wb.getJSONObject(ITEMS_KEY);
 		JSONArray arr = new JSONArray();
@@ -567,11 +589,12 @@ public class WbPanel extends AbstractWbPanel {
 						try (BufferedReader br = Files.newBufferedReader(f.toPath())) {
 							final boolean[] updated = {false};
 							JSONArray arr = getArray(new JSONObject(new JSONTokener(br)), o -> {
-									wb.put(o.getString("uid"), o);
+									wbm.put(roomId, wb, o.getString("uid"), o);
 									updated[0] = true;
 									return addFileUrl(rp.getClient(), wbs.getUid(), o, _f -> updateWbSize(wb, _f));
 								});
 							if (updated[0]) {
+								// size might be changed by loaded files
 								wbm.update(roomId, wb);
 							}
 							sendWbAll(WbAction.setSize, getAddWbJson(wb));
@@ -609,11 +632,11 @@ public class WbPanel extends AbstractWbPanel {
 					if (clean) {
 						clearAll(roomId, wb.getId());
 					}
-					wb.put(wuid, file);
+					wbm.put(roomId, wb, wuid, file);
 					updateWbSize(wb, fi);
 					wbm.update(roomId, wb);
 					sendWbAll(WbAction.setSize, getAddWbJson(wb));
-					WbWebSocketHelper.sendWbFile(roomId, wb.getId(), ruid, file, fi);
+					WbWebSocketHelper.sendWbFile(roomId, wb.getId(), ruid, addPagesReady(file, fi), fi);
 				}
 					break;
 			}
@@ -669,15 +692,61 @@ public class WbPanel extends AbstractWbPanel {
 		return wb.save(f.getFile().toPath());
 	}
 
+	/**
+	 * Only files (presentations, videos etc.) and objects of current slide are being sent on load,
+	 * the rest of the slides are requested by client page by page
+	 */
 	private StringBuilder loadWhiteboards(StringBuilder sb, Client cl, Whiteboards wbs, Set<Entry<Long, Whiteboard>> boardSet) {
+		initialSlides.clear();
+		initialSlides.put(wbs.getActiveWb(), null); // active WB will be loaded first
 		for (Entry<Long, Whiteboard> entry : boardSet) {
 			Whiteboard wb = entry.getValue();
+			final int slide = wb.getSlide();
 			sb.append(new StringBuilder("WbArea.create(").append(getAddWbJson(wb)).append(");"));
 			JSONArray arr = new JSONArray();
-			for (JSONObject o : wb.list()) {
+			for (JSONObject o : wb.list(item -> item.getFileType() != null || item.getSlide() == slide)) {
 				arr.put(addFileUrl(cl, wbs.getUid(), o));
 			}
 			sb.append("WbArea.load(").append(getObjWbJson(entry.getKey(), arr).toString(new NullStringer())).append(");");
+			initialSlides.put(entry.getKey(), slide);
+		}
+		initialSlides.values().removeIf(v -> v == null);
+		return sb;
+	}
+
+	// objects without slide attribute are stored with negative slide, first page should include them
+	private void loadNextWb(StringBuilder sb) {
+		if (!initialSlides.isEmpty()) {
+			sb.append("WbArea.loadSlides(").append(getWbJson(initialSlides.keySet().iterator().next()).put(PARAM_FROM, Integer.MIN_VALUE)).append(");");
+		}
+	}
+
+	private StringBuilder loadSlides(Client cl, Long wbId, int from) {
+		StringBuilder sb = new StringBuilder();
+		Integer initial = initialSlides.get(wbId);
+		Whiteboards wbs = wbm.get(roomId);
+		Whiteboard wb = wbs.get(wbId);
+		if (initial == null || wb == null) {
+			initialSlides.remove(wbId);
+			loadNextWb(sb);
+			return sb;
+		}
+		List<Integer> slides = wb.listSlides();
+		slides.removeIf(sl -> sl < from || sl.equals(initial));
+		JSONArray arr = new JSONArray();
+		for (Integer slide : slides.subList(0, Math.min(SLIDE_PAGE, slides.size()))) {
+			for (JSONObject o : wb.list(slide, item -> item.getFileType() == null)) {
+				arr.put(addFileUrl(cl, wbs.getUid(), o));
+			}
+		}
+		if (arr.length() > 0) {
+			sb.append("WbArea.load(").append(getObjWbJson(wbId, arr).toString(new NullStringer())).append(");");
+		}
+		if (slides.size() > SLIDE_PAGE) {
+			sb.append("WbArea.loadSlides(").append(getWbJson(wbId).put(PARAM_FROM, slides.get(SLIDE_PAGE))).append(");");
+		} else {
+			initialSlides.remove(wbId);
+			loadNextWb(sb);
 		}
 		return sb;
 	}
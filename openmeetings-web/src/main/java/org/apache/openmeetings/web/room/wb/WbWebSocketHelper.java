@@ -21,8 +21,6 @@ package org.apache.openmeetings.web.room.wb;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.PARAM_SRC;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.PARAM__SRC;
 
-import java.util.function.Predicate;
-
 import org.apache.openmeetings.core.util.WebSocketHelper;
 import org.apache.openmeetings.db.entity.basic.Client;
 import org.apache.openmeetings.db.entity.file.BaseFileItem;
@@ -46,11 +44,7 @@ public class WbWebSocketHelper extends WebSocketHelper {
 	public static void send(IClusterWsMessage _m) {
 		if (_m instanceof WsMessageWb) {
 			WsMessageWb m = (WsMessageWb)_m;
-			if (m.getUid() == null) {
-				sendWbAll(m.getRoomId(), m.getMeth(), m.getObj(), false);
-			} else {
-				sendWbOthers(m.getRoomId(), m.getMeth(), m.getObj(), m.getUid(), false);
-			}
+			sendWb(m.getRoomId(), m.getMsg(), m.getUid(), false);
 		} else if (_m instanceof WsMessageWbFile) {
 			WsMessageWbFile m = (WsMessageWbFile)_m;
 			sendWbFile(m.getRoomId(), m.getWbId(), m.getRoomUid(), m.getFile(), m.getFileItem(), false);
@@ -60,25 +54,30 @@ public class WbWebSocketHelper extends WebSocketHelper {
 	}
 
 	public static void sendWbAll(Long roomId, WbAction meth, JSONObject obj) {
-		sendWbAll(roomId, meth, obj, true);
-	}
-
-	private static void sendWbAll(Long roomId, WbAction meth, JSONObject obj, boolean publish) {
-		if (publish) {
-			publish(new WsMessageWb(roomId, meth, obj, null));
-		}
-		sendWb(roomId, meth, obj, null);
+		sendWb(roomId, getWbMessage(meth, obj), null, true);
 	}
 
 	public static void sendWbOthers(Long roomId, WbAction meth, JSONObject obj, final String uid) {
-		sendWbOthers(roomId, meth, obj, uid, true);
+		sendWb(roomId, getWbMessage(meth, obj), uid, true);
 	}
 
-	private static void sendWbOthers(Long roomId, WbAction meth, JSONObject obj, final String uid, boolean publish) {
+	/**
+	 * Message is encoded only once and the same text is sent to all recipients
+	 * on all cluster nodes
+	 */
+	private static void sendWb(Long roomId, String msg, final String uid, boolean publish) {
 		if (publish) {
-			publish(new WsMessageWb(roomId, meth, obj, uid));
+			publish(new WsMessageWb(roomId, msg, uid));
 		}
-		sendWb(roomId, meth, obj, c -> !uid.equals(c.getUid()));
+		WebSocketHelper.sendRoom(roomId, msg, uid == null ? null : c -> !uid.equals(c.getUid()));
+	}
+
+	private static String getWbMessage(WbAction meth, JSONObject obj) {
+		return new JSONObject()
+				.put("type", "wb")
+				.put("func", meth.name())
+				.put("param", obj)
+				.toString(new NullStringer());
 	}
 
 	public static JSONObject getWbJson(Long wbId) {
@@ -169,14 +168,4 @@ public class WbWebSocketHelper extends WebSocketHelper {
 				, (o, c) -> o.put("func", WbAction.createObj.name())
 							.put("param", getObjWbJson(wbId, patchUrls(fi, c, _f))).toString(new NullStringer()));
 	}
-
-	private static void sendWb(Long roomId, WbAction meth, JSONObject obj, Predicate<Client> check) {
-		WebSocketHelper.sendRoom(
-				roomId
-				, new JSONObject().put("type", "wb")
-				, check
-				, (o, c) -> o.put("func", meth.name())
-							.put("param", obj).toString(new NullStringer())
-			);
-	}
 }
@@ -18,22 +18,17 @@
  */
 package org.apache.openmeetings.web.room.wb;
 
-import org.apache.openmeetings.util.NullStringer;
 import org.apache.openmeetings.util.ws.IClusterWsMessage;
 
-import com.github.openjson.JSONObject;
-
 public class WsMessageWb implements IClusterWsMessage {
 	private static final long serialVersionUID = 1L;
 	private final Long roomId;
-	private final WbAction meth;
-	private final String obj;
+	private final String msg;
 	private final String uid;
 
-	public WsMessageWb(Long roomId, WbAction meth, JSONObject obj, String uid) {
+	public WsMessageWb(Long roomId, String msg, String uid) {
 		this.roomId = roomId;
-		this.meth = meth;
-		this.obj = obj.toString(new NullStringer());
+		this.msg = msg;
 		this.uid = uid;
 	}
 
@@ -41,12 +36,8 @@ public class WsMessageWb implements IClusterWsMessage {
 		return roomId;
 	}
 
-	public WbAction getMeth() {
-		return meth;
-	}
-
-	public JSONObject getObj() {
-		return new JSONObject(obj);
+	public String getMsg() {
+		return msg;
 	}
 
 	public String getUid() {
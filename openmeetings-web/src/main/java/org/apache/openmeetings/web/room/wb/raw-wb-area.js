@@ -421,6 +421,20 @@ var DrawWbArea = function() {
 		}
 		wbAction('loadVideos');
 	};
+	self.loadSlides = function(json) {
+		if (!_inited) {
+			return;
+		}
+		wbAction('loadSlides', JSON.stringify(json));
+	};
+	self.pagesReady = function(json) {
+		if (!_inited) {
+			return;
+		}
+		tabs.find('.ui-tabs-panel').each(function() {
+			$(this).data().pagesReady(json.fileId, json.ready);
+		});
+	};
 	self.initVideos = _initVideos;
 	self.addDeleteHandler = function() {
 		if (role === PRESENTER) {
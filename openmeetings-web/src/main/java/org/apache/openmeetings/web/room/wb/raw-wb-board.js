@@ -1,6 +1,6 @@
 /* Licensed under the Apache License, Version 2.0 (the "License") http://www.apache.org/licenses/LICENSE-2.0 */
 var Wb = function() {
-	const ACTIVE = 'active', BUMPER = 100, wb = {id: -1, name: ''}, canvases = []
+	const ACTIVE = 'active', BUMPER = 100, wb = {id: -1, name: ''}, canvases = [], pending = {}
 		, area = $('.room.wb.area .wb-area .tabs.ui-tabs'), bar = area.find('.wb-tabbar')
 		, extraProps = ['uid', 'fileId', 'fileType', 'count', 'slide', 'omType', '_src', 'formula'];
 	let a, t, z, s, f, mode, slide = 0, width = 0, height = 0
@@ -418,6 +418,12 @@ var Wb = function() {
 		_removeHandler(_o);
 		_createHandler(_o);
 	}
+	function _setPage(canvas, _o, i) {
+		let scale = width / _o.width;
+		scale = scale < 1 ? 1 : scale;
+		canvas.setBackgroundImage(_o._src + '&slide=' + i, canvas.renderAll.bind(canvas)
+				, {scaleX: scale, scaleY: scale});
+	}
 	function _createHandler(_o) {
 		switch (_o.fileType) {
 			case 'Video':
@@ -426,7 +432,8 @@ var Wb = function() {
 				break;
 			case 'Presentation':
 			{
-				const ccount = canvases.length;
+				const ccount = canvases.length
+					, ready = _o.ready === undefined ? _o.count : Math.min(_o.ready, _o.count);
 				for (let i = 0; i < _o.count; ++i) {
 					if (canvases.length < i + 1) {
 						addCanvas();
@@ -434,13 +441,13 @@ var Wb = function() {
 					const canvas = canvases[i];
 					if (_o.deleted) {
 						ToolUtil.addDeletedItem(canvas, _o);
-					} else {
-						let scale = width / _o.width;
-						scale = scale < 1 ? 1 : scale;
-						canvas.setBackgroundImage(_o._src + '&slide=' + i, canvas.renderAll.bind(canvas)
-								, {scaleX: scale, scaleY: scale});
+					} else if (i < ready) {
+						_setPage(canvas, _o, i);
 					}
 				}
+				if (!_o.deleted && ready < _o.count) {
+					pending[_o.uid] = _o;
+				}
 				_updateZoomPanel();
 				if (ccount !== canvases.length) {
 					const b = _getBtn();
@@ -882,6 +889,9 @@ var Wb = function() {
 		$('.room.wb.area .wb-video').remove();
 		canvases.splice(1);
 		canvases[0].clear();
+		Object.keys(pending).forEach(function(uid) {
+			delete pending[uid];
+		});
 		_updateZoomPanel();
 	};
 	wb.clearSlide = function(_sl) {
@@ -906,6 +916,22 @@ var Wb = function() {
 			func(canvases[i]);
 		}
 	};
+	wb.pagesReady = function(fileId, ready) {
+		for (let uid in pending) {
+			const _o = pending[uid];
+			if (_o.fileId !== fileId) {
+				continue;
+			}
+			const to = Math.min(ready, _o.count, canvases.length);
+			for (let i = _o.ready; i < to; ++i) {
+				_setPage(canvases[i], _o, i);
+			}
+			_o.ready = Math.max(_o.ready, to);
+			if (_o.ready >= _o.count) {
+				delete pending[uid];
+			}
+		}
+	};
 	wb.videoStatus = _videoStatus;
 	wb.getRole = function() {
 		return role;
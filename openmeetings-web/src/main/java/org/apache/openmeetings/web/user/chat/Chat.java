@@ -20,6 +20,7 @@ package org.apache.openmeetings.web.user.chat;
 
 import static org.apache.openmeetings.core.util.WebSocketHelper.ID_ALL;
 import static org.apache.openmeetings.core.util.WebSocketHelper.ID_ROOM_PREFIX;
+import static org.apache.openmeetings.core.util.WebSocketHelper.ID_USER_PREFIX;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_DASHBOARD_SHOW_CHAT;
 import static org.apache.openmeetings.web.app.WebSession.getUserId;
 import static org.apache.openmeetings.web.room.RoomPanel.isModerator;
@@ -31,12 +32,14 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
 import org.apache.openmeetings.core.util.WebSocketHelper;
 import org.apache.openmeetings.db.dao.basic.ChatDao;
 import org.apache.openmeetings.db.dao.basic.ConfigurationDao;
+import org.apache.openmeetings.db.dao.room.RoomDao;
 import org.apache.openmeetings.db.dao.user.UserDao;
 import org.apache.openmeetings.db.entity.basic.ChatMessage;
 import org.apache.openmeetings.db.entity.basic.Client;
@@ -58,6 +61,7 @@ import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.openjson.JSONArray;
 import com.github.openjson.JSONObject;
 
 public class Chat extends Panel {
@@ -66,6 +70,8 @@ public class Chat extends Panel {
 	private static final String PARAM_MSG_ID = "msgid";
 	private static final String PARAM_ROOM_ID = "roomid";
 	private static final String PARAM_TYPE = "type";
+	private static final String PARAM_SCOPE = "scope";
+	private static final int PAGE_SIZE = 30;
 	private boolean showDashboardChat;
 	private final AbstractDefaultAjaxBehavior chatActivity = new AbstractDefaultAjaxBehavior() {
 		private static final long serialVersionUID = 1L;
@@ -101,6 +107,31 @@ public class Chat extends Panel {
 		}
 	};
 
+	private final AbstractDefaultAjaxBehavior loadOlder = new AbstractDefaultAjaxBehavior() {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected void respond(AjaxRequestTarget target) {
+			final String scope = getRequest().getRequestParameters().getParameterValue(PARAM_SCOPE).toString("");
+			JSONObject msg;
+			try {
+				long msgId = getRequest().getRequestParameters().getParameterValue(PARAM_MSG_ID).toLong(Long.MAX_VALUE);
+				List<ChatMessage> list = getOlder(scope, msgId);
+				msg = getMessage(list).put("more", list.size() == PAGE_SIZE);
+			} catch (Exception e) {
+				log.error("Unexpected exception while loading older chat messages", e);
+				// empty response, client should be able to retry
+				msg = new JSONObject()
+						.put("type", "chat")
+						.put("msg", new JSONArray())
+						.put("more", true);
+			}
+			target.appendJavaScript(String.format("Chat.addMessage(%s);", msg
+					.put("mode", "older")
+					.put(PARAM_SCOPE, scope)));
+		}
+	};
+
 	@SpringBean
 	private ClientManager cm;
 	@SpringBean
@@ -109,6 +140,8 @@ public class Chat extends Panel {
 	private ChatDao chatDao;
 	@SpringBean
 	private UserDao userDao;
+	@SpringBean
+	private RoomDao roomDao;
 
 	public Chat(String id) {
 		super(id);
@@ -119,7 +152,7 @@ public class Chat extends Panel {
 
 	@Override
 	protected void onInitialize() {
-		add(chatActivity);
+		add(chatActivity, loadOlder);
 		add(new ChatForm("sendForm"));
 		super.onInitialize();
 	}
@@ -128,6 +161,32 @@ public class Chat extends Panel {
 		return findParent(MainPanel.class).getClient();
 	}
 
+	/**
+	 * Next page of the chat history, messages older than given one are read using the index
+	 *
+	 * @param scope - id of the chat tab
+	 * @param beforeId - id of the oldest message already displayed
+	 * @return list of messages, newest first
+	 */
+	private List<ChatMessage> getOlder(String scope, long beforeId) {
+		if (ID_ALL.equals(scope)) {
+			if (showDashboardChat) {
+				return chatDao.getGlobalBefore(beforeId, PAGE_SIZE);
+			}
+		} else if (scope.startsWith(ID_ROOM_PREFIX)) {
+			Long roomId = Long.valueOf(scope.substring(ID_ROOM_PREFIX.length()));
+			Client c = getClient();
+			Room r = roomDao.get(roomId);
+			if (r != null && c != null && roomId.equals(c.getRoomId())) {
+				return chatDao.getRoomBefore(roomId, beforeId, PAGE_SIZE, !r.isChatModerated() || isModerator(cm, getUserId(), roomId));
+			}
+		} else if (scope.startsWith(ID_USER_PREFIX)) {
+			long withId = Long.parseLong(scope.substring(ID_USER_PREFIX.length()));
+			return chatDao.getUserBefore(getUserId(), withId, beforeId, PAGE_SIZE);
+		}
+		return Collections.emptyList();
+	}
+
 	public JSONObject getMessage(List<ChatMessage> list) {
 		final Client c = getClient();
 		final User curUser = c == null ? userDao.get(getUserId()) : c.getUser();
@@ -158,7 +217,7 @@ public class Chat extends Panel {
 	public CharSequence addRoom(Room r) {
 		StringBuilder sb = new StringBuilder();
 		sb.append(String.format("Chat.addTab('%1$s%2$d', '%3$s %2$d');", ID_ROOM_PREFIX, r.getId(), getString("406")));
-		List<ChatMessage> list = chatDao.getRoom(r.getId(), 0, 30, !r.isChatModerated() || isModerator(cm, getUserId(), r.getId()));
+		List<ChatMessage> list = chatDao.getRoomBefore(r.getId(), Long.MAX_VALUE, PAGE_SIZE, !r.isChatModerated() || isModerator(cm, getUserId(), r.getId()));
 		if (!list.isEmpty()) {
 			sb.append("Chat.addMessage(").append(getMessage(list).toString()).append(");");
 		}
@@ -170,11 +229,12 @@ public class Chat extends Panel {
 		super.renderHead(response);
 		response.render(new PriorityHeaderItem(JavaScriptHeaderItem.forReference(new JavaScriptResourceReference(Chat.class, "chat.js"))));
 		response.render(new PriorityHeaderItem(getNamedFunction("chatActivity", chatActivity, explicit(PARAM_TYPE), explicit(PARAM_ROOM_ID), explicit(PARAM_MSG_ID))));
+		response.render(new PriorityHeaderItem(getNamedFunction("chatLoadOlder", loadOlder, explicit(PARAM_SCOPE), explicit(PARAM_MSG_ID))));
 
 		if (showDashboardChat) {
 			StringBuilder sb = new StringBuilder(getReinit());
-			List<ChatMessage> list = new ArrayList<>(chatDao.getGlobal(0, 30));
-			list.addAll(chatDao.getUserRecent(getUserId(), Date.from(Instant.now().minus(Duration.ofHours(1L))), 0, 30));
+			List<ChatMessage> list = new ArrayList<>(chatDao.getGlobalBefore(Long.MAX_VALUE, PAGE_SIZE));
+			list.addAll(chatDao.getUserRecent(getUserId(), Date.from(Instant.now().minus(Duration.ofHours(1L))), 0, PAGE_SIZE));
 			if (!list.isEmpty()) {
 				sb.append("Chat.addMessage(").append(getMessage(list).toString()).append(");");
 			}
@@ -28,10 +28,17 @@ import static org.apache.openmeetings.web.common.BasePanel.EVT_CLICK;
 import static org.apache.openmeetings.web.room.RoomPanel.isModerator;
 import static org.apache.wicket.util.time.Duration.NONE;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongFunction;
 
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.lang3.time.FastDateFormat;
 import org.apache.openmeetings.db.dao.basic.ChatDao;
 import org.apache.openmeetings.db.entity.basic.ChatMessage;
 import org.apache.openmeetings.db.entity.user.User;
@@ -46,10 +53,8 @@ import org.apache.wicket.extensions.ajax.AjaxDownloadBehavior;
 import org.apache.wicket.markup.html.WebMarkupContainer;
 import org.apache.wicket.markup.html.panel.Panel;
 import org.apache.wicket.model.IModel;
-import org.apache.wicket.request.resource.ResourceStreamResource;
+import org.apache.wicket.request.resource.AbstractResource;
 import org.apache.wicket.spring.injection.annot.SpringBean;
-import org.apache.wicket.util.resource.IResourceStream;
-import org.apache.wicket.util.resource.StringResourceStream;
 
 import com.googlecode.wicket.jquery.core.IJQueryWidget.JQueryWidget;
 import com.googlecode.wicket.jquery.ui.plugins.wysiwyg.toolbar.IWysiwygToolbar;
@@ -65,78 +70,85 @@ public class ChatToolbar extends Panel implements IWysiwygToolbar {
 	private final WebMarkupContainer save = new WebMarkupContainer("save");
 	private final ChatForm chatForm;
 	private ConfirmableAjaxBorder delBtn;
-	private final AjaxDownloadBehavior download = new AjaxDownloadBehavior(new ResourceStreamResource() {
+	private final AjaxDownloadBehavior download = new AjaxDownloadBehavior(new AbstractResource() {
 		private static final long serialVersionUID = 1L;
+		private static final int PAGE_SIZE = 1000;
 		private static final char DELIMITER = ',';
 		private static final char QUOTE_CHAR = '"';
 		private final String quoteReplacement = new StringBuilder().append(QUOTE_CHAR).append(QUOTE_CHAR).toString();
 
-		{
-			setCacheDuration(NONE);
-		}
-
 		@Override
 		protected ResourceResponse newResourceResponse(Attributes attributes) {
-			ResourceResponse rr = super.newResourceResponse(attributes);
+			ResourceResponse rr = new ResourceResponse();
+			rr.setCacheDuration(NONE);
 			final boolean admin = hasAdminLevel(getRights());
-			if (!chatForm.process(
-					() -> admin
-					, r -> admin || isModerator(cm, getUserId(), r.getId())
-					, u -> true))
-			{
-				rr.setError(HttpServletResponse.SC_FORBIDDEN);
-			}
-			return rr;
-		}
-
-		private String getName(User u) {
-			return String.format("%s %s", u.getFirstname(), u.getLastname());
-		}
-
-		private StringBuilder appendQuoted(StringBuilder sb, String value) {
-			return sb.append(QUOTE_CHAR).append(value == null ? "" : value.replace(String.valueOf(QUOTE_CHAR), quoteReplacement)).append(QUOTE_CHAR);
-		}
-
-		private void export(List<ChatMessage> list, StringBuilder sb) {
-			String lineDelim = "";
-			for (ChatMessage msg : list) {
-				sb.append(lineDelim);
-				appendQuoted(sb, getName(msg.getFromUser())).append(DELIMITER);
-				appendQuoted(sb, getDateFormat().format(msg.getSent())).append(DELIMITER);
-				appendQuoted(sb, msg.getMessage());
-				lineDelim = "\r\n";
-			}
-		}
-
-		@Override
-		protected IResourceStream getResourceStream(Attributes attributes) {
-			final boolean admin = hasAdminLevel(getRights());
-			final StringBuilder sb = new StringBuilder();
+			final AtomicReference<LongFunction<List<ChatMessage>>> pager = new AtomicReference<>();
 			chatForm.process(
 					() -> {
 						if (admin) {
-							setFileName(String.format(CHAT_FNAME_TMPL, "global"));
-							export(chatDao.getGlobal(0, Integer.MAX_VALUE), sb);
+							rr.setFileName(String.format(CHAT_FNAME_TMPL, "global"));
+							pager.set(before -> chatDao.getGlobalBefore(before, PAGE_SIZE));
 						}
 						return true;
 					}
 					, r -> {
 						if (admin || isModerator(cm, getUserId(), r.getId())) {
-							setFileName(String.format(CHAT_FNAME_TMPL, "room_" + r.getId()));
-							export(chatDao.getRoom(r.getId(), 0, Integer.MAX_VALUE, true), sb);
+							rr.setFileName(String.format(CHAT_FNAME_TMPL, "room_" + r.getId()));
+							pager.set(before -> chatDao.getRoomBefore(r.getId(), before, PAGE_SIZE, true));
 						}
 						return true;
 					}, u -> {
-						setFileName(String.format(CHAT_FNAME_TMPL, "user_" + u.getId()));
-						export(chatDao.getUser(u.getId(), 0, Integer.MAX_VALUE), sb);
+						rr.setFileName(String.format(CHAT_FNAME_TMPL, "user_" + u.getId()));
+						pager.set(before -> chatDao.getUserBefore(u.getId(), before, PAGE_SIZE));
 						return true;
 					});
-			StringResourceStream srs = new StringResourceStream(sb, "text/csv");
-			srs.setCharset(UTF_8);
-			return srs;
+			if (pager.get() == null) {
+				rr.setError(HttpServletResponse.SC_FORBIDDEN);
+				return rr;
+			}
+			rr.setContentType("text/csv");
+			rr.setTextEncoding(UTF_8.name());
+			rr.setWriteCallback(new WriteCallback() {
+				@Override
+				public void writeData(Attributes attributes) throws IOException {
+					Writer w = new BufferedWriter(new OutputStreamWriter(attributes.getResponse().getOutputStream(), UTF_8));
+					export(pager.get(), w);
+					w.flush();
+				}
+			});
+			return rr;
+		}
+
+		private String getName(User u) {
+			return String.format("%s %s", u.getFirstname(), u.getLastname());
+		}
+
+		private Writer appendQuoted(Writer w, String value) throws IOException {
+			return w.append(QUOTE_CHAR).append(value == null ? "" : value.replace(String.valueOf(QUOTE_CHAR), quoteReplacement)).append(QUOTE_CHAR);
 		}
-	});
 
+		/*
+		 * Messages are read page by page and written directly to the response,
+		 * so only single page is kept in memory
+		 */
+		private void export(LongFunction<List<ChatMessage>> pager, Writer w) throws IOException {
+			final FastDateFormat fmt = getDateFormat();
+			String lineDelim = "";
+			long before = Long.MAX_VALUE;
+			List<ChatMessage> page;
+			do {
+				page = pager.apply(before);
+				for (ChatMessage msg : page) {
+					w.append(lineDelim);
+					appendQuoted(w, getName(msg.getFromUser())).append(DELIMITER);
+					appendQuoted(w, fmt.format(msg.getSent())).append(DELIMITER);
+					appendQuoted(w, msg.getMessage());
+					lineDelim = "\r\n";
+					before = msg.getId();
+				}
+			} while (page.size() == PAGE_SIZE);
+		}
+	});
 	@SpringBean
 	private ClientManager cm;
 	@SpringBean
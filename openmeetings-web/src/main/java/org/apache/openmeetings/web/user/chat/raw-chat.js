@@ -130,6 +130,9 @@ var Chat = function() {
 			return (className.match (/(^|\s)ui-icon-caret-\S+/g) || []).join(' ');
 		});
 		initToolbar();
+		$('#chat .messageArea').each(function() {
+			_initArea($(this));
+		});
 		tabs = $("#chatTabs").tabs({
 			activate: function(event, ui) {
 				const ct = ui.newPanel[0].id;
@@ -206,11 +209,89 @@ var Chat = function() {
 		}
 		tabs.find(".ui-tabs-nav").append(li);
 		tabs.append("<div class='messageArea' id='" + id + "'></div>");
+		_initArea($('#' + id));
 		tabs.tabs("refresh");
 		activateTab(id);
 	}
+	function _initArea(area) {
+		area.off('scroll.older').on('scroll.older', function() {
+			if (area.scrollTop() === 0) {
+				_loadOlder(area);
+			}
+		});
+	}
+	function _loadOlder(area) {
+		const oldest = area.data('oldest');
+		if (!oldest || area.data('loading') || area.data('complete') || typeof(chatLoadOlder) !== 'function') {
+			return;
+		}
+		area.data('loading', true);
+		chatLoadOlder(area.attr('id'), oldest);
+	}
+	function _setOldest(area, id) {
+		const oldest = area.data('oldest');
+		if (!oldest || id < oldest) {
+			area.data('oldest', id);
+		}
+	}
+	function _getMessage(cm) {
+		const msg = OmUtil.tmpl('#chat-msg-template', msgIdPrefix + cm.id);
+		msg.find('.user-row').css('background-image', 'url(' + (!!cm.from.img ? cm.from.img : './profile/' + cm.from.id + '?anticache=' + Date.now()) + ')');
+		msg.find('.from').addClass(align).data('user-id', cm.from.id).html(cm.from.name || cm.from.displayName);
+		msg.find('.time').addClass(alignIco).html(cm.time).attr('title', cm.sent);
+		const icons = msg.find('.icons').addClass(align)
+			.append(OmUtil.tmpl('#chat-info-template').addClass(alignIco).data('user-id', cm.from.id));
+		if ('full' === cm.actions) {
+			icons.append(OmUtil.tmpl('#chat-add-template').addClass(alignIco).data('user-id', cm.from.id))
+				.append(OmUtil.tmpl('#chat-message-template').addClass(alignIco).data('user-id', cm.from.id))
+				.append(OmUtil.tmpl('#chat-invite-template').addClass(alignIco).data('user-id', cm.from.id));
+		}
+		if (cm.needModeration) {
+			msg.append(OmUtil.tmpl('#chat-accept-template')
+					.data('msgid', cm.id).data('roomid', cm.scope.substring(9)).find('.tick').addClass(alignIco));
+		}
+		return msg;
+	}
+	function _addOlder(m) {
+		const area = $('#' + m.scope);
+		if (!area.length) {
+			return;
+		}
+		area.data('loading', false);
+		if (!m.more) {
+			area.data('complete', true);
+		}
+		const items = [], height = area[0].scrollHeight;
+		let cm, lastDate;
+		// messages are ordered newest first
+		while (!!(cm = m.msg.pop())) {
+			if (lastDate !== cm.date) {
+				items.push(OmUtil.tmpl('#chat-date-template').html(cm.date));
+				lastDate = cm.date;
+			}
+			const msg = _getMessage(cm);
+			msg.find('.msg').addClass(align).html(emoticon.emoticonize(!!cm.message ? cm.message : ""));
+			items.push(msg);
+			_setOldest(area, cm.id);
+		}
+		if (!items.length) {
+			return;
+		}
+		const first = area.children().first();
+		if (first.hasClass('date-row') && first.html() === lastDate) {
+			first.remove();
+		}
+		area.prepend(items);
+		// keep the message user was looking at in place
+		area.scrollTop(area[0].scrollHeight - height);
+		emoticon.animate();
+	}
 	function _addMessage(m) {
 		if ($('#chat').length > 0 && m && m.type === "chat") {
+			if (m.mode === "older") {
+				_addOlder(m);
+				return;
+			}
 			if (isClosed()) {
 				ctrl.addClass('ui-state-highlight');
 				if (p.is(':visible') && !muted) {
@@ -230,21 +311,7 @@ var Chat = function() {
 			let msg, cm;
 			while (!!(cm = m.msg.pop())) {
 				let area = $('#' + cm.scope);
-				msg = OmUtil.tmpl('#chat-msg-template', msgIdPrefix + cm.id)
-				msg.find('.user-row').css('background-image', 'url(' + (!!cm.from.img ? cm.from.img : './profile/' + cm.from.id + '?anticache=' + Date.now()) + ')');
-				msg.find('.from').addClass(align).data('user-id', cm.from.id).html(cm.from.name || cm.from.displayName);
-				msg.find('.time').addClass(alignIco).html(cm.time).attr('title', cm.sent);
-				const icons = msg.find('.icons').addClass(align)
-					.append(OmUtil.tmpl('#chat-info-template').addClass(alignIco).data('user-id', cm.from.id));
-				if ('full' === cm.actions) {
-					icons.append(OmUtil.tmpl('#chat-add-template').addClass(alignIco).data('user-id', cm.from.id))
-						.append(OmUtil.tmpl('#chat-message-template').addClass(alignIco).data('user-id', cm.from.id))
-						.append(OmUtil.tmpl('#chat-invite-template').addClass(alignIco).data('user-id', cm.from.id));
-				}
-				if (cm.needModeration) {
-					msg.append(OmUtil.tmpl('#chat-accept-template')
-							.data('msgid', cm.id).data('roomid', cm.scope.substring(9)).find('.tick').addClass(alignIco));
-				}
+				msg = _getMessage(cm);
 				if (!area.length) {
 					_addTab(cm.scope, cm.scopeName);
 					area = $('#' + cm.scope);
@@ -258,6 +325,7 @@ var Chat = function() {
 					area.data('lastDate', cm.date);
 				}
 				area.append(msg);
+				_setOldest(area, cm.id);
 				msg.find('.msg').addClass(align).html(emoticon.emoticonize(!!cm.message ? cm.message : ""));
 				if (btm) {
 					_scrollDown(area);
@@ -44,6 +44,25 @@ public class TestConfig extends AbstractJUnitDefaults {
 		assertNull(smtp_server.getUser());
 	}
 
+	@Test
+	public void testCacheInvalidation() {
+		Configuration c = cfgDao.forceGet(CONFIG_SMTP_SERVER);
+		String prev = c.getValue();
+		try {
+			c.setValue("cached.example.com");
+			cfgDao.update(c, null);
+			assertEquals("cached.example.com", cfgDao.getString(CONFIG_SMTP_SERVER, null));
+			c = cfgDao.forceGet(CONFIG_SMTP_SERVER);
+			c.setValue("updated.example.com");
+			cfgDao.update(c, null);
+			assertEquals("Cached value should be invalidated", "updated.example.com", cfgDao.getString(CONFIG_SMTP_SERVER, null));
+		} finally {
+			c = cfgDao.forceGet(CONFIG_SMTP_SERVER);
+			c.setValue(prev);
+			cfgDao.update(c, null);
+		}
+	}
+
 	@Test
 	public void getConfigs() {
 		try {
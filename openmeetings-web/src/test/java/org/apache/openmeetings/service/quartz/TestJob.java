@@ -20,8 +20,11 @@ package org.apache.openmeetings.service.quartz;
 
 import static org.apache.openmeetings.util.OpenmeetingsVariables.CONFIG_DASHBOARD_SHOW_RSS;
 import static org.apache.openmeetings.util.OpenmeetingsVariables.setInitComplete;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 
 import org.apache.openmeetings.AbstractWicketTester;
+import org.apache.openmeetings.core.util.ClusterJobs;
 import org.apache.openmeetings.db.entity.basic.Configuration;
 import org.apache.openmeetings.service.quartz.scheduler.CleanupJob;
 import org.apache.openmeetings.service.quartz.scheduler.ReminderJob;
@@ -73,4 +76,15 @@ public class TestJob extends AbstractWicketTester {
 	public void testRssEnabled() {
 		testRss(true, () -> reminderJob.loadRss());
 	}
+
+	@Test
+	public void testSingleMemberOwnsJobs() {
+		cleanJob.cleanSessions();
+		cleanJob.cleanPersonalData();
+		for (String job : new String[] {"cleanSessions", "cleanPersonalData"}) {
+			ClusterJobs.Stats s = ClusterJobs.getStats().get(job);
+			assertNotNull("Stats should be collected for " + job, s);
+			assertEquals("Job should not be skipped by the only member", 0, s.getSkipped());
+		}
+	}
 }
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openmeetings.web.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongPredicate;
+import java.util.stream.Collectors;
+
+import org.apache.openmeetings.AbstractWicketTester;
+import org.apache.openmeetings.db.entity.basic.Client;
+import org.apache.openmeetings.db.entity.room.Room;
+import org.apache.openmeetings.db.entity.user.User;
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+public class TestClientManager extends AbstractWicketTester {
+	private static final Logger log = LoggerFactory.getLogger(TestClientManager.class);
+	private static final int USER_COUNT = 20;
+	private static final int CLIENT_COUNT = 2000;
+	private static final int ROOM_COUNT = 10;
+	private static final int LOOKUP_COUNT = 10000;
+	private final List<Client> clients = new ArrayList<>();
+	@Autowired
+	private ClientManager cm;
+
+	@After
+	public void cleanup() {
+		clients.forEach(cm::exit);
+	}
+
+	private static Room getRoom(long id) {
+		Room r = new Room();
+		r.setId(id);
+		return r;
+	}
+
+	private static double measure(LongPredicate lookup) {
+		// warm-up
+		for (int i = 0; i < LOOKUP_COUNT; ++i) {
+			lookup.test(i);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < LOOKUP_COUNT; ++i) {
+			lookup.test(i);
+		}
+		return (System.nanoTime() - start) / (LOOKUP_COUNT * 1000.);
+	}
+
+	private static void compare(String name, LongPredicate indexed, LongPredicate scan) {
+		double idx = measure(indexed);
+		double full = measure(scan);
+		log.info("{}: {} microseconds per indexed lookup, {} per scan with {} clients online", name, idx, full, CLIENT_COUNT);
+		assertTrue(name + " should be faster than scan of all clients", idx < full);
+	}
+
+	private static Set<String> uids(Iterable<Client> list) {
+		Set<String> result = new HashSet<>();
+		for (Client c : list) {
+			result.add(c.getUid());
+		}
+		return result;
+	}
+
+	/**
+	 * Checks indexed lookups against full scan of clients stored in the map
+	 */
+	private void assertIndex(List<User> users, long roomBase) {
+		final List<Client> all = cm.list();
+		for (User u : users) {
+			final Long userId = u.getId();
+			Set<String> expected = all.stream().filter(c -> userId.equals(c.getUserId())).map(Client::getUid).collect(Collectors.toSet());
+			assertEquals("Clients by user should match", expected, uids(cm.listByUser(userId)));
+			assertEquals("Online state should match", !expected.isEmpty(), cm.isOnline(userId));
+			Set<Long> rooms = all.stream().filter(c -> userId.equals(c.getUserId()) && c.getRoomId() != null)
+					.map(Client::getRoomId).collect(Collectors.toSet());
+			assertEquals("Rooms by user should match", rooms, cm.listRoomIds(userId));
+			for (long roomId = roomBase; roomId < roomBase + ROOM_COUNT; ++roomId) {
+				assertEquals("In room state should match", rooms.contains(roomId), cm.isInRoom(roomId, userId));
+			}
+		}
+		for (long roomId = roomBase; roomId < roomBase + ROOM_COUNT; ++roomId) {
+			final long rId = roomId;
+			Set<String> expected = all.stream().filter(c -> Long.valueOf(rId).equals(c.getRoomId())).map(Client::getUid).collect(Collectors.toSet());
+			assertEquals("Clients by room should match", expected, uids(cm.listByRoom(roomId)));
+		}
+	}
+
+	@Test
+	public void testLookups() throws Exception {
+		final long roomBase = Long.MAX_VALUE - ROOM_COUNT;
+		List<User> users = new ArrayList<>();
+		for (int i = 0; i < USER_COUNT; ++i) {
+			users.add(createUser());
+		}
+		for (int i = 0; i < CLIENT_COUNT; ++i) {
+			User u = users.get(i % USER_COUNT);
+			Client c = new Client(String.format("session%s", i % (CLIENT_COUNT / 2)), i, u.getId(), userDao);
+			cm.add(c);
+			clients.add(c);
+		}
+		assertIndex(users, roomBase);
+		for (int i = 0; i < ROOM_COUNT * USER_COUNT; ++i) {
+			cm.addToRoom(clients.get(i).setRoom(getRoom(roomBase + i / USER_COUNT)));
+		}
+		assertIndex(users, roomBase);
+		final User first = users.get(0);
+		assertTrue("User should be online", cm.isOnline(first.getId()));
+		assertFalse("Not existing user should not be online", cm.isOnline(-1L));
+		assertEquals(CLIENT_COUNT / USER_COUNT, cm.listByUser(first.getId()).size());
+		assertEquals(ROOM_COUNT, cm.listRoomIds(first.getId()).size());
+		assertTrue("User should be in room", cm.isInRoom(roomBase, first.getId()));
+		assertFalse("User should not be in room", cm.isInRoom(roomBase - 1, first.getId()));
+
+		// scan works on local snapshot, so only search itself is compared
+		final List<Client> snapshot = cm.list();
+		// every second lookup is made for offline user, so scan can't stop early
+		final LongPredicate online = i -> cm.isOnline(i % 2 == 0 ? users.get((int)(i % USER_COUNT)).getId() : -i);
+		compare("isOnline", online, i -> {
+			final Long userId = i % 2 == 0 ? users.get((int)(i % USER_COUNT)).getId() : -i;
+			return snapshot.stream().anyMatch(c -> userId.equals(c.getUserId()));
+		});
+		compare("isInRoom", i -> cm.isInRoom(roomBase + i % ROOM_COUNT, users.get((int)(i % USER_COUNT)).getId()), i -> {
+			final Long roomId = roomBase + i % ROOM_COUNT;
+			final Long userId = users.get((int)(i % USER_COUNT)).getId();
+			return snapshot.stream().anyMatch(c -> userId.equals(c.getUserId()) && roomId.equals(c.getRoomId()));
+		});
+		compare("listRoomIds", i -> !cm.listRoomIds(users.get((int)(i % USER_COUNT)).getId()).isEmpty(), i -> {
+			final Long userId = users.get((int)(i % USER_COUNT)).getId();
+			return !snapshot.stream().filter(c -> userId.equals(c.getUserId()) && c.getRoomId() != null)
+					.map(Client::getRoomId).collect(Collectors.toSet()).isEmpty();
+		});
+
+		Client c = clients.get(0);
+		cm.invalidate(c.getUserId(), c.getSessionId());
+		assertEquals("Client should be removed", null, cm.get(c.getUid()));
+		assertEquals(CLIENT_COUNT / USER_COUNT - 1, cm.listByUser(first.getId()).size());
+		assertIndex(users, roomBase);
+		Application.removeInvalidSession(c.getSessionId());
+
+		// all clients of the user exit, no stale entries should be left
+		for (Client uc : clients) {
+			if (first.getId().equals(uc.getUserId())) {
+				cm.exit(uc);
+			}
+		}
+		assertFalse("User should not be online", cm.isOnline(first.getId()));
+		assertTrue("No clients should be found", cm.listByUser(first.getId()).isEmpty());
+		assertTrue("No rooms should be found", cm.listRoomIds(first.getId()).isEmpty());
+		assertFalse("User should not be in room", cm.isInRoom(roomBase, first.getId()));
+		assertIndex(users, roomBase);
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openmeetings.web.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.openmeetings.AbstractWicketTester;
+import org.apache.openmeetings.db.entity.basic.Client;
+import org.apache.openmeetings.db.entity.room.Room;
+import org.apache.openmeetings.db.util.ws.RoomMessage;
+import org.apache.wicket.protocol.ws.WebSocketSettings;
+import org.apache.wicket.protocol.ws.api.IWebSocketConnection;
+import org.apache.wicket.protocol.ws.api.registry.IWebSocketConnectionRegistry;
+import org.apache.wicket.protocol.ws.api.registry.PageIdKey;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.github.openjson.JSONObject;
+
+public class TestQuickPollManager extends AbstractWicketTester {
+	private static final long ROOM_ID = Long.MAX_VALUE - 3;
+	private final List<Client> clients = new ArrayList<>();
+	private final AtomicInteger updates = new AtomicInteger();
+	@Autowired
+	private ClientManager cm;
+	@Autowired
+	private QuickPollManager qpollManager;
+
+	private IWebSocketConnectionRegistry getRegistry() {
+		return WebSocketSettings.Holder.get(tester.getApplication()).getConnectionRegistry();
+	}
+
+	private IWebSocketConnection mockConnection() {
+		return (IWebSocketConnection)Proxy.newProxyInstance(getClass().getClassLoader()
+				, new Class<?>[] {IWebSocketConnection.class}
+				, (proxy, method, args) -> {
+					switch (method.getName()) {
+						case "isOpen":
+							return true;
+						case "sendMessage":
+							if (args[0] instanceof RoomMessage && RoomMessage.Type.quickPollUpdated == ((RoomMessage)args[0]).getType()) {
+								updates.incrementAndGet();
+							}
+							return proxy;
+						case "hashCode":
+							return System.identityHashCode(proxy);
+						case "equals":
+							return proxy == args[0];
+						default:
+							return null;
+					}
+				});
+	}
+
+	private Client addClient(Room.Right... rights) throws Exception {
+		Room r = new Room();
+		r.setId(ROOM_ID);
+		Client c = new Client(String.format("qpollsession%s", clients.size()), clients.size(), createUser().getId(), userDao);
+		c.allow(rights);
+		cm.add(c);
+		cm.addToRoom(c.setRoom(r));
+		clients.add(c);
+		return c;
+	}
+
+	@After
+	public void cleanup() {
+		for (Client c : clients) {
+			getRegistry().removeConnection(tester.getApplication(), c.getSessionId(), new PageIdKey(c.getPageId()));
+			if (c.hasRight(Room.Right.presenter)) {
+				qpollManager.close(c);
+			}
+			cm.exit(c);
+		}
+	}
+
+	@Test
+	public void testDoubleVote() throws Exception {
+		Client presenter = addClient(Room.Right.presenter);
+		Client voter = addClient();
+		qpollManager.start(presenter);
+		qpollManager.vote(voter, true);
+		qpollManager.vote(voter, true);
+		qpollManager.vote(voter, false);
+		JSONObject o = qpollManager.toJson(ROOM_ID, voter.getUserId());
+		assertEquals("Only first vote should be counted", 1, o.getLong("pros"));
+		assertEquals("Only first vote should be counted", 0, o.getLong("cons"));
+	}
+
+	@Test
+	public void testCounts() throws Exception {
+		Client presenter = addClient(Room.Right.presenter);
+		assertFalse("Poll should not be started", qpollManager.toJson(ROOM_ID, presenter.getUserId()).getBoolean("started"));
+		qpollManager.start(presenter);
+		Client voter = null;
+		for (int i = 0; i < 5; ++i) {
+			voter = addClient();
+			qpollManager.vote(voter, i < 3);
+		}
+		JSONObject o = qpollManager.toJson(ROOM_ID, voter.getUserId());
+		assertTrue("Poll should be started", o.getBoolean("started"));
+		assertEquals(3, o.getLong("pros"));
+		assertEquals(2, o.getLong("cons"));
+		assertTrue("Voter should be marked as voted", o.getBoolean("voted"));
+		assertFalse("Presenter has not voted", qpollManager.toJson(ROOM_ID, presenter.getUserId()).getBoolean("voted"));
+	}
+
+	@Test
+	public void testCoalescedUpdate() throws Exception {
+		Client presenter = addClient(Room.Right.presenter);
+		List<Client> voters = new ArrayList<>();
+		for (int i = 0; i < 20; ++i) {
+			voters.add(addClient());
+		}
+		getRegistry().setConnection(tester.getApplication(), presenter.getSessionId(), new PageIdKey(presenter.getPageId()), mockConnection());
+		qpollManager.start(presenter);
+		Thread.sleep(QuickPollManager.UPDATE_DELAY * 4); // start notification is delivered
+		updates.set(0);
+		for (Client c : voters) {
+			qpollManager.vote(c, true);
+		}
+		Thread.sleep(QuickPollManager.UPDATE_DELAY * 4);
+		assertEquals("Burst of votes should produce single update", 1, updates.get());
+		assertEquals(voters.size(), qpollManager.toJson(ROOM_ID, presenter.getUserId()).getLong("pros"));
+	}
+}
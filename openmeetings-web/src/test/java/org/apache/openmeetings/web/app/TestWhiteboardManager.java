@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openmeetings.web.app;
+
+import static java.util.UUID.randomUUID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.openmeetings.AbstractWicketTester;
+import org.apache.openmeetings.db.dto.room.Whiteboard;
+import org.apache.openmeetings.db.dto.room.Whiteboards;
+import org.apache.openmeetings.web.app.WhiteboardManager.ItemChange;
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.github.openjson.JSONArray;
+import com.github.openjson.JSONObject;
+import com.hazelcast.config.InMemoryFormat;
+import com.hazelcast.spi.impl.SerializationServiceSupport;
+import com.hazelcast.spi.serialization.SerializationService;
+
+public class TestWhiteboardManager extends AbstractWicketTester {
+	private static final Logger log = LoggerFactory.getLogger(TestWhiteboardManager.class);
+	private static final long ROOM_ID = Long.MAX_VALUE - 1;
+	private static final int OBJ_COUNT = 500;
+	@Autowired
+	private WhiteboardManager wbm;
+
+	@After
+	public void cleanup() {
+		wbm.remove(ROOM_ID);
+	}
+
+	private static JSONObject getStroke(String uid) {
+		JSONArray path = new JSONArray();
+		for (int i = 0; i < 100; ++i) {
+			path.put(new JSONArray().put("L").put(i * 1.5).put(i * 2.5));
+		}
+		return new JSONObject().put("type", "path").put("uid", uid).put("slide", 0)
+				.put("stroke", "#ff0000").put("path", path);
+	}
+
+	@Test
+	public void testDeltaSize() {
+		SerializationService ss = ((SerializationServiceSupport)((Application)tester.getApplication()).hazelcast).getSerializationService();
+		Whiteboards wbs = wbm.get(ROOM_ID);
+		Whiteboard wb = wbs.get(wbs.getActiveWb());
+		assertNotNull("Active whiteboard should exist", wb);
+		String uid = null;
+		for (int i = 0; i < OBJ_COUNT; ++i) {
+			uid = randomUUID().toString();
+			wbm.put(ROOM_ID, wb, uid, getStroke(uid));
+		}
+		int full = ss.toData(wbs).totalSize();
+		int delta = ss.toData(new ItemChange(ROOM_ID, wb.getId(), uid, wb.getItem(uid))).totalSize();
+		log.info("Bytes sent per stroke with {} objects on whiteboard: whole whiteboards {}, delta {}", OBJ_COUNT, full, delta);
+		assertTrue("Delta should be much smaller", delta * 100 < full);
+
+		assertNotNull("Object should be stored", wb.get(uid));
+		assertEquals(uid, wbm.remove(ROOM_ID, wb, uid).getString("uid"));
+		assertNull("Object should be removed", wb.get(uid));
+		assertNull("Missing object should not be removed", wbm.remove(ROOM_ID, wb, uid));
+	}
+
+	@Test
+	public void testStoredCopy() {
+		assertEquals("Stored copy should be modified in place", InMemoryFormat.OBJECT
+				, ((Application)tester.getApplication()).hazelcast.getConfig().getMapConfig("WBS_KEY").getInMemoryFormat());
+		Whiteboards wbs = wbm.get(ROOM_ID);
+		Whiteboard wb = wbs.get(wbs.getActiveWb());
+		String uid = randomUUID().toString();
+		wbm.put(ROOM_ID, wb, uid, getStroke(uid));
+		wb.setSlide(2);
+		wbm.update(ROOM_ID, wb);
+
+		Whiteboards stored = ((Application)tester.getApplication()).hazelcast.<Long, Whiteboards>getMap("WBS_KEY").get(ROOM_ID);
+		Whiteboard storedWb = stored.get(wb.getId());
+		assertNotNull("Delta should be applied to stored copy", storedWb.get(uid));
+		assertEquals(2, storedWb.getSlide());
+
+		assertEquals(1, wbm.clearSlide(ROOM_ID, wb, 0).length());
+		stored = ((Application)tester.getApplication()).hazelcast.<Long, Whiteboards>getMap("WBS_KEY").get(ROOM_ID);
+		assertNull("Cleared object should be removed from stored copy", stored.get(wb.getId()).get(uid));
+	}
+
+	@Test
+	public void testPagesReady() {
+		final long fileId = Long.MAX_VALUE - 2;
+		assertNull("Converted document should not be tracked", wbm.registerPages(fileId, ROOM_ID));
+		wbm.pagesReady(fileId, 1, 3);
+		assertEquals(Integer.valueOf(1), wbm.registerPages(fileId, ROOM_ID));
+		wbm.pagesReady(fileId, 2, 3);
+		assertEquals(Integer.valueOf(2), wbm.registerPages(fileId, ROOM_ID));
+		wbm.pagesReady(fileId, 3, 3);
+		assertNull("Converted document should not be tracked", wbm.registerPages(fileId, ROOM_ID));
+	}
+}
@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License") +  you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openmeetings.web.room.wb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.openmeetings.AbstractWicketTester;
+import org.apache.openmeetings.core.util.WebSocketHelper;
+import org.apache.openmeetings.db.entity.basic.Client;
+import org.apache.openmeetings.db.entity.room.Room;
+import org.apache.openmeetings.db.entity.user.User;
+import org.apache.openmeetings.web.app.ClientManager;
+import org.apache.wicket.protocol.ws.WebSocketSettings;
+import org.apache.wicket.protocol.ws.api.IWebSocketConnection;
+import org.apache.wicket.protocol.ws.api.registry.IWebSocketConnectionRegistry;
+import org.apache.wicket.protocol.ws.api.registry.PageIdKey;
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.github.openjson.JSONArray;
+import com.github.openjson.JSONObject;
+
+public class TestWbWebSocketHelper extends AbstractWicketTester {
+	private static final Logger log = LoggerFactory.getLogger(TestWbWebSocketHelper.class);
+	private static final long ROOM_ID = Long.MAX_VALUE - 2;
+	private static final int CLIENT_COUNT = 20;
+	private final List<Client> clients = new ArrayList<>();
+	private final List<String> received = Collections.synchronizedList(new ArrayList<>());
+	private CountDownLatch done;
+	@Autowired
+	private ClientManager cm;
+
+	private IWebSocketConnectionRegistry getRegistry() {
+		return WebSocketSettings.Holder.get(tester.getApplication()).getConnectionRegistry();
+	}
+
+	private IWebSocketConnection mockConnection() {
+		return (IWebSocketConnection)Proxy.newProxyInstance(getClass().getClassLoader()
+				, new Class<?>[] {IWebSocketConnection.class}
+				, (proxy, method, args) -> {
+					switch (method.getName()) {
+						case "isOpen":
+							return true;
+						case "sendMessage":
+							received.add((String)args[0]);
+							done.countDown();
+							return proxy;
+						case "hashCode":
+							return System.identityHashCode(proxy);
+						case "equals":
+							return proxy == args[0];
+						default:
+							return null;
+					}
+				});
+	}
+
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		addClients(CLIENT_COUNT);
+	}
+
+	private void addClients(int count) throws Exception {
+		Room r = new Room();
+		r.setId(ROOM_ID);
+		User u = createUser();
+		for (int i = clients.size(); i < count; ++i) {
+			Client c = new Client(String.format("wbsession%s", i), i, u.getId(), userDao);
+			cm.add(c);
+			cm.addToRoom(c.setRoom(r));
+			clients.add(c);
+			getRegistry().setConnection(tester.getApplication(), c.getSessionId(), new PageIdKey(c.getPageId()), mockConnection());
+		}
+	}
+
+	@After
+	public void cleanup() {
+		for (Client c : clients) {
+			getRegistry().removeConnection(tester.getApplication(), c.getSessionId(), new PageIdKey(c.getPageId()));
+			cm.exit(c);
+		}
+	}
+
+	@Test
+	public void testSendRoomEncodedOnce() throws Exception {
+		final AtomicInteger encoded = new AtomicInteger();
+		final JSONObject m = new JSONObject() {
+			@Override
+			public String toString() {
+				encoded.incrementAndGet();
+				return super.toString();
+			}
+		}.put("type", "test");
+		done = new CountDownLatch(CLIENT_COUNT);
+		WebSocketHelper.sendRoom(ROOM_ID, m);
+		assertTrue("All messages should be delivered", done.await(1, TimeUnit.MINUTES));
+		assertEquals("Message should be encoded once per broadcast", 1, encoded.get());
+		assertEquals(CLIENT_COUNT, received.size());
+	}
+
+	@Test
+	public void testSendWbSameText() throws Exception {
+		done = new CountDownLatch(CLIENT_COUNT);
+		WbWebSocketHelper.sendWbAll(ROOM_ID, WbAction.createObj, new JSONObject().put("wbId", 1L)
+				.put("obj", new JSONObject().put("type", "path").put("uid", "d4b1c3e2-8f7a-4e1b-9c2d-1a2b3c4d5e6f")));
+		assertTrue("All messages should be delivered", done.await(1, TimeUnit.MINUTES));
+		assertEquals(CLIENT_COUNT, received.size());
+		final String msg = received.get(0);
+		assertEquals(WbAction.createObj.name(), new JSONObject(msg).getString("func"));
+		for (String s : received) {
+			assertSame("Same encoded text should be sent to every recipient", msg, s);
+		}
+	}
+
+	private static JSONObject getWbMessage() {
+		JSONArray path = new JSONArray();
+		for (int i = 0; i < 200; ++i) {
+			path.put(new JSONArray().put("L").put(i * 1.5).put(i * 2.5));
+		}
+		return new JSONObject().put("type", "wb").put("func", "createObj")
+				.put("param", new JSONObject().put("wbId", 1L).put("obj", new JSONObject()
+						.put("type", "path").put("uid", "d4b1c3e2-8f7a-4e1b-9c2d-1a2b3c4d5e6f")
+						.put("slide", 0).put("stroke", "#ff0000").put("path", path)));
+	}
+
+	/**
+	 * Bytes allocated by all threads, broadcasts are delivered by pool threads
+	 */
+	private static Map<Long, Long> allocated(com.sun.management.ThreadMXBean bean) {
+		long[] ids = bean.getAllThreadIds();
+		long[] bytes = bean.getThreadAllocatedBytes(ids);
+		Map<Long, Long> result = new HashMap<>();
+		for (int i = 0; i < ids.length; ++i) {
+			if (bytes[i] > 0) {
+				result.put(ids[i], bytes[i]);
+			}
+		}
+		return result;
+	}
+
+	private static long allocatedSince(com.sun.management.ThreadMXBean bean, Map<Long, Long> start) {
+		long total = 0;
+		for (Map.Entry<Long, Long> e : allocated(bean).entrySet()) {
+			total += e.getValue() - start.getOrDefault(e.getKey(), 0L);
+		}
+		return total;
+	}
+
+	private void broadcast(JSONObject m, int count, int times) throws Exception {
+		done = new CountDownLatch(count * times);
+		for (int i = 0; i < times; ++i) {
+			WebSocketHelper.sendRoom(ROOM_ID, m);
+		}
+		assertTrue("All messages should be delivered", done.await(1, TimeUnit.MINUTES));
+		received.clear();
+	}
+
+	@Test
+	public void testBroadcastAllocation() throws Exception {
+		assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		final com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		assumeTrue(bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled());
+		final JSONObject m = getWbMessage();
+		final int length = m.toString().length();
+		final int times = 10;
+		for (int count : new int[] {50, 200, 1000}) {
+			addClients(count);
+			broadcast(m, count, times); // warm-up
+			Map<Long, Long> start = allocated(bean);
+			broadcast(m, count, times);
+			long perBroadcast = allocatedSince(bean, start) / times;
+			log.info("{} recipients: {} bytes allocated per broadcast of {} chars, {} bytes per recipient"
+					, count, perBroadcast, length, perBroadcast / count);
+			// encoding per recipient would allocate at least the text for every recipient
+			assertTrue("Broadcast should not encode message per recipient", perBroadcast < (long)count * length);
+		}
+	}
+}